@@ -17,7 +17,7 @@ import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.CloudSimTags;
 import org.cloudbus.cloudsim.core.SimEntity;
 import org.cloudbus.cloudsim.core.SimEvent;
-import org.fog.vmmobile.LogMobile;
+import org.fog.utils.FogLog;
 
 /**
  * Datacenter class is a CloudResource whose hostList are virtualized. It deals
@@ -33,6 +33,8 @@ import org.fog.vmmobile.LogMobile;
  */
 public class Datacenter extends SimEntity {
 
+	private static final long serialVersionUID = 1L;
+
 	/** The characteristics. */
 	private DatacenterCharacteristics characteristics;
 
@@ -561,8 +563,10 @@ public class Datacenter extends SimEntity {
 			CloudSim.clock(),
 			vm.getId(),
 			host.getId());
-		LogMobile.debug("Datacenter.java", "VM migration is completed: VM# " + vm.getId()
-			+ " Host# " + host.getId() + " from  " + getName());
+		if (FogLog.isEnabled(FogLog.Level.DEBUG)) {
+			FogLog.debug("Datacenter.java", "VM migration is completed: VM# " + vm.getId()
+				+ " Host# " + host.getId() + " from  " + getName());
+		}
 		vm.setInMigration(false);
 	}
 
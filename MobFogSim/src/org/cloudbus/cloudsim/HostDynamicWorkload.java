@@ -24,6 +24,8 @@ import org.cloudbus.cloudsim.provisioners.RamProvisioner;
  */
 public class HostDynamicWorkload extends Host {
 
+	private static final long serialVersionUID = 1L;
+
 	/** The utilization mips. */
 	private double utilizationMips;
 
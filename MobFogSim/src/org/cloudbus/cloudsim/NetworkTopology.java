@@ -8,10 +8,12 @@
 package org.cloudbus.cloudsim;
 
 import java.io.IOException;
+import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 
+import org.cloudbus.cloudsim.core.SimulationContext;
 import org.cloudbus.cloudsim.network.DelayMatrix_Float;
 import org.cloudbus.cloudsim.network.GraphReaderBrite;
 import org.cloudbus.cloudsim.network.TopologicalGraph;
@@ -29,24 +31,53 @@ import org.cloudbus.cloudsim.network.TopologicalNode;
  * be mapped to one (and only one) BRITE node to allow proper work of the
  * network simulation. Each BRITE node can be mapped to only one entity at a
  * time.
+ * <p>
+ * Each simulation has a topology of its own, kept in its
+ * {@link SimulationContext}; the static methods work on the topology of the
+ * current one.
  * 
  * @author Rodrigo N. Calheiros
  * @author Anton Beloglazov
  * @since CloudSim Toolkit 1.0
  */
-public class NetworkTopology {
+public class NetworkTopology implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The topology of each simulation. */
+	private static final SimulationContext.Key<NetworkTopology> TOPOLOGY =
+		new SimulationContext.Key<NetworkTopology>() {
+
+			@Override
+			protected NetworkTopology initialValue() {
+				return new NetworkTopology();
+			}
+		};
+
+	protected int nextIdx = 0;
 
-	protected static int nextIdx = 0;
+	private boolean networkEnabled = false;
 
-	private static boolean networkEnabled = false;
+	protected DelayMatrix_Float delayMatrix = null;
 
-	protected static DelayMatrix_Float delayMatrix = null;
+	protected double[][] bwMatrix = null;
 
-	protected static double[][] bwMatrix = null;
+	protected TopologicalGraph graph = null;
 
-	protected static TopologicalGraph graph = null;
+	protected Map<Integer, Integer> map = null;
 
-	protected static Map<Integer, Integer> map = null;
+	/** true while links are being added in a batch, see {@link #beginBatch()} */
+	private boolean batch = false;
+
+	/**
+	 * Gets the topology of the current simulation.
+	 * 
+	 * @return the topology
+	 * @see SimulationContext#current()
+	 */
+	protected static NetworkTopology current() {
+		return SimulationContext.current().get(TOPOLOGY);
+	}
 
 	/**
 	 * Creates the network topology if file exists and if file can be
@@ -59,15 +90,16 @@ public class NetworkTopology {
 	 * @post $none
 	 */
 	public static void buildNetworkTopology(String fileName) {
+		NetworkTopology topology = current();
 		Log.printLine("Topology file: " + fileName);
 
 		// try to find the file
 		GraphReaderBrite reader = new GraphReaderBrite();
 
 		try {
-			graph = reader.readGraphFile(fileName);
-			map = new HashMap<Integer, Integer>();
-			generateMatrices();
+			topology.graph = reader.readGraphFile(fileName);
+			topology.map = new HashMap<Integer, Integer>();
+			topology.generateMatrices();
 		} catch (IOException e) {
 			// problem with the file. Does not simulate network
 			Log.printLine("Problem in processing BRITE file. Network simulation is disabled. Error: "
@@ -80,7 +112,7 @@ public class NetworkTopology {
 	 * Generates the matrices used internally to set latency and bandwidth
 	 * between elements
 	 */
-	private static void generateMatrices() {
+	private void generateMatrices() {
 		// creates the delay matrix
 		delayMatrix = new DelayMatrix_Float(graph, false);
 
@@ -91,7 +123,10 @@ public class NetworkTopology {
 	}
 
 	/**
-	 * Adds a new link in the network topology
+	 * Adds a new link in the network topology. Outside a batch (see
+	 * {@link #beginBatch()}) the delay matrix is updated incrementally. A link
+	 * with latency <code>0</code> replaces and removes a previous link between
+	 * the same nodes.
 	 * 
 	 * @param srcId
 	 *        ID of the link's source
@@ -106,33 +141,113 @@ public class NetworkTopology {
 	 * @post $none
 	 */
 	public static void addLink(int srcId, int destId, double bw, double lat) {
+		NetworkTopology topology = current();
 
-		if (graph == null) {
-			graph = new TopologicalGraph();
+		if (topology.graph == null) {
+			topology.graph = new TopologicalGraph();
 		}
 
-		if (map == null) {
-			map = new HashMap<Integer, Integer>();
+		if (topology.map == null) {
+			topology.map = new HashMap<Integer, Integer>();
 		}
 
 		// maybe add the nodes
-		if (!map.containsKey(srcId)) {
-			graph.addNode(new TopologicalNode(nextIdx));
-			map.put(srcId, nextIdx);
-			nextIdx++;
+		if (!topology.map.containsKey(srcId)) {
+			topology.graph.addNode(new TopologicalNode(topology.nextIdx));
+			topology.map.put(srcId, topology.nextIdx);
+			topology.nextIdx++;
 		}
 
-		if (!map.containsKey(destId)) {
-			graph.addNode(new TopologicalNode(nextIdx));
-			map.put(destId, nextIdx);
-			nextIdx++;
+		if (!topology.map.containsKey(destId)) {
+			topology.graph.addNode(new TopologicalNode(topology.nextIdx));
+			topology.map.put(destId, topology.nextIdx);
+			topology.nextIdx++;
 		}
 
 		// generate a new link
-		graph.addLink(new TopologicalLink(map.get(srcId), map.get(destId), (float) lat, (float) bw));
+		TopologicalLink link = new TopologicalLink(topology.map.get(srcId),
+			topology.map.get(destId), (float) lat, (float) bw);
+		topology.graph.addLink(link);
+
+		if (topology.batch) {
+			// the matrices are generated once, in endBatch()
+			return;
+		}
+
+		if (topology.delayMatrix == null || topology.bwMatrix == null) {
+			topology.generateMatrices();
+		} else {
+			topology.updateMatrices(link);
+		}
 
-		generateMatrices();
+	}
+
+	/**
+	 * Starts a batch of links. The links added with
+	 * {@link #addLink(int, int, double, double)} until {@link #endBatch()} is
+	 * called only change the topological graph, and the shortest paths are
+	 * computed once at the end of the batch, instead of after every link. The
+	 * delays returned by {@link #getDelay(int, int)} are not updated while the
+	 * batch is open.
+	 * 
+	 * @pre $none
+	 * @post $none
+	 */
+	public static void beginBatch() {
+		current().batch = true;
+	}
 
+	/**
+	 * Ends a batch of links started with {@link #beginBatch()}, generating
+	 * the delay and bandwidth matrices of the whole topology.
+	 * 
+	 * @pre $none
+	 * @post $none
+	 */
+	public static void endBatch() {
+		NetworkTopology topology = current();
+		if (!topology.batch) {
+			return;
+		}
+		topology.batch = false;
+		if (topology.graph != null) {
+			topology.generateMatrices();
+		}
+	}
+
+	/**
+	 * Checks whether a batch of links is open.
+	 * 
+	 * @return true if the links are being added in a batch
+	 */
+	public static boolean isBatch() {
+		return current().batch;
+	}
+
+	/**
+	 * Updates the matrices after a single link is added, without computing
+	 * all the shortest paths again.
+	 * 
+	 * @param link
+	 *        the new link
+	 */
+	private void updateMatrices(TopologicalLink link) {
+		int nodes = graph.getNumberOfNodes();
+		delayMatrix.addNodes(nodes);
+
+		if (bwMatrix.length < nodes) {
+			double[][] mtx = new double[nodes][nodes];
+			for (int i = 0; i < bwMatrix.length; i++) {
+				System.arraycopy(bwMatrix[i], 0, mtx[i], 0, bwMatrix.length);
+			}
+			bwMatrix = mtx;
+		}
+		bwMatrix[link.getSrcNodeID()][link.getDestNodeID()] = link.getLinkBw();
+		bwMatrix[link.getDestNodeID()][link.getSrcNodeID()] = link.getLinkBw();
+
+		delayMatrix.updateLink(link.getSrcNodeID(), link.getDestNodeID(), link.getLinkDelay());
+
+		networkEnabled = true;
 	}
 
 	/**
@@ -182,13 +297,14 @@ public class NetworkTopology {
 	 * @post $none
 	 */
 	public static void mapNode(int cloudSimEntityID, int briteID) {
-		if (networkEnabled) {
+		NetworkTopology topology = current();
+		if (topology.networkEnabled) {
 			try {
 				// this CloudSim entity was already mapped?
-				if (!map.containsKey(cloudSimEntityID)) {
-					if (!map.containsValue(briteID)) { // this BRITE node was
+				if (!topology.map.containsKey(cloudSimEntityID)) {
+					if (!topology.map.containsValue(briteID)) { // this BRITE node was
 														// already mapped?
-						map.put(cloudSimEntityID, briteID);
+						topology.map.put(cloudSimEntityID, briteID);
 					} else {
 						Log.printLine("Error in network mapping. BRITE node " + briteID
 							+ " already in use.");
@@ -214,9 +330,10 @@ public class NetworkTopology {
 	 * @post $none
 	 */
 	public static void unmapNode(int cloudSimEntityID) {
-		if (networkEnabled) {
+		NetworkTopology topology = current();
+		if (topology.networkEnabled) {
 			try {
-				map.remove(cloudSimEntityID);
+				topology.map.remove(cloudSimEntityID);
 			} catch (Exception e) {
 				Log.printLine("Error in network unmapping. CloudSim node: " + cloudSimEntityID);
 			}
@@ -236,10 +353,12 @@ public class NetworkTopology {
 	 * @post $none
 	 */
 	public static double getDelay(int srcID, int destID) {
-		if (networkEnabled) {
+		NetworkTopology topology = current();
+		if (topology.networkEnabled) {
 			try {
 				// add the network latency
-				double delay = delayMatrix.getDelay(map.get(srcID), map.get(destID));
+				double delay = topology.delayMatrix.getDelay(topology.map.get(srcID),
+					topology.map.get(destID));
 
 				return delay;
 			} catch (Exception e) {
@@ -260,7 +379,7 @@ public class NetworkTopology {
 	 * @post $none
 	 */
 	public static boolean isNetworkEnabled() {
-		return networkEnabled;
+		return current().networkEnabled;
 	}
 
 }
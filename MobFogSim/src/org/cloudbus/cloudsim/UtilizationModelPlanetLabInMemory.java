@@ -9,6 +9,8 @@ import java.io.IOException;
  */
 public class UtilizationModelPlanetLabInMemory implements UtilizationModel {
 
+	private static final long serialVersionUID = 1L;
+
 	/** The scheduling interval. */
 	private double schedulingInterval;
 
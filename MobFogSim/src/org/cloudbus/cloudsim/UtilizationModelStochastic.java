@@ -24,6 +24,8 @@ import java.util.Random;
  */
 public class UtilizationModelStochastic implements UtilizationModel {
 
+	private static final long serialVersionUID = 1L;
+
 	/** The random generator. */
 	private Random randomGenerator;
 
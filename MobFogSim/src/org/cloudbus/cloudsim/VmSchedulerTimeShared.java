@@ -29,6 +29,8 @@ import org.cloudbus.cloudsim.provisioners.PeProvisioner;
  */
 public class VmSchedulerTimeShared extends VmScheduler {
 
+	private static final long serialVersionUID = 1L;
+
 	/** The mips map requested. */
 	private Map<String, List<Double>> mipsMapRequested;
 
@@ -27,6 +27,8 @@ import org.cloudbus.cloudsim.lists.PeList;
  */
 public class VmSchedulerTimeSharedOverSubscription extends VmSchedulerTimeShared {
 
+	private static final long serialVersionUID = 1L;
+
 	/**
 	 * Instantiates a new vm scheduler time shared over subscription.
 	 * 
@@ -0,0 +1,332 @@
+/*
+ * Title: CloudSim Toolkit Description: CloudSim (Cloud Simulation) Toolkit for
+ * Modeling and Simulation of Clouds Licence: GPL -
+ * http://www.gnu.org/copyleft/gpl.html Copyright (c) 2009-2012, The University
+ * of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * A future event queue backed by an array based binary heap. The ordering keys
+ * (time, serial and insertion sequence) are copied into primitive arrays when
+ * an event is added, so the comparisons never touch the events themselves and
+ * no node object is allocated per event. Each event also records its position
+ * in the heap, so a given event is removed in O(log n).
+ *
+ * @see EventQueue
+ * @see EventQueueType#BINARY_HEAP
+ */
+public class BinaryHeapEventQueue implements EventQueue {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The initial capacity of the heap. */
+	private static final int INITIAL_CAPACITY = 1024;
+
+	/** The events, in heap order. */
+	private SimEvent[] events = new SimEvent[INITIAL_CAPACITY];
+
+	/** The time of each event in the heap. */
+	private double[] times = new double[INITIAL_CAPACITY];
+
+	/** The serial of each event in the heap. */
+	private long[] serials = new long[INITIAL_CAPACITY];
+
+	/** The insertion sequence of each event in the heap. */
+	private long[] sequences = new long[INITIAL_CAPACITY];
+
+	/** The number of events in the heap. */
+	private int size = 0;
+
+	/** The serial. */
+	private long serial = 0;
+
+	/** The insertion sequence, used to break ties between equal serials. */
+	private long sequence = 0;
+
+	@Override
+	public void addEvent(SimEvent newEvent) {
+		newEvent.setSerial(serial);
+		insert(newEvent, serial++);
+	}
+
+	@Override
+	public void addEventFirst(SimEvent newEvent) {
+		newEvent.setSerial(0);
+		insert(newEvent, 0);
+	}
+
+	@Override
+	public void addEventWithSerial(SimEvent newEvent) {
+		insert(newEvent, newEvent.getSerial());
+	}
+
+	@Override
+	public SimEvent peek() {
+		return size == 0 ? null : events[0];
+	}
+
+	@Override
+	public SimEvent poll() {
+		if (size == 0) {
+			return null;
+		}
+		SimEvent first = events[0];
+		removeAt(0);
+		return first;
+	}
+
+	@Override
+	public int pollBatch(double time, List<SimEvent> batch) {
+		int count = 0;
+		while (size > 0 && times[0] == time) {
+			batch.add(events[0]);
+			removeAt(0);
+			count++;
+		}
+		return count;
+	}
+
+	@Override
+	public Iterator<SimEvent> iterator() {
+		return new Iterator<SimEvent>() {
+
+			private int index = 0;
+
+			@Override
+			public boolean hasNext() {
+				return index < size;
+			}
+
+			@Override
+			public SimEvent next() {
+				if (index >= size) {
+					throw new NoSuchElementException();
+				}
+				return events[index++];
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException("Use BinaryHeapEventQueue.remove(SimEvent)");
+			}
+		};
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean remove(SimEvent event) {
+		int index = event.heapIndex;
+		if (index < 0 || index >= size || events[index] != event) {
+			return false;
+		}
+		removeAt(index);
+		return true;
+	}
+
+	@Override
+	public boolean removeAll(Collection<SimEvent> toRemove) {
+		if (toRemove.isEmpty()) {
+			return false;
+		}
+		Map<SimEvent, Boolean> removed = new IdentityHashMap<SimEvent, Boolean>();
+		for (SimEvent event : toRemove) {
+			removed.put(event, Boolean.TRUE);
+		}
+
+		int kept = 0;
+		for (int i = 0; i < size; i++) {
+			if (!removed.containsKey(events[i])) {
+				move(i, kept++);
+			} else {
+				events[i].heapIndex = -1;
+			}
+		}
+		if (kept == size) {
+			return false;
+		}
+		Arrays.fill(events, kept, size, null);
+		size = kept;
+
+		// restores the heap property bottom-up
+		for (int i = (size >>> 1) - 1; i >= 0; i--) {
+			siftDown(i);
+		}
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			events[i].heapIndex = -1;
+		}
+		Arrays.fill(events, 0, size, null);
+		size = 0;
+	}
+
+	/**
+	 * Inserts an event with the given serial in the heap.
+	 *
+	 * @param event
+	 *        the event
+	 * @param eventSerial
+	 *        the serial used to order the event
+	 */
+	private void insert(SimEvent event, long eventSerial) {
+		if (size == events.length) {
+			grow();
+		}
+		events[size] = event;
+		event.heapIndex = size;
+		times[size] = event.eventTime();
+		serials[size] = eventSerial;
+		sequences[size] = sequence++;
+		siftUp(size++);
+	}
+
+	/**
+	 * Removes the event at the given position of the heap.
+	 *
+	 * @param index
+	 *        the position
+	 */
+	private void removeAt(int index) {
+		events[index].heapIndex = -1;
+		int last = --size;
+		if (index != last) {
+			move(last, index);
+			siftDown(index);
+			if (events[index] == events[last]) {
+				siftUp(index);
+			}
+		}
+		events[last] = null;
+	}
+
+	/**
+	 * Moves the event at the given position up until its parent is smaller.
+	 *
+	 * @param index
+	 *        the position
+	 */
+	private void siftUp(int index) {
+		while (index > 0) {
+			int parent = (index - 1) >>> 1;
+			if (!less(index, parent)) {
+				break;
+			}
+			swap(index, parent);
+			index = parent;
+		}
+	}
+
+	/**
+	 * Moves the event at the given position down until its children are
+	 * greater.
+	 *
+	 * @param index
+	 *        the position
+	 */
+	private void siftDown(int index) {
+		int half = size >>> 1;
+		while (index < half) {
+			int child = 2 * index + 1;
+			int right = child + 1;
+			if (right < size && less(right, child)) {
+				child = right;
+			}
+			if (!less(child, index)) {
+				break;
+			}
+			swap(index, child);
+			index = child;
+		}
+	}
+
+	/**
+	 * Compares the events at the two given positions by time, serial and
+	 * insertion sequence.
+	 *
+	 * @param i
+	 *        the first position
+	 * @param j
+	 *        the second position
+	 * @return true, if the event at <tt>i</tt> comes before the one at
+	 *         <tt>j</tt>
+	 */
+	private boolean less(int i, int j) {
+		if (times[i] != times[j]) {
+			return times[i] < times[j];
+		}
+		if (serials[i] != serials[j]) {
+			return serials[i] < serials[j];
+		}
+		return sequences[i] < sequences[j];
+	}
+
+	/**
+	 * Swaps the events at the two given positions.
+	 *
+	 * @param i
+	 *        the first position
+	 * @param j
+	 *        the second position
+	 */
+	private void swap(int i, int j) {
+		SimEvent event = events[i];
+		events[i] = events[j];
+		events[j] = event;
+		events[i].heapIndex = i;
+		events[j].heapIndex = j;
+		double time = times[i];
+		times[i] = times[j];
+		times[j] = time;
+		long value = serials[i];
+		serials[i] = serials[j];
+		serials[j] = value;
+		value = sequences[i];
+		sequences[i] = sequences[j];
+		sequences[j] = value;
+	}
+
+	/**
+	 * Copies the event at position <tt>from</tt> to position <tt>to</tt>.
+	 *
+	 * @param from
+	 *        the source position
+	 * @param to
+	 *        the destination position
+	 */
+	private void move(int from, int to) {
+		events[to] = events[from];
+		events[to].heapIndex = to;
+		times[to] = times[from];
+		serials[to] = serials[from];
+		sequences[to] = sequences[from];
+	}
+
+	/**
+	 * Doubles the capacity of the heap.
+	 */
+	private void grow() {
+		int capacity = events.length << 1;
+		events = Arrays.copyOf(events, capacity);
+		times = Arrays.copyOf(times, capacity);
+		serials = Arrays.copyOf(serials, capacity);
+		sequences = Arrays.copyOf(sequences, capacity);
+	}
+
+}
@@ -0,0 +1,499 @@
+/*
+ * Title: CloudSim Toolkit Description: CloudSim (Cloud Simulation) Toolkit for
+ * Modeling and Simulation of Clouds Licence: GPL -
+ * http://www.gnu.org/copyleft/gpl.html Copyright (c) 2009-2012, The University
+ * of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * A future event queue implemented as a calendar queue (R. Brown, "Calendar
+ * queues: a fast O(1) priority queue implementation for the simulation event
+ * set problem", CACM 31(10), 1988). Events are hashed by time into an array of
+ * buckets (the "days" of a "year"), each one kept sorted; the number of
+ * buckets and their width are recalculated whenever the queue doubles or
+ * halves in size.
+ * <p>
+ * Buckets are addressed by an integer "virtual bucket" (the time divided by
+ * the bucket width) instead of an accumulated floating point bucket top, so
+ * rounding errors can not deliver the events out of order.
+ *
+ * @see EventQueue
+ * @see EventQueueType#CALENDAR
+ */
+public class CalendarEventQueue implements EventQueue {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The minimum number of buckets. */
+	private static final int MIN_BUCKETS = 2;
+
+	/** The number of events sampled to estimate the bucket width. */
+	private static final int WIDTH_SAMPLE = 25;
+
+	/** The buckets; each one is a list sorted by time, serial and sequence. */
+	private Node[] buckets = new Node[MIN_BUCKETS];
+
+	/** The last node of each bucket, to append in O(1). */
+	private Node[] tails = new Node[MIN_BUCKETS];
+
+	/** The width of each bucket. */
+	private double width = 1.0;
+
+	/** The virtual bucket of the last event removed. */
+	private long currentBucket = 0;
+
+	/** The number of events in the queue. */
+	private int size = 0;
+
+	/** The serial. */
+	private long serial = 0;
+
+	/** The insertion sequence, used to break ties between equal serials. */
+	private long sequence = 0;
+
+	@Override
+	public void addEvent(SimEvent newEvent) {
+		newEvent.setSerial(serial);
+		insert(new Node(newEvent, serial++, sequence++));
+	}
+
+	@Override
+	public void addEventFirst(SimEvent newEvent) {
+		newEvent.setSerial(0);
+		insert(new Node(newEvent, 0, sequence++));
+	}
+
+	@Override
+	public void addEventWithSerial(SimEvent newEvent) {
+		insert(new Node(newEvent, newEvent.getSerial(), sequence++));
+	}
+
+	@Override
+	public SimEvent peek() {
+		int bucket = findFirst();
+		return bucket < 0 ? null : buckets[bucket].event;
+	}
+
+	@Override
+	public SimEvent poll() {
+		int bucket = findFirst();
+		if (bucket < 0) {
+			return null;
+		}
+		SimEvent first = buckets[bucket].event;
+		removeHead(bucket);
+		return first;
+	}
+
+	@Override
+	public int pollBatch(double time, List<SimEvent> batch) {
+		int count = 0;
+		int bucket = findFirst();
+		while (bucket >= 0 && buckets[bucket].time == time) {
+			batch.add(buckets[bucket].event);
+			removeHead(bucket);
+			count++;
+			bucket = findFirst();
+		}
+		return count;
+	}
+
+	@Override
+	public Iterator<SimEvent> iterator() {
+		return new Iterator<SimEvent>() {
+
+			private int bucket = -1;
+
+			private Node next = advance(null);
+
+			private Node advance(Node node) {
+				if (node != null && node.next != null) {
+					return node.next;
+				}
+				while (++bucket < buckets.length) {
+					if (buckets[bucket] != null) {
+						return buckets[bucket];
+					}
+				}
+				return null;
+			}
+
+			@Override
+			public boolean hasNext() {
+				return next != null;
+			}
+
+			@Override
+			public SimEvent next() {
+				if (next == null) {
+					throw new NoSuchElementException();
+				}
+				Node node = next;
+				next = advance(node);
+				return node.event;
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException("Use CalendarEventQueue.remove(SimEvent)");
+			}
+		};
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean remove(SimEvent event) {
+		int bucket = bucketIndex(virtualBucket(event.eventTime()));
+		Node previous = null;
+		for (Node node = buckets[bucket]; node != null; previous = node, node = node.next) {
+			if (node.event == event) {
+				unlink(bucket, previous, node);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public boolean removeAll(Collection<SimEvent> events) {
+		Map<SimEvent, Boolean> toRemove = new IdentityHashMap<SimEvent, Boolean>();
+		for (SimEvent event : events) {
+			toRemove.put(event, Boolean.TRUE);
+		}
+
+		boolean removed = false;
+		for (int bucket = 0; bucket < buckets.length; bucket++) {
+			Node previous = null;
+			Node node = buckets[bucket];
+			while (node != null) {
+				Node next = node.next;
+				if (toRemove.containsKey(node.event)) {
+					unlink(bucket, previous, node);
+					removed = true;
+				} else {
+					previous = node;
+				}
+				node = next;
+			}
+		}
+		if (removed) {
+			resizeIfNeeded();
+		}
+		return removed;
+	}
+
+	@Override
+	public void clear() {
+		buckets = new Node[MIN_BUCKETS];
+		tails = new Node[MIN_BUCKETS];
+		width = 1.0;
+		currentBucket = 0;
+		size = 0;
+	}
+
+	/**
+	 * Inserts a node in its bucket, keeping the bucket sorted.
+	 *
+	 * @param node
+	 *        the node
+	 */
+	private void insert(Node node) {
+		link(node);
+		size++;
+		resizeIfNeeded();
+	}
+
+	/**
+	 * Links a node in its bucket, keeping the bucket sorted, without changing
+	 * the size of the queue.
+	 *
+	 * @param node
+	 *        the node
+	 */
+	private void link(Node node) {
+		long virtual = virtualBucket(node.time);
+		if (virtual < currentBucket || size == 0) {
+			currentBucket = virtual;
+		}
+		int bucket = bucketIndex(virtual);
+		Node tail = tails[bucket];
+		if (tail == null) {
+			buckets[bucket] = node;
+			tails[bucket] = node;
+			return;
+		}
+		if (!node.before(tail)) {
+			// the common case: events are mostly scheduled in time order
+			tail.next = node;
+			tails[bucket] = node;
+			return;
+		}
+		Node head = buckets[bucket];
+		if (node.before(head)) {
+			node.next = head;
+			buckets[bucket] = node;
+			return;
+		}
+		Node previous = head;
+		while (!node.before(previous.next)) {
+			previous = previous.next;
+		}
+		node.next = previous.next;
+		previous.next = node;
+	}
+
+	/**
+	 * Finds the bucket holding the first event of the queue.
+	 *
+	 * @return the bucket index, or <tt>-1</tt> if the queue is empty
+	 */
+	private int findFirst() {
+		if (size == 0) {
+			return -1;
+		}
+		int count = buckets.length;
+		for (int i = 0; i < count; i++, currentBucket++) {
+			int bucket = bucketIndex(currentBucket);
+			Node head = buckets[bucket];
+			if (head != null && virtualBucket(head.time) == currentBucket) {
+				return bucket;
+			}
+		}
+
+		// a whole year without events: search the minimum directly
+		int first = -1;
+		for (int bucket = 0; bucket < count; bucket++) {
+			Node head = buckets[bucket];
+			if (head != null && (first < 0 || head.before(buckets[first]))) {
+				first = bucket;
+			}
+		}
+		currentBucket = virtualBucket(buckets[first].time);
+		return first;
+	}
+
+	/**
+	 * Removes the first node of a bucket.
+	 *
+	 * @param bucket
+	 *        the bucket index
+	 */
+	private void removeHead(int bucket) {
+		unlink(bucket, null, buckets[bucket]);
+		resizeIfNeeded();
+	}
+
+	/**
+	 * Unlinks a node from a bucket.
+	 *
+	 * @param bucket
+	 *        the bucket index
+	 * @param previous
+	 *        the node before <tt>node</tt>, or <tt>null</tt> if it is the head
+	 * @param node
+	 *        the node
+	 */
+	private void unlink(int bucket, Node previous, Node node) {
+		if (previous == null) {
+			buckets[bucket] = node.next;
+		} else {
+			previous.next = node.next;
+		}
+		if (tails[bucket] == node) {
+			tails[bucket] = previous;
+		}
+		node.next = null;
+		size--;
+	}
+
+	/**
+	 * Doubles the number of buckets when there are more than two events per
+	 * bucket and halves it when there is less than one event for every two
+	 * buckets.
+	 */
+	private void resizeIfNeeded() {
+		int count = buckets.length;
+		if (size > 2 * count) {
+			resize(2 * count);
+		} else if (count > MIN_BUCKETS && size < count / 2) {
+			resize(count / 2);
+		}
+	}
+
+	/**
+	 * Rebuilds the calendar with the given number of buckets and a bucket
+	 * width estimated from the separation of the first events.
+	 *
+	 * @param count
+	 *        the new number of buckets
+	 */
+	private void resize(int count) {
+		Node[] nodes = new Node[size];
+		int n = 0;
+		for (Node head : buckets) {
+			for (Node node = head; node != null; node = node.next) {
+				nodes[n++] = node;
+			}
+		}
+		Arrays.sort(nodes, new Comparator<Node>() {
+
+			@Override
+			public int compare(Node a, Node b) {
+				return a.before(b) ? -1 : (b.before(a) ? 1 : 0);
+			}
+		});
+
+		width = estimateWidth(nodes);
+		buckets = new Node[count];
+		tails = new Node[count];
+		int total = size;
+		size = 0;
+		for (Node node : nodes) {
+			node.next = null;
+			link(node);
+			size++;
+		}
+		size = total;
+		currentBucket = n == 0 ? 0 : virtualBucket(nodes[0].time);
+	}
+
+	/**
+	 * Estimates the bucket width as three times the average separation of the
+	 * first events, ignoring separations larger than twice the first average
+	 * (Brown's heuristic). Keeps the current width if all the sampled events
+	 * happen at the same time.
+	 *
+	 * @param nodes
+	 *        the nodes, sorted
+	 * @return the new width
+	 */
+	private double estimateWidth(Node[] nodes) {
+		int sample = Math.min(nodes.length, WIDTH_SAMPLE + 1);
+		if (sample < 2) {
+			return width;
+		}
+		double total = 0;
+		int separations = 0;
+		for (int i = 1; i < sample; i++) {
+			double separation = nodes[i].time - nodes[i - 1].time;
+			if (separation > 0) {
+				total += separation;
+				separations++;
+			}
+		}
+		if (separations == 0) {
+			return width;
+		}
+		double average = total / separations;
+		double refined = 0;
+		int kept = 0;
+		for (int i = 1; i < sample; i++) {
+			double separation = nodes[i].time - nodes[i - 1].time;
+			if (separation > 0 && separation <= 2 * average) {
+				refined += separation;
+				kept++;
+			}
+		}
+		if (kept > 0) {
+			average = refined / kept;
+		}
+		return 3 * average;
+	}
+
+	/**
+	 * Gets the virtual bucket of a given time.
+	 *
+	 * @param time
+	 *        the time
+	 * @return the virtual bucket
+	 */
+	private long virtualBucket(double time) {
+		return (long) Math.floor(time / width);
+	}
+
+	/**
+	 * Gets the bucket index of a virtual bucket.
+	 *
+	 * @param virtual
+	 *        the virtual bucket
+	 * @return the index in {@link #buckets}
+	 */
+	private int bucketIndex(long virtual) {
+		int index = (int) (virtual % buckets.length);
+		return index < 0 ? index + buckets.length : index;
+	}
+
+	/**
+	 * An event in a bucket, with a copy of its ordering keys.
+	 */
+	private static final class Node implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		/** The event. */
+		private final SimEvent event;
+
+		/** The event time. */
+		private final double time;
+
+		/** The event serial. */
+		private final long serial;
+
+		/** The insertion sequence. */
+		private final long sequence;
+
+		/** The next node of the bucket. */
+		private Node next;
+
+		/**
+		 * Creates a new node.
+		 *
+		 * @param event
+		 *        the event
+		 * @param serial
+		 *        the serial used to order the event
+		 * @param sequence
+		 *        the insertion sequence
+		 */
+		private Node(SimEvent event, long serial, long sequence) {
+			this.event = event;
+			time = event.eventTime();
+			this.serial = serial;
+			this.sequence = sequence;
+		}
+
+		/**
+		 * Checks whether this node comes before another one.
+		 *
+		 * @param other
+		 *        the other node
+		 * @return true, if this node comes first
+		 */
+		private boolean before(Node other) {
+			if (time != other.time) {
+				return time < other.time;
+			}
+			if (serial != other.serial) {
+				return serial < other.serial;
+			}
+			return sequence < other.sequence;
+		}
+	}
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Title: CloudSim Toolkit Description: CloudSim (Cloud Simulation) Toolkit for
+ * Modeling and Simulation of Clouds Licence: GPL -
+ * http://www.gnu.org/copyleft/gpl.html Copyright (c) 2009-2012, The University
+ * of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A saved running simulation: its {@link SimulationContext}, with the entities,
+ * the event queues, the clock and the values of the keys, and the state the
+ * program driving the simulation keeps out of the context, if any.
+ * <p>
+ * The checkpoint is written with Java serialization, compressed, so all the
+ * objects reachable from the context must be serializable. To resume the
+ * simulation, bind the restored context to a thread with
+ * {@link SimulationContext#setCurrent(SimulationContext)} and call
+ * {@link CloudSim#startSimulation()}: the entities are not started again. A
+ * checkpoint can be restored any number of times, each restore being a new
+ * simulation that goes on exactly as the saved one did.
+ *
+ * @see CheckpointHandler
+ */
+public class Checkpoint implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The simulated time the checkpoint was taken at. */
+	private final double time;
+
+	/** The saved simulation. */
+	private final SimulationContext context;
+
+	/** The state of the driver of the simulation. */
+	private final Serializable driverState;
+
+	public Checkpoint(double time, SimulationContext context, Serializable driverState) {
+		this.time = time;
+		this.context = context;
+		this.driverState = driverState;
+	}
+
+	public double getTime() {
+		return time;
+	}
+
+	public SimulationContext getContext() {
+		return context;
+	}
+
+	public Serializable getDriverState() {
+		return driverState;
+	}
+
+	/**
+	 * Writes the checkpoint to a file.
+	 *
+	 * @param file
+	 *        the file
+	 * @throws IOException
+	 *         if the file can not be written or an object of the simulation is
+	 *         not serializable
+	 */
+	public void write(File file) throws IOException {
+		try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(
+			new GZIPOutputStream(new FileOutputStream(file), 64 * 1024)))) {
+			out.writeObject(this);
+		}
+	}
+
+	/**
+	 * Reads a checkpoint written by {@link #write(File)}, with the classes of
+	 * the same version of the simulator.
+	 *
+	 * @param file
+	 *        the file
+	 * @return the checkpoint
+	 * @throws IOException
+	 *         if the file can not be read
+	 */
+	public static Checkpoint read(File file) throws IOException {
+		try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(
+			new GZIPInputStream(new FileInputStream(file), 64 * 1024)))) {
+			return (Checkpoint) in.readObject();
+		} catch (ClassNotFoundException e) {
+			throw new IOException("Not a checkpoint of this simulator: " + file, e);
+		}
+	}
+}
@@ -0,0 +1,30 @@
+/*
+ * Title: CloudSim Toolkit Description: CloudSim (Cloud Simulation) Toolkit for
+ * Modeling and Simulation of Clouds Licence: GPL -
+ * http://www.gnu.org/copyleft/gpl.html Copyright (c) 2009-2012, The University
+ * of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+/**
+ * Takes the checkpoints of a simulation at the times set with
+ * {@link SimulationContext#setCheckpoints(CheckpointHandler, double...)},
+ * usually by writing a {@link Checkpoint}.
+ *
+ * @see Checkpoint
+ */
+public interface CheckpointHandler {
+
+	/**
+	 * Called between two clock ticks, when all the events up to the checkpoint
+	 * time have been processed and none after it. The handler must not change
+	 * the simulation.
+	 *
+	 * @param context
+	 *        the simulation
+	 * @param time
+	 *        the checkpoint time
+	 */
+	void checkpoint(SimulationContext context, double time);
+}
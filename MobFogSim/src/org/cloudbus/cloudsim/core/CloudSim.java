@@ -7,14 +7,9 @@
 
 package org.cloudbus.cloudsim.core;
 
-import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 
 import org.cloudbus.cloudsim.Log;
 import org.cloudbus.cloudsim.core.predicates.Predicate;
@@ -29,6 +24,10 @@ import org.cloudbus.cloudsim.core.predicates.PredicateNone;
  * such file are mapped to CloudSim entities. Delay calculated from the BRITE
  * model are added to the messages send through CloudSim. Messages using the old
  * model are converted to the apropriate methods with the correct parameters.
+ * <p>
+ * The state of the simulation is kept in a {@link SimulationContext}: the
+ * methods of this class work on the current context of the calling thread, the
+ * default one unless the thread has been bound to another.
  * 
  * @author Rodrigo N. Calheiros
  * @author Anton Beloglazov
@@ -39,35 +38,6 @@ public class CloudSim {
 	/** The Constant CLOUDSIM_VERSION_STRING. */
 	private static final String CLOUDSIM_VERSION_STRING = "3.0";
 
-	/** The id of CIS entity. */
-	private static int cisId = -1;
-
-	/** The id of CloudSimShutdown entity. */
-	@SuppressWarnings("unused")
-	private static int shutdownId = -1;
-
-	/** The CIS object. */
-	private static CloudInformationService cis = null;
-
-	/** The Constant NOT_FOUND. */
-	private static final int NOT_FOUND = -1;
-
-	/** The trace flag. */
-	@SuppressWarnings("unused")
-	private static boolean traceFlag = false;
-
-	/** The calendar. */
-	private static Calendar calendar = null;
-
-	/** The termination time. */
-	private static double terminateAt = -1;
-
-	/**
-	 * The minimal time between events. Events within shorter periods after the
-	 * last event are discarded.
-	 */
-	private static double minTimeBetweenEvents = 0.1;
-
 	/**
 	 * Initialises all the common attributes.
 	 * 
@@ -86,20 +56,21 @@ public class CloudSim {
 	private static void initCommonVariable(Calendar _calendar, boolean _traceFlag, int numUser)
 		throws Exception {
 		initialize();
+		SimulationContext context = SimulationContext.current();
 		// NOTE: the order for the below 3 lines are important
-		traceFlag = _traceFlag;
+		context.traceFlag = _traceFlag;
 
 		// Set the current Wall clock time as the starting time of
 		// simulation
 		if (_calendar == null) {
-			calendar = Calendar.getInstance();
+			context.calendar = Calendar.getInstance();
 		} else {
-			calendar = _calendar;
+			context.calendar = _calendar;
 		}
 
 		// creates a CloudSimShutdown object
 		CloudSimShutdown shutdown = new CloudSimShutdown("CloudSimShutdown", numUser);
-		shutdownId = shutdown.getId();
+		context.shutdownId = shutdown.getId();
 	}
 
 	/**
@@ -133,10 +104,11 @@ public class CloudSim {
 			initCommonVariable(cal, traceFlag, numUser);
 
 			// create a GIS object
-			cis = new CloudInformationService("CloudInformationService");
+			SimulationContext context = SimulationContext.current();
+			context.cis = new CloudInformationService("CloudInformationService");
 
 			// set all the above entity IDs
-			cisId = cis.getId();
+			context.cisId = context.cis.getId();
 		} catch (IllegalArgumentException s) {
 			Log.printLine("CloudSim.init(): The simulation has been terminated due to an unexpected error");
 			Log.printLine(s.getMessage());
@@ -182,7 +154,35 @@ public class CloudSim {
 		}
 
 		init(numUser, cal, traceFlag);
-		minTimeBetweenEvents = periodBetweenEvents;
+		SimulationContext.current().minTimeBetweenEvents = periodBetweenEvents;
+	}
+
+	/**
+	 * Initialises CloudSim parameters with a given future event queue
+	 * implementation. This method should be called before creating any
+	 * entities. All the implementations deliver the events in the same order,
+	 * so the choice only affects the simulation performance.
+	 * 
+	 * @param numUser
+	 *        the number of User Entities created
+	 * @param cal
+	 *        starting time for this simulation. If it is <tt>null</tt>, then
+	 *        the time will be taken from <tt>Calendar.getInstance()</tt>
+	 * @param traceFlag
+	 *        <tt>true</tt> if CloudSim trace need to be written
+	 * @param queueType
+	 *        the future event queue implementation
+	 * @see #init(int, Calendar, boolean)
+	 * @pre numUser >= 0
+	 * @post $none
+	 */
+	public static void init(int numUser, Calendar cal, boolean traceFlag, EventQueueType queueType) {
+		if (queueType == null) {
+			throw new IllegalArgumentException("The future event queue type can't be null.");
+		}
+
+		SimulationContext.current().futureQueueType = queueType;
+		init(numUser, cal, traceFlag);
 	}
 
 	/**
@@ -204,15 +204,15 @@ public class CloudSim {
 	public static double startSimulation() throws NullPointerException {
 		Log.printLine("Starting CloudSim version " + CLOUDSIM_VERSION_STRING);
 		try {
-
-			double clock = run();
+			SimulationContext context = SimulationContext.current();
+			double clock = context.run();
 
 			// reset all static variables
-			cisId = -1;
-			shutdownId = -1;
-			cis = null;
-			calendar = null;
-			traceFlag = false;
+			context.cisId = -1;
+			context.shutdownId = -1;
+			context.cis = null;
+			context.calendar = null;
+			context.traceFlag = false;
 
 			return clock;
 		} catch (IllegalArgumentException e) {
@@ -250,9 +250,7 @@ public class CloudSim {
 	 * @return true, if successful; false otherwise.
 	 */
 	public static boolean terminateSimulation() {
-		running = false;
-		printMessage("Simulation: Reached termination time.");
-		return true;
+		return SimulationContext.current().terminateSimulation();
 	}
 
 	/**
@@ -264,10 +262,11 @@ public class CloudSim {
 	 * @return true, if successful otherwise.
 	 */
 	public static boolean terminateSimulation(double time) {
-		if (time <= clock) {
+		SimulationContext context = SimulationContext.current();
+		if (time <= context.clock) {
 			return false;
 		} else {
-			terminateAt = time;
+			context.terminateAt = time;
 		}
 		return true;
 	}
@@ -279,7 +278,16 @@ public class CloudSim {
 	 * @return the minimum time between events.
 	 */
 	public static double getMinTimeBetweenEvents() {
-		return minTimeBetweenEvents;
+		return SimulationContext.current().minTimeBetweenEvents;
+	}
+
+	/**
+	 * Returns the implementation used for the future event queue.
+	 * 
+	 * @return the future event queue type
+	 */
+	public static EventQueueType getFutureQueueType() {
+		return SimulationContext.current().futureQueueType;
 	}
 
 	/**
@@ -293,6 +301,7 @@ public class CloudSim {
 	 */
 	public static Calendar getSimulationCalendar() {
 		// make a new copy
+		Calendar calendar = SimulationContext.current().calendar;
 		Calendar clone = calendar;
 		if (calendar != null) {
 			clone = (Calendar) calendar.clone();
@@ -309,7 +318,7 @@ public class CloudSim {
 	 * @post $result >= -1
 	 */
 	public static int getCloudInfoServiceEntityId() {
-		return cisId;
+		return SimulationContext.current().cisId;
 	}
 
 	/**
@@ -322,6 +331,7 @@ public class CloudSim {
 	 * @post $none
 	 */
 	public static List<Integer> getCloudResourceList() {
+		CloudInformationService cis = SimulationContext.current().cis;
 		if (cis == null) {
 			return null;
 		}
@@ -331,53 +341,12 @@ public class CloudSim {
 
 	// ======== SIMULATION METHODS ===============//
 
-	/** The entities. */
-	private static List<SimEntity> entities;
-
-	/** The future event queue. */
-	protected static FutureQueue future;
-
-	/** The deferred event queue. */
-	protected static DeferredQueue deferred;
-
-	/** The simulation clock. */
-	private static double clock;
-
-	/** Flag for checking if the simulation is running. */
-	private static boolean running;
-
-	/** The entities by name. */
-	private static Map<String, SimEntity> entitiesByName;
-
-	// The predicates used in entity wait methods
-	/** The wait predicates. */
-	private static Map<Integer, Predicate> waitPredicates;
-
-	/** The paused. */
-	private static boolean paused = false;
-
-	/** The pause at. */
-	private static long pauseAt = -1;
-
-	/** The abrupt terminate. */
-	private static boolean abruptTerminate = false;
-
-	private static double countador;
-
 	/**
 	 * Initialise the simulation for stand alone simulations. This function
 	 * should be called at the start of the simulation.
 	 */
 	protected static void initialize() {
-		Log.printLine("Initialising...");
-		entities = new ArrayList<SimEntity>();
-		entitiesByName = new LinkedHashMap<String, SimEntity>();
-		future = new FutureQueue();
-		deferred = new DeferredQueue();
-		waitPredicates = new HashMap<Integer, Predicate>();
-		clock = 0;
-		running = false;
-		countador = 0;
+		SimulationContext.current().initialize();
 	}
 
 	// The two standard predicates
@@ -396,7 +365,7 @@ public class CloudSim {
 	 * @return the simulation time
 	 */
 	public static double clock() {
-		return clock;
+		return SimulationContext.current().clock;
 	}
 
 	/**
@@ -405,7 +374,7 @@ public class CloudSim {
 	 * @return The number of entities
 	 */
 	public static int getNumEntities() {
-		return entities.size();
+		return SimulationContext.current().entities.size();
 	}
 
 	/**
@@ -416,7 +385,7 @@ public class CloudSim {
 	 * @return The entity, or if it could not be found
 	 */
 	public static SimEntity getEntity(int id) {
-		return entities.get(id);
+		return SimulationContext.current().getEntity(id);
 	}
 
 	/**
@@ -427,7 +396,7 @@ public class CloudSim {
 	 * @return The entity
 	 */
 	public static SimEntity getEntity(String name) {
-		return entitiesByName.get(name);
+		return SimulationContext.current().getEntity(name);
 	}
 
 	/**
@@ -438,12 +407,7 @@ public class CloudSim {
 	 * @return The entity's unique id number
 	 */
 	public static int getEntityId(String name) {
-		SimEntity obj = entitiesByName.get(name);
-		if (obj == null) {
-			return NOT_FOUND;
-		} else {
-			return obj.getId();
-		}
+		return SimulationContext.current().getEntityId(name);
 	}
 
 	/**
@@ -490,7 +454,7 @@ public class CloudSim {
 		// create a new list to prevent the user from changing
 		// the list of entities used by Simulation
 		List<SimEntity> list = new LinkedList<SimEntity>();
-		list.addAll(entities);
+		list.addAll(SimulationContext.current().entities);
 		return list;
 	}
 
@@ -505,18 +469,7 @@ public class CloudSim {
 	 *        The new entity
 	 */
 	public static void addEntity(SimEntity e) {
-		SimEvent evt;
-		if (running) {
-			// Post an event to make this entity
-			evt = new SimEvent(SimEvent.CREATE, clock, 1, 0, 0, e);
-			future.addEvent(evt);
-		}
-		if (e.getId() == -1) { // Only add once!
-			int id = entities.size();
-			e.setId(id);
-			entities.add(e);
-			entitiesByName.put(e.getName(), e);
-		}
+		SimulationContext.current().addEntity(e);
 	}
 
 	/**
@@ -528,12 +481,7 @@ public class CloudSim {
 	 *        The new entity
 	 */
 	protected static void addEntityDynamically(SimEntity e) {
-		if (e == null) {
-			throw new IllegalArgumentException("Adding null entity.");
-		} else {
-			printMessage("Adding: " + e.getName());
-		}
-		e.startEntity();
+		SimulationContext.current().addEntityDynamically(e);
 	}
 
 	/**
@@ -543,50 +491,7 @@ public class CloudSim {
 	 * @return true, if successful otherwise
 	 */
 	public static boolean runClockTick() {
-		SimEntity ent;
-		boolean queue_empty;
-
-		int entities_size = entities.size();
-
-		for (int i = 0; i < entities_size; i++) {
-			ent = entities.get(i);
-			if (ent.getState() == SimEntity.RUNNABLE) {
-				ent.run();
-			}
-		}
-		// If there are more future events then deal with them
-		if (future.size() > 0) {
-			List<SimEvent> toRemove = new ArrayList<SimEvent>();
-			Iterator<SimEvent> fit = future.iterator();
-			queue_empty = false;
-			SimEvent first = fit.next();
-			processEvent(first);
-			future.remove(first);
-
-			fit = future.iterator();
-
-			// Check if next events are at same time...
-			boolean trymore = fit.hasNext();
-			while (trymore) {
-				SimEvent next = fit.next();
-				if (next.eventTime() == first.eventTime()) {
-					processEvent(next);
-					toRemove.add(next);
-					trymore = fit.hasNext();
-				} else {
-					trymore = false;
-				}
-			}
-
-			future.removeAll(toRemove);
-
-		} else {
-			queue_empty = true;
-			running = false;
-			printMessage("Simulation: No more future events");
-		}
-
-		return queue_empty;
+		return SimulationContext.current().runClockTick();
 	}
 
 	/**
@@ -594,9 +499,7 @@ public class CloudSim {
 	 * <b>not</b> be used directly.
 	 */
 	public static void runStop() {
-		printMessage("Simulation completed.");
-		System.out.println("Fim: " + Calendar.getInstance().getTime());
-		System.out.println("total: " + countador);
+		SimulationContext.current().runStop();
 	}
 
 	/**
@@ -608,9 +511,7 @@ public class CloudSim {
 	 *        the delay
 	 */
 	public static void hold(int src, long delay) {
-		SimEvent e = new SimEvent(SimEvent.HOLD_DONE, clock + delay, src);
-		future.addEvent(e);
-		entities.get(src).setState(SimEntity.HOLDING);
+		SimulationContext.current().pause(src, delay);
 	}
 
 	/**
@@ -622,9 +523,7 @@ public class CloudSim {
 	 *        the delay
 	 */
 	public static void pause(int src, double delay) {
-		SimEvent e = new SimEvent(SimEvent.HOLD_DONE, clock + delay, src);
-		future.addEvent(e);
-		entities.get(src).setState(SimEntity.HOLDING);
+		SimulationContext.current().pause(src, delay);
 	}
 
 	/**
@@ -640,14 +539,51 @@ public class CloudSim {
 	 *        the tag
 	 * @param data
 	 *        the data
+	 * @return the event, to cancel it with {@link #cancel(SimEvent)}
 	 */
-	public static void send(int src, int dest, double delay, int tag, Object data) {
-		if (delay < 0) {
-			throw new IllegalArgumentException("Send delay can't be negative.");
-		}
+	public static SimEvent send(int src, int dest, double delay, int tag, Object data) {
+		return SimulationContext.current().send(src, dest, delay, tag, data);
+	}
+
+	/**
+	 * Used to send the same event from one entity to another periodically.
+	 * Only the next tick is kept in the future queue; when it is processed,
+	 * the following one is scheduled, until <tt>endTime</tt> is reached or the
+	 * timer is cancelled.
+	 * 
+	 * @param src
+	 *        the src
+	 * @param dest
+	 *        the dest
+	 * @param delay
+	 *        the delay of the first tick
+	 * @param period
+	 *        the time between two ticks
+	 * @param extraDelay
+	 *        an extra delay added to every tick, e.g. the network delay
+	 * @param endTime
+	 *        no tick is sent at or after this time
+	 * @param tag
+	 *        the tag
+	 * @param data
+	 *        the data
+	 * @return the timer
+	 */
+	public static PeriodicTimer schedulePeriodic(int src, int dest, double delay, double period,
+		double extraDelay, double endTime, int tag, Object data) {
+		return SimulationContext.current().schedulePeriodic(src, dest, delay, period, extraDelay,
+			endTime, tag, data);
+	}
+
 
-		SimEvent e = new SimEvent(SimEvent.SEND, clock + delay, src, dest, tag, data);
-		future.addEvent(e);
+	/**
+	 * Removes the pending tick of a cancelled timer from the future queue.
+	 * 
+	 * @param tick
+	 *        the tick
+	 */
+	static void cancelTick(SimEvent tick) {
+		SimulationContext.current().cancelTick(tick);
 	}
 
 	/**
@@ -666,13 +602,7 @@ public class CloudSim {
 	 * @return
 	 */
 	public static SimEvent sendDCEvent(int src, int dest, double delay, int tag, Object data) {
-		if (delay < 0) {
-			throw new IllegalArgumentException("Send delay can't be negative.");
-		}
-
-		SimEvent e = new SimEvent(SimEvent.SEND, clock + delay, src, dest, tag, data);
-		future.addEvent(e);
-		return e;
+		return SimulationContext.current().send(src, dest, delay, tag, data);
 	}
 
 	/**
@@ -689,14 +619,10 @@ public class CloudSim {
 	 *        the tag
 	 * @param data
 	 *        the data
+	 * @return the event, to cancel it with {@link #cancel(SimEvent)}
 	 */
-	public static void sendFirst(int src, int dest, double delay, int tag, Object data) {
-		if (delay < 0) {
-			throw new IllegalArgumentException("Send delay can't be negative.");
-		}
-
-		SimEvent e = new SimEvent(SimEvent.SEND, clock + delay, src, dest, tag, data);
-		future.addEventFirst(e);
+	public static SimEvent sendFirst(int src, int dest, double delay, int tag, Object data) {
+		return SimulationContext.current().sendFirst(src, dest, delay, tag, data);
 	}
 
 	/**
@@ -711,11 +637,7 @@ public class CloudSim {
 	 *        the p
 	 */
 	public static void wait(int src, Predicate p) {
-		entities.get(src).setState(SimEntity.WAITING);
-		if (p != SIM_ANY) {
-			// If a predicate has been used store it in order to check it
-			waitPredicates.put(src, p);
-		}
+		SimulationContext.current().wait(src, p);
 	}
 
 	/**
@@ -729,16 +651,7 @@ public class CloudSim {
 	 * @return the int
 	 */
 	public static int waiting(int d, Predicate p) {
-		int count = 0;
-		SimEvent event;
-		Iterator<SimEvent> iterator = deferred.iterator();
-		while (iterator.hasNext()) {
-			event = iterator.next();
-			if ((event.getDestination() == d) && (p.match(event))) {
-				count++;
-			}
-		}
-		return count;
+		return SimulationContext.current().waiting(d, p);
 	}
 
 	/**
@@ -751,16 +664,7 @@ public class CloudSim {
 	 * @return the sim event
 	 */
 	public static SimEvent select(int src, Predicate p) {
-		SimEvent ev = null;
-		Iterator<SimEvent> iterator = deferred.iterator();
-		while (iterator.hasNext()) {
-			ev = iterator.next();
-			if (ev.getDestination() == src && p.match(ev)) {
-				iterator.remove();
-				break;
-			}
-		}
-		return ev;
+		return SimulationContext.current().select(src, p);
 	}
 
 	/**
@@ -773,19 +677,28 @@ public class CloudSim {
 	 * @return the sim event
 	 */
 	public static SimEvent findFirstDeferred(int src, Predicate p) {
-		SimEvent ev = null;
-		Iterator<SimEvent> iterator = deferred.iterator();
-		while (iterator.hasNext()) {
-			ev = iterator.next();
-			if (ev.getDestination() == src && p.match(ev)) {
-				break;
-			}
-		}
-		return ev;
+		return SimulationContext.current().findFirstDeferred(src, p);
 	}
 
 	/**
-	 * Removes an event from the event queue.
+	 * Removes a pending event from the future event queue, in logarithmic
+	 * time with the binary heap queue.
+	 * 
+	 * @param ev
+	 *        the event, as returned by {@link #send(int, int, double, int, Object)}
+	 * @return true if the event was pending, false if already processed or
+	 *         cancelled
+	 */
+	public static boolean cancel(SimEvent ev) {
+		return SimulationContext.current().cancel(ev);
+	}
+
+	/**
+	 * Removes the earliest event sent by an entity that matches a predicate
+	 * from the future event queue. The events of a
+	 * {@link org.cloudbus.cloudsim.core.predicates.PredicateType} are found by
+	 * an index of the events by source and tag, built on the first cancel of
+	 * each tag, instead of a scan of the queue.
 	 * 
 	 * @param src
 	 *        the src
@@ -794,23 +707,15 @@ public class CloudSim {
 	 * @return the sim event
 	 */
 	public static SimEvent cancel(int src, Predicate p) {
-		SimEvent ev = null;
-		Iterator<SimEvent> iter = future.iterator();
-		while (iter.hasNext()) {
-			ev = iter.next();
-			if (ev.getSource() == src && p.match(ev)) {
-				iter.remove();
-				break;
-			}
-		}
-
-		return ev;
+		return SimulationContext.current().cancel(src, p);
 	}
 
 	/**
-	 * Removes all events that match a given predicate from the future event
-	 * queue returns true if at least one event has been cancelled; false
-	 * otherwise.
+	 * Removes all events sent by an entity that match a given predicate from
+	 * the future event queue returns true if at least one event has been
+	 * cancelled; false otherwise. Like {@link #cancel(int, Predicate)}, the
+	 * events of a {@link org.cloudbus.cloudsim.core.predicates.PredicateType}
+	 * are found by an index.
 	 * 
 	 * @param src
 	 *        the src
@@ -819,111 +724,40 @@ public class CloudSim {
 	 * @return true, if successful
 	 */
 	public static boolean cancelAll(int src, Predicate p) {
-		countador++;
-		SimEvent ev = null;
-		int previousSize = future.size();
-		Iterator<SimEvent> iter = future.iterator();
-		while (iter.hasNext()) {
-			ev = iter.next();
-			if (ev.getSource() == src && p.match(ev)) {
-				iter.remove();
-			}
-		}
-		return previousSize < future.size();
+		return SimulationContext.current().cancelAll(src, p);
+	}
+
+	/**
+	 * Removes all events sent to an entity that match a given predicate from
+	 * the future event queue, whatever their source. The events of a
+	 * {@link org.cloudbus.cloudsim.core.predicates.PredicateType} are found by
+	 * an index of the events by destination and tag.
+	 * 
+	 * @param dest
+	 *        the destination entity id
+	 * @param p
+	 *        the predicate
+	 * @return true if at least one event has been cancelled
+	 */
+	public static boolean cancelAllTo(int dest, Predicate p) {
+		return SimulationContext.current().cancelAllTo(dest, p);
 	}
 
 	public static boolean cancelAll(FutureQueue sourceQueue) {
-		countador++;
-		SimEvent ev = null;
-		int previousSize = future.size();
-		Iterator<SimEvent> iter = sourceQueue.iterator();
-		while (iter.hasNext()) {
-			ev = iter.next();
-			future.remove(ev);
-			iter.remove();
-		}
-		return previousSize < future.size();
+		return SimulationContext.current().cancelAll(sourceQueue);
 	}
 
 	//
 	// Private internal methods
 	//
 
-	/**
-	 * Processes an event.
-	 * 
-	 * @param e
-	 *        the e
-	 */
-	private static void processEvent(SimEvent e) {
-		int dest, src;
-		SimEntity dest_ent;
-		// Update the system's clock
-		if (e.eventTime() < clock) {
-			throw new IllegalArgumentException("Past event detected.");
-		}
-		clock = e.eventTime();
-
-		// Ok now process it
-		switch (e.getType()) {
-		case SimEvent.ENULL:
-			throw new IllegalArgumentException("Event has a null type.");
-
-		case SimEvent.CREATE:
-			SimEntity newe = (SimEntity) e.getData();
-			addEntityDynamically(newe);
-			break;
-
-		case SimEvent.SEND:
-			// Check for matching wait
-			dest = e.getDestination();
-			if (dest < 0) {
-				throw new IllegalArgumentException("Attempt to send to a null entity detected.");
-			} else {
-				int tag = e.getTag();
-				dest_ent = entities.get(dest);
-				if (dest_ent.getState() == SimEntity.WAITING) {
-					Integer destObj = Integer.valueOf(dest);
-					Predicate p = waitPredicates.get(destObj);
-					if ((p == null) || (tag == 9999) || (p.match(e))) {
-						dest_ent.setEventBuffer((SimEvent) e.clone());
-						dest_ent.setState(SimEntity.RUNNABLE);
-						waitPredicates.remove(destObj);
-					} else {
-						deferred.addEvent(e);
-					}
-				} else {
-					deferred.addEvent(e);
-				}
-			}
-			break;
-
-		case SimEvent.HOLD_DONE:
-			src = e.getSource();
-			if (src < 0) {
-				throw new IllegalArgumentException("Null entity holding.");
-			} else {
-				entities.get(src).setState(SimEntity.RUNNABLE);
-			}
-			break;
-
-		default:
-			break;
-		}
-	}
 
 	/**
 	 * Internal method used to start the simulation. This method should
 	 * <b>not</b> be used by user simulations.
 	 */
 	public static void runStart() {
-		running = true;
-		// Start all the entities
-		for (SimEntity ent : entities) {
-			ent.startEntity();
-		}
-
-		printMessage("Entities started.");
+		SimulationContext.current().runStart();
 	}
 
 	/**
@@ -933,7 +767,7 @@ public class CloudSim {
 	 * @return if the simulation is still running, otherwise
 	 */
 	public static boolean running() {
-		return running;
+		return SimulationContext.current().running;
 	}
 
 	/**
@@ -942,8 +776,9 @@ public class CloudSim {
 	 * @return true, if successful otherwise.
 	 */
 	public static boolean pauseSimulation() {
-		paused = true;
-		return paused;
+		SimulationContext context = SimulationContext.current();
+		context.paused = true;
+		return context.paused;
 	}
 
 	/**
@@ -955,10 +790,11 @@ public class CloudSim {
 	 * @return true, if successful otherwise.
 	 */
 	public static boolean pauseSimulation(long time) {
-		if (time <= clock) {
+		SimulationContext context = SimulationContext.current();
+		if (time <= context.clock) {
 			return false;
 		} else {
-			pauseAt = time;
+			context.pauseAt = time;
 		}
 		return true;
 	}
@@ -970,13 +806,14 @@ public class CloudSim {
 	 * @return if the simulation has been restarted or or otherwise.
 	 */
 	public static boolean resumeSimulation() {
-		paused = false;
+		SimulationContext context = SimulationContext.current();
+		context.paused = false;
 
-		if (pauseAt <= clock) {
-			pauseAt = -1;
+		if (context.pauseAt <= context.clock) {
+			context.pauseAt = -1;
 		}
 
-		return !paused;
+		return !context.paused;
 	}
 
 	/**
@@ -986,44 +823,7 @@ public class CloudSim {
 	 * @return the double last clock value
 	 */
 	public static double run() {
-		if (!running) {
-			runStart();
-		}
-
-		while (true) {
-			if (runClockTick() || abruptTerminate) {
-				break;
-			}
-
-			// this block allows termination of simulation at a specific time
-			if (terminateAt > 0.0 && clock >= terminateAt) {
-				terminateSimulation();
-				clock = terminateAt;
-				break;
-			}
-
-			if (pauseAt != -1
-				&& ((future.size() > 0 && clock <= pauseAt && pauseAt <= future.iterator().next()
-					.eventTime()) || future.size() == 0 && pauseAt <= clock)) {
-				pauseSimulation();
-				clock = pauseAt;
-			}
-
-			while (paused) {
-				try {
-					Thread.sleep(100);
-				} catch (InterruptedException e) {
-					e.printStackTrace();
-				}
-			}
-		}
-
-		double clock = clock();
-
-		finishSimulation();
-		runStop();
-
-		return clock;
+		return SimulationContext.current().run();
 	}
 
 	/**
@@ -1031,50 +831,16 @@ public class CloudSim {
 	 * <b>not</b> be used in user simulations.
 	 */
 	public static void finishSimulation() {
-		// Allow all entities to exit their body method
-		if (!abruptTerminate) {
-			for (SimEntity ent : entities) {
-				if (ent.getState() != SimEntity.FINISHED) {
-					ent.run();
-				}
-			}
-		}
-
-		for (SimEntity ent : entities) {
-			ent.shutdownEntity();
-		}
-
-		// reset all static variables
-		// Private data members
-		entities = null;
-		entitiesByName = null;
-		future = null;
-		deferred = null;
-		clock = 0L;
-		running = false;
-
-		waitPredicates = null;
-		paused = false;
-		pauseAt = -1;
-		abruptTerminate = false;
+		SimulationContext.current().finishSimulation();
 	}
 
 	/**
 	 * Abruptally terminate.
 	 */
 	public static void abruptallyTerminate() {
-		abruptTerminate = true;
+		SimulationContext.current().abruptTerminate = true;
 	}
 
-	/**
-	 * Prints a message about the progress of the simulation.
-	 * 
-	 * @param message
-	 *        the message
-	 */
-	private static void printMessage(String message) {
-		Log.printLine(message);
-	}
 
 	/**
 	 * Checks if is paused.
@@ -1082,7 +848,7 @@ public class CloudSim {
 	 * @return true, if is paused
 	 */
 	public static boolean isPaused() {
-		return paused;
+		return SimulationContext.current().paused;
 	}
 
 }
@@ -7,6 +7,10 @@
 
 package org.cloudbus.cloudsim.core;
 
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -14,35 +18,54 @@ import java.util.ListIterator;
 
 /**
  * This class implements the deferred event queue used by {@link Simulation}.
- * The event queue uses a linked list to store the events.
+ * The events are kept in a mailbox per destination entity, each a linked list
+ * in temporal order, so an entity looks for its events among its own only.
+ * The queue also tells which entities have events waiting, for the simulation
+ * to run only those.
  * 
  * @author Marcos Dias de Assuncao
  * @since CloudSim Toolkit 1.0
  * @see Simulation
  * @see SimEvent
  */
-public class DeferredQueue {
+public class DeferredQueue implements Serializable {
 
-	/** The list. */
-	private final List<SimEvent> list = new LinkedList<SimEvent>();
+	private static final long serialVersionUID = 1L;
 
-	/** The max time. */
-	private double maxTime = -1;
+	/** The mailboxes, by destination entity id. */
+	private final List<LinkedList<SimEvent>> mailboxes = new ArrayList<LinkedList<SimEvent>>();
+
+	/** The ids of the entities with a non-empty mailbox. */
+	private final BitSet pending = new BitSet();
+
+	/** The number of events in all the mailboxes. */
+	private int size;
 
 	/**
 	 * Adds a new event to the queue. Adding a new event to the queue preserves
-	 * the temporal order of the events.
+	 * the temporal order of the events of its destination.
 	 * 
 	 * @param newEvent
 	 *        The event to be added to the queue.
 	 */
 	public void addEvent(SimEvent newEvent) {
+		int destination = newEvent.getDestination();
+		while (mailboxes.size() <= destination) {
+			mailboxes.add(null);
+		}
+		LinkedList<SimEvent> list = mailboxes.get(destination);
+		if (list == null) {
+			list = new LinkedList<SimEvent>();
+			mailboxes.set(destination, list);
+		}
+		size++;
+		pending.set(destination);
+
 		// The event has to be inserted as the last of all events
 		// with the same event_time(). Yes, this matters.
 		double eventTime = newEvent.eventTime();
-		if (eventTime >= maxTime) {
+		if (list.isEmpty() || eventTime >= list.getLast().eventTime()) {
 			list.add(newEvent);
-			maxTime = eventTime;
 			return;
 		}
 
@@ -61,12 +84,79 @@ public class DeferredQueue {
 	}
 
 	/**
-	 * Returns an iterator to the events in the queue.
+	 * Returns an iterator to the events of an entity, in temporal order.
+	 * Removing an event with the iterator removes it from the queue.
+	 * 
+	 * @param destination
+	 *        the id of the entity
+	 * @return the iterator
+	 */
+	public Iterator<SimEvent> iterator(final int destination) {
+		final LinkedList<SimEvent> list = destination < mailboxes.size() ? mailboxes
+			.get(destination) : null;
+		if (list == null) {
+			return Collections.<SimEvent> emptyList().iterator();
+		}
+		final Iterator<SimEvent> iterator = list.iterator();
+		return new Iterator<SimEvent>() {
+
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public SimEvent next() {
+				return iterator.next();
+			}
+
+			@Override
+			public void remove() {
+				iterator.remove();
+				size--;
+				if (list.isEmpty()) {
+					pending.clear(destination);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Returns an iterator to the events in the queue, by destination entity.
 	 * 
 	 * @return the iterator
 	 */
 	public Iterator<SimEvent> iterator() {
-		return list.iterator();
+		List<SimEvent> events = new ArrayList<SimEvent>(size);
+		for (int i = pending.nextSetBit(0); i >= 0; i = pending.nextSetBit(i + 1)) {
+			events.addAll(mailboxes.get(i));
+		}
+		return Collections.unmodifiableList(events).iterator();
+	}
+
+	/**
+	 * Gets the next entity with events waiting.
+	 * 
+	 * @param fromId
+	 *        the least entity id to look at
+	 * @return the id of the entity, or -1 if no entity from <tt>fromId</tt> on
+	 *         has events waiting
+	 */
+	public int nextDestination(int fromId) {
+		return pending.nextSetBit(fromId);
+	}
+
+	/**
+	 * Returns the number of events waiting for an entity.
+	 * 
+	 * @param destination
+	 *        the id of the entity
+	 * @return the number of events
+	 */
+	public int size(int destination) {
+		LinkedList<SimEvent> list = destination < mailboxes.size() ? mailboxes.get(destination)
+			: null;
+		return list == null ? 0 : list.size();
 	}
 
 	/**
@@ -75,14 +165,16 @@ public class DeferredQueue {
 	 * @return the number of events in the queue.
 	 */
 	public int size() {
-		return list.size();
+		return size;
 	}
 
 	/**
 	 * Clears the queue.
 	 */
 	public void clear() {
-		list.clear();
+		mailboxes.clear();
+		pending.clear();
+		size = 0;
 	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,154 @@
+/*
+ * Title: CloudSim Toolkit Description: CloudSim (Cloud Simulation) Toolkit for
+ * Modeling and Simulation of Clouds Licence: GPL -
+ * http://www.gnu.org/copyleft/gpl.html Copyright (c) 2009-2012, The University
+ * of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.Serializable;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Indexes the events of the future queue sent with some tags by their source
+ * and by their destination, so the events to cancel are found without a scan
+ * of the whole queue.
+ * <p>
+ * Only the tags asked for with {@link #indexTag(int, Iterator)} are indexed,
+ * which the simulation does the first time events with the tag are cancelled;
+ * the events of the other tags cost a test of a bit when sent and processed.
+ *
+ * @see SimulationContext#cancel(int, org.cloudbus.cloudsim.core.predicates.Predicate)
+ */
+class EventIndex implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The indexed tags. */
+	private final BitSet tags = new BitSet();
+
+	/** The pending events of the indexed tags, by source and tag. */
+	private final Map<Long, Set<SimEvent>> bySource = new HashMap<Long, Set<SimEvent>>();
+
+	/** The pending events of the indexed tags, by destination and tag. */
+	private final Map<Long, Set<SimEvent>> byDestination = new HashMap<Long, Set<SimEvent>>();
+
+	/**
+	 * Tells whether the events of a tag are indexed.
+	 *
+	 * @param tag
+	 *        the tag
+	 * @return true if indexed
+	 */
+	boolean isIndexed(int tag) {
+		return tag >= 0 && tags.get(tag);
+	}
+
+	/**
+	 * Starts indexing the events of a tag, with those already pending.
+	 *
+	 * @param tag
+	 *        the tag, not negative
+	 * @param pending
+	 *        the events of the future queue
+	 */
+	void indexTag(int tag, Iterator<SimEvent> pending) {
+		if (tag < 0 || tags.get(tag)) {
+			return;
+		}
+		tags.set(tag);
+		while (pending.hasNext()) {
+			SimEvent ev = pending.next();
+			if (ev.getTag() == tag) {
+				add(ev);
+			}
+		}
+	}
+
+	/**
+	 * Adds an event sent to the future queue, if its tag is indexed.
+	 *
+	 * @param ev
+	 *        the event
+	 */
+	void add(SimEvent ev) {
+		if (ev.getType() != SimEvent.SEND || !isIndexed(ev.getTag())) {
+			return;
+		}
+		events(bySource, ev.getSource(), ev.getTag(), true).add(ev);
+		events(byDestination, ev.getDestination(), ev.getTag(), true).add(ev);
+	}
+
+	/**
+	 * Removes an event processed or cancelled, if its tag is indexed.
+	 *
+	 * @param ev
+	 *        the event
+	 */
+	void remove(SimEvent ev) {
+		if (ev.getType() != SimEvent.SEND || !isIndexed(ev.getTag())) {
+			return;
+		}
+		remove(bySource, ev.getSource(), ev);
+		remove(byDestination, ev.getDestination(), ev);
+	}
+
+	/**
+	 * Gets the pending events sent by an entity with an indexed tag.
+	 *
+	 * @param src
+	 *        the source entity id
+	 * @param tag
+	 *        the tag
+	 * @return the events, not to be modified
+	 */
+	Set<SimEvent> fromSource(int src, int tag) {
+		return events(bySource, src, tag, false);
+	}
+
+	/**
+	 * Gets the pending events sent to an entity with an indexed tag.
+	 *
+	 * @param dest
+	 *        the destination entity id
+	 * @param tag
+	 *        the tag
+	 * @return the events, not to be modified
+	 */
+	Set<SimEvent> toDestination(int dest, int tag) {
+		return events(byDestination, dest, tag, false);
+	}
+
+	private static long key(int entity, int tag) {
+		return (long) entity << 32 | tag & 0xffffffffL;
+	}
+
+	private static Set<SimEvent> events(Map<Long, Set<SimEvent>> index, int entity, int tag,
+		boolean create) {
+		Long key = key(entity, tag);
+		Set<SimEvent> events = index.get(key);
+		if (events == null) {
+			if (!create) {
+				return Collections.emptySet();
+			}
+			events = new LinkedHashSet<SimEvent>();
+			index.put(key, events);
+		}
+		return events;
+	}
+
+	private static void remove(Map<Long, Set<SimEvent>> index, int entity, SimEvent ev) {
+		Long key = key(entity, ev.getTag());
+		Set<SimEvent> events = index.get(key);
+		if (events != null && events.remove(ev) && events.isEmpty()) {
+			index.remove(key);
+		}
+	}
+}
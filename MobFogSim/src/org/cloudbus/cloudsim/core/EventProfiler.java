@@ -0,0 +1,454 @@
+/*
+ * Title: CloudSim Toolkit Description: CloudSim (Cloud Simulation) Toolkit for
+ * Modeling and Simulation of Clouds Licence: GPL -
+ * http://www.gnu.org/copyleft/gpl.html Copyright (c) 2009-2012, The University
+ * of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts the events of a simulation and measures where its time goes.
+ * <p>
+ * Once set with {@link SimulationContext#setProfiler(EventProfiler)}, the
+ * profiler counts the events sent, by tag and by source and destination entity
+ * class, and the events handled, by entity class and tag (the
+ * <i>handlers</i>). The wall time of one handler call out of
+ * {@link #getSampling()} is measured, so the total time of each handler is
+ * estimated from the sampled calls. The sizes of the future and deferred
+ * queues are recorded every {@link #getQueuePeriod()} of simulated time.
+ * <p>
+ * A report of the busiest handlers is printed every
+ * {@link #getReportPeriod()} of simulated time and when the simulation ends,
+ * when the profiling data are also written as CSV files, separated by
+ * semicolons, in the dump directory: <tt>profile_tags.csv</tt>,
+ * <tt>profile_routes.csv</tt>, <tt>profile_handlers.csv</tt> and
+ * <tt>profile_queues.csv</tt>. Without a profiler, the simulation only tests
+ * a field for <tt>null</tt> per event.
+ *
+ * @see SimulationContext#setProfiler(EventProfiler)
+ */
+public class EventProfiler {
+
+	/** The handlers listed in each report. */
+	private static final int REPORT_SIZE = 15;
+
+	/** The counters of a kind of events. */
+	public static class Counter {
+
+		private long count;
+		private long sampled;
+		private long nanos;
+		private long maxNanos;
+
+		/** Gets the number of events. */
+		public long getCount() {
+			return count;
+		}
+
+		/** Gets the number of handler calls timed. */
+		public long getSampled() {
+			return sampled;
+		}
+
+		/** Gets the wall time of the timed handler calls, in nanoseconds. */
+		public long getNanos() {
+			return nanos;
+		}
+
+		/** Gets the longest timed handler call, in nanoseconds. */
+		public long getMaxNanos() {
+			return maxNanos;
+		}
+
+		/**
+		 * Gets the wall time of all the handler calls, in nanoseconds, estimated
+		 * from the timed ones.
+		 */
+		public double getEstimatedNanos() {
+			return sampled == 0 ? 0 : (double) nanos * count / sampled;
+		}
+	}
+
+	/** The names of the tags of {@link CloudSimTags}, by tag. */
+	private static final Map<Integer, String> CLOUDSIM_TAG_NAMES = new HashMap<Integer, String>();
+
+	static {
+		addTagNames(CLOUDSIM_TAG_NAMES, CloudSimTags.class);
+	}
+
+	/** The names of the tags, by tag. */
+	private final Map<Integer, String> tagNames = new HashMap<Integer, String>();
+
+	/** The sent events, by tag. */
+	private final Map<Integer, Counter> tags = new HashMap<Integer, Counter>();
+
+	/** The sent events, by source and destination class indexes. */
+	private final Map<Long, Counter> routes = new HashMap<Long, Counter>();
+
+	/** The handled events, by destination class index and tag. */
+	private final Map<Long, Counter> handlers = new HashMap<Long, Counter>();
+
+	/** The entity classes, by class index. */
+	private final List<Class<?>> classes = new ArrayList<Class<?>>();
+
+	/** The class indexes, by entity id. */
+	private int[] classOfEntity = new int[0];
+
+	/** The queue samples: simulated time, events handled, future and deferred sizes. */
+	private final List<double[]> queueSamples = new ArrayList<double[]>();
+
+	private int sampling = 16;
+	private double queuePeriod = 1000;
+	private double reportPeriod = -1;
+	private PrintStream report;
+	private File dumpDirectory;
+
+	private long events;
+	private long calls;
+	private int maxFuture;
+	private int maxDeferred;
+	private double nextQueueSample;
+	private double nextReport;
+	private long startNanos = System.nanoTime();
+	private boolean finished;
+
+	/**
+	 * Names the tags after the <tt>int</tt> constants of classes, like
+	 * {@link CloudSimTags}. A tag keeps the first name it is given, so the
+	 * classes of the simulation events should be added before the generic
+	 * ones; the name is prefixed by the simple name of the class. The tags of
+	 * {@link CloudSimTags} are named last.
+	 *
+	 * @param constants
+	 *        the classes declaring the tags
+	 */
+	public void addTagNames(Class<?>... constants) {
+		addTagNames(tagNames, constants);
+	}
+
+	private static void addTagNames(Map<Integer, String> names, Class<?>... constants) {
+		for (Class<?> c : constants) {
+			for (Field field : c.getFields()) {
+				int modifiers = field.getModifiers();
+				if (field.getType() == int.class && Modifier.isStatic(modifiers)
+					&& Modifier.isFinal(modifiers)) {
+					try {
+						int tag = field.getInt(null);
+						if (!names.containsKey(tag)) {
+							names.put(tag, c.getSimpleName() + "." + field.getName());
+						}
+					} catch (IllegalAccessException e) {
+						// public fields only
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the name of a tag.
+	 *
+	 * @param tag
+	 *        the tag
+	 * @return the name, or the tag itself if it has none
+	 */
+	public String getTagName(int tag) {
+		String name = tagNames.get(tag);
+		if (name == null) {
+			name = CLOUDSIM_TAG_NAMES.get(tag);
+		}
+		return name != null ? name : String.valueOf(tag);
+	}
+
+	// ======== HOOKS ===============//
+
+	/**
+	 * Counts an event sent to an entity, when the simulation takes it out of
+	 * the future queue.
+	 */
+	void dispatched(SimEvent e) {
+		counter(tags, e.getTag()).count++;
+		long route = ((long) classIndex(e.getSource()) << 32) | classIndex(e.getDestination());
+		counter(routes, route).count++;
+	}
+
+	/**
+	 * Lets an entity handle an event, timing one call out of
+	 * {@link #getSampling()}.
+	 */
+	void handle(SimEntity entity, SimEvent e) {
+		events++;
+		long key = ((long) classIndex(entity.getId()) << 32) | (e.getTag() & 0xffffffffL);
+		Counter counter = counter(handlers, key);
+		counter.count++;
+		if (sampling > 0 && ++calls % sampling == 0) {
+			long start = System.nanoTime();
+			entity.processEvent(e);
+			long nanos = System.nanoTime() - start;
+			counter.sampled++;
+			counter.nanos += nanos;
+			counter.maxNanos = Math.max(counter.maxNanos, nanos);
+		} else {
+			entity.processEvent(e);
+		}
+	}
+
+	/**
+	 * Records the queue sizes after a clock tick, and prints the report when it
+	 * is due.
+	 */
+	void tick(SimulationContext context) {
+		int future = context.future.size();
+		int deferred = context.deferred.size();
+		maxFuture = Math.max(maxFuture, future);
+		maxDeferred = Math.max(maxDeferred, deferred);
+		double clock = context.clock;
+		if (clock >= nextQueueSample) {
+			queueSamples.add(new double[] { clock, events, future, deferred });
+			nextQueueSample = (Math.floor(clock / queuePeriod) + 1) * queuePeriod;
+		}
+		if (reportPeriod > 0 && clock >= nextReport) {
+			if (clock > 0) {
+				report(clock, future, deferred);
+			}
+			nextReport = (Math.floor(clock / reportPeriod) + 1) * reportPeriod;
+		}
+	}
+
+	/**
+	 * Prints the last report and writes the CSV files, once.
+	 *
+	 * @param context
+	 *        the simulation
+	 */
+	public void finish(SimulationContext context) {
+		if (finished) {
+			return;
+		}
+		finished = true;
+		int future = context.future != null ? context.future.size() : 0;
+		int deferred = context.deferred != null ? context.deferred.size() : 0;
+		queueSamples.add(new double[] { context.clock, events, future, deferred });
+		report(context.clock, future, deferred);
+		if (dumpDirectory != null) {
+			try {
+				dump(dumpDirectory);
+			} catch (FileNotFoundException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	// ======== OUTPUT ===============//
+
+	private void report(double clock, int future, int deferred) {
+		if (report == null) {
+			return;
+		}
+		double seconds = (System.nanoTime() - startNanos) / 1e9;
+		report.printf("== Event profile at %.1f: %d events in %.1f s (%.0f events/s)%n", clock,
+			events, seconds, events / Math.max(seconds, 1e-9));
+		report.printf("future queue %d (max %d), deferred queue %d (max %d)%n", future,
+			maxFuture, deferred, maxDeferred);
+		report.printf("%-24s %-40s %12s %12s %14s%n", "Entity", "Tag", "Events", "Mean (us)",
+			"Total (ms)");
+		List<Map.Entry<Long, Counter>> busiest = sortedHandlers();
+		for (Map.Entry<Long, Counter> entry : busiest.subList(0,
+			Math.min(REPORT_SIZE, busiest.size()))) {
+			Counter counter = entry.getValue();
+			report.printf("%-24s %-40s %12d %12.2f %14.2f%n", className(entry.getKey() >>> 32),
+				getTagName((int) entry.getKey().longValue()), counter.count,
+				counter.sampled == 0 ? 0 : counter.nanos / 1e3 / counter.sampled,
+				counter.getEstimatedNanos() / 1e6);
+		}
+		report.flush();
+	}
+
+	/**
+	 * Writes the profiling data as CSV files.
+	 *
+	 * @param directory
+	 *        the directory of the files
+	 * @throws FileNotFoundException
+	 *         if a file can not be created
+	 */
+	public void dump(File directory) throws FileNotFoundException {
+		try (PrintStream out = new PrintStream(new File(directory, "profile_tags.csv"))) {
+			out.println("tag;name;events");
+			List<Integer> sortedTags = new ArrayList<Integer>(tags.keySet());
+			Collections.sort(sortedTags);
+			for (Integer tag : sortedTags) {
+				out.println(tag + ";" + getTagName(tag) + ";" + tags.get(tag).count);
+			}
+		}
+		try (PrintStream out = new PrintStream(new File(directory, "profile_routes.csv"))) {
+			out.println("source;destination;events");
+			for (Map.Entry<Long, Counter> entry : routes.entrySet()) {
+				out.println(className(entry.getKey() >>> 32) + ";"
+					+ className(entry.getKey() & 0xffffffffL) + ";" + entry.getValue().count);
+			}
+		}
+		try (PrintStream out = new PrintStream(new File(directory, "profile_handlers.csv"))) {
+			out.println("entity;tag;name;events;sampled;sampledNanos;maxNanos;estimatedNanos");
+			for (Map.Entry<Long, Counter> entry : sortedHandlers()) {
+				int tag = (int) entry.getKey().longValue();
+				Counter counter = entry.getValue();
+				out.println(className(entry.getKey() >>> 32) + ";" + tag + ";" + getTagName(tag)
+					+ ";" + counter.count + ";" + counter.sampled + ";" + counter.nanos + ";"
+					+ counter.maxNanos + ";" + (long) counter.getEstimatedNanos());
+			}
+		}
+		try (PrintStream out = new PrintStream(new File(directory, "profile_queues.csv"))) {
+			out.println("time;events;future;deferred");
+			for (double[] sample : queueSamples) {
+				out.println(sample[0] + ";" + (long) sample[1] + ";" + (int) sample[2] + ";"
+					+ (int) sample[3]);
+			}
+		}
+	}
+
+	private List<Map.Entry<Long, Counter>> sortedHandlers() {
+		List<Map.Entry<Long, Counter>> sorted = new ArrayList<Map.Entry<Long, Counter>>(
+			handlers.entrySet());
+		Collections.sort(sorted, new Comparator<Map.Entry<Long, Counter>>() {
+
+			@Override
+			public int compare(Map.Entry<Long, Counter> a, Map.Entry<Long, Counter> b) {
+				int byTime = Double.compare(b.getValue().getEstimatedNanos(),
+					a.getValue().getEstimatedNanos());
+				return byTime != 0 ? byTime : Long.compare(b.getValue().count, a.getValue().count);
+			}
+		});
+		return sorted;
+	}
+
+	private static <K> Counter counter(Map<K, Counter> counters, K key) {
+		Counter counter = counters.get(key);
+		if (counter == null) {
+			counter = new Counter();
+			counters.put(key, counter);
+		}
+		return counter;
+	}
+
+	/**
+	 * Gets the index of the class of an entity, <tt>0</tt> for no entity.
+	 */
+	private int classIndex(int id) {
+		if (id < 0) {
+			return 0;
+		}
+		if (id >= classOfEntity.length) {
+			int length = classOfEntity.length;
+			classOfEntity = Arrays.copyOf(classOfEntity, Math.max(id + 1, length * 2));
+			Arrays.fill(classOfEntity, length, classOfEntity.length, -1);
+		}
+		int index = classOfEntity[id];
+		if (index < 0) {
+			Class<?> c = CloudSim.getEntity(id).getClass();
+			index = classes.indexOf(c);
+			if (index < 0) {
+				if (classes.isEmpty()) {
+					classes.add(null);
+				}
+				classes.add(c);
+				index = classes.size() - 1;
+			}
+			classOfEntity[id] = index;
+		}
+		return index;
+	}
+
+	private String className(long index) {
+		Class<?> c = index > 0 && index < classes.size() ? classes.get((int) index) : null;
+		return c != null ? c.getSimpleName() : "none";
+	}
+
+	// ======== SETTINGS ===============//
+
+	public int getSampling() {
+		return sampling;
+	}
+
+	/**
+	 * Sets how often the handlers are timed: one call out of <tt>sampling</tt>,
+	 * 16 by default, or none with <tt>0</tt>.
+	 */
+	public void setSampling(int sampling) {
+		if (sampling < 0) {
+			throw new IllegalArgumentException("Sampling can't be negative: " + sampling);
+		}
+		this.sampling = sampling;
+	}
+
+	public double getQueuePeriod() {
+		return queuePeriod;
+	}
+
+	/**
+	 * Sets the simulated time between two samples of the queue sizes, 1000 by
+	 * default.
+	 */
+	public void setQueuePeriod(double queuePeriod) {
+		if (queuePeriod <= 0) {
+			throw new IllegalArgumentException("The queue period must be positive: "
+				+ queuePeriod);
+		}
+		this.queuePeriod = queuePeriod;
+	}
+
+	public double getReportPeriod() {
+		return reportPeriod;
+	}
+
+	/**
+	 * Sets where the reports are printed and the simulated time between two of
+	 * them.
+	 *
+	 * @param report
+	 *        the stream of the reports, or <tt>null</tt> for none
+	 * @param period
+	 *        the simulated time between two reports, or a negative value for
+	 *        the final report only
+	 */
+	public void setReport(PrintStream report, double period) {
+		this.report = report;
+		this.reportPeriod = period;
+	}
+
+	public File getDumpDirectory() {
+		return dumpDirectory;
+	}
+
+	/**
+	 * Sets the directory the CSV files are written to when the simulation
+	 * ends, or <tt>null</tt> for none.
+	 */
+	public void setDumpDirectory(File dumpDirectory) {
+		this.dumpDirectory = dumpDirectory;
+	}
+
+	/** Gets the sent events, by tag. */
+	public Map<Integer, Counter> getTagCounters() {
+		return Collections.unmodifiableMap(tags);
+	}
+
+	/** Gets the number of events handled by the entities. */
+	public long getEvents() {
+		return events;
+	}
+}
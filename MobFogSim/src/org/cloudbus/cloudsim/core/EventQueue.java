@@ -0,0 +1,124 @@
+/*
+ * Title: CloudSim Toolkit Description: CloudSim (Cloud Simulation) Toolkit for
+ * Modeling and Simulation of Clouds Licence: GPL -
+ * http://www.gnu.org/copyleft/gpl.html Copyright (c) 2009-2012, The University
+ * of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The future event queue used by {@link CloudSim}. Implementations must order
+ * the events by their time and, for events with the same time, by their
+ * serial number; events added with {@link #addEventFirst(SimEvent)} share the
+ * serial <code>0</code> and keep their insertion order among themselves. This
+ * is the order the original {@link FutureQueue} produces, so every
+ * implementation delivers the events in exactly the same sequence.
+ *
+ * @see EventQueueType
+ * @see FutureQueue
+ * @see BinaryHeapEventQueue
+ * @see CalendarEventQueue
+ */
+public interface EventQueue extends Serializable {
+
+	/**
+	 * Add a new event to the queue. Adding a new event to the queue preserves
+	 * the temporal order of the events in the queue.
+	 *
+	 * @param newEvent
+	 *        The event to be put in the queue.
+	 */
+	void addEvent(SimEvent newEvent);
+
+	/**
+	 * Add a new event to the head of the queue.
+	 *
+	 * @param newEvent
+	 *        The event to be put in the queue.
+	 */
+	void addEventFirst(SimEvent newEvent);
+
+	/**
+	 * Add an event that keeps the serial number it already has, instead of
+	 * receiving a new one. It is used to reschedule the ticks of a
+	 * {@link PeriodicTimer} in the same position they would have if they had
+	 * all been added when the timer was created.
+	 * 
+	 * @param newEvent
+	 *        The event to be put in the queue.
+	 */
+	void addEventWithSerial(SimEvent newEvent);
+
+	/**
+	 * Returns the first event of the queue without removing it.
+	 *
+	 * @return the first event, or <tt>null</tt> if the queue is empty
+	 */
+	SimEvent peek();
+
+	/**
+	 * Removes and returns the first event of the queue.
+	 *
+	 * @return the first event, or <tt>null</tt> if the queue is empty
+	 */
+	SimEvent poll();
+
+	/**
+	 * Removes all the events scheduled at the given time from the head of the
+	 * queue and appends them, in order, to the given batch. The batch is not
+	 * cleared, so the caller can reuse the same list on every clock tick.
+	 *
+	 * @param time
+	 *        the time of the events to be removed
+	 * @param batch
+	 *        the list that receives the removed events
+	 * @return the number of events removed
+	 */
+	int pollBatch(double time, List<SimEvent> batch);
+
+	/**
+	 * Returns an iterator to the queue. Heap based implementations do not
+	 * guarantee any order, and the iterator does not support removal; use
+	 * {@link #remove(SimEvent)} or {@link #removeAll(Collection)} instead.
+	 *
+	 * @return the iterator
+	 */
+	Iterator<SimEvent> iterator();
+
+	/**
+	 * Returns the size of this event queue.
+	 *
+	 * @return the size
+	 */
+	int size();
+
+	/**
+	 * Removes the event from the queue.
+	 *
+	 * @param event
+	 *        the event
+	 * @return true, if successful
+	 */
+	boolean remove(SimEvent event);
+
+	/**
+	 * Removes all the events from the queue.
+	 *
+	 * @param events
+	 *        the events
+	 * @return true, if successful
+	 */
+	boolean removeAll(Collection<SimEvent> events);
+
+	/**
+	 * Clears the queue.
+	 */
+	void clear();
+
+}
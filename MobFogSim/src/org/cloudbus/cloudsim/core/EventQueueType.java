@@ -0,0 +1,52 @@
+/*
+ * Title: CloudSim Toolkit Description: CloudSim (Cloud Simulation) Toolkit for
+ * Modeling and Simulation of Clouds Licence: GPL -
+ * http://www.gnu.org/copyleft/gpl.html Copyright (c) 2009-2012, The University
+ * of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+/**
+ * The future event queue implementations that can be selected in
+ * {@link CloudSim#init(int, java.util.Calendar, boolean, EventQueueType)}.
+ *
+ * @see EventQueue
+ */
+public enum EventQueueType {
+
+	/** The original {@link java.util.TreeSet} based queue. */
+	TREE_SET {
+		@Override
+		public EventQueue newQueue() {
+			return new FutureQueue();
+		}
+	},
+
+	/** An array based binary heap; the default. */
+	BINARY_HEAP {
+		@Override
+		public EventQueue newQueue() {
+			return new BinaryHeapEventQueue();
+		}
+	},
+
+	/**
+	 * A calendar queue, with amortised O(1) insertion and removal when the
+	 * events are evenly spread in time.
+	 */
+	CALENDAR {
+		@Override
+		public EventQueue newQueue() {
+			return new CalendarEventQueue();
+		}
+	};
+
+	/**
+	 * Creates an empty queue of this type.
+	 *
+	 * @return the new queue
+	 */
+	public abstract EventQueue newQueue();
+
+}
@@ -9,7 +9,7 @@ package org.cloudbus.cloudsim.core;
 
 import java.util.Collection;
 import java.util.Iterator;
-import java.util.SortedSet;
+import java.util.List;
 import java.util.TreeSet;
 
 /**
@@ -20,11 +20,14 @@ import java.util.TreeSet;
  * @since CloudSim Toolkit 1.0
  * @see Simulation
  * @see java.util.TreeSet
+ * @see EventQueue
  */
-public class FutureQueue {
+public class FutureQueue implements EventQueue {
+
+	private static final long serialVersionUID = 1L;
 
 	/** The sorted set. */
-	private final SortedSet<SimEvent> sortedSet = new TreeSet<SimEvent>();
+	private final TreeSet<SimEvent> sortedSet = new TreeSet<SimEvent>();
 
 	/** The serial. */
 	private long serial = 0;
@@ -36,6 +39,7 @@ public class FutureQueue {
 	 * @param newEvent
 	 *        The event to be put in the queue.
 	 */
+	@Override
 	public void addEvent(SimEvent newEvent) {
 		newEvent.setSerial(serial++);
 		sortedSet.add(newEvent);
@@ -47,16 +51,52 @@ public class FutureQueue {
 	 * @param newEvent
 	 *        The event to be put in the queue.
 	 */
+	@Override
 	public void addEventFirst(SimEvent newEvent) {
 		newEvent.setSerial(0);
 		sortedSet.add(newEvent);
 	}
 
+	@Override
+	public void addEventWithSerial(SimEvent newEvent) {
+		sortedSet.add(newEvent);
+	}
+
+	@Override
+	public SimEvent peek() {
+		if (sortedSet.isEmpty()) {
+			return null;
+		}
+		return sortedSet.first();
+	}
+
+	@Override
+	public SimEvent poll() {
+		return sortedSet.pollFirst();
+	}
+
+	@Override
+	public int pollBatch(double time, List<SimEvent> batch) {
+		int count = 0;
+		Iterator<SimEvent> iterator = sortedSet.iterator();
+		while (iterator.hasNext()) {
+			SimEvent next = iterator.next();
+			if (next.eventTime() != time) {
+				break;
+			}
+			batch.add(next);
+			iterator.remove();
+			count++;
+		}
+		return count;
+	}
+
 	/**
 	 * Returns an iterator to the queue.
 	 * 
 	 * @return the iterator
 	 */
+	@Override
 	public Iterator<SimEvent> iterator() {
 		return sortedSet.iterator();
 	}
@@ -66,6 +106,7 @@ public class FutureQueue {
 	 * 
 	 * @return the size
 	 */
+	@Override
 	public int size() {
 		return sortedSet.size();
 	}
@@ -77,6 +118,7 @@ public class FutureQueue {
 	 *        the event
 	 * @return true, if successful
 	 */
+	@Override
 	public boolean remove(SimEvent event) {
 		return sortedSet.remove(event);
 	}
@@ -88,6 +130,7 @@ public class FutureQueue {
 	 *        the events
 	 * @return true, if successful
 	 */
+	@Override
 	public boolean removeAll(Collection<SimEvent> events) {
 		return sortedSet.removeAll(events);
 	}
@@ -95,6 +138,7 @@ public class FutureQueue {
 	/**
 	 * Clears the queue.
 	 */
+	@Override
 	public void clear() {
 		sortedSet.clear();
 	}
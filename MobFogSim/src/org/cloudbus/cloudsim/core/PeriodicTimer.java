@@ -0,0 +1,218 @@
+/*
+ * Title: CloudSim Toolkit Description: CloudSim (Cloud Simulation) Toolkit for
+ * Modeling and Simulation of Clouds Licence: GPL -
+ * http://www.gnu.org/copyleft/gpl.html Copyright (c) 2009-2012, The University
+ * of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.Serializable;
+
+/**
+ * A periodic timer that sends the same event to an entity at regular
+ * intervals. Only the next tick is kept in the future event queue: when a tick
+ * is processed, {@link CloudSim} schedules the following one, until the end
+ * time is reached or the timer is cancelled.
+ * <p>
+ * Every tick reuses the serial number given to the first one, so the ticks are
+ * delivered in the same order, relative to the other events, as if the whole
+ * horizon had been scheduled up front when the timer was created.
+ *
+ * @see SimEntity#schedulePeriodic(int, double, double, double, int, Object)
+ * @see CloudSim#schedulePeriodic(int, int, double, double, double, double, int, Object)
+ */
+public class PeriodicTimer implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The source entity id. */
+	private final int source;
+
+	/** The destination entity id. */
+	private final int destination;
+
+	/** The simulation time the timer was created at. */
+	private final double origin;
+
+	/** The delay of the first tick, from the creation time. */
+	private final double delay;
+
+	/** The time between two ticks. */
+	private final double period;
+
+	/** The extra delay added to every tick, e.g. the network delay. */
+	private final double extraDelay;
+
+	/** No tick is scheduled at or after this time. */
+	private final double endTime;
+
+	/** The event tag. */
+	private final int tag;
+
+	/** The data sent with every tick. */
+	private final Object data;
+
+	/** The number of ticks already scheduled. */
+	private long ticks;
+
+	/** The serial shared by all the ticks. */
+	private long serial;
+
+	/** The tick waiting in the future event queue. */
+	private SimEvent pending;
+
+	/** Whether the timer was cancelled. */
+	private boolean cancelled;
+
+	/**
+	 * Creates a new periodic timer.
+	 *
+	 * @param source
+	 *        the source entity id
+	 * @param destination
+	 *        the destination entity id
+	 * @param origin
+	 *        the simulation time the timer is created at
+	 * @param delay
+	 *        the delay of the first tick
+	 * @param period
+	 *        the time between two ticks
+	 * @param extraDelay
+	 *        an extra delay added to every tick
+	 * @param endTime
+	 *        no tick is scheduled at or after this time
+	 * @param tag
+	 *        the event tag
+	 * @param data
+	 *        the data sent with every tick
+	 */
+	PeriodicTimer(int source, int destination, double origin, double delay, double period,
+		double extraDelay, double endTime, int tag, Object data) {
+		this.source = source;
+		this.destination = destination;
+		this.origin = origin;
+		this.delay = delay;
+		this.period = period;
+		this.extraDelay = extraDelay;
+		this.endTime = endTime;
+		this.tag = tag;
+		this.data = data;
+	}
+
+	/**
+	 * Creates the event of the next tick, or returns <tt>null</tt> if the
+	 * timer is over. The tick times are computed from the creation time, so
+	 * they do not accumulate rounding errors.
+	 *
+	 * @return the next tick, or <tt>null</tt>
+	 */
+	SimEvent nextTick() {
+		if (cancelled) {
+			return null;
+		}
+		double offset = delay + ticks * period;
+		if (origin + offset >= endTime) {
+			pending = null;
+			return null;
+		}
+		ticks++;
+		SimEvent tick = new SimEvent(SimEvent.SEND, origin + (offset + extraDelay), source,
+			destination, tag, data);
+		tick.setTimer(this);
+		pending = tick;
+		return tick;
+	}
+
+	/**
+	 * Cancels the timer; the tick waiting in the future event queue is removed
+	 * and no other tick is scheduled.
+	 *
+	 * @return true, if the timer was active
+	 */
+	public boolean cancel() {
+		if (cancelled) {
+			return false;
+		}
+		cancelled = true;
+		if (pending != null) {
+			CloudSim.cancelTick(pending);
+			pending = null;
+		}
+		return true;
+	}
+
+	/**
+	 * Checks whether the timer still has ticks to deliver.
+	 *
+	 * @return true, if the timer was not cancelled nor is over
+	 */
+	public boolean isActive() {
+		return !cancelled && pending != null;
+	}
+
+	/**
+	 * Gets the number of ticks scheduled so far.
+	 *
+	 * @return the number of ticks
+	 */
+	public long getTicks() {
+		return ticks;
+	}
+
+	/**
+	 * Gets the source entity id.
+	 *
+	 * @return the source entity id
+	 */
+	public int getSource() {
+		return source;
+	}
+
+	/**
+	 * Gets the destination entity id.
+	 *
+	 * @return the destination entity id
+	 */
+	public int getDestination() {
+		return destination;
+	}
+
+	/**
+	 * Gets the time between two ticks.
+	 *
+	 * @return the period
+	 */
+	public double getPeriod() {
+		return period;
+	}
+
+	/**
+	 * Gets the event tag.
+	 *
+	 * @return the tag
+	 */
+	public int getTag() {
+		return tag;
+	}
+
+	/**
+	 * Gets the serial shared by all the ticks.
+	 *
+	 * @return the serial
+	 */
+	long getSerial() {
+		return serial;
+	}
+
+	/**
+	 * Sets the serial shared by all the ticks.
+	 *
+	 * @param serial
+	 *        the serial
+	 */
+	void setSerial(long serial) {
+		this.serial = serial;
+	}
+
+}
@@ -7,6 +7,8 @@
 
 package org.cloudbus.cloudsim.core;
 
+import java.io.Serializable;
+
 import org.cloudbus.cloudsim.Log;
 import org.cloudbus.cloudsim.NetworkTopology;
 import org.cloudbus.cloudsim.core.predicates.Predicate;
@@ -30,7 +32,9 @@ import org.cloudbus.cloudsim.core.predicates.Predicate;
  * @author Marcos Dias de Assuncao
  * @since CloudSim Toolkit 1.0
  */
-public abstract class SimEntity implements Cloneable {
+public abstract class SimEntity implements Serializable, Cloneable {
+
+	private static final long serialVersionUID = 1L;
 
 	/** The name. */
 	private String name;
@@ -44,8 +48,8 @@ public abstract class SimEntity implements Cloneable {
 	/** The entity's current state. */
 	private int state;
 
-	/** The future event queue. */
-	protected static FutureQueue myFutureQ;
+	/** The simulation this entity belongs to. */
+	private final SimulationContext context;
 
 	/**
 	 * Creates a new entity.
@@ -54,7 +58,7 @@ public abstract class SimEntity implements Cloneable {
 	 *        the name to be associated with this entity
 	 */
 	public SimEntity() {
-
+		context = SimulationContext.current();
 	}
 
 	public SimEntity(String name) {
@@ -64,8 +68,9 @@ public abstract class SimEntity implements Cloneable {
 		this.name = name;
 		id = -1;
 		state = RUNNABLE;
-		myFutureQ = new FutureQueue();
-		CloudSim.addEntity(this);
+		context = SimulationContext.current();
+		context.entityFutureQueue = new FutureQueue();
+		context.addEntity(this);
 	}
 
 	/**
@@ -87,7 +92,17 @@ public abstract class SimEntity implements Cloneable {
 	}
 
 	public FutureQueue getFutureQueue() {
-		return myFutureQ;
+		return context.entityFutureQueue;
+	}
+
+	/**
+	 * Gets the simulation this entity belongs to: the current context of the
+	 * thread that created it.
+	 * 
+	 * @return the simulation context
+	 */
+	public SimulationContext getContext() {
+		return context;
 	}
 
 	// The schedule functions
@@ -104,18 +119,20 @@ public abstract class SimEntity implements Cloneable {
 	 *        An user-defined number representing the type of event.
 	 * @param data
 	 *        The data to be sent with the event.
+	 * @return the event sent, to cancel with {@link #cancelEvent(SimEvent)}, or null
+	 *         if not sent
 	 */
-	public void schedule(int dest, double delay, int tag, Object data) {
-		if (!CloudSim.running()) {
-			return;
+	public SimEvent schedule(int dest, double delay, int tag, Object data) {
+		if (!context.running()) {
+			return null;
 		}
+		SimEvent e = context.send(id, dest, delay, tag, data);
 		if (tag == CloudSimTags.VM_DATACENTER_EVENT) {
-			SimEvent e = CloudSim.sendDCEvent(id, dest, delay, tag, data);
-			myFutureQ.addEvent(e);
-		}
-		else {
-			CloudSim.send(id, dest, delay, tag, data);
+			// keeps the serial given by the future queue, so the event can
+			// still be found there when it is cancelled
+			context.entityFutureQueue.addEventWithSerial(e);
 		}
+		return e;
 	}
 
 	/**
@@ -128,9 +145,11 @@ public abstract class SimEntity implements Cloneable {
 	 *        How long from the current simulation time the event should be sent
 	 * @param tag
 	 *        An user-defined number representing the type of event.
+	 * @return the event sent, to cancel with {@link #cancelEvent(SimEvent)}, or null
+	 *         if not sent
 	 */
-	public void schedule(int dest, double delay, int tag) {
-		schedule(dest, delay, tag, null);
+	public SimEvent schedule(int dest, double delay, int tag) {
+		return schedule(dest, delay, tag, null);
 	}
 
 	/**
@@ -145,9 +164,11 @@ public abstract class SimEntity implements Cloneable {
 	 *        An user-defined number representing the type of event.
 	 * @param data
 	 *        The data to be sent with the event.
+	 * @return the event sent, to cancel with {@link #cancelEvent(SimEvent)}, or null
+	 *         if not sent
 	 */
-	public void schedule(String dest, double delay, int tag, Object data) {
-		schedule(CloudSim.getEntityId(dest), delay, tag, data);
+	public SimEvent schedule(String dest, double delay, int tag, Object data) {
+		return schedule(context.getEntityId(dest), delay, tag, data);
 	}
 
 	/**
@@ -160,9 +181,11 @@ public abstract class SimEntity implements Cloneable {
 	 *        How long from the current simulation time the event should be sent
 	 * @param tag
 	 *        An user-defined number representing the type of event.
+	 * @return the event sent, to cancel with {@link #cancelEvent(SimEvent)}, or null
+	 *         if not sent
 	 */
-	public void schedule(String dest, double delay, int tag) {
-		schedule(dest, delay, tag, null);
+	public SimEvent schedule(String dest, double delay, int tag) {
+		return schedule(dest, delay, tag, null);
 	}
 
 	/**
@@ -175,9 +198,11 @@ public abstract class SimEntity implements Cloneable {
 	 *        An user-defined number representing the type of event.
 	 * @param data
 	 *        The data to be sent with the event.
+	 * @return the event sent, to cancel with {@link #cancelEvent(SimEvent)}, or null
+	 *         if not sent
 	 */
-	public void scheduleNow(int dest, int tag, Object data) {
-		schedule(dest, 0, tag, data);
+	public SimEvent scheduleNow(int dest, int tag, Object data) {
+		return schedule(dest, 0, tag, data);
 	}
 
 	/**
@@ -188,9 +213,11 @@ public abstract class SimEntity implements Cloneable {
 	 *        The unique id number of the destination entity
 	 * @param tag
 	 *        An user-defined number representing the type of event.
+	 * @return the event sent, to cancel with {@link #cancelEvent(SimEvent)}, or null
+	 *         if not sent
 	 */
-	public void scheduleNow(int dest, int tag) {
-		schedule(dest, 0, tag, null);
+	public SimEvent scheduleNow(int dest, int tag) {
+		return schedule(dest, 0, tag, null);
 	}
 
 	/**
@@ -203,9 +230,11 @@ public abstract class SimEntity implements Cloneable {
 	 *        An user-defined number representing the type of event.
 	 * @param data
 	 *        The data to be sent with the event.
+	 * @return the event sent, to cancel with {@link #cancelEvent(SimEvent)}, or null
+	 *         if not sent
 	 */
-	public void scheduleNow(String dest, int tag, Object data) {
-		schedule(CloudSim.getEntityId(dest), 0, tag, data);
+	public SimEvent scheduleNow(String dest, int tag, Object data) {
+		return schedule(context.getEntityId(dest), 0, tag, data);
 	}
 
 	/**
@@ -216,9 +245,11 @@ public abstract class SimEntity implements Cloneable {
 	 *        The name of the port to send the event through
 	 * @param tag
 	 *        An user-defined number representing the type of event.
+	 * @return the event sent, to cancel with {@link #cancelEvent(SimEvent)}, or null
+	 *         if not sent
 	 */
-	public void scheduleNow(String dest, int tag) {
-		schedule(dest, 0, tag, null);
+	public SimEvent scheduleNow(String dest, int tag) {
+		return schedule(dest, 0, tag, null);
 	}
 
 	/**
@@ -233,12 +264,14 @@ public abstract class SimEntity implements Cloneable {
 	 *        An user-defined number representing the type of event.
 	 * @param data
 	 *        The data to be sent with the event.
+	 * @return the event sent, to cancel with {@link #cancelEvent(SimEvent)}, or null
+	 *         if not sent
 	 */
-	public void scheduleFirst(int dest, double delay, int tag, Object data) {
-		if (!CloudSim.running()) {
-			return;
+	public SimEvent scheduleFirst(int dest, double delay, int tag, Object data) {
+		if (!context.running()) {
+			return null;
 		}
-		CloudSim.sendFirst(id, dest, delay, tag, data);
+		return context.sendFirst(id, dest, delay, tag, data);
 	}
 
 	/**
@@ -251,9 +284,11 @@ public abstract class SimEntity implements Cloneable {
 	 *        How long from the current simulation time the event should be sent
 	 * @param tag
 	 *        An user-defined number representing the type of event.
+	 * @return the event sent, to cancel with {@link #cancelEvent(SimEvent)}, or null
+	 *         if not sent
 	 */
-	public void scheduleFirst(int dest, double delay, int tag) {
-		scheduleFirst(dest, delay, tag, null);
+	public SimEvent scheduleFirst(int dest, double delay, int tag) {
+		return scheduleFirst(dest, delay, tag, null);
 	}
 
 	/**
@@ -268,9 +303,11 @@ public abstract class SimEntity implements Cloneable {
 	 *        An user-defined number representing the type of event.
 	 * @param data
 	 *        The data to be sent with the event.
+	 * @return the event sent, to cancel with {@link #cancelEvent(SimEvent)}, or null
+	 *         if not sent
 	 */
-	public void scheduleFirst(String dest, double delay, int tag, Object data) {
-		scheduleFirst(CloudSim.getEntityId(dest), delay, tag, data);
+	public SimEvent scheduleFirst(String dest, double delay, int tag, Object data) {
+		return scheduleFirst(context.getEntityId(dest), delay, tag, data);
 	}
 
 	/**
@@ -284,9 +321,11 @@ public abstract class SimEntity implements Cloneable {
 	 *        How long from the current simulation time the event should be sent
 	 * @param tag
 	 *        An user-defined number representing the type of event.
+	 * @return the event sent, to cancel with {@link #cancelEvent(SimEvent)}, or null
+	 *         if not sent
 	 */
-	public void scheduleFirst(String dest, double delay, int tag) {
-		scheduleFirst(dest, delay, tag, null);
+	public SimEvent scheduleFirst(String dest, double delay, int tag) {
+		return scheduleFirst(dest, delay, tag, null);
 	}
 
 	/**
@@ -299,9 +338,11 @@ public abstract class SimEntity implements Cloneable {
 	 *        An user-defined number representing the type of event.
 	 * @param data
 	 *        The data to be sent with the event.
+	 * @return the event sent, to cancel with {@link #cancelEvent(SimEvent)}, or null
+	 *         if not sent
 	 */
-	public void scheduleFirstNow(int dest, int tag, Object data) {
-		scheduleFirst(dest, 0, tag, data);
+	public SimEvent scheduleFirstNow(int dest, int tag, Object data) {
+		return scheduleFirst(dest, 0, tag, data);
 	}
 
 	/**
@@ -312,9 +353,11 @@ public abstract class SimEntity implements Cloneable {
 	 *        The unique id number of the destination entity
 	 * @param tag
 	 *        An user-defined number representing the type of event.
+	 * @return the event sent, to cancel with {@link #cancelEvent(SimEvent)}, or null
+	 *         if not sent
 	 */
-	public void scheduleFirstNow(int dest, int tag) {
-		scheduleFirst(dest, 0, tag, null);
+	public SimEvent scheduleFirstNow(int dest, int tag) {
+		return scheduleFirst(dest, 0, tag, null);
 	}
 
 	/**
@@ -327,9 +370,11 @@ public abstract class SimEntity implements Cloneable {
 	 *        An user-defined number representing the type of event.
 	 * @param data
 	 *        The data to be sent with the event.
+	 * @return the event sent, to cancel with {@link #cancelEvent(SimEvent)}, or null
+	 *         if not sent
 	 */
-	public void scheduleFirstNow(String dest, int tag, Object data) {
-		scheduleFirst(CloudSim.getEntityId(dest), 0, tag, data);
+	public SimEvent scheduleFirstNow(String dest, int tag, Object data) {
+		return scheduleFirst(context.getEntityId(dest), 0, tag, data);
 	}
 
 	/**
@@ -341,9 +386,11 @@ public abstract class SimEntity implements Cloneable {
 	 *        The name of the port to send the event through
 	 * @param tag
 	 *        An user-defined number representing the type of event.
+	 * @return the event sent, to cancel with {@link #cancelEvent(SimEvent)}, or null
+	 *         if not sent
 	 */
-	public void scheduleFirstNow(String dest, int tag) {
-		scheduleFirst(dest, 0, tag, null);
+	public SimEvent scheduleFirstNow(String dest, int tag) {
+		return scheduleFirst(dest, 0, tag, null);
 	}
 
 	/**
@@ -356,10 +403,10 @@ public abstract class SimEntity implements Cloneable {
 		if (delay < 0) {
 			throw new IllegalArgumentException("Negative delay supplied.");
 		}
-		if (!CloudSim.running()) {
+		if (!context.running()) {
 			return;
 		}
-		CloudSim.pause(id, delay);
+		context.pause(id, delay);
 	}
 
 	/**
@@ -371,7 +418,7 @@ public abstract class SimEntity implements Cloneable {
 	 * @return The count of matching events
 	 */
 	public int numEventsWaiting(Predicate p) {
-		return CloudSim.waiting(id, p);
+		return context.waiting(id, p);
 	}
 
 	/**
@@ -380,7 +427,7 @@ public abstract class SimEntity implements Cloneable {
 	 * @return The count of events
 	 */
 	public int numEventsWaiting() {
-		return CloudSim.waiting(id, CloudSim.SIM_ANY);
+		return context.waiting(id, CloudSim.SIM_ANY);
 	}
 
 	/**
@@ -392,11 +439,11 @@ public abstract class SimEntity implements Cloneable {
 	 * @return the simulation event
 	 */
 	public SimEvent selectEvent(Predicate p) {
-		if (!CloudSim.running()) {
+		if (!context.running()) {
 			return null;
 		}
 
-		return CloudSim.select(id, p);
+		return context.select(id, p);
 	}
 
 	/**
@@ -408,11 +455,29 @@ public abstract class SimEntity implements Cloneable {
 	 * @return The number of events cancelled (0 or 1)
 	 */
 	public SimEvent cancelEvent(Predicate p) {
-		if (!CloudSim.running()) {
+		if (!context.running()) {
 			return null;
 		}
 
-		return CloudSim.cancel(id, p);
+		return context.cancel(id, p);
+	}
+
+	/**
+	 * Cancel a pending event, as returned when sent by one of the
+	 * <tt>schedule</tt> or <tt>send</tt> methods. Unlike
+	 * {@link #cancelEvent(Predicate)}, the future queue is not searched.
+	 * 
+	 * @param ev
+	 *        The event to cancel
+	 * @return true if the event was cancelled, false if it was already
+	 *         processed or cancelled
+	 */
+	public boolean cancelEvent(SimEvent ev) {
+		if (ev == null || !context.running()) {
+			return false;
+		}
+
+		return context.cancel(ev);
 	}
 
 	/**
@@ -424,7 +489,7 @@ public abstract class SimEntity implements Cloneable {
 	 * @return the simulation event
 	 */
 	public SimEvent getNextEvent(Predicate p) {
-		if (!CloudSim.running()) {
+		if (!context.running()) {
 			return null;
 		}
 		if (numEventsWaiting(p) > 0) {
@@ -441,11 +506,11 @@ public abstract class SimEntity implements Cloneable {
 	 *        The predicate to match
 	 */
 	public void waitForEvent(Predicate p) {
-		if (!CloudSim.running()) {
+		if (!context.running()) {
 			return;
 		}
 
-		CloudSim.wait(id, p);
+		context.wait(id, p);
 		state = WAITING;
 	}
 
@@ -485,10 +550,15 @@ public abstract class SimEntity implements Cloneable {
 
 	public void run() {
 		SimEvent ev = evbuf != null ? evbuf : getNextEvent();
+		EventProfiler profiler = context.profiler;
 
 		while (ev != null) {
 			// System.out.println(ev.toString());
-			processEvent(ev);
+			if (profiler == null) {
+				processEvent(ev);
+			} else {
+				profiler.handle(this, ev);
+			}
 			if (state != RUNNABLE) {
 				break;
 			}
@@ -613,10 +683,12 @@ public abstract class SimEntity implements Cloneable {
 	 * @pre delay >= 0.0
 	 * @pre data != null
 	 * @post $none
+	 * @return the event sent, to cancel with {@link #cancelEvent(SimEvent)}, or null
+	 *         if not sent
 	 */
-	protected void send(int entityId, double delay, int cloudSimTag, Object data) {
+	protected SimEvent send(int entityId, double delay, int cloudSimTag, Object data) {
 		if (entityId < 0) {
-			return;
+			return null;
 		}
 
 		// if delay is -ve, then it doesn't make sense. So resets to 0.0
@@ -630,7 +702,7 @@ public abstract class SimEntity implements Cloneable {
 
 		if (entityId < 0) {
 			Log.printLine(getName() + ".send(): Error - " + "invalid entity id " + entityId);
-			return;
+			return null;
 		}
 
 		int srcId = getId();
@@ -638,7 +710,7 @@ public abstract class SimEntity implements Cloneable {
 			delay += getNetworkDelay(srcId, entityId);
 		}
 
-		schedule(entityId, delay, cloudSimTag, data);
+		return schedule(entityId, delay, cloudSimTag, data);
 	}
 
 	/**
@@ -656,9 +728,11 @@ public abstract class SimEntity implements Cloneable {
 	 * @pre entityID > 0
 	 * @pre delay >= 0.0
 	 * @post $none
+	 * @return the event sent, to cancel with {@link #cancelEvent(SimEvent)}, or null
+	 *         if not sent
 	 */
-	protected void send(int entityId, double delay, int cloudSimTag) {
-		send(entityId, delay, cloudSimTag, null);
+	protected SimEvent send(int entityId, double delay, int cloudSimTag) {
+		return send(entityId, delay, cloudSimTag, null);
 	}
 
 	/**
@@ -679,9 +753,11 @@ public abstract class SimEntity implements Cloneable {
 	 * @pre delay >= 0.0
 	 * @pre data != null
 	 * @post $none
+	 * @return the event sent, to cancel with {@link #cancelEvent(SimEvent)}, or null
+	 *         if not sent
 	 */
-	protected void send(String entityName, double delay, int cloudSimTag, Object data) {
-		send(CloudSim.getEntityId(entityName), delay, cloudSimTag, data);
+	protected SimEvent send(String entityName, double delay, int cloudSimTag, Object data) {
+		return send(context.getEntityId(entityName), delay, cloudSimTag, data);
 	}
 
 	/**
@@ -699,9 +775,84 @@ public abstract class SimEntity implements Cloneable {
 	 * @pre entityName != null
 	 * @pre delay >= 0.0
 	 * @post $none
+	 * @return the event sent, to cancel with {@link #cancelEvent(SimEvent)}, or null
+	 *         if not sent
+	 */
+	protected SimEvent send(String entityName, double delay, int cloudSimTag) {
+		return send(entityName, delay, cloudSimTag, null);
+	}
+
+	/**
+	 * Sends the same event/message to another entity periodically, starting
+	 * <tt>delay</tt> from the current simulation time and repeating every
+	 * <tt>period</tt> until <tt>endTime</tt>. Only the next tick is kept in the
+	 * future event queue, so a timer costs a single event no matter how long
+	 * the simulation is. The network delay between the entities is added to
+	 * every tick, as in {@link #send(int, double, int, Object)}.
+	 * 
+	 * @param entityId
+	 *        the id number of the destination entity
+	 * @param delay
+	 *        how long from the current simulation time the first tick should
+	 *        be sent. If delay is a negative number, then it will be changed
+	 *        to 0
+	 * @param period
+	 *        the time between two ticks
+	 * @param endTime
+	 *        the simulation time at and after which no tick is sent
+	 * @param cloudSimTag
+	 *        an user-defined number representing the type of an event/message
+	 * @param data
+	 *        A reference to data to be sent with every tick
+	 * @return the timer, that can be used to cancel the remaining ticks, or
+	 *         <tt>null</tt> if the entity id is invalid or the simulation is
+	 *         not running
+	 * @pre entityID > 0
+	 * @pre period > 0.0
+	 * @post $none
+	 */
+	protected PeriodicTimer schedulePeriodic(int entityId, double delay, double period,
+		double endTime, int cloudSimTag, Object data) {
+		if (entityId < 0 || !context.running()) {
+			return null;
+		}
+
+		// if delay is -ve, then it doesn't make sense. So resets to 0.0
+		if (delay < 0) {
+			delay = 0;
+		}
+
+		double networkDelay = 0;
+		int srcId = getId();
+		if (entityId != srcId) {// does not delay self messages
+			networkDelay = getNetworkDelay(srcId, entityId);
+		}
+
+		return context.schedulePeriodic(srcId, entityId, delay, period, networkDelay, endTime,
+			cloudSimTag, data);
+	}
+
+	/**
+	 * Sends the same event/message to another entity periodically, with
+	 * <b>no</b> data.
+	 * 
+	 * @param entityId
+	 *        the id number of the destination entity
+	 * @param delay
+	 *        how long from the current simulation time the first tick should
+	 *        be sent
+	 * @param period
+	 *        the time between two ticks
+	 * @param endTime
+	 *        the simulation time at and after which no tick is sent
+	 * @param cloudSimTag
+	 *        an user-defined number representing the type of an event/message
+	 * @return the timer, that can be used to cancel the remaining ticks
+	 * @see #schedulePeriodic(int, double, double, double, int, Object)
 	 */
-	protected void send(String entityName, double delay, int cloudSimTag) {
-		send(entityName, delay, cloudSimTag, null);
+	protected PeriodicTimer schedulePeriodic(int entityId, double delay, double period,
+		double endTime, int cloudSimTag) {
+		return schedulePeriodic(entityId, delay, period, endTime, cloudSimTag, null);
 	}
 
 	/**
@@ -722,9 +873,11 @@ public abstract class SimEntity implements Cloneable {
 	 * @pre delay >= 0.0
 	 * @pre data != null
 	 * @post $none
+	 * @return the event sent, to cancel with {@link #cancelEvent(SimEvent)}, or null
+	 *         if not sent
 	 */
-	protected void sendNow(int entityId, int cloudSimTag, Object data) {
-		send(entityId, 0, cloudSimTag, data);
+	protected SimEvent sendNow(int entityId, int cloudSimTag, Object data) {
+		return send(entityId, 0, cloudSimTag, data);
 	}
 
 	/**
@@ -742,9 +895,11 @@ public abstract class SimEntity implements Cloneable {
 	 * @pre entityID > 0
 	 * @pre delay >= 0.0
 	 * @post $none
+	 * @return the event sent, to cancel with {@link #cancelEvent(SimEvent)}, or null
+	 *         if not sent
 	 */
-	protected void sendNow(int entityId, int cloudSimTag) {
-		send(entityId, 0, cloudSimTag, null);
+	protected SimEvent sendNow(int entityId, int cloudSimTag) {
+		return send(entityId, 0, cloudSimTag, null);
 	}
 
 	/**
@@ -765,9 +920,11 @@ public abstract class SimEntity implements Cloneable {
 	 * @pre delay >= 0.0
 	 * @pre data != null
 	 * @post $none
+	 * @return the event sent, to cancel with {@link #cancelEvent(SimEvent)}, or null
+	 *         if not sent
 	 */
-	protected void sendNow(String entityName, int cloudSimTag, Object data) {
-		send(CloudSim.getEntityId(entityName), 0, cloudSimTag, data);
+	protected SimEvent sendNow(String entityName, int cloudSimTag, Object data) {
+		return send(context.getEntityId(entityName), 0, cloudSimTag, data);
 	}
 
 	/**
@@ -785,9 +942,11 @@ public abstract class SimEntity implements Cloneable {
 	 * @pre entityName != null
 	 * @pre delay >= 0.0
 	 * @post $none
+	 * @return the event sent, to cancel with {@link #cancelEvent(SimEvent)}, or null
+	 *         if not sent
 	 */
-	protected void sendNow(String entityName, int cloudSimTag) {
-		send(entityName, 0, cloudSimTag, null);
+	protected SimEvent sendNow(String entityName, int cloudSimTag) {
+		return send(entityName, 0, cloudSimTag, null);
 	}
 
 	/**
@@ -7,6 +7,8 @@
 
 package org.cloudbus.cloudsim.core;
 
+import java.io.Serializable;
+
 /**
  * This class represents a simulation event which is passed between the entities
  * in the simulation.
@@ -15,7 +17,9 @@ package org.cloudbus.cloudsim.core;
  * @see Simulation
  * @see SimEntity
  */
-public class SimEvent implements Cloneable, Comparable<SimEvent> {
+public class SimEvent implements Serializable, Cloneable, Comparable<SimEvent> {
+
+	private static final long serialVersionUID = 1L;
 
 	/** internal event type **/
 	private final int etype;
@@ -40,6 +44,12 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
 
 	private long serial = -1;
 
+	/** the periodic timer this event is a tick of, if any **/
+	private PeriodicTimer timer;
+
+	/** position of this event in a {@link BinaryHeapEventQueue}, or -1 **/
+	int heapIndex = -1;
+
 	// Internal event types
 
 	public static final int ENULL = 0;
@@ -86,6 +96,34 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
 		this.serial = serial;
 	}
 
+	/**
+	 * Gets the serial number given to this event by the future event queue.
+	 * 
+	 * @return the serial
+	 */
+	long getSerial() {
+		return serial;
+	}
+
+	/**
+	 * Gets the periodic timer this event is a tick of.
+	 * 
+	 * @return the timer, or <tt>null</tt> if it is an ordinary event
+	 */
+	PeriodicTimer getTimer() {
+		return timer;
+	}
+
+	/**
+	 * Marks this event as a tick of a periodic timer.
+	 * 
+	 * @param timer
+	 *        the timer
+	 */
+	void setTimer(PeriodicTimer timer) {
+		this.timer = timer;
+	}
+
 	/**
 	 * Used to set the time at which this event finished waiting in the event
 	 * 
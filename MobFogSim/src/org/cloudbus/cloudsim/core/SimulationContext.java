@@ -0,0 +1,883 @@
+/*
+ * Title: CloudSim Toolkit Description: CloudSim (Cloud Simulation) Toolkit for
+ * Modeling and Simulation of Clouds Licence: GPL -
+ * http://www.gnu.org/copyleft/gpl.html Copyright (c) 2009-2012, The University
+ * of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+import org.cloudbus.cloudsim.core.predicates.PredicateType;
+
+/**
+ * The state of one simulation: its entities, its event queues and its clock,
+ * and the state of the modules built on top of the core (the network topology,
+ * the id generators, the statistics...), kept under {@link Key}s.
+ * <p>
+ * The static methods of {@link CloudSim} work on the <i>current</i> context of
+ * the calling thread. A thread that has not been bound to a context with
+ * {@link #setCurrent(SimulationContext)} works on the default one, so a single
+ * simulation per process runs as it always did. Several simulations can run in
+ * the same process, one per thread, each thread bound to a context of its own.
+ * An entity keeps the context it has been created in, see
+ * {@link SimEntity#getContext()}.
+ * <p>
+ * A context is serializable, so a running simulation can be saved between two
+ * clock ticks and resumed later, or several times, from the same point (see
+ * {@link Checkpoint}).
+ *
+ * @see CloudSim
+ * @since CloudSim Toolkit 3.0
+ */
+public class SimulationContext implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The context of the threads that have not been bound to one. */
+	private static final SimulationContext DEFAULT = new SimulationContext();
+
+	/** The contexts bound to threads. */
+	private static final ThreadLocal<SimulationContext> CURRENT = new ThreadLocal<SimulationContext>();
+
+	/** Whether a context has ever been bound to a thread. */
+	private static volatile boolean bound = false;
+
+	/** The Constant NOT_FOUND. */
+	private static final int NOT_FOUND = -1;
+
+	/** The id of CIS entity. */
+	int cisId = -1;
+
+	/** The id of CloudSimShutdown entity. */
+	int shutdownId = -1;
+
+	/** The CIS object. */
+	CloudInformationService cis = null;
+
+	/** The trace flag. */
+	boolean traceFlag = false;
+
+	/** The calendar. */
+	Calendar calendar = null;
+
+	/** The termination time. */
+	double terminateAt = -1;
+
+	/**
+	 * The minimal time between events. Events within shorter periods after the
+	 * last event are discarded.
+	 */
+	double minTimeBetweenEvents = 0.1;
+
+	/** The implementation of the future event queue. */
+	EventQueueType futureQueueType = EventQueueType.BINARY_HEAP;
+
+	/** The entities. */
+	List<SimEntity> entities;
+
+	/** The future event queue. */
+	EventQueue future;
+
+	/** The deferred event queue. */
+	DeferredQueue deferred;
+
+	/** The events of the future queue by source and destination, for the tags cancelled. */
+	EventIndex eventIndex;
+
+	/**
+	 * The ids of the entities made runnable by the end of a hold or by the event
+	 * they waited for, which may have no deferred event.
+	 */
+	BitSet woken;
+
+	/** The simulation clock. */
+	double clock;
+
+	/** Flag for checking if the simulation is running. */
+	boolean running;
+
+	/** The entities by name. */
+	Map<String, SimEntity> entitiesByName;
+
+	/** The predicates used in entity wait methods. */
+	Map<Integer, Predicate> waitPredicates;
+
+	/** The paused. */
+	boolean paused = false;
+
+	/** The pause at. */
+	long pauseAt = -1;
+
+	/** The abrupt terminate. */
+	boolean abruptTerminate = false;
+
+	double countador;
+
+	/** The events processed in the current clock tick, reused across ticks. */
+	List<SimEvent> batch;
+
+	/** The datacenter events sent by the last created entity. */
+	FutureQueue entityFutureQueue;
+
+	/** The simulated times to call the checkpoint handler at, in increasing order. */
+	double[] checkpointTimes = new double[0];
+
+	/** The index of the next checkpoint time. */
+	int nextCheckpoint;
+
+	/** The handler of the checkpoints, set again after a restore. */
+	transient CheckpointHandler checkpointHandler;
+
+	/** The profiler of the events, if any. */
+	transient EventProfiler profiler;
+
+	/** The values of the keys, by key index. */
+	private transient Object[] values = new Object[0];
+
+	/** The values read from a checkpoint, by key name, until first accessed. */
+	private transient Map<String, Object> restoredValues;
+
+	/**
+	 * Gets the context of the current thread.
+	 *
+	 * @return the context bound to the current thread, or the default one
+	 */
+	public static SimulationContext current() {
+		if (!bound) {
+			return DEFAULT;
+		}
+		SimulationContext context = CURRENT.get();
+		return context != null ? context : DEFAULT;
+	}
+
+	/**
+	 * Gets the context of the threads that have not been bound to one.
+	 *
+	 * @return the default context
+	 */
+	public static SimulationContext getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * Binds a context to the current thread. The simulation must be built and
+	 * run by the thread it is bound to.
+	 *
+	 * @param context
+	 *        the context, or <tt>null</tt> to go back to the default one
+	 * @return the context the thread was bound to, or <tt>null</tt>
+	 */
+	public static SimulationContext setCurrent(SimulationContext context) {
+		SimulationContext previous = CURRENT.get();
+		if (context == null) {
+			CURRENT.remove();
+		} else {
+			bound = true;
+			CURRENT.set(context);
+		}
+		return previous;
+	}
+
+	/**
+	 * A piece of state that a module keeps in each context, like a
+	 * {@link ThreadLocal} keeps a value in each thread. Keys are meant to be
+	 * constants of the classes owning the state.
+	 * <p>
+	 * The value of a key is saved in the checkpoints of the context when the
+	 * key is an instance of a subclass of its own, usually an anonymous one
+	 * overriding {@link #initialValue()}: the name of that class identifies
+	 * the key from one JVM to the other. The values of plain <tt>Key</tt>
+	 * instances only live as long as the context, the restored context has
+	 * none.
+	 *
+	 * @param <T>
+	 *        the type of the value
+	 */
+	public static class Key<T> {
+
+		private static final List<Key<?>> KEYS = new ArrayList<Key<?>>();
+
+		private final int index;
+
+		private final String name;
+
+		public Key() {
+			synchronized (KEYS) {
+				index = KEYS.size();
+				KEYS.add(this);
+			}
+			name = getClass() == Key.class ? null : getClass().getName();
+		}
+
+		/**
+		 * Creates the value of a context that has none yet, <tt>null</tt> by
+		 * default.
+		 *
+		 * @return the initial value
+		 */
+		protected T initialValue() {
+			return null;
+		}
+	}
+
+	/**
+	 * Gets the value of a key in this context, creating it on first access.
+	 *
+	 * @param key
+	 *        the key
+	 * @return the value
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T get(Key<T> key) {
+		if (key.index < values.length) {
+			Object value = values[key.index];
+			if (value != null) {
+				return (T) value;
+			}
+		}
+		T value;
+		if (restoredValues != null && key.name != null && restoredValues.containsKey(key.name)) {
+			value = (T) restoredValues.remove(key.name);
+		} else {
+			value = key.initialValue();
+		}
+		if (value != null) {
+			set(key, value);
+		}
+		return value;
+	}
+
+	/**
+	 * Sets the value of a key in this context.
+	 *
+	 * @param key
+	 *        the key
+	 * @param value
+	 *        the value, or <tt>null</tt> to have it created again on next
+	 *        access
+	 */
+	public <T> void set(Key<T> key, T value) {
+		if (key.index >= values.length) {
+			values = Arrays.copyOf(values, Math.max(key.index + 1, values.length * 2));
+		}
+		values[key.index] = value;
+	}
+
+	/**
+	 * Sets the simulated times at which the simulation calls a checkpoint
+	 * handler. The handler is called between two clock ticks, once all the
+	 * events up to the time have been processed and before the first event
+	 * after it.
+	 *
+	 * @param handler
+	 *        the handler, or <tt>null</tt> for no checkpoints
+	 * @param times
+	 *        the simulated times
+	 */
+	public void setCheckpoints(CheckpointHandler handler, double... times) {
+		checkpointHandler = handler;
+		checkpointTimes = times.clone();
+		Arrays.sort(checkpointTimes);
+		nextCheckpoint = 0;
+		while (nextCheckpoint < checkpointTimes.length && checkpointTimes[nextCheckpoint] < clock) {
+			nextCheckpoint++;
+		}
+	}
+
+	/**
+	 * Gets the profiler of the events of the simulation.
+	 *
+	 * @return the profiler, or <tt>null</tt> if the events are not profiled
+	 */
+	public EventProfiler getProfiler() {
+		return profiler;
+	}
+
+	/**
+	 * Sets the profiler of the events of the simulation. Like the checkpoint
+	 * handler, it is not saved in the checkpoints.
+	 *
+	 * @param profiler
+	 *        the profiler, or <tt>null</tt> to stop profiling
+	 */
+	public void setProfiler(EventProfiler profiler) {
+		this.profiler = profiler;
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		Map<String, Object> saved = new LinkedHashMap<String, Object>();
+		if (restoredValues != null) {
+			saved.putAll(restoredValues);
+		}
+		synchronized (Key.KEYS) {
+			for (int i = 0; i < values.length && i < Key.KEYS.size(); i++) {
+				String name = Key.KEYS.get(i).name;
+				if (values[i] != null && name != null) {
+					saved.put(name, values[i]);
+				}
+			}
+		}
+		out.writeObject(saved);
+	}
+
+	@SuppressWarnings("unchecked")
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		values = new Object[0];
+		restoredValues = (Map<String, Object>) in.readObject();
+	}
+
+	// ======== SIMULATION METHODS ===============//
+	// See the static methods of CloudSim with the same names.
+
+	/**
+	 * Initialise the simulation for stand alone simulations.
+	 */
+	void initialize() {
+		Log.printLine("Initialising...");
+		entities = new ArrayList<SimEntity>();
+		entitiesByName = new LinkedHashMap<String, SimEntity>();
+		future = futureQueueType.newQueue();
+		deferred = new DeferredQueue();
+		eventIndex = new EventIndex();
+		woken = new BitSet();
+		batch = new ArrayList<SimEvent>();
+		waitPredicates = new HashMap<Integer, Predicate>();
+		clock = 0;
+		running = false;
+		countador = 0;
+	}
+
+	/**
+	 * Get the current simulation time.
+	 *
+	 * @return the simulation time
+	 */
+	public double clock() {
+		return clock;
+	}
+
+	/**
+	 * Check if the simulation is still running.
+	 *
+	 * @return if the simulation is still running, otherwise
+	 */
+	public boolean running() {
+		return running;
+	}
+
+	SimEntity getEntity(int id) {
+		return entities.get(id);
+	}
+
+	SimEntity getEntity(String name) {
+		return entitiesByName.get(name);
+	}
+
+	int getEntityId(String name) {
+		SimEntity obj = entitiesByName.get(name);
+		if (obj == null) {
+			return NOT_FOUND;
+		} else {
+			return obj.getId();
+		}
+	}
+
+	void addEntity(SimEntity e) {
+		SimEvent evt;
+		if (running) {
+			// Post an event to make this entity
+			evt = new SimEvent(SimEvent.CREATE, clock, 1, 0, 0, e);
+			future.addEvent(evt);
+		}
+		if (e.getId() == -1) { // Only add once!
+			int id = entities.size();
+			e.setId(id);
+			entities.add(e);
+			entitiesByName.put(e.getName(), e);
+		}
+	}
+
+	void addEntityDynamically(SimEntity e) {
+		if (e == null) {
+			throw new IllegalArgumentException("Adding null entity.");
+		} else {
+			Log.printLine("Adding: " + e.getName());
+		}
+		e.startEntity();
+	}
+
+	boolean runClockTick() {
+		SimEntity ent;
+		boolean queue_empty;
+
+		int entities_size = entities.size();
+
+		// Only the entities with deferred events or just woken up have anything
+		// to run, in the order of their ids
+		for (int i = nextToRun(0); i >= 0 && i < entities_size; i = nextToRun(i + 1)) {
+			ent = entities.get(i);
+			if (ent.getState() == SimEntity.RUNNABLE) {
+				woken.clear(i);
+				ent.run();
+			}
+		}
+		// If there are more future events then deal with them
+		if (future.size() > 0) {
+			queue_empty = false;
+			SimEvent first = future.poll();
+			processEvent(first);
+
+			// Check if next events are at same time...
+			future.pollBatch(first.eventTime(), batch);
+			for (int i = 0; i < batch.size(); i++) {
+				processEvent(batch.get(i));
+			}
+			batch.clear();
+
+		} else {
+			queue_empty = true;
+			running = false;
+			Log.printLine("Simulation: No more future events");
+		}
+
+		return queue_empty;
+	}
+
+	/**
+	 * Gets the next entity that may have something to run.
+	 *
+	 * @param fromId
+	 *        the least entity id to look at
+	 * @return the id of the entity, or -1 if none
+	 */
+	private int nextToRun(int fromId) {
+		int withEvents = deferred.nextDestination(fromId);
+		int wokenUp = woken.nextSetBit(fromId);
+		if (withEvents < 0 || wokenUp < 0) {
+			return Math.max(withEvents, wokenUp);
+		}
+		return Math.min(withEvents, wokenUp);
+	}
+
+	void runStop() {
+		Log.printLine("Simulation completed.");
+		System.out.println("Fim: " + Calendar.getInstance().getTime());
+		System.out.println("total: " + countador);
+	}
+
+	void pause(int src, double delay) {
+		SimEvent e = new SimEvent(SimEvent.HOLD_DONE, clock + delay, src);
+		future.addEvent(e);
+		entities.get(src).setState(SimEntity.HOLDING);
+	}
+
+	SimEvent send(int src, int dest, double delay, int tag, Object data) {
+		if (delay < 0) {
+			throw new IllegalArgumentException("Send delay can't be negative.");
+		}
+
+		SimEvent e = new SimEvent(SimEvent.SEND, clock + delay, src, dest, tag, data);
+		future.addEvent(e);
+		eventIndex.add(e);
+		return e;
+	}
+
+	PeriodicTimer schedulePeriodic(int src, int dest, double delay, double period,
+		double extraDelay, double endTime, int tag, Object data) {
+		if (delay < 0) {
+			throw new IllegalArgumentException("Send delay can't be negative.");
+		}
+		if (period <= 0 || Double.isInfinite(period) || Double.isNaN(period)) {
+			throw new IllegalArgumentException("The timer period must be a positive value.");
+		}
+
+		PeriodicTimer timer = new PeriodicTimer(src, dest, clock, delay, period, extraDelay,
+			endTime, tag, data);
+		SimEvent first = timer.nextTick();
+		if (first != null) {
+			future.addEvent(first);
+			eventIndex.add(first);
+			timer.setSerial(first.getSerial());
+		}
+		return timer;
+	}
+
+	/**
+	 * Schedules the tick that follows the given one, reusing the serial of the
+	 * timer so it keeps its position among the other events.
+	 *
+	 * @param tick
+	 *        the tick being processed
+	 */
+	private void scheduleNextTick(SimEvent tick) {
+		PeriodicTimer timer = tick.getTimer();
+		SimEvent next = timer.nextTick();
+		if (next != null) {
+			next.setSerial(timer.getSerial());
+			future.addEventWithSerial(next);
+			eventIndex.add(next);
+		}
+	}
+
+	void cancelTick(SimEvent tick) {
+		if (future != null) {
+			future.remove(tick);
+			eventIndex.remove(tick);
+		}
+	}
+
+	SimEvent sendFirst(int src, int dest, double delay, int tag, Object data) {
+		if (delay < 0) {
+			throw new IllegalArgumentException("Send delay can't be negative.");
+		}
+
+		SimEvent e = new SimEvent(SimEvent.SEND, clock + delay, src, dest, tag, data);
+		future.addEventFirst(e);
+		eventIndex.add(e);
+		return e;
+	}
+
+	void wait(int src, Predicate p) {
+		entities.get(src).setState(SimEntity.WAITING);
+		if (p != CloudSim.SIM_ANY) {
+			// If a predicate has been used store it in order to check it
+			waitPredicates.put(src, p);
+		}
+	}
+
+	int waiting(int d, Predicate p) {
+		if (p == CloudSim.SIM_ANY) {
+			return deferred.size(d);
+		}
+		int count = 0;
+		Iterator<SimEvent> iterator = deferred.iterator(d);
+		while (iterator.hasNext()) {
+			if (p.match(iterator.next())) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	SimEvent select(int src, Predicate p) {
+		Iterator<SimEvent> iterator = deferred.iterator(src);
+		while (iterator.hasNext()) {
+			SimEvent ev = iterator.next();
+			if (p.match(ev)) {
+				iterator.remove();
+				return ev;
+			}
+		}
+		return null;
+	}
+
+	SimEvent findFirstDeferred(int src, Predicate p) {
+		Iterator<SimEvent> iterator = deferred.iterator(src);
+		while (iterator.hasNext()) {
+			SimEvent ev = iterator.next();
+			if (p.match(ev)) {
+				return ev;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Cancels a pending event.
+	 *
+	 * @param ev
+	 *        the event, as returned when sent
+	 * @return true if the event was still in the future queue
+	 */
+	boolean cancel(SimEvent ev) {
+		if (future == null || !future.remove(ev)) {
+			return false;
+		}
+		eventIndex.remove(ev);
+		return true;
+	}
+
+	SimEvent cancel(int src, Predicate p) {
+		// the iteration order is not guaranteed, so look for the earliest match
+		SimEvent ev = null;
+		Iterator<SimEvent> iter = matching(src, p, true).iterator();
+		while (iter.hasNext()) {
+			SimEvent next = iter.next();
+			if (ev == null || next.compareTo(ev) < 0) {
+				ev = next;
+			}
+		}
+		if (ev != null) {
+			future.remove(ev);
+			eventIndex.remove(ev);
+		}
+
+		return ev;
+	}
+
+	boolean cancelAll(int src, Predicate p) {
+		countador++;
+		return removeAll(matching(src, p, true));
+	}
+
+	boolean cancelAllTo(int dest, Predicate p) {
+		return removeAll(matching(dest, p, false));
+	}
+
+	/**
+	 * Finds the pending events sent by or to an entity that match a predicate.
+	 * The events of a {@link PredicateType} are looked up in the index, which
+	 * starts indexing its tags on the first such lookup; the other predicates
+	 * are matched against the whole future queue.
+	 *
+	 * @param entity
+	 *        the source or destination entity id
+	 * @param p
+	 *        the predicate
+	 * @param bySource
+	 *        true to find the events sent by the entity, false those sent to it
+	 * @return the matching events
+	 */
+	private Collection<SimEvent> matching(int entity, Predicate p, boolean bySource) {
+		List<SimEvent> found = new ArrayList<SimEvent>();
+		if (p instanceof PredicateType) {
+			int[] tags = ((PredicateType) p).getTags();
+			for (int tag : tags) {
+				if (!eventIndex.isIndexed(tag)) {
+					eventIndex.indexTag(tag, future.iterator());
+				}
+			}
+			for (int tag : tags) {
+				found.addAll(bySource ? eventIndex.fromSource(entity, tag) : eventIndex
+					.toDestination(entity, tag));
+			}
+			return found;
+		}
+		Iterator<SimEvent> iter = future.iterator();
+		while (iter.hasNext()) {
+			SimEvent ev = iter.next();
+			if ((bySource ? ev.getSource() : ev.getDestination()) == entity && p.match(ev)) {
+				found.add(ev);
+			}
+		}
+		return found;
+	}
+
+	private boolean removeAll(Collection<SimEvent> events) {
+		int previousSize = future.size();
+		for (SimEvent ev : events) {
+			future.remove(ev);
+			eventIndex.remove(ev);
+		}
+		return future.size() < previousSize;
+	}
+
+	boolean cancelAll(FutureQueue sourceQueue) {
+		countador++;
+		SimEvent ev = null;
+		int previousSize = future.size();
+		Iterator<SimEvent> iter = sourceQueue.iterator();
+		while (iter.hasNext()) {
+			ev = iter.next();
+			future.remove(ev);
+			eventIndex.remove(ev);
+			iter.remove();
+		}
+		return previousSize < future.size();
+	}
+
+	/**
+	 * Processes an event.
+	 *
+	 * @param e
+	 *        the e
+	 */
+	private void processEvent(SimEvent e) {
+		int dest, src;
+		SimEntity dest_ent;
+		// Update the system's clock
+		if (e.eventTime() < clock) {
+			throw new IllegalArgumentException("Past event detected.");
+		}
+		clock = e.eventTime();
+
+		// Ok now process it
+		switch (e.getType()) {
+		case SimEvent.ENULL:
+			throw new IllegalArgumentException("Event has a null type.");
+
+		case SimEvent.CREATE:
+			SimEntity newe = (SimEntity) e.getData();
+			addEntityDynamically(newe);
+			break;
+
+		case SimEvent.SEND:
+			eventIndex.remove(e);
+			// Periodic timers only keep their next tick in the future queue
+			if (e.getTimer() != null) {
+				scheduleNextTick(e);
+			}
+			if (profiler != null) {
+				profiler.dispatched(e);
+			}
+			// Check for matching wait
+			dest = e.getDestination();
+			if (dest < 0) {
+				throw new IllegalArgumentException("Attempt to send to a null entity detected.");
+			} else {
+				int tag = e.getTag();
+				dest_ent = entities.get(dest);
+				if (dest_ent.getState() == SimEntity.WAITING) {
+					Integer destObj = Integer.valueOf(dest);
+					Predicate p = waitPredicates.get(destObj);
+					if ((p == null) || (tag == 9999) || (p.match(e))) {
+						dest_ent.setEventBuffer((SimEvent) e.clone());
+						dest_ent.setState(SimEntity.RUNNABLE);
+						woken.set(dest);
+						waitPredicates.remove(destObj);
+					} else {
+						deferred.addEvent(e);
+					}
+				} else {
+					deferred.addEvent(e);
+				}
+			}
+			break;
+
+		case SimEvent.HOLD_DONE:
+			src = e.getSource();
+			if (src < 0) {
+				throw new IllegalArgumentException("Null entity holding.");
+			} else {
+				entities.get(src).setState(SimEntity.RUNNABLE);
+				woken.set(src);
+			}
+			break;
+
+		default:
+			break;
+		}
+	}
+
+	void runStart() {
+		running = true;
+		// Start all the entities
+		for (SimEntity ent : entities) {
+			ent.startEntity();
+		}
+
+		Log.printLine("Entities started.");
+	}
+
+	boolean terminateSimulation() {
+		running = false;
+		Log.printLine("Simulation: Reached termination time.");
+		return true;
+	}
+
+	double run() {
+		if (!running) {
+			runStart();
+		}
+
+		while (true) {
+			if (runClockTick() || abruptTerminate) {
+				break;
+			}
+			if (profiler != null) {
+				profiler.tick(this);
+			}
+
+			// this block allows termination of simulation at a specific time
+			if (terminateAt > 0.0 && clock >= terminateAt) {
+				terminateSimulation();
+				clock = terminateAt;
+				break;
+			}
+
+			while (nextCheckpoint < checkpointTimes.length
+				&& (future.size() == 0 || future.peek().eventTime() > checkpointTimes[nextCheckpoint])) {
+				double time = checkpointTimes[nextCheckpoint++];
+				if (checkpointHandler != null) {
+					checkpointHandler.checkpoint(this, time);
+				}
+			}
+
+			if (pauseAt != -1
+				&& ((future.size() > 0 && clock <= pauseAt && pauseAt <= future.peek()
+					.eventTime()) || future.size() == 0 && pauseAt <= clock)) {
+				paused = true;
+				clock = pauseAt;
+			}
+
+			while (paused) {
+				try {
+					Thread.sleep(100);
+				} catch (InterruptedException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+
+		double clock = this.clock;
+
+		finishSimulation();
+		runStop();
+
+		return clock;
+	}
+
+	void finishSimulation() {
+		// Allow all entities to exit their body method
+		if (!abruptTerminate) {
+			for (SimEntity ent : entities) {
+				if (ent.getState() != SimEntity.FINISHED) {
+					ent.run();
+				}
+			}
+		}
+
+		for (SimEntity ent : entities) {
+			ent.shutdownEntity();
+		}
+		if (profiler != null) {
+			profiler.finish(this);
+		}
+
+		// reset all simulation variables
+		entities = null;
+		entitiesByName = null;
+		future = null;
+		deferred = null;
+		eventIndex = null;
+		woken = null;
+		batch = null;
+		clock = 0L;
+		running = false;
+
+		waitPredicates = null;
+		paused = false;
+		pauseAt = -1;
+		abruptTerminate = false;
+	}
+
+}
@@ -7,6 +7,7 @@
 
 package org.cloudbus.cloudsim.network;
 
+import java.io.Serializable;
 import java.util.Iterator;
 
 /**
@@ -16,7 +17,9 @@ import java.util.Iterator;
  * @author Thomas Hohnstein
  * @since CloudSim Toolkit 1.0
  */
-public class DelayMatrix_Float {
+public class DelayMatrix_Float implements Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 	/**
 	 * matrix holding delay information between any two nodes
@@ -28,6 +31,17 @@ public class DelayMatrix_Float {
 	 */
 	protected int mTotalNodeNum = 0;
 
+	/**
+	 * matrix holding the delay of the direct links between two nodes, used to
+	 * update the shortest paths when a link changes
+	 */
+	protected float[][] mLinkDelayMatrix = null;
+
+	/**
+	 * true if the delay-matrix is directed
+	 */
+	protected boolean mDirected = false;
+
 	/**
 	 * private constructor to ensure that only an correct initialized
 	 * delay-matrix could be created
@@ -44,6 +58,7 @@ public class DelayMatrix_Float {
 	 *        true if an directed matrix should be computed, false otherwise
 	 */
 	public DelayMatrix_Float(TopologicalGraph graph, boolean directed) {
+		mDirected = directed;
 
 		// lets preinitialize the Delay-Matrix
 		createDelayMatrix(graph, directed);
@@ -107,6 +122,182 @@ public class DelayMatrix_Float {
 			}
 
 		}
+
+		// keep the direct links to update the matrix incrementally
+		mLinkDelayMatrix = new float[mTotalNodeNum][];
+		for (int row = 0; row < mTotalNodeNum; ++row) {
+			mLinkDelayMatrix[row] = mDelayMatrix[row].clone();
+		}
+	}
+
+	/**
+	 * grows the matrices to hold the given number of nodes; the new nodes are
+	 * not connected to any other node
+	 * 
+	 * @param totalNodeNum
+	 *        the new number of nodes
+	 */
+	public void addNodes(int totalNodeNum) {
+		if (totalNodeNum <= mTotalNodeNum) {
+			return;
+		}
+
+		float[][] delays = new float[totalNodeNum][totalNodeNum];
+		float[][] links = new float[totalNodeNum][totalNodeNum];
+		for (int row = 0; row < totalNodeNum; ++row) {
+			for (int col = 0; col < totalNodeNum; ++col) {
+				if (row < mTotalNodeNum && col < mTotalNodeNum) {
+					delays[row][col] = mDelayMatrix[row][col];
+					links[row][col] = mLinkDelayMatrix[row][col];
+				} else {
+					delays[row][col] = row == col ? 0 : Float.MAX_VALUE;
+					links[row][col] = Float.MAX_VALUE;
+				}
+			}
+		}
+
+		mDelayMatrix = delays;
+		mLinkDelayMatrix = links;
+		mTotalNodeNum = totalNodeNum;
+	}
+
+	/**
+	 * sets the delay of the direct link between two nodes and updates the
+	 * shortest paths. A delay of <code>0</code> removes the link, as in the
+	 * graph based constructor. New and faster links are relaxed in O(n^2);
+	 * slower and removed links also take O(n) when one of the nodes has no
+	 * other link (e.g. a mobile device connected to an access point), and
+	 * fall back to the full all pairs shortest paths otherwise.
+	 * 
+	 * @param srcID
+	 *        the id of the source-node
+	 * @param destID
+	 *        the id of the destination-node
+	 * @param delay
+	 *        the delay of the link
+	 */
+	public void updateLink(int srcID, int destID, float delay) {
+		float oldDelay = mLinkDelayMatrix[srcID][destID];
+		mLinkDelayMatrix[srcID][destID] = delay;
+		if (!mDirected) {
+			mLinkDelayMatrix[destID][srcID] = delay;
+		}
+
+		boolean wasLink = isLink(oldDelay);
+		boolean isLink = isLink(delay);
+		if (srcID == destID || (!wasLink && !isLink)) {
+			return;
+		}
+
+		if (isLink && (!wasLink || delay <= oldDelay)) {
+			relaxLink(srcID, destID, delay);
+		} else if (!mDirected && isLeaf(srcID, destID)) {
+			reattachLeaf(srcID, destID, isLink ? delay : 0);
+		} else if (!mDirected && isLeaf(destID, srcID)) {
+			reattachLeaf(destID, srcID, isLink ? delay : 0);
+		} else {
+			calculateShortestPath();
+		}
+	}
+
+	/**
+	 * checks whether a link delay stands for an existing link
+	 * 
+	 * @param delay
+	 *        the delay of the link
+	 * @return true if there is a link
+	 */
+	private boolean isLink(float delay) {
+		return delay != 0 && delay != Float.MAX_VALUE;
+	}
+
+	/**
+	 * checks whether a node has no other link than the one to its neighbour
+	 * 
+	 * @param nodeID
+	 *        the node
+	 * @param neighbourID
+	 *        the neighbour
+	 * @return true if the node has no other link
+	 */
+	private boolean isLeaf(int nodeID, int neighbourID) {
+		for (int col = 0; col < mTotalNodeNum; ++col) {
+			if (col != nodeID && col != neighbourID && isLink(mLinkDelayMatrix[nodeID][col])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * updates the shortest paths after a new or faster link, using only the
+	 * paths that go through it
+	 * 
+	 * @param srcID
+	 *        the id of the source-node
+	 * @param destID
+	 *        the id of the destination-node
+	 * @param delay
+	 *        the delay of the link
+	 */
+	private void relaxLink(int srcID, int destID, float delay) {
+		float[] toSrc = new float[mTotalNodeNum];
+		float[] toDest = new float[mTotalNodeNum];
+		for (int row = 0; row < mTotalNodeNum; ++row) {
+			toSrc[row] = mDelayMatrix[row][srcID];
+			toDest[row] = mDelayMatrix[row][destID];
+		}
+		float[] fromSrc = mDelayMatrix[srcID].clone();
+		float[] fromDest = mDelayMatrix[destID].clone();
+
+		for (int row = 0; row < mTotalNodeNum; ++row) {
+			for (int col = 0; col < mTotalNodeNum; ++col) {
+				if (row == col) {
+					continue;
+				}
+				float best = mDelayMatrix[row][col];
+				if (toSrc[row] != Float.MAX_VALUE && fromDest[col] != Float.MAX_VALUE) {
+					float viaLink = toSrc[row] + delay + fromDest[col];
+					if (viaLink < best) {
+						best = viaLink;
+					}
+				}
+				if (!mDirected && toDest[row] != Float.MAX_VALUE
+					&& fromSrc[col] != Float.MAX_VALUE) {
+					float viaLink = toDest[row] + delay + fromSrc[col];
+					if (viaLink < best) {
+						best = viaLink;
+					}
+				}
+				mDelayMatrix[row][col] = best;
+			}
+		}
+	}
+
+	/**
+	 * updates the shortest paths of a node whose only link is to the given
+	 * neighbour; such a node is never in the middle of a path, so no other
+	 * path changes
+	 * 
+	 * @param leafID
+	 *        the node
+	 * @param neighbourID
+	 *        the neighbour
+	 * @param delay
+	 *        the delay of the link, or <code>0</code> if it was removed
+	 */
+	private void reattachLeaf(int leafID, int neighbourID, float delay) {
+		for (int col = 0; col < mTotalNodeNum; ++col) {
+			if (col == leafID) {
+				continue;
+			}
+			float viaLink = Float.MAX_VALUE;
+			if (delay != 0 && mDelayMatrix[neighbourID][col] != Float.MAX_VALUE) {
+				viaLink = delay + mDelayMatrix[neighbourID][col];
+			}
+			mDelayMatrix[leafID][col] = viaLink;
+			mDelayMatrix[col][leafID] = viaLink;
+		}
 	}
 
 	/**
@@ -116,7 +307,7 @@ public class DelayMatrix_Float {
 		FloydWarshall_Float floyd = new FloydWarshall_Float();
 
 		floyd.initialize(mTotalNodeNum);
-		mDelayMatrix = floyd.allPairsShortestPaths(mDelayMatrix);
+		mDelayMatrix = floyd.allPairsShortestPaths(mLinkDelayMatrix);
 	}
 
 	/**
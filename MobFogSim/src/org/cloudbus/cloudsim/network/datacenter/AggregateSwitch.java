@@ -30,6 +30,8 @@ import org.cloudbus.cloudsim.core.predicates.PredicateType;
  */
 public class AggregateSwitch extends Switch {
 
+	private static final long serialVersionUID = 1L;
+
 	/**
 	 * Constructor for Aggregate Switch We have to specify switches that are
 	 * connected to its downlink and uplink ports, and corresponding bandwidths
@@ -33,6 +33,8 @@ import org.cloudbus.cloudsim.core.CloudSimTags;
  */
 public class NetworkCloudletSpaceSharedScheduler extends CloudletScheduler {
 
+	private static final long serialVersionUID = 1L;
+
 	/** The cloudlet waiting list. */
 	private List<? extends ResCloudlet> cloudletWaitingList;
 
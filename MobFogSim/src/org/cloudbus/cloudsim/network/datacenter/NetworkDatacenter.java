@@ -44,6 +44,8 @@ import org.cloudbus.cloudsim.core.SimEvent;
  */
 public class NetworkDatacenter extends Datacenter {
 
+	private static final long serialVersionUID = 1L;
+
 	/**
 	 * Allocates a new NetworkDatacenter object.
 	 * 
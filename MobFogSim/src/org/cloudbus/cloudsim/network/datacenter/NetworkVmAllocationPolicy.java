@@ -29,6 +29,8 @@ import org.cloudbus.cloudsim.core.CloudSim;
  */
 public class NetworkVmAllocationPolicy extends VmAllocationPolicy {
 
+	private static final long serialVersionUID = 1L;
+
 	/** The vm table. */
 	private Map<String, Host> vmTable;
 
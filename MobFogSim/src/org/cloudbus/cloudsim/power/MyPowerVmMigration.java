@@ -7,6 +7,8 @@ import org.cloudbus.cloudsim.Host;
 public class MyPowerVmMigration extends
 	PowerVmAllocationPolicyMigrationAbstract {
 
+	private static final long serialVersionUID = 1L;
+
 	public MyPowerVmMigration(List<? extends Host> hostList,
 		PowerVmSelectionPolicy vmSelectionPolicy) {
 		super(hostList, vmSelectionPolicy);
@@ -36,6 +36,8 @@ import org.cloudbus.cloudsim.core.predicates.PredicateType;
  */
 public class PowerDatacenter extends Datacenter {
 
+	private static final long serialVersionUID = 1L;
+
 	/** The power. */
 	private double power;
 
@@ -30,6 +30,8 @@ import org.cloudbus.cloudsim.util.MathUtil;
  */
 public class PowerVm extends Vm {
 
+	private static final long serialVersionUID = 1L;
+
 	/** The Constant HISTORY_LENGTH. */
 	public static final int HISTORY_LENGTH = 30;
 
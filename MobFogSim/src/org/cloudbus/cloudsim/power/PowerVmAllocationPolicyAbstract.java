@@ -31,6 +31,8 @@ import org.cloudbus.cloudsim.core.CloudSim;
  */
 public abstract class PowerVmAllocationPolicyAbstract extends VmAllocationPolicy {
 
+	private static final long serialVersionUID = 1L;
+
 	/** The vm table. */
 	private final Map<String, Host> vmTable = new HashMap<String, Host>();
 
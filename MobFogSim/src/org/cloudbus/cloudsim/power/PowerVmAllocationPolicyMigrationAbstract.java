@@ -39,6 +39,8 @@ import org.cloudbus.cloudsim.util.ExecutionTimeMeasurer;
 public abstract class PowerVmAllocationPolicyMigrationAbstract extends
 	PowerVmAllocationPolicyAbstract {
 
+	private static final long serialVersionUID = 1L;
+
 	/** The vm selection policy. */
 	private PowerVmSelectionPolicy vmSelectionPolicy;
 
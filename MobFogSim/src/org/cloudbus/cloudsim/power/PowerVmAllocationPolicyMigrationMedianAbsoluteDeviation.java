@@ -29,6 +29,8 @@ import org.cloudbus.cloudsim.util.MathUtil;
 public class PowerVmAllocationPolicyMigrationMedianAbsoluteDeviation extends
 	PowerVmAllocationPolicyMigrationAbstract {
 
+	private static final long serialVersionUID = 1L;
+
 	/** The safety parameter. */
 	private double safetyParameter = 0;
 
@@ -27,6 +27,8 @@ import org.cloudbus.cloudsim.Vm;
 public class PowerVmAllocationPolicyMigrationStaticThreshold extends
 	PowerVmAllocationPolicyMigrationAbstract {
 
+	private static final long serialVersionUID = 1L;
+
 	/** The utilization threshold. */
 	private double utilizationThreshold = 0.9;
 
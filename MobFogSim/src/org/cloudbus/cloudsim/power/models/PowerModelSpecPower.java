@@ -22,6 +22,8 @@ package org.cloudbus.cloudsim.power.models;
  */
 public abstract class PowerModelSpecPower implements PowerModel {
 
+	private static final long serialVersionUID = 1L;
+
 	/*
 	 * (non-Javadoc)
 	 * @see org.cloudbus.cloudsim.power.models.PowerModel#getPower(double)
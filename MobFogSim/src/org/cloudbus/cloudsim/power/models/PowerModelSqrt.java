@@ -21,6 +21,8 @@ package org.cloudbus.cloudsim.power.models;
  */
 public class PowerModelSqrt implements PowerModel {
 
+	private static final long serialVersionUID = 1L;
+
 	/** The max power. */
 	private double maxPower;
 
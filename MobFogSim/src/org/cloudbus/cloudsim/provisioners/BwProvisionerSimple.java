@@ -23,6 +23,8 @@ import org.cloudbus.cloudsim.Vm;
  */
 public class BwProvisionerSimple extends BwProvisioner {
 
+	private static final long serialVersionUID = 1L;
+
 	/** The bw table. */
 	private Map<String, Long> bwTable;
 
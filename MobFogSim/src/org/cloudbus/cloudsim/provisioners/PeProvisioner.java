@@ -7,6 +7,7 @@
 
 package org.cloudbus.cloudsim.provisioners;
 
+import java.io.Serializable;
 import java.util.List;
 
 import org.cloudbus.cloudsim.Vm;
@@ -17,7 +18,9 @@ import org.cloudbus.cloudsim.Vm;
  * @author Anton Beloglazov
  * @since CloudSim Toolkit 2.0
  */
-public abstract class PeProvisioner {
+public abstract class PeProvisioner implements Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 	/** The mips. */
 	private double mips;
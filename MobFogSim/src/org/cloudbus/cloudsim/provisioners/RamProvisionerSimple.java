@@ -18,6 +18,7 @@ import java.util.Map;
 
 import org.cloudbus.cloudsim.Vm;
 import org.cloudbus.cloudsim.core.CloudSim;
+import org.fog.utils.RunDirectory;
 
 /**
  * RamProvisionerSimple is an extension of RamProvisioner which uses a
@@ -29,6 +30,8 @@ import org.cloudbus.cloudsim.core.CloudSim;
  */
 public class RamProvisionerSimple extends RamProvisioner {
 
+	private static final long serialVersionUID = 1L;
+
 	/** The RAM table. */
 	private Map<String, Integer> ramTable;
 
@@ -58,7 +61,7 @@ public class RamProvisionerSimple extends RamProvisioner {
 
 		deallocateRamForVm(vm);
 
-		try (FileWriter fw1 = new FileWriter("creating_modules.txt", true);
+		try (FileWriter fw1 = new FileWriter(RunDirectory.path("creating_modules.txt"), true);
 			BufferedWriter bw1 = new BufferedWriter(fw1);
 			PrintWriter out1 = new PrintWriter(bw1))
 		{
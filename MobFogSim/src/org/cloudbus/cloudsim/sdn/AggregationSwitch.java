@@ -15,6 +15,8 @@ package org.cloudbus.cloudsim.sdn;
  */
 public class AggregationSwitch extends Switch {
 
+	private static final long serialVersionUID = 1L;
+
 	public AggregationSwitch(String name, int bw, long iops, int upports, int downports,
 		NetworkOperatingSystem nos) {
 		super(name, bw, iops, upports, downports, nos);
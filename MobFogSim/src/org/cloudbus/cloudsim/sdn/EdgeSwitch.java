@@ -15,6 +15,8 @@ package org.cloudbus.cloudsim.sdn;
  */
 public class EdgeSwitch extends Switch {
 
+	private static final long serialVersionUID = 1L;
+
 	public EdgeSwitch(String name, int bw, long iops, int upports, int downports,
 		NetworkOperatingSystem nos) {
 		super(name, bw, iops, upports, downports, nos);
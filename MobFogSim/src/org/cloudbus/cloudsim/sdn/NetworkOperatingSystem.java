@@ -51,6 +51,8 @@ import org.json.simple.JSONValue;
  */
 public abstract class NetworkOperatingSystem extends SimEntity {
 
+	private static final long serialVersionUID = 1L;
+
 	String physicalTopologyFileName;
 	protected PhysicalTopology topology;
 	// Hashtable<Integer,SDNHost> vmHostTable;
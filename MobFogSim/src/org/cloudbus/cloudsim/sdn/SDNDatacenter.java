@@ -30,6 +30,8 @@ import org.cloudbus.cloudsim.core.SimEvent;
  */
 public class SDNDatacenter extends Datacenter {
 
+	private static final long serialVersionUID = 1L;
+
 	NetworkOperatingSystem nos;
 
 	public SDNDatacenter(String name, DatacenterCharacteristics characteristics,
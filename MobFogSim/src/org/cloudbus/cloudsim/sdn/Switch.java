@@ -25,6 +25,8 @@ import org.cloudbus.cloudsim.core.SimEvent;
  */
 public class Switch extends SimEntity implements Node {
 
+	private static final long serialVersionUID = 1L;
+
 	// private static long cont=0;
 	// private static long MULTI = 1;
 
@@ -30,6 +30,8 @@ import org.cloudbus.cloudsim.sdn.TimedVm;
  */
 public class SimpleNetworkOperatingSystem extends NetworkOperatingSystem {
 
+	private static final long serialVersionUID = 1L;
+
 	public SimpleNetworkOperatingSystem(String fileName) {
 		super(fileName);
 	}
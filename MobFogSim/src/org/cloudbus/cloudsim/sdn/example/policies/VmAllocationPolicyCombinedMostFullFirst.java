@@ -28,6 +28,8 @@ import org.cloudbus.cloudsim.sdn.power.PowerUtilizationMaxHostInterface;
 public class VmAllocationPolicyCombinedMostFullFirst extends VmAllocationPolicy implements
 	PowerUtilizationMaxHostInterface {
 
+	private static final long serialVersionUID = 1L;
+
 	protected final double hostTotalMips;
 	protected final double hostTotalBw;
 	protected final int hostTotalPes;
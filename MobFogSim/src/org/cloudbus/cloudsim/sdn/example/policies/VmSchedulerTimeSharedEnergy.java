@@ -27,6 +27,8 @@ import org.cloudbus.cloudsim.sdn.power.PowerUtilizationInterface;
 public class VmSchedulerTimeSharedEnergy extends VmSchedulerTimeShared implements
 	PowerUtilizationInterface {
 
+	private static final long serialVersionUID = 1L;
+
 	public VmSchedulerTimeSharedEnergy(List<? extends Pe> pelist) {
 		super(pelist);
 	}
@@ -19,6 +19,7 @@ import java.util.Map;
 import org.cloudbus.cloudsim.Vm;
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.provisioners.BwProvisioner;
+import org.fog.utils.RunDirectory;
 
 /**
  * BwProvisionerSimple is a class that implements a simple best effort
@@ -31,6 +32,8 @@ import org.cloudbus.cloudsim.provisioners.BwProvisioner;
  */
 public class BwProvisionerOverbooking extends BwProvisioner {
 
+	private static final long serialVersionUID = 1L;
+
 	/** The bw table. */
 	private Map<String, Long> bwTable;
 	public static final double overbookingRatioBw = 1.0;// 20% overbooking allowed for BW
@@ -58,7 +61,7 @@ public class BwProvisionerOverbooking extends BwProvisioner {
 	public boolean allocateBwForVm(Vm vm, long bw) {
 		deallocateBwForVm(vm);
 
-		try (FileWriter fw1 = new FileWriter("creating_modules.txt", true);
+		try (FileWriter fw1 = new FileWriter(RunDirectory.path("creating_modules.txt"), true);
 			BufferedWriter bw1 = new BufferedWriter(fw1);
 			PrintWriter out1 = new PrintWriter(bw1))
 		{
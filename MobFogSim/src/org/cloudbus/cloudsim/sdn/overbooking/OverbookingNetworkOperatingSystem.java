@@ -25,6 +25,8 @@ import org.cloudbus.cloudsim.sdn.TimedVm;
 
 public class OverbookingNetworkOperatingSystem extends NetworkOperatingSystem {
 
+	private static final long serialVersionUID = 1L;
+
 	public OverbookingNetworkOperatingSystem(String fileName) {
 		super(fileName);
 	}
@@ -23,6 +23,8 @@ import org.cloudbus.cloudsim.provisioners.PeProvisioner;
  */
 public class PeProvisionerOverbooking extends PeProvisioner {
 
+	private static final long serialVersionUID = 1L;
+
 	/** The pe table. */
 	private Map<String, List<Double>> peTable;
 	// 10% overbooking allowed for MIPS
@@ -28,6 +28,8 @@ import org.cloudbus.cloudsim.sdn.power.PowerUtilizationInterface;
 public class VmSchedulerTimeSharedOverbookingEnergy extends VmSchedulerTimeSharedOverSubscription
 	implements PowerUtilizationInterface {
 
+	private static final long serialVersionUID = 1L;
+
 	public VmSchedulerTimeSharedOverbookingEnergy(List<? extends Pe> pelist) {
 		super(pelist);
 	}
@@ -1,5 +1,8 @@
 package org.fog.application;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -11,6 +14,7 @@ import org.cloudbus.cloudsim.power.PowerVm;
 import org.fog.application.selectivity.SelectivityModel;
 import org.fog.scheduler.TupleScheduler;
 import org.fog.utils.FogUtils;
+import org.fog.utils.Pairs;
 
 /**
  * Class representing an application module, the processing elements of the
@@ -20,9 +24,11 @@ import org.fog.utils.FogUtils;
  */
 public class AppModule extends PowerVm {
 
+	private static final long serialVersionUID = 1L;
+
 	private String name;
 	private String appId;
-	private Map<Pair<String, String>, SelectivityModel> selectivityMap;
+	private transient Map<Pair<String, String>, SelectivityModel> selectivityMap;
 
 	/**
 	 * Mapping from tupleType emitted by this AppModule to Actuators subscribing
@@ -120,6 +126,16 @@ public class AppModule extends PowerVm {
 		this.actuatorSubscriptions = actuatorSubscriptions;
 	}
 
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		Pairs.writeMap(out, selectivityMap);
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		selectivityMap = Pairs.readMap(in, new HashMap<Pair<String, String>, SelectivityModel>());
+	}
+
 	@Override
 	public String toString() {
 		return "AppModule [name=" + name + ", appId=" + appId + ", selectivityMap="
@@ -1,5 +1,6 @@
 package org.fog.application;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -18,7 +19,9 @@ import org.fog.utils.GeoCoverage;
  * 
  * @author Harshit Gupta
  */
-public class Application {
+public class Application implements Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 	private String appId;
 	private int userId;
@@ -8,6 +8,8 @@ package org.fog.application.selectivity;
  */
 public class FractionalSelectivity implements SelectivityModel {
 
+	private static final long serialVersionUID = 1L;
+
 	/**
 	 * The fixed probability of output tuple creation per incoming input tuple
 	 */
@@ -1,11 +1,13 @@
 package org.fog.application.selectivity;
 
+import java.io.Serializable;
+
 /**
  * Class representing the input-output relationships of application modules.
  * 
  * @author Harshit Gupta
  */
-public interface SelectivityModel {
+public interface SelectivityModel extends Serializable {
 
 	/**
 	 * Function called to check whether incoming tuple can generate an output
@@ -1,28 +1,26 @@
 package org.fog.entities;
 
-import java.io.BufferedWriter;
-import java.io.FileNotFoundException;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.io.PrintWriter;
-import java.io.UnsupportedEncodingException;
-
 import org.cloudbus.cloudsim.NetworkTopology;
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.SimEntity;
 import org.cloudbus.cloudsim.core.SimEvent;
 import org.fog.application.AppLoop;
 import org.fog.application.Application;
-import org.fog.placement.MobileController;
+import org.fog.placement.SmartThingRegistry;
 import org.fog.utils.FogEvents;
+import org.fog.utils.FogLog;
 import org.fog.utils.GeoLocation;
-import org.fog.utils.Logger;
+import org.fog.utils.LatencyStats;
+import org.fog.utils.OutputSink;
+import org.fog.utils.OutputSinks;
 import org.fog.utils.TimeKeeper;
 import org.fog.vmmigration.LatencyByDistance;
 import org.fog.vmmigration.MyStatistics;
 
 public class Actuator extends SimEntity {
 
+	private static final long serialVersionUID = 1L;
+
 	private int gatewayDeviceId;
 	private double latency;
 	private GeoLocation geoLocation;
@@ -67,17 +65,9 @@ public class Actuator extends SimEntity {
 	}
 
 	public void printResults(String a, String filename) {
-		try (FileWriter fw1 = new FileWriter(filename, true);
-			BufferedWriter bw1 = new BufferedWriter(fw1);
-			PrintWriter out1 = new PrintWriter(bw1))
-		{
+		OutputSink out1 = OutputSinks.get(filename);
+		if (out1 != null) {
 			out1.println(a);
-		} catch (UnsupportedEncodingException e) {
-			e.printStackTrace();
-		} catch (FileNotFoundException e) {
-			e.printStackTrace();
-		} catch (IOException e) {
-			e.printStackTrace();
 		}
 	}
 
@@ -91,38 +81,32 @@ public class Actuator extends SimEntity {
 
 		for (AppLoop loop : app.getLoops()) {
 			if (loop.hasEdge(srcModule, destModule) && loop.isEndModule(destModule)) {
-				Logger.debug(getName(),
-					"Received tuple " + tuple.getCloudletId() + " on " + tuple.getDestModuleName()
-						+ ". TupleSource: " + tuple.getSrcModuleName());
+				if (FogLog.isEnabled(FogLog.Level.TRACE)) {
+					FogLog.trace(getName(), "Received tuple " + tuple.getCloudletId() + " on "
+						+ tuple.getDestModuleName() + ". TupleSource: " + tuple.getSrcModuleName());
+				}
 
-				Double startTime = TimeKeeper.getInstance().getEmitTimes()
-					.get(tuple.getActualTupleId());
-				if (startTime == null)
+				TimeKeeper timeKeeper = TimeKeeper.getInstance();
+				double startTime = timeKeeper.getEmitTime(tuple.getActualTupleId());
+				if (Double.isNaN(startTime))
 					break;
-				if (!TimeKeeper.getInstance().getLoopIdToCurrentAverage()
-					.containsKey(loop.getLoopId())) {
-					TimeKeeper.getInstance().getLoopIdToCurrentAverage().put(loop.getLoopId(), 0.0);
-					TimeKeeper.getInstance().getLoopIdToCurrentNum().put(loop.getLoopId(), 0);
-					TimeKeeper.getInstance().getMaxLoopExecutionTime().put(loop.getLoopId(), 0.0);
+				LatencyStats stats = timeKeeper.getLoopStats().get(loop.getLoopId());
+				if (stats == null) {
+					stats = timeKeeper.getLoopStats(loop.getLoopId());
 					printResults("Time: " + CloudSim.clock() + " Latency: " + String.valueOf(0), loop.getLoopId() + "LoopId.txt");
 					printResults(String.valueOf(0), loop.getLoopId() + "LoopMaxId.txt");
 				}
 				MobileDevice st = (MobileDevice) CloudSim.getEntity(getGatewayDeviceId());
-				double currentAverage = TimeKeeper.getInstance().getLoopIdToCurrentAverage()
-					.get(loop.getLoopId());
-				int currentCount = TimeKeeper.getInstance().getLoopIdToCurrentNum()
-					.get(loop.getLoopId());
-				double delay = CloudSim.clock()
-					- TimeKeeper.getInstance().getEmitTimes().get(tuple.getActualTupleId());
-				if (MobileController.getSmartThings().contains(st)) {
+				double delay = CloudSim.clock() - startTime;
+				if (SmartThingRegistry.isRegistered(st)) {
 					if (st != null) {
 						if (st.getSourceAp() != null) {
 							if (st.getSourceAp().getServerCloudletToVmMigrate() != null) {
 								if (st.getVmLocalServerCloudlet() != null) {
-									System.out.println("Nao NULO");
+									FogLog.trace(getName(), "Nao NULO");
 									if (st.getSourceAp().getServerCloudlet()
 										.equals(st.getVmLocalServerCloudlet())) {
-										System.out.println("Primeiro IF");
+										FogLog.trace(getName(), "Primeiro IF");
 										delay += NetworkTopology.getDelay(st.getId(), st
 											.getSourceAp().getId())
 											+ NetworkTopology.getDelay(st.getSourceAp().getId(), st
@@ -162,19 +146,10 @@ public class Actuator extends SimEntity {
 						st.getCoord().getCoordX(), st.getCoord().getCoordY(), st.getDirection(),
 						st.getSpeed(), st.getSourceAp().getName());
 
-					if (delay > TimeKeeper.getInstance().getMaxLoopExecutionTime()
-						.get(loop.getLoopId())) {
-						TimeKeeper.getInstance().getMaxLoopExecutionTime()
-							.put(loop.getLoopId(), delay);
+					if (delay > stats.getMax()) {
 						printResults(String.valueOf(delay), loop.getLoopId() + "LoopMaxId.txt");
 					}
-					TimeKeeper.getInstance().getEmitTimes().remove(tuple.getActualTupleId());
-					double newAverage = (currentAverage * currentCount + delay)
-						/ (currentCount + 1);
-					TimeKeeper.getInstance().getLoopIdToCurrentAverage()
-						.put(loop.getLoopId(), newAverage);
-					TimeKeeper.getInstance().getLoopIdToCurrentNum()
-						.put(loop.getLoopId(), currentCount + 1);
+					timeKeeper.loopCompleted(loop.getLoopId(), tuple.getActualTupleId(), delay);
 					printResults("Time: " + CloudSim.clock() + " Latency: " + String.valueOf(delay), loop.getLoopId() + "LoopId.txt");
 					break;
 				}
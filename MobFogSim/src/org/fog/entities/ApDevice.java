@@ -14,12 +14,14 @@ import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.SimEvent;
 import org.fog.localization.*;
 import org.fog.placement.MobileController;
-import org.fog.vmmobile.LogMobile;
+import org.fog.utils.FogLog;
 import org.fog.vmmobile.constants.MobileEvents;
 import org.fog.vmmobile.constants.Policies;
 
 public class ApDevice extends FogDevice {
 
+	private static final long serialVersionUID = 1L;
+
 	private FogDevice serverCloudlet;
 	private int maxSmartThing;
 	private boolean status;
@@ -44,7 +46,9 @@ public class ApDevice extends FogDevice {
 		// TODO Auto-generated method stub
 		MobileDevice smartThing = (MobileDevice) ev.getData();
 		smartThing.setLockedToHandoff(false);
-		LogMobile.debug("ApDevice.java", smartThing.getName() + " has the handoff unlocked");
+		if (FogLog.isEnabled(FogLog.Level.DEBUG)) {
+			FogLog.debug("ApDevice.java", smartThing.getName() + " has the handoff unlocked");
+		}
 	}
 
 	private void handoff(SimEvent ev, double delay) {
@@ -65,23 +69,27 @@ public class ApDevice extends FogDevice {
 
 			smartThing.setDestinationAp(null);
 			smartThing.setHandoffStatus(false);
-			LogMobile.debug("ApDevice.java", smartThing.getName()
-				+ " was desconnected (inHandoff) to " + getName());
+			if (FogLog.isEnabled(FogLog.Level.DEBUG)) {
+				FogLog.debug("ApDevice.java", smartThing.getName()
+					+ " was desconnected (inHandoff) to " + getName());
+			}
 
 			if (smartThing.isMigStatus()) {
-				System.out .println("+++++++++++++++++MAKING THE HANDOFF DURING MIGRATION+++++++++++++: "
+				FogLog.info("ApDevice.java", "+++++++++++++++++MAKING THE HANDOFF DURING MIGRATION+++++++++++++: "
 					+ smartThing.getName() + " temp: " + CloudSim.clock());
 			}
 			else {
-				System.out.println("++++++++++++++++++++HandoffSimple++++++++++++++++++++: "
+				FogLog.info("ApDevice.java", "++++++++++++++++++++HandoffSimple++++++++++++++++++++: "
 					+ smartThing.getName() + " temp: " + CloudSim.clock());
 			}
-			LogMobile.debug("ApDevice.java", smartThing.getName()
-				+ " was connected (inHandoff) to " + smartThing.getSourceAp().getName());
+			if (FogLog.isEnabled(FogLog.Level.DEBUG)) {
+				FogLog.debug("ApDevice.java", smartThing.getName()
+					+ " was connected (inHandoff) to " + smartThing.getSourceAp().getName());
+			}
 
 		}
 		else {
-			System.out.println("*_*_*_*_*_*_*_*_*_*_*_*_*_ABORT MIGRATION*_*_*_*_*_*_*_*_*_*_*_*: "
+			FogLog.info("ApDevice.java", "*_*_*_*_*_*_*_*_*_*_*_*_*_ABORT MIGRATION*_*_*_*_*_*_*_*_*_*_*_*: "
 				+ smartThing.getId());
 			smartThing.setMigStatus(false);
 			smartThing.setPostCopyStatus(false);
@@ -95,7 +103,9 @@ public class ApDevice extends FogDevice {
 		setSmartThings(st, Policies.REMOVE);
 		st.setSourceAp(null);
 		setUplinkLatency(getUplinkLatency() - 0.002);
-		LogMobile.debug("ApDevice.java", st.getName() + " was desconnected to " + getName());
+		if (FogLog.isEnabled(FogLog.Level.DEBUG)) {
+			FogLog.debug("ApDevice.java", st.getName() + " was desconnected to " + getName());
+		}
 		// remove link
 		NetworkTopology.addLink(this.getId(), st.getId(), 0.0, 0.0);
 	}
@@ -111,8 +121,10 @@ public class ApDevice extends FogDevice {
 				apDevices.get(index).setSmartThings(st, Policies.ADD);
 				NetworkTopology.addLink(apDevices.get(index).getId(), st.getId(),
 					st.getUplinkBandwidth(), delay);
-				LogMobile.debug("ApDevice.java", st.getName() + " was connected to "
-					+ st.getSourceAp().getName());
+				if (FogLog.isEnabled(FogLog.Level.DEBUG)) {
+					FogLog.debug("ApDevice.java", st.getName() + " was connected to "
+						+ st.getSourceAp().getName());
+				}
 				apDevices.get(index).setUplinkLatency(
 					apDevices.get(index).getUplinkLatency() + delay);
 				return true;
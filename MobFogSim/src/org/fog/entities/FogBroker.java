@@ -5,6 +5,8 @@ import org.cloudbus.cloudsim.power.PowerDatacenterBroker;
 
 public class FogBroker extends PowerDatacenterBroker {
 
+	private static final long serialVersionUID = 1L;
+
 	public FogBroker(String name) throws Exception {
 		super(name);
 		// TODO Auto-generated constructor stub
@@ -1,12 +1,10 @@
 package org.fog.entities;
 
-import java.io.BufferedWriter;
-import java.io.FileNotFoundException;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.io.UnsupportedEncodingException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -25,6 +23,7 @@ import org.cloudbus.cloudsim.Vm;
 import org.cloudbus.cloudsim.VmAllocationPolicy;
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.CloudSimTags;
+import org.cloudbus.cloudsim.core.SimEntity;
 import org.cloudbus.cloudsim.core.SimEvent;
 import org.cloudbus.cloudsim.power.PowerDatacenter;
 import org.cloudbus.cloudsim.power.PowerHost;
@@ -39,32 +38,39 @@ import org.fog.application.Application;
 import org.fog.localization.Coordinate;// myiFogSim
 import org.fog.localization.Distances;
 import org.fog.placement.MobileController;
+import org.fog.placement.SmartThingRegistry;
 import org.fog.policy.AppModuleAllocationPolicy;
 import org.fog.scheduler.StreamOperatorScheduler;
 import org.fog.utils.Config;
 import org.fog.utils.FogEvents;
+import org.fog.utils.FogLog;
 import org.fog.utils.FogUtils;
-import org.fog.utils.Logger;
+import org.fog.utils.LatencyStats;
 import org.fog.utils.ModuleLaunchConfig;
 import org.fog.utils.NetworkUsageMonitor;
+import org.fog.utils.OutputSink;
+import org.fog.utils.OutputSinks;
+import org.fog.utils.Pairs;
 import org.fog.utils.TimeKeeper;
 import org.fog.vmmigration.BeforeMigration;
 import org.fog.vmmigration.CompleteVM;
 import org.fog.vmmigration.ContainerVM;
 import org.fog.vmmigration.DecisionMigration;
 import org.fog.vmmigration.LiveMigration;
+import org.fog.vmmigration.MigrationDecisions;
 import org.fog.vmmigration.MyStatistics;
 import org.fog.vmmigration.Service;
-import org.fog.vmmobile.LogMobile;
 import org.fog.vmmobile.constants.MobileEvents;
 import org.fog.vmmobile.constants.Policies;
 
 public class FogDevice extends PowerDatacenter {
+
+	private static final long serialVersionUID = 1L;
+
 	protected Queue<Tuple> northTupleQueue;
-	protected Queue<Pair<Tuple, Integer>> southTupleQueue;
+	protected transient Queue<Pair<Tuple, Integer>> southTupleQueue;
 
 	protected List<String> activeApplications;
-	protected ArrayList<String[]> path;
 
 	protected Map<String, Application> applicationMap;
 	protected Map<String, List<String>> appToModulesMap;
@@ -104,7 +110,7 @@ public class FogDevice extends PowerDatacenter {
 	protected double uplinkBandwidth;
 	protected double downlinkBandwidth;
 	protected double uplinkLatency;
-	protected List<Pair<Integer, Double>> associatedActuatorIds;
+	protected transient List<Pair<Integer, Double>> associatedActuatorIds;
 
 	protected double energyConsumption;
 	protected double lastUtilizationUpdateTime;
@@ -295,7 +301,6 @@ public class FogDevice extends PowerDatacenter {
 			host.setDatacenter(this);
 		}
 		setActiveApplications(new ArrayList<String>());
-		setPath(new ArrayList<String[]>());
 		setTravelTimeId(-1);
 		setTravelPredicTime(0);
 		setMobilityPredictionError(0);
@@ -369,7 +374,6 @@ public class FogDevice extends PowerDatacenter {
 			host.setDatacenter(this);
 		}
 		setActiveApplications(new ArrayList<String>());
-		setPath(new ArrayList<String[]>());
 		setTravelTimeId(-1);
 		setTravelPredicTime(0);
 		setMobilityPredictionError(0);
@@ -428,7 +432,6 @@ public class FogDevice extends PowerDatacenter {
 			host.setDatacenter(this);
 		}
 		setActiveApplications(new ArrayList<String>());
-		setPath(new ArrayList<String[]>());
 		setTravelTimeId(-1);
 		setTravelPredicTime(0);
 		setMobilityPredictionError(0);
@@ -510,7 +513,6 @@ public class FogDevice extends PowerDatacenter {
 			host1.setDatacenter(this);
 		}
 		setActiveApplications(new ArrayList<String>());
-		setPath(new ArrayList<String[]>());
 		setTravelTimeId(-1);
 		setTravelPredicTime(0);
 		setMobilityPredictionError(0);
@@ -643,27 +645,29 @@ public class FogDevice extends PowerDatacenter {
 		// TODO Auto-generated method stub
 
 		MobileDevice smartThing = (MobileDevice) ev.getData();
-		System.out.println("local " + smartThing.getVmLocalServerCloudlet().getName() + " "
-			+ smartThing.getVmLocalServerCloudlet().getActiveApplications() +
-			" apps "
-			+ smartThing.getVmLocalServerCloudlet().getApplicationMap().values().toString());
-		System.out.println("dest: " + smartThing.getDestinationServerCloudlet().getName() + " "
-			+ smartThing.getDestinationServerCloudlet().getActiveApplications() +
-			" apps "
-			+ smartThing.getDestinationServerCloudlet().getApplicationMap().values().toString());
-		System.out.println("smartthing id: " + smartThing.getMyId());
+		if (FogLog.isEnabled(FogLog.Level.DEBUG)) {
+			FogLog.debug("FogDevice.java", "local " + smartThing.getVmLocalServerCloudlet().getName() + " "
+				+ smartThing.getVmLocalServerCloudlet().getActiveApplications() +
+				" apps "
+				+ smartThing.getVmLocalServerCloudlet().getApplicationMap().values().toString());
+			FogLog.debug("FogDevice.java", "dest: " + smartThing.getDestinationServerCloudlet().getName() + " "
+				+ smartThing.getDestinationServerCloudlet().getActiveApplications() +
+				" apps "
+				+ smartThing.getDestinationServerCloudlet().getApplicationMap().values().toString());
+			FogLog.debug("FogDevice.java", "smartthing id: " + smartThing.getMyId());
+		}
 		smartThing.getVmLocalServerCloudlet().applicationMap.values();
 		Application app = smartThing.getVmLocalServerCloudlet().applicationMap.get("MyApp_vr_game"
 			+ smartThing.getMyId());
 		if (app == null) {
-			System.out.println("Clock: " + CloudSim.clock() + " - FogDevice.java - App == Null");
-			System.exit(0);
+			FogLog.error("FogDevice.java", "App == Null");
+			throw new IllegalStateException("App == Null");
 		}
 		getApplicationMap().put(app.getAppId(), app);
 
 		if (smartThing.getVmLocalServerCloudlet().getApplicationMap().remove(app.getAppId()) == null) {
-			System.out.println("FogDevice.java - applicationMap did not remove. return == null");
-			System.exit(0);
+			FogLog.error("FogDevice.java", "applicationMap did not remove. return == null");
+			throw new IllegalStateException("applicationMap did not remove. return == null");
 		}
 
 		MobileController mobileController = (MobileController) CloudSim
@@ -671,7 +675,9 @@ public class FogDevice extends PowerDatacenter {
 
 		mobileController.getModuleMapping().addModuleToDevice(
 			((AppModule) smartThing.getVmMobileDevice()).getName(), getName(), 1);
-		System.out.println("Antes de entrar no submitApplicationMigration - " + getName());
+		if (FogLog.isEnabled(FogLog.Level.DEBUG)) {
+			FogLog.debug("FogDevice.java", "Antes de entrar no submitApplicationMigration - " + getName());
+		}
 		mobileController.getModuleMapping().getModuleMapping()
 			.remove(smartThing.getVmLocalServerCloudlet().getName());
 		if (!mobileController.getModuleMapping().getModuleMapping().containsKey(getName())) {
@@ -689,7 +695,9 @@ public class FogDevice extends PowerDatacenter {
 		MobileDevice smartThing = (MobileDevice) ev.getData();
 		smartThing.setLockedToMigration(false);
 		smartThing.setTimeFinishDeliveryVm(-1);
-		LogMobile.debug("FogDevice.java", smartThing.getName() + " had the migration unlocked");
+		if (FogLog.isEnabled(FogLog.Level.DEBUG)) {
+			FogLog.debug("FogDevice.java", smartThing.getName() + " had the migration unlocked");
+		}
 	}
 
 	private void desconnectServerCloudletSmartThing(SimEvent ev) {
@@ -715,8 +723,10 @@ public class FogDevice extends PowerDatacenter {
 				MyStatistics.getInstance().finalWithoutVmTime(smartThing.getMyId(), CloudSim.clock());
 				MyStatistics.getInstance().getInitialWithoutVmTime().remove(smartThing.getMyId());
 			}
-			LogMobile.debug("FogDevice.java", smartThing.getName()
-				+ " had migStatus to false - connectServerCloudlet");
+			if (FogLog.isEnabled(FogLog.Level.DEBUG)) {
+				FogLog.debug("FogDevice.java", smartThing.getName()
+					+ " had migStatus to false - connectServerCloudlet");
+			}
 			MyStatistics.getInstance().startDelayAfterNewConnection(smartThing.getMyId(), 0.0);
 			MyStatistics.getInstance().finalDelayAfterNewConnection(smartThing.getMyId(),
 				getCharacteristics().getCpuTime( smartThing.getVmMobileDevice().getSize() * 1024 * 1024 * 8, 0.0));
@@ -736,7 +746,7 @@ public class FogDevice extends PowerDatacenter {
 
 	private void invokeAbortMigration(SimEvent ev) {
 		MobileDevice smartThing = (MobileDevice) ev.getData();
-		System.out.println("*_*_*_*_*_*_*_*_*_*_*_*_*_ABORT MIGRATION -> beforeMigration*_*_*_*_*_*_*_*_*_*_*_*: "
+		FogLog.info("FogDevice.java", "*_*_*_*_*_*_*_*_*_*_*_*_*_ABORT MIGRATION -> beforeMigration*_*_*_*_*_*_*_*_*_*_*_*: "
 				+ smartThing.getName());
 		MyStatistics.getInstance().getInitialWithoutVmTime().remove(smartThing.getMyId());
 		MyStatistics.getInstance().getInitialTimeDelayAfterNewConnection() .remove(smartThing.getMyId());
@@ -761,7 +771,9 @@ public class FogDevice extends PowerDatacenter {
 		getChildToLatencyMap().put(st.getId(), latency);
 		addChild(st.getId());
 		setUplinkLatency(getUplinkLatency() + 0.123812950236);//
-		LogMobile.debug("FogDevice.java", st.getName() + " was connected to " + getName());
+		if (FogLog.isEnabled(FogLog.Level.DEBUG)) {
+			FogLog.debug("FogDevice.java", st.getName() + " was connected to " + getName());
+		}
 
 		return true;
 	}
@@ -772,7 +784,9 @@ public class FogDevice extends PowerDatacenter {
 		// NetworkTopology.addLink(this.getId(), st.getId(), 0.0, 0.0);
 		setUplinkLatency(getUplinkLatency() - 0.123812950236);
 		removeChild(st.getId());
-		LogMobile.debug("FogDevice.java", st.getName() + " was desconnected to " + getName());
+		if (FogLog.isEnabled(FogLog.Level.DEBUG)) {
+			FogLog.debug("FogDevice.java", st.getName() + " was desconnected to " + getName());
+		}
 		return true;
 
 	}
@@ -781,7 +795,7 @@ public class FogDevice extends PowerDatacenter {
 		MobileDevice smartThing = (MobileDevice) ev.getData();
 
 		// the smartThing is outside of the map
-		if (MobileController.getSmartThings().contains(smartThing)) {
+		if (SmartThingRegistry.isRegistered(smartThing)) {
 			if (!smartThing.isAbortMigration()) {
 				// the smartThing isn't connected in any ap right now
 				if (smartThing.getSourceAp() != null) {
@@ -793,15 +807,17 @@ public class FogDevice extends PowerDatacenter {
 					}
 					send(smartThing.getVmLocalServerCloudlet().getId(), delay,
 						MobileEvents.DELIVERY_VM, smartThing);
-					LogMobile.debug("FogDevice.java", smartThing.getName()
-						+ " was scheduled the DELIVERY_VM  from " +
-						smartThing.getVmLocalServerCloudlet().getName() + " to "
-						+ smartThing.getDestinationServerCloudlet().getName());
-					System.out.println("FogDevice.java" + smartThing.getName()
-						+ " was scheduled the DELIVERY_VM  from " +
-						smartThing.getVmLocalServerCloudlet().getName() + " to "
-						+ smartThing.getDestinationServerCloudlet().getName() + " in "
-						+ CloudSim.clock() + " with delay " + delay);
+					if (FogLog.isEnabled(FogLog.Level.DEBUG)) {
+						FogLog.debug("FogDevice.java", smartThing.getName()
+							+ " was scheduled the DELIVERY_VM  from " +
+							smartThing.getVmLocalServerCloudlet().getName() + " to "
+							+ smartThing.getDestinationServerCloudlet().getName());
+						FogLog.debug("FogDevice.java", smartThing.getName()
+							+ " was scheduled the DELIVERY_VM  from " +
+							smartThing.getVmLocalServerCloudlet().getName() + " to "
+							+ smartThing.getDestinationServerCloudlet().getName() + " in "
+							+ CloudSim.clock() + " with delay " + delay);
+					}
 
 					sendNow(smartThing.getDestinationServerCloudlet().getId(),
 						MobileEvents.VM_MIGRATE, smartThing);
@@ -809,26 +825,28 @@ public class FogDevice extends PowerDatacenter {
 					ma = new HashMap<String, Object>();
 
 					if (smartThing.getVmMobileDevice() == null) {
-						System.out.println(smartThing.getName() + " has a null VM");
+						FogLog.warn("FogDevice.java", smartThing.getName() + " has a null VM");
 					}
 					ma.put("vm", smartThing.getVmMobileDevice());
 					ma.put("host", smartThing.getDestinationServerCloudlet().getHost());
 					if (ma.size() < 2) {
 						sendNow(getId(), MobileEvents.ABORT_MIGRATION, smartThing);
-						System.out.println("FogDevice.java ma.size()<2");
-						System.exit(0);
+						FogLog.error("FogDevice.java", "ma.size()<2");
+						throw new IllegalStateException("ma.size()<2");
 					}
 					else {
 						sendNow(smartThing.getVmLocalServerCloudlet().getId(),
 							CloudSimTags.VM_MIGRATE, ma);
-						LogMobile.debug("FogDevice.java",
-							"CloudSim.VM_MIGRATE was scheduled  to VM#: "
+						if (FogLog.isEnabled(FogLog.Level.DEBUG)) {
+							FogLog.debug("FogDevice.java",
+								"CloudSim.VM_MIGRATE was scheduled  to VM#: "
+									+ smartThing.getVmMobileDevice().getId() + " HOST#: " +
+									smartThing.getDestinationServerCloudlet().getHost().getId());
+							FogLog.debug("FogDevice.java",
+								"CloudSim.VM_MIGRATE was scheduled  to VM#: "
 								+ smartThing.getVmMobileDevice().getId() + " HOST#: " +
 								smartThing.getDestinationServerCloudlet().getHost().getId());
-						System.out.println("FogDevice.java"
-							+ " CloudSim.VM_MIGRATE was scheduled  to VM#: "
-							+ smartThing.getVmMobileDevice().getId() + " HOST#: " +
-							smartThing.getDestinationServerCloudlet().getHost().getId());
+						}
 					}
 				}
 				else {
@@ -841,18 +859,22 @@ public class FogDevice extends PowerDatacenter {
 			}
 		}
 		else {
-			LogMobile.debug("FogDevice.java", smartThing.getName()
-				+ " was excluded from List of SmartThings!");
+			if (FogLog.isEnabled(FogLog.Level.DEBUG)) {
+				FogLog.debug("FogDevice.java", smartThing.getName()
+					+ " was excluded from List of SmartThings!");
+			}
 		}
 	}
 
 	private void deliveryVM(SimEvent ev) {
 		MobileDevice smartThing = (MobileDevice) ev.getData();
-		if (MobileController.getSmartThings().contains(smartThing)) {
+		if (SmartThingRegistry.isRegistered(smartThing)) {
 
-			LogMobile.debug("FogDevice.java", "DELIVERY VM: " + smartThing.getName() + " (id: "
-				+ smartThing.getId() + ") from " + smartThing.getVmLocalServerCloudlet().getName()
-				+ " to " + smartThing.getDestinationServerCloudlet().getName());
+			if (FogLog.isEnabled(FogLog.Level.DEBUG)) {
+				FogLog.debug("FogDevice.java", "DELIVERY VM: " + smartThing.getName() + " (id: "
+					+ smartThing.getId() + ") from " + smartThing.getVmLocalServerCloudlet().getName()
+					+ " to " + smartThing.getDestinationServerCloudlet().getName());
+			}
 
 			smartThing.getVmLocalServerCloudlet().setSmartThingsWithVm(smartThing, Policies.REMOVE);
 
@@ -868,17 +890,21 @@ public class FogDevice extends PowerDatacenter {
 				smartThing.setMigStatusLive(false);
 				if (MyStatistics.getInstance().getInitialWithoutVmTime().get(smartThing.getMyId()) != null) {
 					MyStatistics.getInstance().finalWithoutVmTime(smartThing.getMyId(), CloudSim.clock());
-					System.out.println("finalWithoutVmTime: " + CloudSim.clock());
+					if (FogLog.isEnabled(FogLog.Level.DEBUG)) {
+						FogLog.debug("FogDevice.java", "finalWithoutVmTime: " + CloudSim.clock());
+					}
 					MyStatistics.getInstance().getInitialWithoutVmTime() .remove(smartThing.getMyId());
 				}
-				LogMobile.debug("FogDevice.java", smartThing.getName()
-					+ " had migStatus to false - deliveryVM");
+				if (FogLog.isEnabled(FogLog.Level.DEBUG)) {
+					FogLog.debug("FogDevice.java", smartThing.getName()
+						+ " had migStatus to false - deliveryVM");
+				}
 				// handoff has been occurred first than delivery
 				MyStatistics.getInstance().finalDelayAfterNewConnection(smartThing.getMyId(), CloudSim.clock()
 						+ getCharacteristics().getCpuTime(smartThing.getVmMobileDevice().getSize() * 1024 * 1024 * 8, 0.0));
 				if (smartThing.getSourceServerCloudlet() == null) {
 					smartThing.setSourceServerCloudlet(smartThing.getVmLocalServerCloudlet());
-					System.out.println("CRASH " + smartThing.getMyId() + "\t source c "
+					FogLog.warn("FogDevice.java", "CRASH " + smartThing.getMyId() + "\t source c "
 						+ smartThing.getSourceServerCloudlet()
 						+ "\t local server " + smartThing.getVmLocalServerCloudlet());
 				}
@@ -916,31 +942,38 @@ public class FogDevice extends PowerDatacenter {
 			smartThing.setTimeFinishDeliveryVm(CloudSim.clock());
 		}
 		else {
-			LogMobile.debug("FogDevice.java", smartThing.getName()
-				+ " was excluded by List of SmartThings! (inside Delivery Vm)");
+			if (FogLog.isEnabled(FogLog.Level.DEBUG)) {
+				FogLog.debug("FogDevice.java", smartThing.getName()
+					+ " was excluded by List of SmartThings! (inside Delivery Vm)");
+			}
 		}
 	}
 
 	private void invokeNoMigration(SimEvent ev) {
 		MobileDevice smartThing = (MobileDevice) ev.getData();
 
+		if (!FogLog.isEnabled(FogLog.Level.DEBUG)) {
+			return;
+		}
 		if (smartThing.isLockedToMigration()) {// isMigStatus()){
-			LogMobile.debug("FogDevice.java", "NO MIGRATE: " + smartThing.getName()
+			FogLog.debug("FogDevice.java", "NO MIGRATE: " + smartThing.getName()
 				+ " already is in migration Process or the migration is locked");
 		}
 		else {
-			LogMobile.debug("FogDevice.java", "NO MIGRATE: " + smartThing.getName()
+			FogLog.debug("FogDevice.java", "NO MIGRATE: " + smartThing.getName()
 				+ " is not in Migrate");
 		}
 	}
 
 	private void invokeBeforeMigration(SimEvent ev) {
 		MobileDevice smartThing = (MobileDevice) ev.getData();
-		if (MobileController.getSmartThings().contains(smartThing)) {
+		if (SmartThingRegistry.isRegistered(smartThing)) {
 			// the smartThing isn't connected in any ap right now
 			if (smartThing.getSourceAp() != null && !smartThing.isMigStatus()) {
 				double delayProcess = getBeforeMigrate().dataprepare(smartThing);
-				System.out.println("delayProcess" + delayProcess);
+				if (FogLog.isEnabled(FogLog.Level.DEBUG)) {
+					FogLog.debug("FogDevice.java", "delayProcess" + delayProcess);
+				}
 				if (delayProcess >= 0) {
 					if (getPolicyReplicaVM() == Policies.LIVE_MIGRATION) {
 						smartThing.setPostCopyStatus(true);
@@ -987,75 +1020,77 @@ public class FogDevice extends PowerDatacenter {
 	}
 
 	private void invokeDecisionMigration(SimEvent ev) {
-		for (MobileDevice st : getSmartThings()) {
-			//Only the connected smartThings
-			if (st.getSourceAp() != null && (!st.isLockedToMigration())) {
-				if (st.getVmLocalServerCloudlet().getMigrationStrategy().shouldMigrate(st)) {
-					if (!st.getVmLocalServerCloudlet().equals(st.getDestinationServerCloudlet())) {
-						System.out.println("====================ToMigrate================== "
-							+ st.getName() + " " + st.getId());
-						LogMobile.debug("FogDevice.java", "Distance between " + st.getName()
-							+ " and " + st.getSourceAp().getName() + ": " +
-							Distances.checkDistance(st.getCoord(), st.getSourceAp().getCoord()));
-						System.out.println("Migration time: " + st.getMigTime());
-						LogMobile.debug("FogDevice.java",
-							"Made the decisionMigration for " + st.getName());
-						LogMobile.debug("FogDevice.java", "from "
-							+ st.getVmLocalServerCloudlet().getName() + " to "
-							+ st.getDestinationServerCloudlet().getName() +
-							" -> Connected by: " + st.getSourceServerCloudlet().getName());
-						sendNow(st.getVmLocalServerCloudlet().getId(), MobileEvents.TO_MIGRATION, st);
-						MyStatistics.getInstance().getInitialWithoutVmTime().remove(st.getMyId());
-						MyStatistics.getInstance().getInitialTimeDelayAfterNewConnection()
-							.remove(st.getMyId());
-						MyStatistics.getInstance().getInitialTimeWithoutConnection()
-							.remove(st.getMyId());
-						st.setLockedToMigration(true);
-						st.setTimeFinishDeliveryVm(-1.0);
-						saveMigration(st);
-					}
-					else {
-						sendNow(getId(), MobileEvents.NO_MIGRATION, st);
-					}
+		MigrationDecisions.decide(Collections.singletonList(this));
+	}
+
+	/**
+	 * Acts on the migration decision made for one of the smart things of this
+	 * server cloudlet: starts the migration, or tells this server cloudlet that
+	 * there is none.
+	 *
+	 * @param st
+	 *        - the smart thing
+	 * @param migrate
+	 *        - true if the strategy decided to migrate, false if it decided
+	 *        not to or the smart thing could not be evaluated
+	 */
+	public void applyDecisionMigration(MobileDevice st, boolean migrate) {
+		if (migrate) {
+			if (!st.getVmLocalServerCloudlet().equals(st.getDestinationServerCloudlet())) {
+				FogLog.info("FogDevice.java", "====================ToMigrate================== "
+					+ st.getName() + " " + st.getId());
+				if (FogLog.isEnabled(FogLog.Level.DEBUG)) {
+					FogLog.debug("FogDevice.java", "Distance between " + st.getName()
+						+ " and " + st.getSourceAp().getName() + ": " +
+						Distances.checkDistance(st.getCoord(), st.getSourceAp().getCoord()));
 				}
-				else {
-					sendNow(getId(), MobileEvents.NO_MIGRATION, st);
+				FogLog.info("FogDevice.java", "Migration time: " + st.getMigTime());
+				if (FogLog.isEnabled(FogLog.Level.DEBUG)) {
+					FogLog.debug("FogDevice.java",
+						"Made the decisionMigration for " + st.getName());
+					FogLog.debug("FogDevice.java", "from "
+						+ st.getVmLocalServerCloudlet().getName() + " to "
+						+ st.getDestinationServerCloudlet().getName() +
+						" -> Connected by: " + st.getSourceServerCloudlet().getName());
 				}
+				sendNow(st.getVmLocalServerCloudlet().getId(), MobileEvents.TO_MIGRATION, st);
+				MyStatistics.getInstance().getInitialWithoutVmTime().remove(st.getMyId());
+				MyStatistics.getInstance().getInitialTimeDelayAfterNewConnection()
+					.remove(st.getMyId());
+				MyStatistics.getInstance().getInitialTimeWithoutConnection()
+					.remove(st.getMyId());
+				st.setLockedToMigration(true);
+				st.setTimeFinishDeliveryVm(-1.0);
+				saveMigration(st);
 			}
 			else {
 				sendNow(getId(), MobileEvents.NO_MIGRATION, st);
-
 			}
 		}
+		else {
+			sendNow(getId(), MobileEvents.NO_MIGRATION, st);
+		}
 	}
 
 	private static void saveMigration(MobileDevice st) {
-		System.out.println("MIGRATION " + st.getMyId() + " Position: " + st.getCoord().getCoordX()
+		FogLog.info("FogDevice.java", "MIGRATION " + st.getMyId() + " Position: " + st.getCoord().getCoordX()
 			+ ", " + st.getCoord().getCoordY() + " Direction: " + st.getDirection() + " Speed: "
 			+ st.getSpeed());
-		System.out.println("Distance between " + st.getName() + " and "
+		FogLog.info("FogDevice.java", "Distance between " + st.getName() + " and "
 			+ st.getSourceAp().getName() + ": " +
 			Distances.checkDistance(st.getCoord(), st.getSourceAp().getCoord())
 			+ " Migration time: " + st.getMigTime());
 		NetworkUsageMonitor.migrationTrafficUsage(st.getVmLocalServerCloudlet()
 			.getUplinkBandwidth(), st.getVmMobileDevice().getSize());
 		NetworkUsageMonitor.migrationVMTransferredData(st.getVmMobileDevice().getSize());
-		try (FileWriter fw = new FileWriter(st.getMyId() + "migration.txt", true);
-			BufferedWriter bw = new BufferedWriter(fw);
-			PrintWriter out = new PrintWriter(bw))
-		{
+		OutputSink out = OutputSinks.get(st.getMyId() + "migration.txt");
+		if (out != null) {
 			out.println(st.getMyId() + "\t" + st.getCoord().getCoordX() + "\t" +
 				st.getCoord().getCoordY() + "\t" + st.getDirection() + "\t" +
 				st.getSpeed() + "\t" + st.getVmLocalServerCloudlet().getName() + "\t" +
 				st.getDestinationServerCloudlet().getName() + "\t" +
 				CloudSim.clock() + "\t" + st.getMigTime() + "\t"
 				+ (CloudSim.clock() + st.getMigTime()));
-		} catch (UnsupportedEncodingException e) {
-			e.printStackTrace();
-		} catch (FileNotFoundException e) {
-			e.printStackTrace();
-		} catch (IOException e) {
-			e.printStackTrace();
 		}
 	}
 
@@ -1081,8 +1116,10 @@ public class FogDevice extends PowerDatacenter {
 		if (!moduleInstanceCount.containsKey(appId))
 			moduleInstanceCount.put(appId, new HashMap<String, Integer>());
 		moduleInstanceCount.get(appId).put(config.getModule().getName(), config.getInstanceCount());
-		System.out.println(getName() + " Creating " + config.getInstanceCount()
-			+ " instances of module " + config.getModule().getName());
+		if (FogLog.isEnabled(FogLog.Level.DEBUG)) {
+			FogLog.debug(getName(), "Creating " + config.getInstanceCount()
+				+ " instances of module " + config.getModule().getName());
+		}
 	}
 
 	/**
@@ -1144,7 +1181,9 @@ public class FogDevice extends PowerDatacenter {
 		Application app = (Application) ev.getData();
 		if (!getActiveApplications().contains(app.getAppId()))
 			getActiveApplications().add(app.getAppId());
-		System.out.println(" Apps " + getActiveApplications());
+		if (FogLog.isEnabled(FogLog.Level.DEBUG)) {
+			FogLog.debug(getName(), "Apps " + getActiveApplications());
+		}
 	}
 
 	public String getOperatorName(int vmId) {
@@ -1235,8 +1274,10 @@ public class FogDevice extends PowerDatacenter {
 							continue;
 						}
 
-						Logger.debug(getName(), "Completed execution of tuple " + tuple.getCloudletId() + " on "
-								+ tuple.getDestModuleName());
+						if (FogLog.isEnabled(FogLog.Level.TRACE)) {
+							FogLog.trace(getName(), "Completed execution of tuple "
+								+ tuple.getCloudletId() + " on " + tuple.getDestModuleName());
+						}
 
 						List<Tuple> resultantTuples = application.getResultantTuples(
 							tuple.getDestModuleName(), tuple, getId());
@@ -1268,11 +1309,7 @@ public class FogDevice extends PowerDatacenter {
 			if (loop.hasEdge(srcModule, destModule) && loop.isStartModule(srcModule)) {
 				int tupleId = TimeKeeper.getInstance().getUniqueId();
 				resTuple.setActualTupleId(tupleId);
-				if (!TimeKeeper.getInstance().getLoopIdToTupleIds().containsKey(loop.getLoopId()))
-					TimeKeeper.getInstance().getLoopIdToTupleIds()
-						.put(loop.getLoopId(), new ArrayList<Integer>());
-				TimeKeeper.getInstance().getLoopIdToTupleIds().get(loop.getLoopId()).add(tupleId);
-				TimeKeeper.getInstance().getEmitTimes().put(tupleId, CloudSim.clock());
+				TimeKeeper.getInstance().tupleEmitted(loop.getLoopId(), tupleId);
 			}
 		}
 	}
@@ -1386,17 +1423,9 @@ public class FogDevice extends PowerDatacenter {
 	int numClients = 0;
 
 	public void saveLostTupple(String a, String filename) {
-		try (FileWriter fw1 = new FileWriter(filename, true);
-			BufferedWriter bw1 = new BufferedWriter(fw1);
-			PrintWriter out1 = new PrintWriter(bw1))
-		{
+		OutputSink out1 = OutputSinks.get(filename);
+		if (out1 != null) {
 			out1.println(a);
-		} catch (UnsupportedEncodingException e) {
-			e.printStackTrace();
-		} catch (FileNotFoundException e) {
-			e.printStackTrace();
-		} catch (IOException e) {
-			e.printStackTrace();
 		}
 	}
 
@@ -1404,16 +1433,7 @@ public class FogDevice extends PowerDatacenter {
 		Tuple tuple = (Tuple) ev.getData();
 		MyStatistics.getInstance().setMyCountTotalTuple(1);
 
-		boolean flagContinue = false;
-		for (MobileDevice st : MobileController.getSmartThings()) {
-			for (Sensor s : st.getSensors()) {
-				if (tuple.getAppId().equals(s.getAppId())) {
-					flagContinue = true;
-					break;
-				}
-			}
-		}
-		if (!flagContinue) {
+		if (!SmartThingRegistry.hasSensorOf(tuple.getAppId())) {
 			return;
 		}
 
@@ -1423,37 +1443,33 @@ public class FogDevice extends PowerDatacenter {
 			tuple.setInitialTime(CloudSim.clock() - getUplinkLatency());
 		}
 
-		for (MobileDevice st : getSmartThings()) {
-			if (st.getId() == ev.getSource()) {
-				if ((!st.isHandoffStatus() && !st.isMigStatus())) {
-					break;
-				}
-				else {
-					MyStatistics.getInstance().setMyCountLostTuple(1);
-					saveLostTupple(String.valueOf(CloudSim.clock()), st.getId()
-						+ "fdlostTupple.txt");
-					if (st.isMigStatus()) {
-						LogMobile.debug("FogDevice.java", st.getName() + " is in Migration");
-						return;
-					}
-					else {
-						return;
-					}
+		SimEntity source = CloudSim.getEntity(ev.getSource());
+		if (source instanceof MobileDevice && getSmartThings().contains(source)) {
+			MobileDevice st = (MobileDevice) source;
+			if (st.isHandoffStatus() || st.isMigStatus()) {
+				MyStatistics.getInstance().setMyCountLostTuple(1);
+				TimeKeeper.getInstance().tupleDropped(tuple);
+				saveLostTupple(String.valueOf(CloudSim.clock()), st.getId()
+					+ "fdlostTupple.txt");
+				if (st.isMigStatus() && FogLog.isEnabled(FogLog.Level.DEBUG)) {
+					FogLog.debug("FogDevice.java", st.getName() + " is in Migration");
 				}
+				return;
 			}
-
 		}
 		if (getName().equals("cloud")) {
 			updateCloudTraffic();
 		}
 
-		Logger.debug( getName(), "Received tuple " + tuple.getCloudletId()
-			+ " with tupleType = " + tuple.getTupleType() + "\t| Source : "
-			+ CloudSim.getEntityName(ev.getSource()) + "|Dest : "
-			+ CloudSim.getEntityName(ev.getDestination()));
+		if (FogLog.isEnabled(FogLog.Level.TRACE)) {
+			FogLog.trace(getName(), "Received tuple " + tuple.getCloudletId()
+				+ " with tupleType = " + tuple.getTupleType() + "\t| Source : "
+				+ CloudSim.getEntityName(ev.getSource()) + "|Dest : "
+				+ CloudSim.getEntityName(ev.getDestination()));
+		}
 		send(ev.getSource(), CloudSim.getMinTimeBetweenEvents(), FogEvents.TUPLE_ACK);
 
-		if (FogUtils.appIdToGeoCoverageMap.containsKey(tuple.getAppId())) {
+		if (FogUtils.getAppIdToGeoCoverageMap().containsKey(tuple.getAppId())) {
 		}
 
 		if (tuple.getDirection() == Tuple.ACTUATOR) {
@@ -1530,17 +1546,9 @@ public class FogDevice extends PowerDatacenter {
 	}
 
 	public void printResults(String a, String filename) {
-		try (FileWriter fw1 = new FileWriter(filename, true);
-			BufferedWriter bw1 = new BufferedWriter(fw1);
-			PrintWriter out1 = new PrintWriter(bw1))
-		{
+		OutputSink out1 = OutputSinks.get(filename);
+		if (out1 != null) {
 			out1.println(a);
-		} catch (UnsupportedEncodingException e) {
-			e.printStackTrace();
-		} catch (FileNotFoundException e) {
-			e.printStackTrace();
-		} catch (IOException e) {
-			e.printStackTrace();
 		}
 	}
 
@@ -1554,36 +1562,22 @@ public class FogDevice extends PowerDatacenter {
 		List<AppLoop> loops = app.getLoops();
 		for (AppLoop loop : loops) {
 			if (loop.hasEdge(srcModule, destModule) && loop.isEndModule(destModule)) {
-				Double startTime = TimeKeeper.getInstance().getEmitTimes()
-					.get(tuple.getActualTupleId());
-				if (startTime == null)
+				TimeKeeper timeKeeper = TimeKeeper.getInstance();
+				double startTime = timeKeeper.getEmitTime(tuple.getActualTupleId());
+				if (Double.isNaN(startTime))
 					break;
-				if (!TimeKeeper.getInstance().getLoopIdToCurrentAverage()
-					.containsKey(loop.getLoopId())) {
-					TimeKeeper.getInstance().getLoopIdToCurrentAverage().put(loop.getLoopId(), 0.0);
-					TimeKeeper.getInstance().getLoopIdToCurrentNum().put(loop.getLoopId(), 0);
-					TimeKeeper.getInstance().getMaxLoopExecutionTime().put(loop.getLoopId(), 0.0);
+				LatencyStats stats = timeKeeper.getLoopStats().get(loop.getLoopId());
+				if (stats == null) {
+					stats = timeKeeper.getLoopStats(loop.getLoopId());
 					printResults(String.valueOf(0), loop.getLoopId() + "LoopId.txt");
 					printResults(String.valueOf(0), loop.getLoopId() + "LoopMaxId.txt");
 				}
-				double currentAverage = TimeKeeper.getInstance().getLoopIdToCurrentAverage()
-					.get(loop.getLoopId());
-				int currentCount = TimeKeeper.getInstance().getLoopIdToCurrentNum()
-					.get(loop.getLoopId());
-				double delay = CloudSim.clock()
-					- TimeKeeper.getInstance().getEmitTimes().get(tuple.getActualTupleId());// +plusLatency);
-				if (delay > TimeKeeper.getInstance().getMaxLoopExecutionTime()
-					.get(loop.getLoopId())) {
-					TimeKeeper.getInstance().getMaxLoopExecutionTime().put(loop.getLoopId(), delay);
+				double delay = CloudSim.clock() - startTime;// +plusLatency);
+				if (delay > stats.getMax()) {
 					printResults(String.valueOf(delay), loop.getLoopId() + "LoopMaxId.txt");
 				}
-				TimeKeeper.getInstance().getEmitTimes().remove(tuple.getActualTupleId());
-				double newAverage = (currentAverage * currentCount + delay) / (currentCount + 1);
-				TimeKeeper.getInstance().getLoopIdToCurrentAverage()
-					.put(loop.getLoopId(), newAverage);
-				TimeKeeper.getInstance().getLoopIdToCurrentNum()
-					.put(loop.getLoopId(), currentCount + 1);
-				printResults(String.valueOf(newAverage), loop.getLoopId() + "LoopId.txt");
+				timeKeeper.loopCompleted(loop.getLoopId(), tuple.getActualTupleId(), delay);
+				printResults(String.valueOf(stats.getMean()), loop.getLoopId() + "LoopId.txt");
 				break;
 			}
 		}
@@ -1597,21 +1591,14 @@ public class FogDevice extends PowerDatacenter {
 		// TODO Power funda
 		Tuple tuple = (Tuple) ev.getData();
 
-		boolean flagContinue = false;
-		for (MobileDevice st : MobileController.getSmartThings()) {
-			for (Sensor s : st.getSensors()) {
-				if (tuple.getAppId().equals(s.getAppId())) {
-					flagContinue = true;
-					break;
-				}
-			}
-		}
-		if (!flagContinue) {
+		if (!SmartThingRegistry.hasSensorOf(tuple.getAppId())) {
 			return;
 		}
 
-		Logger.debug(getName(), "Executing tuple " + tuple.getCloudletId() + " on module "
-			+ operatorId);
+		if (FogLog.isEnabled(FogLog.Level.TRACE)) {
+			FogLog.trace(getName(), "Executing tuple " + tuple.getCloudletId() + " on module "
+				+ operatorId);
+		}
 
 		if (MyStatistics.getInstance().getTupleLatency().get(tuple.getMyTupleId()) != null) {
 			tuple.setFinalTime(CloudSim.clock() + getUplinkLatency());
@@ -1787,14 +1774,6 @@ public class FogDevice extends PowerDatacenter {
 		this.activeApplications = activeApplications;
 	}
 
-	public ArrayList<String[]> getPath() {
-		return path;
-	}
-
-	public void setPath(ArrayList<String[]> path) {
-		this.path = path;
-	}
-
 	public Map<Integer, List<String>> getChildToOperatorsMap() {
 		return childToOperatorsMap;
 	}
@@ -1843,6 +1822,18 @@ public class FogDevice extends PowerDatacenter {
 		this.associatedActuatorIds = associatedActuatorIds;
 	}
 
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		Pairs.write(out, southTupleQueue);
+		Pairs.write(out, associatedActuatorIds);
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		southTupleQueue = Pairs.read(in, new LinkedList<Pair<Tuple, Integer>>());
+		associatedActuatorIds = Pairs.read(in, new ArrayList<Pair<Integer, Double>>());
+	}
+
 	public double getEnergyConsumption() {
 		return energyConsumption;
 	}
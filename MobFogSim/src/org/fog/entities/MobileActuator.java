@@ -4,6 +4,8 @@ import org.fog.utils.GeoLocation;
 
 public class MobileActuator extends Actuator {
 
+	private static final long serialVersionUID = 1L;
+
 	public MobileActuator(String name, int userId, String appId, int gatewayDeviceId,
 		double latency, GeoLocation geoLocation, String actuatorType, String srcModuleName) {
 		super(name, userId, appId, gatewayDeviceId, latency, geoLocation, actuatorType,
@@ -1,11 +1,5 @@
 package org.fog.entities;
 
-import java.io.BufferedWriter;
-import java.io.FileNotFoundException;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.io.PrintWriter;
-import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -15,13 +9,17 @@ import java.util.Set;
 import org.fog.application.AppEdge;
 import org.fog.application.AppModule;
 import org.fog.localization.*;
-import org.fog.placement.MobileController;
+import org.fog.placement.SmartThingRegistry;
 import org.fog.policy.AppModuleAllocationPolicy;
 import org.fog.utils.Config;
 import org.fog.utils.FogEvents;
+import org.fog.utils.FogLog;
 import org.fog.utils.FogUtils;
-import org.fog.utils.Logger;
 import org.fog.utils.ModuleLaunchConfig;
+import org.fog.utils.OutputSink;
+import org.fog.utils.OutputSinks;
+import org.fog.utils.TimeKeeper;
+import org.fog.vmmigration.MigrationFeatures;
 import org.fog.vmmigration.MyStatistics;
 import org.fog.vmmigration.VmMigrationTechnique;
 import org.cloudbus.cloudsim.Storage;
@@ -31,9 +29,16 @@ import org.cloudbus.cloudsim.Vm;
 
 public class MobileDevice extends FogDevice {
 
+	private static final long serialVersionUID = 1L;
+
 	private int direction; // NONE, NORTH, SOUTH, ...
 	private int speed; // in m/s
 	protected Coordinate futureCoord;// = new Coordinate();//myiFogSim
+	/**
+	 * The features of the last migration decision, see {@link MigrationFeatures}.
+	 * Not checkpointed: they are computed again when needed.
+	 */
+	private transient MigrationFeatures migrationFeatures;
 	private FogDevice sourceServerCloudlet;
 	private FogDevice destinationServerCloudlet;
 	private FogDevice vmLocalServerCloudlet;
@@ -60,6 +65,7 @@ public class MobileDevice extends FogDevice {
 	private boolean status;
 	private boolean migStatusLive;
 	protected VmMigrationTechnique migrationTechnique;
+	private Trajectory trajectory;
 
 	@Override
 	public int hashCode() {
@@ -117,6 +123,7 @@ public class MobileDevice extends FogDevice {
 		setStatus(true);
 		this.futureCoord = new Coordinate();
 		setFutureCoord(-1, -1);
+		setTrajectory(new Trajectory());
 
 	}
 
@@ -143,6 +150,7 @@ public class MobileDevice extends FogDevice {
 		setAbortMigration(false);
 		this.futureCoord = new Coordinate();
 		setFutureCoord(-1, -1);
+		setTrajectory(new Trajectory());
 
 		actuators = new HashSet<>();
 		sensors = new HashSet<>();
@@ -183,6 +191,7 @@ public class MobileDevice extends FogDevice {
 		setMigrationTechnique(migrationTechnique);
 		this.futureCoord = new Coordinate();
 		setFutureCoord(-1, -1);
+		setTrajectory(new Trajectory());
 		actuators = new HashSet<>();
 		sensors = new HashSet<>();
 		setMaxServiceValue(maxServiceValue);
@@ -244,16 +253,9 @@ public class MobileDevice extends FogDevice {
 	}
 
 	public void saveLostTupple(String a, String filename) {
-		try (FileWriter fw1 = new FileWriter(filename, true);
-			BufferedWriter bw1 = new BufferedWriter(fw1);
-			PrintWriter out1 = new PrintWriter(bw1)) {
+		OutputSink out1 = OutputSinks.get(filename);
+		if (out1 != null) {
 			out1.println(a);
-		} catch (UnsupportedEncodingException e) {
-			e.printStackTrace();
-		} catch (FileNotFoundException e) {
-			e.printStackTrace();
-		} catch (IOException e) {
-			e.printStackTrace();
 		}
 	}
 
@@ -262,20 +264,8 @@ public class MobileDevice extends FogDevice {
 		Tuple tuple = (Tuple) ev.getData();
 		MyStatistics.getInstance().setMyCountTotalTuple(1);
 
-		boolean flagContinue = false;
-		if (!MobileController.getSmartThings().contains(this)) {
-			return;
-		}
-
-		for (MobileDevice st : MobileController.getSmartThings()) {
-			for (Sensor s : st.getSensors()) {
-				if (tuple.getAppId().equals(s.getAppId())) {
-					flagContinue = true;
-					break;
-				}
-			}
-		}
-		if (!flagContinue) {
+		if (!SmartThingRegistry.isRegistered(this)
+			|| !SmartThingRegistry.hasSensorOf(tuple.getAppId())) {
 			return;
 		}
 
@@ -289,14 +279,15 @@ public class MobileDevice extends FogDevice {
 			updateCloudTraffic();
 		}
 
-		Logger.debug(
-			getName(),
-			"Received tuple " + tuple.getCloudletId() + " with tupleType = " + tuple.getTupleType()
-				+ "\t| Source : " + CloudSim.getEntityName(ev.getSource()) + "|Dest : "
+		if (FogLog.isEnabled(FogLog.Level.TRACE)) {
+			FogLog.trace(getName(), "Received tuple " + tuple.getCloudletId()
+				+ " with tupleType = " + tuple.getTupleType() + "\t| Source : "
+				+ CloudSim.getEntityName(ev.getSource()) + "|Dest : "
 				+ CloudSim.getEntityName(ev.getDestination()));
+		}
 		send(ev.getSource(), CloudSim.getMinTimeBetweenEvents(), FogEvents.TUPLE_ACK);
 
-		if (FogUtils.appIdToGeoCoverageMap.containsKey(tuple.getAppId())) {
+		if (FogUtils.getAppIdToGeoCoverageMap().containsKey(tuple.getAppId())) {
 		}
 
 		if (tuple.getDirection() == Tuple.ACTUATOR) {
@@ -306,6 +297,7 @@ public class MobileDevice extends FogDevice {
 
 		if ((isMigStatus() || isHandoffStatus())) {
 			MyStatistics.getInstance().setMyCountLostTuple(1);
+			TimeKeeper.getInstance().tupleDropped(tuple);
 			saveLostTupple(String.valueOf(CloudSim.clock()), tuple.getUserId() + "mdlostTupple.txt");
 			return;
 		}
@@ -400,8 +392,10 @@ public class MobileDevice extends FogDevice {
 		if (!moduleInstanceCount.containsKey(appId))
 			moduleInstanceCount.put(appId, new HashMap<String, Integer>());
 		moduleInstanceCount.get(appId).put(config.getModule().getName(), config.getInstanceCount());
-		System.out.println(getName() + " Creating " + config.getInstanceCount()
-			+ " instances of module " + config.getModule().getName());
+		if (FogLog.isEnabled(FogLog.Level.DEBUG)) {
+			FogLog.debug(getName(), "Creating " + config.getInstanceCount()
+				+ " instances of module " + config.getModule().getName());
+		}
 	}
 
 	private void manageResources(SimEvent ev) {
@@ -441,6 +435,22 @@ public class MobileDevice extends FogDevice {
 		this.futureCoord.setCoordY(coordY);
 	}
 
+	public MigrationFeatures getMigrationFeatures() {
+		return migrationFeatures;
+	}
+
+	public void setMigrationFeatures(MigrationFeatures migrationFeatures) {
+		this.migrationFeatures = migrationFeatures;
+	}
+
+	/**
+	 * Forgets the features of the last migration decision, once the smart
+	 * thing has moved.
+	 */
+	public void invalidateMigrationFeatures() {
+		this.migrationFeatures = null;
+	}
+
 	public FogDevice getSourceServerCloudlet() {
 		return sourceServerCloudlet;
 	}
@@ -503,6 +513,9 @@ public class MobileDevice extends FogDevice {
 
 	public void setSensors(Set<MobileSensor> sensors) {
 		this.sensors = sensors;
+		if (SmartThingRegistry.isRegistered(this)) {
+			SmartThingRegistry.register(this);// the appIds of its sensors changed
+		}
 	}
 
 	public Set<MobileActuator> getActuators() {
@@ -609,6 +622,14 @@ public class MobileDevice extends FogDevice {
 		this.migrationTechnique = migrationTechnique;
 	}
 
+	public Trajectory getTrajectory() {
+		return trajectory;
+	}
+
+	public void setTrajectory(Trajectory trajectory) {
+		this.trajectory = trajectory;
+	}
+
 	public boolean isMigPoint() {
 		return migPoint;
 	}
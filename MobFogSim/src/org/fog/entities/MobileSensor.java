@@ -5,6 +5,8 @@ import org.fog.utils.distribution.Distribution;
 
 public class MobileSensor extends Sensor {
 
+	private static final long serialVersionUID = 1L;
+
 	public MobileSensor(String name, int userId, String appId, int gatewayDeviceId, double latency,
 		GeoLocation geoLocation, Distribution transmitDistribution, int cpuLength, int nwLength,
 		String tupleType, String destModuleName) {
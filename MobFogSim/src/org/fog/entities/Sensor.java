@@ -1,7 +1,5 @@
 package org.fog.entities;
 
-import java.util.ArrayList;
-
 import org.cloudbus.cloudsim.UtilizationModelFull;
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.SimEntity;
@@ -10,14 +8,16 @@ import org.fog.application.AppEdge;
 import org.fog.application.AppLoop;
 import org.fog.application.Application;
 import org.fog.utils.FogEvents;
+import org.fog.utils.FogLog;
 import org.fog.utils.FogUtils;
 import org.fog.utils.GeoLocation;
-import org.fog.utils.Logger;
 import org.fog.utils.TimeKeeper;
 import org.fog.utils.distribution.Distribution;
 
 public class Sensor extends SimEntity {
 
+	private static final long serialVersionUID = 1L;
+
 	private int gatewayDeviceId;
 	private GeoLocation geoLocation;
 	private long outputSize;
@@ -102,8 +102,10 @@ public class Sensor extends SimEntity {
 
 		tuple.setDestModuleName(_edge.getDestination());
 		tuple.setSrcModuleName(getSensorName());
-		Logger.debug(getName(), "Sending tuple with tupleId = " + tuple.getCloudletId() + " to "
-			+ CloudSim.getEntityName(gatewayDeviceId));
+		if (FogLog.isEnabled(FogLog.Level.TRACE)) {
+			FogLog.trace(getName(), "Sending tuple with tupleId = " + tuple.getCloudletId()
+				+ " to " + CloudSim.getEntityName(gatewayDeviceId));
+		}
 
 		int actualTupleId = updateTimings(getSensorName(), tuple.getDestModuleName());
 		tuple.setActualTupleId(actualTupleId);
@@ -117,11 +119,7 @@ public class Sensor extends SimEntity {
 			if (loop.hasEdge(src, dest)) {
 
 				int tupleId = TimeKeeper.getInstance().getUniqueId();
-				if (!TimeKeeper.getInstance().getLoopIdToTupleIds().containsKey(loop.getLoopId()))
-					TimeKeeper.getInstance().getLoopIdToTupleIds()
-						.put(loop.getLoopId(), new ArrayList<Integer>());
-				TimeKeeper.getInstance().getLoopIdToTupleIds().get(loop.getLoopId()).add(tupleId);
-				TimeKeeper.getInstance().getEmitTimes().put(tupleId, CloudSim.clock());
+				TimeKeeper.getInstance().tupleEmitted(loop.getLoopId(), tupleId);
 				return tupleId;
 			}
 		}
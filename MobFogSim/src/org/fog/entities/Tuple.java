@@ -9,6 +9,8 @@ import org.fog.vmmigration.MyStatistics;
 
 public class Tuple extends Cloudlet {
 
+	private static final long serialVersionUID = 1L;
+
 	public static final int UP = 1;
 	public static final int DOWN = 2;
 	public static final int ACTUATOR = 3;
@@ -1,12 +1,14 @@
 package org.fog.localization;
 
-import java.util.ArrayList;
+import java.io.Serializable;
 
 import org.fog.entities.MobileDevice;
 import org.fog.vmmobile.constants.Directions;
 import org.fog.vmmobile.constants.MaxAndMin;
 
-public class Coordinate { // extends Map {
+public class Coordinate implements Serializable { // extends Map {
+
+	private static final long serialVersionUID = 1L;
 
 	private int coordX;
 	private int coordY;
@@ -28,7 +30,7 @@ public class Coordinate { // extends Map {
 		smartThing.setCoord(-1, -1);
 	}
 
-	public static double radiansToDegree(Double direction) {
+	public static double radiansToDegree(double direction) {
 
 		double degree = direction * (180 / Math.PI);
 
@@ -38,7 +40,7 @@ public class Coordinate { // extends Map {
 		return degree;
 	}
 
-	public static int convertDirection(Double direction) {
+	public static int convertDirection(double direction) {
 
 		double degree = radiansToDegree(direction);
 
@@ -61,47 +63,20 @@ public class Coordinate { // extends Map {
 	}
 
 	public void newCoordinate(MobileDevice smartThing) {
-
-		ArrayList<String[]> path = smartThing.getPath();
-		if (smartThing.getTravelTimeId() < path.size()) {
-			String[] coodinates = path.get(smartThing.getTravelTimeId());
-
-			smartThing.setTravelTimeId(smartThing.getTravelTimeId() + 1);
-
-			int direction = convertDirection(Double.parseDouble(coodinates[1]));
-			int x = (int) Double.parseDouble(coodinates[2]);
-			int y = (int) Double.parseDouble(coodinates[3]);
-			int speed = (int) Double.parseDouble(coodinates[4]);
-
-			// It checks the CoordDevices limits.
-			if (x < 0 || y < 0 || x >= MaxAndMin.MAX_X || y >= MaxAndMin.MAX_Y) {
-				desableSmartThing(smartThing);
-			}
-			else {
-				smartThing.setDirection(direction);
-				smartThing.getCoord().setCoordX(x);
-				smartThing.getCoord().setCoordY(y);
-				smartThing.setSpeed(speed);
-			}
-		}
-		else {
-			desableSmartThing(smartThing);
-		}
+		MobilityStep.next(smartThing).apply(smartThing);
 	}
 
 	public void setInitialCoordinate(MobileDevice smartThing) {
 
-		ArrayList<String[]> path = smartThing.getPath();
-		if (!path.isEmpty()) {
-			String[] coodinates = path.get(0);
-
+		Trajectory trajectory = smartThing.getTrajectory();
+		if (!trajectory.isEmpty()) {
 			smartThing.setTravelTimeId(-1);
 
-			int time = (int) Double.parseDouble(coodinates[0]);
-			int direction = convertDirection(Double.parseDouble(coodinates[1]));
-			int x = (int) Double.parseDouble(coodinates[2]);
-			int y = (int) Double.parseDouble(coodinates[3]);
-			int speed = (int) Double.parseDouble(coodinates[4]);
+			int time = (int) trajectory.getTime(0);
+			int direction = convertDirection(trajectory.getDirection(0));
+			int x = (int) trajectory.getX(0);
+			int y = (int) trajectory.getY(0);
+			int speed = (int) trajectory.getSpeed(0);
 
 			// It checks the CoordDevices limits.
 			if (x < 0 || y < 0 || x >= MaxAndMin.MAX_X || y >= MaxAndMin.MAX_Y) {
@@ -122,6 +97,7 @@ public class Coordinate { // extends Map {
 
 	public void newCoordinate(MobileDevice smartThing, int add, Coordinate coordDevices) {
 		if (smartThing.getSpeed() != 0) {
+			smartThing.invalidateMigrationFeatures();
 			int increaseX = (smartThing.getCoord().getCoordX() + (smartThing.getSpeed() * add));
 			int increaseY = (smartThing.getCoord().getCoordY() + (smartThing.getSpeed() * add));
 			int decreaseX = (smartThing.getCoord().getCoordX() - (smartThing.getSpeed() * add));
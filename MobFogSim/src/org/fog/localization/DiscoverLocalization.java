@@ -2,6 +2,7 @@ package org.fog.localization;
 
 public class DiscoverLocalization {
 
+	// scratch values of the old implementation, no longer written (see Geometry)
 	private static int coordX;
 	private static int coordY;
 	private static double theta;
@@ -23,47 +24,46 @@ public class DiscoverLocalization {
 	 * @return - It is a regional (NORTH, SOUTH, EAST... )
 	 */
 	public static int discoverLocal(Coordinate firstCoord, Coordinate secondCoord) {
-		// first becomes the coord (0,0) and the second becomes a new position -
-		// review this comment
-		// Because the second is in relative position from first
-		// transposition to plane to first becomes coord(0,0)
-		// making cross because the findTheta's formula
-		setCoordX((firstCoord.getCoordX() - secondCoord.getCoordX()) * (-1));
-		// making cross
-		setCoordY((firstCoord.getCoordY() - secondCoord.getCoordY()) * (-1));
-		setTheta(Distances.findTheta(getCoordX(), getCoordY()));
-		// verifying the relative position between firstCoord and secondCoord
-		return Distances.findPosition(getTheta());
+		// the second becomes a relative position from the first one
+		return Geometry.relativePosition(firstCoord, secondCoord);
 	}
 
+	@Deprecated
 	public static int getCoordX() {
 		return coordX;
 	}
 
+	@Deprecated
 	public static void setCoordX(int coordX) {
 		DiscoverLocalization.coordX = coordX;
 	}
 
+	@Deprecated
 	public static int getCoordY() {
 		return coordY;
 	}
 
+	@Deprecated
 	public static void setCoordY(int coordY) {
 		DiscoverLocalization.coordY = coordY;
 	}
 
+	@Deprecated
 	public static double getTheta() {
 		return theta;
 	}
 
+	@Deprecated
 	public static void setTheta(double theta) {
 		DiscoverLocalization.theta = theta;
 	}
 
+	@Deprecated
 	public static int getDirection() {
 		return direction;
 	}
 
+	@Deprecated
 	public static void setDirection(int direction) {
 		DiscoverLocalization.direction = direction;
 	}
@@ -1,8 +1,10 @@
 package org.fog.localization;
 
+import java.io.Serializable;
 import java.lang.Math;
 import java.util.List;
 
+import org.cloudbus.cloudsim.core.SimulationContext;
 import org.fog.vmmobile.constants.*;
 import org.fog.entities.*;
 
@@ -12,32 +14,129 @@ public class Distances {
 		// TODO Auto-generated constructor stub
 	}
 
+	/** The spatial indexes of a simulation. */
+	private static class Indexes implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		SpatialIndex<ApDevice> apIndex;
+		SpatialIndex<FogDevice> serverCloudletIndex;
+	}
+
+	private static final SimulationContext.Key<Indexes> INDEXES =
+		new SimulationContext.Key<Indexes>() {
+
+			@Override
+			protected Indexes initialValue() {
+				return new Indexes();
+			}
+		};
+
 	/**
-	 * @param args
-	 * @author Marcio Moraes Lopes
+	 * Indexes the coordinates of the access points. The closest Ap queries on
+	 * this list use the index from now on, and it is rebuilt when Aps are
+	 * added to the list.
+	 *
+	 * @param apDevices
+	 *        - the list of all the access points
 	 */
-	private static int coordX;
-	private static int coordY;
-	private static double first;
-	private static double second;
-	private static double distance;
-	private static double theta;
+	public static void indexApDevices(List<ApDevice> apDevices) {
+		SimulationContext.current().get(INDEXES).apIndex = new SpatialIndex<ApDevice>(apDevices);
+	}
+
+	/**
+	 * Indexes the coordinates of the server cloudlets, like
+	 * {@link #indexApDevices(List)}.
+	 *
+	 * @param serverCloudlets
+	 *        - the list of all the server cloudlets
+	 */
+	public static void indexServerCloudlets(List<FogDevice> serverCloudlets) {
+		SimulationContext.current().get(INDEXES).serverCloudletIndex =
+			new SpatialIndex<FogDevice>(serverCloudlets);
+	}
+
+	/**
+	 * Brings the index of the access points up to date with the list, so the
+	 * closest Ap queries that follow only read it and can be run by several
+	 * threads at the same time (see {@link org.fog.utils.ParallelBatch}).
+	 *
+	 * @param apDevices
+	 *        - the list of all the access points
+	 */
+	public static void updateApIndex(List<ApDevice> apDevices) {
+		apIndex(apDevices);
+	}
+
+	private static SpatialIndex<ApDevice> apIndex(List<ApDevice> apDevices) {
+		Indexes indexes = SimulationContext.current().get(INDEXES);
+		if (indexes.apIndex == null || indexes.apIndex.getDevices() != apDevices
+			|| apDevices.size() < SpatialIndex.MIN_SIZE) {
+			return null;
+		}
+		if (!indexes.apIndex.isIndexOf(apDevices)) {// Aps were added
+			indexes.apIndex = new SpatialIndex<ApDevice>(apDevices);
+		}
+		return indexes.apIndex;
+	}
+
+	private static SpatialIndex<FogDevice> serverCloudletIndex(List<FogDevice> serverCloudlets) {
+		Indexes indexes = SimulationContext.current().get(INDEXES);
+		if (indexes.serverCloudletIndex == null
+			|| indexes.serverCloudletIndex.getDevices() != serverCloudlets
+			|| serverCloudlets.size() < SpatialIndex.MIN_SIZE) {
+			return null;
+		}
+		if (!indexes.serverCloudletIndex.isIndexOf(serverCloudlets)) {// ServerCloudlets were added
+			indexes.serverCloudletIndex = new SpatialIndex<FogDevice>(serverCloudlets);
+		}
+		return indexes.serverCloudletIndex;
+	}
 
 	// verify what return type is better (int or ApDevice)
 	public static int theClosestAp(List<ApDevice> apDevices, MobileDevice smartThing) {
-		int choose = apDevices.get(0).getMyId();// Id of the first ap in the list
-		// the first Ap
-		double min = checkDistance(apDevices.get(0).getCoord(), smartThing.getCoord());
+		return theClosestAp(apDevices, smartThing, null);
+	}
+
+	/**
+	 * Finds the closest Ap that covers the smart thing, ignoring one of them
+	 * (usually the smart thing's source Ap).
+	 *
+	 * @param apDevices
+	 *        - the candidate Aps
+	 * @param smartThing
+	 *        - the smart thing
+	 * @param excluded
+	 *        - the Ap to be ignored, or null
+	 * @return the id of the closest Ap, or -1 if no Ap covers the smart thing
+	 */
+	public static int theClosestAp(List<ApDevice> apDevices, MobileDevice smartThing,
+		ApDevice excluded) {
+		SpatialIndex<ApDevice> index = apIndex(apDevices);
+		if (index != null) {
+			int closest = index.nearest(smartThing.getCoord(), MaxAndMin.AP_COVERAGE, excluded);
+			return closest < 0 ? -1 : apDevices.get(closest).getMyId();
+		}
+
+		int choose = -1;
+		long min = 0;
 		for (ApDevice ap : apDevices) {
-			setDistance(checkDistance(ap.getCoord(), smartThing.getCoord()));
+			if (ap == excluded) {
+				continue;
+			}
+			long distance = Geometry.squaredDistance(ap.getCoord(), smartThing.getCoord());
 
-			if (getDistance() < min) {
+			if (choose < 0 || distance < min) {
 				choose = ap.getMyId();// index or id
-				min = getDistance();
+				min = distance;
 			}
 		}
+		if (choose < 0) {
+			return -1;
+		}
 
-		if (min <= MaxAndMin.AP_COVERAGE)// the user should be inside Access Point coverage
+		// the user should be inside Access Point coverage
+		if (min <= (long) MaxAndMin.AP_COVERAGE * MaxAndMin.AP_COVERAGE)
 			return choose;// id
 		else {
 
@@ -47,14 +146,21 @@ public class Distances {
 
 	public static int theClosestServerCloudlet(List<FogDevice> serverCloudlets,
 		MobileDevice smartThing) {
+		SpatialIndex<FogDevice> index = serverCloudletIndex(serverCloudlets);
+		if (index != null) {
+			return serverCloudlets.get(index.nearest(smartThing.getFutureCoord(), -1, null))
+				.getMyId();
+		}
+
 		int choose = serverCloudlets.get(0).getMyId();
-		double min = checkDistance(serverCloudlets.get(0).getCoord(), smartThing.getFutureCoord());
+		long min = Geometry.squaredDistance(serverCloudlets.get(0).getCoord(),
+			smartThing.getFutureCoord());
 
 		for (FogDevice sc : serverCloudlets) {
-			setDistance(checkDistance(sc.getCoord(), smartThing.getFutureCoord()));
-			if (getDistance() < min) {
+			long distance = Geometry.squaredDistance(sc.getCoord(), smartThing.getFutureCoord());
+			if (distance < min) {
 				choose = sc.getMyId();// id
-				min = getDistance();
+				min = distance;
 			}
 		}
 
@@ -63,16 +169,20 @@ public class Distances {
 
 	public static int theClosestServerCloudletToAp(List<FogDevice> serverCloudlets,
 		ApDevice apDevice) {
+		SpatialIndex<FogDevice> index = serverCloudletIndex(serverCloudlets);
+		if (index != null) {
+			return serverCloudlets.get(index.nearest(apDevice.getCoord(), -1, null)).getMyId();
+		}
 
 		int choose = 0;
-		double min = checkDistance(serverCloudlets.get(0).getCoord(), apDevice.getCoord());
+		long min = Geometry.squaredDistance(serverCloudlets.get(0).getCoord(), apDevice.getCoord());
 
 		for (FogDevice sc : serverCloudlets) {
-			setDistance(checkDistance(sc.getCoord(), apDevice.getCoord()));
-			// if(getDistance() != 0)
-			if (getDistance() < min) {
+			long distance = Geometry.squaredDistance(sc.getCoord(), apDevice.getCoord());
+			// if(distance != 0)
+			if (distance < min) {
 				choose = sc.getMyId();// id
-				min = getDistance();
+				min = distance;
 			}
 
 		}
@@ -81,109 +191,25 @@ public class Distances {
 
 	}
 
+	/**
+	 * Delegates to {@link Geometry#theta(int, int)}.
+	 */
 	public static double findTheta(int coordX, int coordY) {
-		setCoordX(coordX);
-		setCoordY(coordY);
-		if (coordX != 0)// verify if the point is on Y axis and must not do the y/0
-			setTheta(Math.atan(((double) coordY) / ((double) coordX)) * (180 / Math.PI));
-		else
-			setTheta(0);// the point is
-		// Theta is negative, but it is first quadrant and it needs to be in second quadrant
-		if (coordX < 0 && coordY >= 0)
-			return 180 + getTheta();
-		// Theta is positive and it needs to be in third quadrant
-		else if (coordX < 0 && coordY < 0)
-			return 180 + getTheta();
-		// Theta is negative and it needs to be in fourth quadrant
-		else if (coordX > 0 && coordY < 0)
-			return 360 + getTheta();
-		// Theta is zero and it needs to be on Y (positive)
-		else if (coordX == 0 && coordY > 0)
-			return 90 + getTheta();
-		// Theta is zero and it needs to be on y (negative)
-		else if (coordX == 0 && coordY < 0)
-			return 270 + getTheta();
-		else
-			return getTheta(); /* theta is ok */
+		return Geometry.theta(coordX, coordY);
 	}
 
+	/**
+	 * Delegates to {@link Geometry#sector(double)}.
+	 */
 	public static int findPosition(double th) {
-		setTheta(th);
-		/* find the position in 45 degree for each */
-		if ((getTheta() >= 0 && getTheta() <= 22.5) || (getTheta() > 337.5 && getTheta() <= 360))
-			return Directions.EAST;
-		else if (getTheta() > 22.5 && getTheta() <= 67.5)
-			return Directions.SOUTHEAST;// Directions.NORTHEAST;
-		else if (getTheta() > 67.5 && getTheta() <= 112.5)
-			return Directions.SOUTH;// Directions.NORTH;
-		else if (getTheta() > 112.5 && getTheta() <= 157.5)
-			return Directions.SOUTHWEST;// Directions.NORTHWEST;
-		else if (getTheta() > 157.5 && getTheta() <= 202.5)
-			return Directions.WEST;
-		else if (getTheta() > 202.5 && getTheta() <= 247.5)
-			return Directions.NORTHWEST;// Directions.SOUTHWEST;
-		else if (getTheta() > 247.5 && getTheta() <= 292.5)
-			return Directions.NORTH;// Directions.SOUTH;
-		else if (getTheta() > 292.5 && getTheta() <= 337.5)
-			return Directions.NORTHEAST;// Directions.SOUTHEAST;
-		return Directions.NONE;
-
+		return Geometry.sector(th);
 	}
 
+	/**
+	 * Delegates to {@link Geometry#distance(Coordinate, Coordinate)}.
+	 */
 	public static double checkDistance(Coordinate firstCoord, Coordinate secondCoord) {
-		//Distance between two points formula
-		setFirst((double) Math.pow(firstCoord.getCoordX() - secondCoord.getCoordX(), 2));
-		setSecond((double) Math.pow(firstCoord.getCoordY() - secondCoord.getCoordY(), 2));
-		setDistance(Math.sqrt(getFirst() + getSecond()));
-		return getDistance();
-	}
-
-	public static int getCoordX() {
-		return coordX;
-	}
-
-	public static void setCoordX(int coordX) {
-		Distances.coordX = coordX;
-	}
-
-	public static int getCoordY() {
-		return coordY;
-	}
-
-	public static void setCoordY(int coordY) {
-		Distances.coordY = coordY;
-	}
-
-	public static double getFirst() {
-		return first;
-	}
-
-	public static void setFirst(double first) {
-		Distances.first = first;
-	}
-
-	public static double getSecond() {
-		return second;
-	}
-
-	public static void setSecond(double second) {
-		Distances.second = second;
-	}
-
-	public static double getDistance() {
-		return distance;
-	}
-
-	public static void setDistance(double distance) {
-		Distances.distance = distance;
-	}
-
-	public static double getTheta() {
-		return theta;
-	}
-
-	public static void setTheta(double theta) {
-		Distances.theta = theta;
+		return Geometry.distance(firstCoord, secondCoord);
 	}
 
 }
@@ -0,0 +1,160 @@
+package org.fog.localization;
+
+import org.fog.vmmobile.constants.Directions;
+
+/**
+ * Stateless geometry on the simulation plane. Unlike the static helpers of
+ * {@link Distances} and {@link DiscoverLocalization}, that kept their
+ * intermediate results in static fields, these methods only use their
+ * arguments, so they can be called from several threads and by several
+ * simulations running in the same JVM.
+ * <p>
+ * The directions follow {@link Distances#findPosition(double)}: the angle is
+ * measured from the X axis towards the Y axis, and Y grows to the south.
+ */
+public final class Geometry {
+
+	/**
+	 * Above this magnitude the exact integer sector test could overflow, and
+	 * the angle is computed with atan instead.
+	 */
+	private static final long MAX_EXACT = 1L << 30;
+
+	private Geometry() {
+	}
+
+	public static long squaredDistance(int x1, int y1, int x2, int y2) {
+		long dx = (long) x1 - x2;
+		long dy = (long) y1 - y2;
+		return dx * dx + dy * dy;
+	}
+
+	/**
+	 * Gets the squared distance between two coordinates. It is exact and keeps
+	 * the order of the distances, so it should be preferred for comparisons.
+	 *
+	 * @param first
+	 *        - the first coordinate
+	 * @param second
+	 *        - the second coordinate
+	 * @return the squared distance
+	 */
+	public static long squaredDistance(Coordinate first, Coordinate second) {
+		return squaredDistance(first.getCoordX(), first.getCoordY(), second.getCoordX(),
+			second.getCoordY());
+	}
+
+	public static double distance(Coordinate first, Coordinate second) {
+		return Math.sqrt(squaredDistance(first, second));
+	}
+
+	/**
+	 * Checks whether two coordinates are at most <tt>distance</tt> apart,
+	 * without a square root.
+	 */
+	public static boolean isWithin(Coordinate first, Coordinate second, double distance) {
+		return squaredDistance(first, second) <= distance * distance;
+	}
+
+	/**
+	 * Gets the angle, in degrees in [0, 360), of the vector (x, y).
+	 *
+	 * @param x
+	 *        - the X component
+	 * @param y
+	 *        - the Y component
+	 * @return the angle; 0 for the null vector
+	 */
+	public static double theta(int x, int y) {
+		double theta = x != 0 ? Math.atan(((double) y) / ((double) x)) * (180 / Math.PI) : 0;
+		if (x < 0)
+			return 180 + theta;
+		else if (x > 0 && y < 0)
+			return 360 + theta;
+		else if (x == 0 && y > 0)
+			return 90;
+		else if (x == 0 && y < 0)
+			return 270;
+		else
+			return theta;
+	}
+
+	/**
+	 * Gets the 45 degree sector of an angle.
+	 *
+	 * @param theta
+	 *        - the angle, in degrees in [0, 360]
+	 * @return the direction (see {@link Directions}), or
+	 *         {@link Directions#NONE} if the angle is out of range
+	 */
+	public static int sector(double theta) {
+		if ((theta >= 0 && theta <= 22.5) || (theta > 337.5 && theta <= 360))
+			return Directions.EAST;
+		else if (theta > 22.5 && theta <= 67.5)
+			return Directions.SOUTHEAST;
+		else if (theta > 67.5 && theta <= 112.5)
+			return Directions.SOUTH;
+		else if (theta > 112.5 && theta <= 157.5)
+			return Directions.SOUTHWEST;
+		else if (theta > 157.5 && theta <= 202.5)
+			return Directions.WEST;
+		else if (theta > 202.5 && theta <= 247.5)
+			return Directions.NORTHWEST;
+		else if (theta > 247.5 && theta <= 292.5)
+			return Directions.NORTH;
+		else if (theta > 292.5 && theta <= 337.5)
+			return Directions.NORTHEAST;
+		return Directions.NONE;
+	}
+
+	/**
+	 * Gets the 45 degree sector of the vector (x, y), the same as
+	 * <tt>sector(theta(x, y))</tt> but without atan. No vector with integer
+	 * components lies exactly on a sector boundary (tan 22.5 and tan 67.5
+	 * are irrational), so the vector is near an axis when the smaller
+	 * component is below (sqrt(2) - 1) times the larger one, which is tested
+	 * exactly as (small + large)^2 &lt; 2 large^2.
+	 *
+	 * @param x
+	 *        - the X component
+	 * @param y
+	 *        - the Y component
+	 * @return the direction (see {@link Directions})
+	 */
+	public static int sector(int x, int y) {
+		long ax = Math.abs((long) x);
+		long ay = Math.abs((long) y);
+		if (ax == 0 && ay == 0) {
+			return Directions.EAST;
+		}
+		if (ax >= MAX_EXACT || ay >= MAX_EXACT) {
+			return sector(theta(x, y));
+		}
+		long sum = ax + ay;
+		if (sum * sum < 2 * ax * ax) {// near the X axis
+			return x > 0 ? Directions.EAST : Directions.WEST;
+		}
+		if (sum * sum < 2 * ay * ay) {// near the Y axis
+			return y > 0 ? Directions.SOUTH : Directions.NORTH;
+		}
+		if (x > 0)
+			return y > 0 ? Directions.SOUTHEAST : Directions.NORTHEAST;
+		else
+			return y > 0 ? Directions.SOUTHWEST : Directions.NORTHWEST;
+	}
+
+	/**
+	 * Gets the position of a coordinate relative to another one.
+	 *
+	 * @param origin
+	 *        - the reference coordinate, usually a fixed device
+	 * @param other
+	 *        - the other coordinate
+	 * @return the direction (see {@link Directions}) of <tt>other</tt> seen
+	 *         from <tt>origin</tt>
+	 */
+	public static int relativePosition(Coordinate origin, Coordinate other) {
+		return sector(other.getCoordX() - origin.getCoordX(),
+			other.getCoordY() - origin.getCoordY());
+	}
+}
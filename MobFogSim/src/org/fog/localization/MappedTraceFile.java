@@ -0,0 +1,119 @@
+package org.fog.localization;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Read-only view of a trace file written by {@link TraceCompiler}. The file is
+ * memory-mapped with {@link FileChannel#map}, so opening it does not parse
+ * anything and the pages are shared, through the OS cache, by all the runs
+ * that use the same file. Only the traces of the devices actually simulated
+ * are copied into {@link Trajectory} objects.
+ */
+public class MappedTraceFile {
+
+	/** The file AppExample looks for before reading the input directory. */
+	public static final String DEFAULT_FILE = "input.trace";
+
+	static final int MAGIC = 0x4D465354; // "MFST"
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 16;
+	static final int ENTRY_SIZE = 12;
+	static final int RECORD_SIZE = 40;
+
+	private final MappedByteBuffer buffer;
+	private final int traceCount;
+	private final int orderLength;
+	private final int tableOffset;
+
+	private MappedTraceFile(MappedByteBuffer buffer) throws IOException {
+		this.buffer = buffer;
+		if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+			throw new IOException("Not a compiled trace file");
+		}
+		if (buffer.getInt(4) != VERSION) {
+			throw new IOException("Unsupported trace file version " + buffer.getInt(4));
+		}
+		traceCount = buffer.getInt(8);
+		orderLength = buffer.getInt(12);
+		tableOffset = HEADER_SIZE + 4 * orderLength;
+		if (traceCount < 0 || orderLength < 0
+			|| (long) tableOffset + (long) ENTRY_SIZE * traceCount > buffer.capacity()) {
+			throw new IOException("Truncated trace file");
+		}
+	}
+
+	/**
+	 * Maps a compiled trace file. The channel is closed right away; the
+	 * mapping stays valid until the buffer is garbage collected.
+	 *
+	 * @param file
+	 *        - the compiled trace file
+	 * @return the mapped file
+	 * @throws IOException
+	 *         if the file can not be mapped or is not a valid trace file
+	 */
+	public static MappedTraceFile open(File file) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+			FileChannel channel = raf.getChannel()) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Trace file too large: " + file);
+			}
+			return new MappedTraceFile(channel.map(FileChannel.MapMode.READ_ONLY, 0,
+				channel.size()));
+		}
+	}
+
+	public int getTraceCount() {
+		return traceCount;
+	}
+
+	/**
+	 * Gets the traces of the first devices of the order file, sorted, as
+	 * AppExample does with the input directory.
+	 *
+	 * @param devices
+	 *        - the number of devices
+	 * @return the trace of each device
+	 */
+	public int[] getOrder(int devices) {
+		if (devices > orderLength) {
+			throw new IllegalArgumentException("The order file has only " + orderLength
+				+ " entries");
+		}
+		int[] order = new int[devices];
+		for (int i = 0; i < devices; i++) {
+			order[i] = buffer.getInt(HEADER_SIZE + 4 * i);
+		}
+		Arrays.sort(order);
+		return order;
+	}
+
+	/**
+	 * Copies a trace into a new trajectory.
+	 *
+	 * @param trace
+	 *        - the position of the trace in the sorted input directory
+	 * @return the trajectory
+	 */
+	public Trajectory getTrajectory(int trace) {
+		if (trace < 0 || trace >= traceCount) {
+			throw new IndexOutOfBoundsException("Trace: " + trace + ", Traces: " + traceCount);
+		}
+		int entry = tableOffset + ENTRY_SIZE * trace;
+		int position = (int) buffer.getLong(entry);
+		int records = buffer.getInt(entry + 8);
+
+		Trajectory trajectory = new Trajectory(records);
+		for (int i = 0; i < records; i++, position += RECORD_SIZE) {
+			trajectory.add(buffer.getDouble(position), buffer.getDouble(position + 8),
+				buffer.getDouble(position + 16), buffer.getDouble(position + 24),
+				buffer.getDouble(position + 32));
+		}
+		return trajectory;
+	}
+}
@@ -0,0 +1,85 @@
+package org.fog.localization;
+
+import org.fog.entities.MobileDevice;
+import org.fog.vmmobile.constants.MaxAndMin;
+
+/**
+ * The next position of a smart thing along its trajectory. It is computed
+ * without changing the smart thing, so the steps of all the smart things of a
+ * tick can be computed at the same time and then applied in order (see
+ * {@link org.fog.vmmigration.NextStep}).
+ */
+public class MobilityStep {
+
+	private final int travelTimeId;
+	private final boolean disabled;
+	private final int direction;
+	private final int x;
+	private final int y;
+	private final int speed;
+
+	private MobilityStep(int travelTimeId, boolean disabled, int direction, int x, int y,
+		int speed) {
+		this.travelTimeId = travelTimeId;
+		this.disabled = disabled;
+		this.direction = direction;
+		this.x = x;
+		this.y = y;
+		this.speed = speed;
+	}
+
+	/**
+	 * Computes the next step of a smart thing, reading its trajectory.
+	 *
+	 * @param smartThing
+	 *        - the smart thing, not changed
+	 * @return the step
+	 */
+	public static MobilityStep next(MobileDevice smartThing) {
+		Trajectory trajectory = smartThing.getTrajectory();
+		int travelTimeId = smartThing.getTravelTimeId();
+		if (travelTimeId >= trajectory.size()) {
+			return new MobilityStep(travelTimeId, true, 0, 0, 0, 0);
+		}
+		int direction = Coordinate.convertDirection(trajectory.getDirection(travelTimeId));
+		int x = (int) trajectory.getX(travelTimeId);
+		int y = (int) trajectory.getY(travelTimeId);
+		int speed = (int) trajectory.getSpeed(travelTimeId);
+
+		// It checks the CoordDevices limits.
+		boolean disabled = x < 0 || y < 0 || x >= MaxAndMin.MAX_X || y >= MaxAndMin.MAX_Y;
+		return new MobilityStep(travelTimeId + 1, disabled, direction, x, y, speed);
+	}
+
+	/**
+	 * Moves the smart thing the step was computed for.
+	 *
+	 * @param smartThing
+	 *        - the smart thing
+	 */
+	public void apply(MobileDevice smartThing) {
+		smartThing.setTravelTimeId(travelTimeId);
+		if (disabled) {
+			smartThing.setCoord(-1, -1);
+		}
+		else {
+			smartThing.setDirection(direction);
+			smartThing.getCoord().setCoordX(x);
+			smartThing.getCoord().setCoordY(y);
+			smartThing.setSpeed(speed);
+			smartThing.invalidateMigrationFeatures();
+		}
+	}
+
+	public boolean isDisabled() {
+		return disabled;
+	}
+
+	public int getX() {
+		return x;
+	}
+
+	public int getY() {
+		return y;
+	}
+}
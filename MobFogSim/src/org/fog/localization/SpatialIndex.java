@@ -0,0 +1,300 @@
+package org.fog.localization;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.fog.entities.FogDevice;
+
+/**
+ * A uniform grid over the coordinates of a list of fixed devices (access
+ * points or server cloudlets), used to answer nearest, k-nearest and radius
+ * queries without scanning the whole list.
+ * <p>
+ * The index is a snapshot: it must only be used while the list has the same
+ * size it had when the index was built (see {@link #isIndexOf(List)}), since
+ * the fixed devices are only ever appended. Results are positions in the
+ * indexed list and, among devices at the same distance, the one that comes
+ * first in the list wins, as in the linear scans of {@link Distances}.
+ */
+public class SpatialIndex<T extends FogDevice> implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** Lists smaller than this are scanned linearly instead of indexed. */
+	public static final int MIN_SIZE = 16;
+
+	/** The average number of devices per cell. */
+	private static final int DEVICES_PER_CELL = 2;
+
+	private final List<T> devices;
+	private final int size;
+	private final int[] xs;
+	private final int[] ys;
+
+	private final int minX;
+	private final int minY;
+	private final int cellSize;
+	private final int columns;
+	private final int rows;
+
+	/** The first entry of each cell in {@link #cellDevices}, plus the end. */
+	private final int[] cellStart;
+
+	/** The positions of the devices, grouped by cell and ascending in each one. */
+	private final int[] cellDevices;
+
+	public SpatialIndex(List<T> devices) {
+		this.devices = devices;
+		size = devices.size();
+		xs = new int[size];
+		ys = new int[size];
+
+		int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
+		int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+		for (int i = 0; i < size; i++) {
+			Coordinate coord = devices.get(i).getCoord();
+			xs[i] = coord.getCoordX();
+			ys[i] = coord.getCoordY();
+			minX = Math.min(minX, xs[i]);
+			minY = Math.min(minY, ys[i]);
+			maxX = Math.max(maxX, xs[i]);
+			maxY = Math.max(maxY, ys[i]);
+		}
+		if (size == 0) {
+			minX = minY = maxX = maxY = 0;
+		}
+		this.minX = minX;
+		this.minY = minY;
+
+		long width = (long) maxX - minX + 1;
+		long height = (long) maxY - minY + 1;
+		double cellArea = (double) width * height * DEVICES_PER_CELL / Math.max(size, 1);
+		cellSize = (int) Math.max(1, Math.min(Integer.MAX_VALUE, Math.ceil(Math.sqrt(cellArea))));
+		columns = (int) ((width + cellSize - 1) / cellSize);
+		rows = (int) ((height + cellSize - 1) / cellSize);
+
+		// counting sort of the positions by cell, keeping them ascending
+		cellStart = new int[columns * rows + 1];
+		int[] cells = new int[size];
+		for (int i = 0; i < size; i++) {
+			cells[i] = cell(column(xs[i]), row(ys[i]));
+			cellStart[cells[i] + 1]++;
+		}
+		for (int c = 0; c < columns * rows; c++) {
+			cellStart[c + 1] += cellStart[c];
+		}
+		cellDevices = new int[size];
+		int[] next = Arrays.copyOf(cellStart, columns * rows);
+		for (int i = 0; i < size; i++) {
+			cellDevices[next[cells[i]]++] = i;
+		}
+	}
+
+	/**
+	 * Checks whether this index can answer queries about a list: it must be
+	 * the indexed list and no device may have been added since.
+	 *
+	 * @param list
+	 *        - the list
+	 * @return true, if the index is up to date for the list
+	 */
+	public boolean isIndexOf(List<?> list) {
+		return list == devices && list.size() == size;
+	}
+
+	public List<T> getDevices() {
+		return devices;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Finds the device closest to a coordinate.
+	 *
+	 * @param coord
+	 *        - the coordinate
+	 * @param maxDistance
+	 *        - the maximum distance (inclusive), or a negative value for no
+	 *        limit
+	 * @param excluded
+	 *        - a device that must not be returned, or null
+	 * @return the position of the closest device in the list, or -1 if there is
+	 *         none within <tt>maxDistance</tt>
+	 */
+	public int nearest(Coordinate coord, double maxDistance, T excluded) {
+		int px = coord.getCoordX();
+		int py = coord.getCoordY();
+		double limit = maxDistance < 0 ? Double.MAX_VALUE : maxDistance * maxDistance;
+		int cx = clamp(column(px), columns);
+		int cy = clamp(row(py), rows);
+
+		int best = -1;
+		long bestDistance = Long.MAX_VALUE;
+		int maxRing = Math.max(columns, rows);
+		for (int ring = 0; ring <= maxRing; ring++) {
+			// every cell of this ring is at least (ring - 1) cells away
+			double bound = Math.max(0, ring - 1) * (double) cellSize;
+			if (bound * bound > limit || (best >= 0 && bound * bound > bestDistance)) {
+				break;
+			}
+			for (int row = cy - ring; row <= cy + ring; row++) {
+				if (row < 0 || row >= rows) {
+					continue;
+				}
+				// inner rows of the ring only have its first and last column
+				int step = (row == cy - ring || row == cy + ring) ? 1 : 2 * ring;
+				for (int column = cx - ring; column <= cx + ring; column += step) {
+					if (column < 0 || column >= columns) {
+						continue;
+					}
+					int cell = cell(column, row);
+					for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+						int i = cellDevices[k];
+						if (excluded != null && devices.get(i) == excluded) {
+							continue;
+						}
+						long distance = squaredDistance(i, px, py);
+						if (distance <= limit
+							&& (distance < bestDistance || (distance == bestDistance && i < best))) {
+							best = i;
+							bestDistance = distance;
+						}
+					}
+				}
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Finds the <tt>k</tt> devices closest to a coordinate.
+	 *
+	 * @param coord
+	 *        - the coordinate
+	 * @param k
+	 *        - the number of devices
+	 * @return the positions of the devices in the list, closest first
+	 */
+	public int[] nearest(Coordinate coord, int k) {
+		int px = coord.getCoordX();
+		int py = coord.getCoordY();
+		k = Math.min(k, size);
+		if (k <= 0) {
+			return new int[0];
+		}
+		int cx = clamp(column(px), columns);
+		int cy = clamp(row(py), rows);
+
+		List<long[]> found = new ArrayList<>();
+		int maxRing = Math.max(columns, rows);
+		for (int ring = 0; ring <= maxRing; ring++) {
+			double bound = Math.max(0, ring - 1) * (double) cellSize;
+			if (found.size() >= k) {
+				sort(found);
+				if (bound * bound > found.get(k - 1)[0]) {
+					break;
+				}
+			}
+			for (int row = cy - ring; row <= cy + ring; row++) {
+				if (row < 0 || row >= rows) {
+					continue;
+				}
+				int step = (row == cy - ring || row == cy + ring) ? 1 : 2 * ring;
+				for (int column = cx - ring; column <= cx + ring; column += step) {
+					if (column < 0 || column >= columns) {
+						continue;
+					}
+					int cell = cell(column, row);
+					for (int j = cellStart[cell]; j < cellStart[cell + 1]; j++) {
+						int i = cellDevices[j];
+						found.add(new long[] { squaredDistance(i, px, py), i });
+					}
+				}
+			}
+		}
+		sort(found);
+		int[] nearest = new int[k];
+		for (int i = 0; i < k; i++) {
+			nearest[i] = (int) found.get(i)[1];
+		}
+		return nearest;
+	}
+
+	/**
+	 * Finds the devices within a given distance of a coordinate, for example
+	 * the access points that cover a smart thing.
+	 *
+	 * @param coord
+	 *        - the coordinate
+	 * @param radius
+	 *        - the distance (inclusive)
+	 * @return the positions of the devices in the list, in list order
+	 */
+	public int[] withinRadius(Coordinate coord, double radius) {
+		int px = coord.getCoordX();
+		int py = coord.getCoordY();
+		double limit = radius * radius;
+		int fromColumn = clamp(column((int) Math.max(Integer.MIN_VALUE, Math.floor(px - radius))), columns);
+		int toColumn = clamp(column((int) Math.min(Integer.MAX_VALUE, Math.ceil(px + radius))), columns);
+		int fromRow = clamp(row((int) Math.max(Integer.MIN_VALUE, Math.floor(py - radius))), rows);
+		int toRow = clamp(row((int) Math.min(Integer.MAX_VALUE, Math.ceil(py + radius))), rows);
+
+		int[] within = new int[size];
+		int count = 0;
+		for (int row = fromRow; row <= toRow; row++) {
+			for (int column = fromColumn; column <= toColumn; column++) {
+				int cell = cell(column, row);
+				for (int j = cellStart[cell]; j < cellStart[cell + 1]; j++) {
+					int i = cellDevices[j];
+					if (squaredDistance(i, px, py) <= limit) {
+						within[count++] = i;
+					}
+				}
+			}
+		}
+		within = Arrays.copyOf(within, count);
+		Arrays.sort(within);
+		return within;
+	}
+
+	private long squaredDistance(int i, int px, int py) {
+		long dx = (long) xs[i] - px;
+		long dy = (long) ys[i] - py;
+		return dx * dx + dy * dy;
+	}
+
+	private int column(int x) {
+		return (int) Math.floor(((double) x - minX) / cellSize);
+	}
+
+	private int row(int y) {
+		return (int) Math.floor(((double) y - minY) / cellSize);
+	}
+
+	private int cell(int column, int row) {
+		return row * columns + column;
+	}
+
+	private static int clamp(int value, int count) {
+		return Math.max(0, Math.min(count - 1, value));
+	}
+
+	private static void sort(List<long[]> found) {
+		Collections.sort(found, new Comparator<long[]>() {
+
+			@Override
+			public int compare(long[] a, long[] b) {
+				if (a[0] != b[0]) {
+					return a[0] < b[0] ? -1 : 1;
+				}
+				return a[1] < b[1] ? -1 : (a[1] > b[1] ? 1 : 0);
+			}
+		});
+	}
+}
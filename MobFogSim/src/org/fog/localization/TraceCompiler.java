@@ -0,0 +1,122 @@
+package org.fog.localization;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compiles the mobility traces of the input directory into a single binary
+ * file that can be memory-mapped by {@link MappedTraceFile}, so the traces
+ * do not have to be parsed again on every run.
+ * <p>
+ * The directory is read the same way as AppExample does: the files are sorted
+ * by name, the last one holds the order of the devices (only its first line is
+ * used) and all the others are the traces, numbered by their position in the
+ * sorted list. The binary file has:
+ * <ul>
+ * <li>a header: magic, version, number of traces and length of the order;</li>
+ * <li>the order, one int per entry;</li>
+ * <li>an offset table with the position (long) and the number of records
+ * (int) of each trace;</li>
+ * <li>the records, five doubles each: time, direction, x, y and speed.</li>
+ * </ul>
+ * Usage: <tt>java org.fog.localization.TraceCompiler [input dir] [output file]</tt>
+ */
+public class TraceCompiler {
+
+	public static void main(String[] args) throws IOException {
+		File input = new File(args.length > 0 ? args[0] : "input");
+		File output = new File(args.length > 1 ? args[1] : MappedTraceFile.DEFAULT_FILE);
+		int traces = compile(input, output);
+		System.out.println("Compiled " + traces + " traces from " + input + " into " + output);
+	}
+
+	/**
+	 * Compiles the traces of a directory into a binary file.
+	 *
+	 * @param inputDir
+	 *        - the directory with the traces and the order file
+	 * @param output
+	 *        - the binary file to be written
+	 * @return the number of traces compiled
+	 * @throws IOException
+	 *         if a file can not be read or written
+	 */
+	public static int compile(File inputDir, File output) throws IOException {
+		File[] listOfFiles = inputDir.listFiles();
+		if (listOfFiles == null || listOfFiles.length == 0) {
+			throw new IOException("No traces found in " + inputDir);
+		}
+		Arrays.sort(listOfFiles);
+
+		int[] order = readOrder(listOfFiles[listOfFiles.length - 1]);
+		int count = listOfFiles.length - 1;
+		List<Trajectory> trajectories = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			trajectories.add(readTrace(listOfFiles[i]));
+		}
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+			new FileOutputStream(output), 1 << 16))) {
+			out.writeInt(MappedTraceFile.MAGIC);
+			out.writeInt(MappedTraceFile.VERSION);
+			out.writeInt(count);
+			out.writeInt(order.length);
+			for (int position : order) {
+				out.writeInt(position);
+			}
+
+			long offset = MappedTraceFile.HEADER_SIZE + 4L * order.length
+				+ (long) MappedTraceFile.ENTRY_SIZE * count;
+			for (Trajectory trajectory : trajectories) {
+				out.writeLong(offset);
+				out.writeInt(trajectory.size());
+				offset += (long) MappedTraceFile.RECORD_SIZE * trajectory.size();
+			}
+
+			for (Trajectory trajectory : trajectories) {
+				for (int i = 0; i < trajectory.size(); i++) {
+					out.writeDouble(trajectory.getTime(i));
+					out.writeDouble(trajectory.getDirection(i));
+					out.writeDouble(trajectory.getX(i));
+					out.writeDouble(trajectory.getY(i));
+					out.writeDouble(trajectory.getSpeed(i));
+				}
+			}
+		}
+		return count;
+	}
+
+	private static int[] readOrder(File file) throws IOException {
+		try (BufferedReader br = new BufferedReader(new FileReader(file))) {
+			String line = br.readLine();
+			if (line == null) {
+				throw new IOException("Empty order file " + file);
+			}
+			String[] position = line.split("\t");
+			int[] order = new int[position.length];
+			for (int i = 0; i < position.length; i++) {
+				order[i] = Integer.valueOf(position[i].trim());
+			}
+			return order;
+		}
+	}
+
+	private static Trajectory readTrace(File file) throws IOException {
+		Trajectory trajectory = new Trajectory();
+		try (BufferedReader br = new BufferedReader(new FileReader(file))) {
+			String line;
+			while ((line = br.readLine()) != null) {
+				trajectory.add(line);
+			}
+		}
+		return trajectory;
+	}
+}
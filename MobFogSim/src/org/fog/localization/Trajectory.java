@@ -0,0 +1,123 @@
+package org.fog.localization;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * The mobility trace of a smart thing, parsed once when the input file is read
+ * and kept in primitive columns indexed by the travel time id: the time, the
+ * direction (in radians), the position and the speed of each step.
+ */
+public class Trajectory implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private double[] time;
+	private double[] direction;
+	private double[] x;
+	private double[] y;
+	private double[] speed;
+	private int size;
+
+	public Trajectory() {
+		this(INITIAL_CAPACITY);
+	}
+
+	public Trajectory(int capacity) {
+		capacity = Math.max(capacity, 1);
+		time = new double[capacity];
+		direction = new double[capacity];
+		x = new double[capacity];
+		y = new double[capacity];
+		speed = new double[capacity];
+	}
+
+	/**
+	 * Parses a line of a mobility trace: time, direction, x, y and speed,
+	 * separated by tabs.
+	 *
+	 * @param line
+	 *        - the trace line
+	 */
+	public void add(String line) {
+		String[] position = line.split("\t");
+		add(Double.parseDouble(position[0]), Double.parseDouble(position[1]),
+			Double.parseDouble(position[2]), Double.parseDouble(position[3]),
+			Double.parseDouble(position[4]));
+	}
+
+	public void add(double time, double direction, double x, double y, double speed) {
+		if (size == this.time.length) {
+			grow();
+		}
+		this.time[size] = time;
+		this.direction[size] = direction;
+		this.x[size] = x;
+		this.y[size] = y;
+		this.speed[size] = speed;
+		size++;
+	}
+
+	private void grow() {
+		int capacity = time.length * 2;
+		time = Arrays.copyOf(time, capacity);
+		direction = Arrays.copyOf(direction, capacity);
+		x = Arrays.copyOf(x, capacity);
+		y = Arrays.copyOf(y, capacity);
+		speed = Arrays.copyOf(speed, capacity);
+	}
+
+	/**
+	 * Releases the unused capacity once the whole trace was read.
+	 */
+	public void trimToSize() {
+		if (size < time.length) {
+			time = Arrays.copyOf(time, size);
+			direction = Arrays.copyOf(direction, size);
+			x = Arrays.copyOf(x, size);
+			y = Arrays.copyOf(y, size);
+			speed = Arrays.copyOf(speed, size);
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public double getTime(int travelTimeId) {
+		checkIndex(travelTimeId);
+		return time[travelTimeId];
+	}
+
+	public double getDirection(int travelTimeId) {
+		checkIndex(travelTimeId);
+		return direction[travelTimeId];
+	}
+
+	public double getX(int travelTimeId) {
+		checkIndex(travelTimeId);
+		return x[travelTimeId];
+	}
+
+	public double getY(int travelTimeId) {
+		checkIndex(travelTimeId);
+		return y[travelTimeId];
+	}
+
+	public double getSpeed(int travelTimeId) {
+		checkIndex(travelTimeId);
+		return speed[travelTimeId];
+	}
+
+	private void checkIndex(int travelTimeId) {
+		if (travelTimeId >= size) {
+			throw new IndexOutOfBoundsException("Index: " + travelTimeId + ", Size: " + size);
+		}
+	}
+}
@@ -24,6 +24,8 @@ import org.fog.utils.TimeKeeper;
 
 public class Controller extends SimEntity {
 
+	private static final long serialVersionUID = 1L;
+
 	public static boolean ONLY_CLOUD = false;
 
 	private List<FogDevice> fogDevices;
@@ -160,10 +162,10 @@ public class Controller extends SimEntity {
 		System.out.println("=========================================");
 		System.out.println("APPLICATION LOOP DELAYS");
 		System.out.println("=========================================");
-		for (Integer loopId : TimeKeeper.getInstance().getLoopIdToTupleIds().keySet()) {
+		for (Integer loopId : TimeKeeper.getInstance().getLoopStats().keySet()) {
 
 			System.out.println(getStringForLoopId(loopId) + " ---> "
-				+ TimeKeeper.getInstance().getLoopIdToCurrentAverage().get(loopId));
+				+ TimeKeeper.getInstance().getLoopStats(loopId).getMean());
 		}
 		System.out.println("=========================================");
 		System.out.println("TUPLE CPU EXECUTION DELAY");
@@ -188,7 +190,7 @@ public class Controller extends SimEntity {
 	}
 
 	public void submitApplication(Application application, int delay) {
-		FogUtils.appIdToGeoCoverageMap.put(application.getAppId(), application.getGeoCoverage());
+		FogUtils.getAppIdToGeoCoverageMap().put(application.getAppId(), application.getGeoCoverage());
 		getApplications().put(application.getAppId(), application);
 		getAppLaunchDelays().put(application.getAppId(), delay);
 		for (Sensor sensor : sensors) {
@@ -219,7 +221,7 @@ public class Controller extends SimEntity {
 	private void processAppSubmit(Application application) {
 		System.out.println("Controller " + CloudSim.clock() + " Submitted application "
 			+ application.getAppId());
-		FogUtils.appIdToGeoCoverageMap.put(application.getAppId(), application.getGeoCoverage());
+		FogUtils.getAppIdToGeoCoverageMap().put(application.getAppId(), application.getGeoCoverage());
 		getApplications().put(application.getAppId(), application);
 
 		ModulePlacement modulePlacement = new ModulePlacementMapping(getFogDevices(), application,
@@ -5,6 +5,7 @@ import java.io.FileNotFoundException;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.Serializable;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -18,8 +19,10 @@ import org.apache.commons.math3.util.Pair;
 import org.cloudbus.cloudsim.CloudletScheduler;
 import org.cloudbus.cloudsim.CloudletSchedulerTimeShared;
 import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.PeriodicTimer;
 import org.cloudbus.cloudsim.core.SimEntity;
 import org.cloudbus.cloudsim.core.SimEvent;
+import org.cloudbus.cloudsim.core.SimulationContext;
 import org.fog.application.AppEdge;
 import org.fog.application.AppLoop;
 import org.fog.application.AppModule;
@@ -37,40 +40,74 @@ import org.fog.localization.Coordinate;
 import org.fog.localization.Distances;
 import org.fog.utils.Config;
 import org.fog.utils.FogEvents;
+import org.fog.utils.FogLog;
 import org.fog.utils.FogUtils;
+import org.fog.utils.LatencyStats;
 import org.fog.utils.ModuleLaunchConfig;
 import org.fog.utils.NetworkUsageMonitor;
+import org.fog.utils.OutputSink;
+import org.fog.utils.OutputSinks;
+import org.fog.utils.ParallelBatch;
+import org.fog.utils.RunDirectory;
 import org.fog.utils.TimeKeeper;
 import org.fog.vmmigration.Migration;
+import org.fog.vmmigration.MigrationDecisions;
 import org.fog.vmmigration.MyStatistics;
+import org.fog.vmmigration.RunResults;
 import org.fog.vmmigration.NextStep;
-import org.fog.vmmobile.LogMobile;
 import org.fog.vmmobile.constants.MaxAndMin;
 import org.fog.vmmobile.constants.MobileEvents;
 
 public class MobileController extends SimEntity {
-	private static boolean migrationAble;
-	private static int migPointPolicy;
 
-	private static int stepPolicy; // Quantity of steps in the nextStep Function
-	private static Coordinate coordDevices;
+	private static final long serialVersionUID = 1L;
 
-	private static int migStrategyPolicy;
-	private static int seed;
+	/**
+	 * The devices and policies of a simulation, read by the static getters from
+	 * the current simulation context.
+	 */
+	private static class State implements Serializable {
 
-	private static List<FogDevice> serverCloudlets;
-	private static List<MobileDevice> smartThings;
-	private static List<ApDevice> apDevices;
-	private static List<FogBroker> brokerList;
+		private static final long serialVersionUID = 1L;
+
+		boolean migrationAble;
+		int migPointPolicy;
+
+		int stepPolicy; // Quantity of steps in the nextStep Function
+		Coordinate coordDevices;
+
+		int migStrategyPolicy;
+		int seed;
+
+		List<FogDevice> serverCloudlets;
+		List<MobileDevice> smartThings;
+		List<ApDevice> apDevices;
+		List<FogBroker> brokerList;
+
+		Random rand;
+
+		boolean exitOnStop = true;
+	}
+
+	private static final SimulationContext.Key<State> STATE = new SimulationContext.Key<State>() {
+
+		@Override
+		protected State initialValue() {
+			return new State();
+		}
+	};
 
 	private Map<String, Application> applications;
 	private Map<String, Integer> appLaunchDelays;
 	private ModuleMapping moduleMapping;
 	private Map<Integer, Double> globalCurrentCpuLoad;
 
+	private PeriodicTimer nextStepTimer;
+	private PeriodicTimer checkNewStepTimer;
+	private PeriodicTimer decisionMigrationTimer;
+
 	static final int numOfDepts = 1;
 	static final int numOfMobilesPerDept = 4;
-	private static Random rand;
 
 	public MobileController() {
 
@@ -161,33 +198,39 @@ public class MobileController extends SimEntity {
 	@Override
 	public void startEntity() {
 		for (String appId : applications.keySet()) {
-			LogMobile.debug("MobileController.java", appId + " - "
-				+ getAppLaunchDelays().get(appId));
+			if (FogLog.isEnabled(FogLog.Level.DEBUG)) {
+				FogLog.debug("MobileController.java", appId + " - "
+					+ getAppLaunchDelays().get(appId));
+			}
 			processAppSubmit(applications.get(appId));
 		}
 
-		for (int i = 0; i < MaxAndMin.MAX_SIMULATION_TIME; i += 1000) {
-			send(getId()// Application
-				, i // delay -> When the event will occur
-				, MobileEvents.NEXT_STEP);
-			send(getId()
-				, i
-				, MobileEvents.CHECK_NEW_STEP);
-		}
-
+		// Each timer keeps only its next tick in the future queue
 		if (isMigrationAble()) {
-			for (FogDevice sc : getServerCloudlets()) {
-				for (int i = 0; i < MaxAndMin.MAX_SIMULATION_TIME; i += 1000) {
-					send(sc.getId()// serverCloudlet
-						, i // delay -> When the event will occur
-						, MobileEvents.MAKE_DECISION_MIGRATION
-						, sc.getSmartThings());
-				}
-			}
+			// The decisions of all the server cloudlets are made in one batch,
+			// before the smart things move
+			setDecisionMigrationTimer(schedulePeriodic(getId()
+				, 0 // delay -> When the first tick will occur
+				, 1000 // period
+				, MaxAndMin.MAX_SIMULATION_TIME
+				, MobileEvents.MAKE_DECISION_MIGRATION));
 		}
+		setNextStepTimer(schedulePeriodic(getId()// Application
+			, 0 // delay -> When the first tick will occur
+			, 1000 // period
+			, MaxAndMin.MAX_SIMULATION_TIME
+			, MobileEvents.NEXT_STEP));
+		setCheckNewStepTimer(schedulePeriodic(getId()
+			, 0
+			, 1000
+			, MaxAndMin.MAX_SIMULATION_TIME
+			, MobileEvents.CHECK_NEW_STEP));
 
 		for (MobileDevice st : getSmartThings()) {
-			System.out.println(st.getStartTravelTime() * 1000);
+			if (FogLog.isEnabled(FogLog.Level.DEBUG)) {
+				FogLog.debug("MobileController.java", st.getName() + " starts at "
+					+ st.getStartTravelTime() * 1000);
+			}
 			send(getId(), st.getStartTravelTime() * 1000, MobileEvents.CREATE_NEW_SMARTTHING, st);
 			st.getSourceAp().desconnectApSmartThing(st);
 			st.getSourceServerCloudlet().desconnectServerCloudletSmartThing(st);
@@ -210,9 +253,11 @@ public class MobileController extends SimEntity {
 	}
 
 	private void processAppSubmit(Application application) {
-		System.out.println("MobileController 213 processAppSubmit " + CloudSim.clock()
-			+ " Submitted application " + application.getAppId());
-		FogUtils.appIdToGeoCoverageMap.put(application.getAppId(), application.getGeoCoverage());
+		if (FogLog.isEnabled(FogLog.Level.DEBUG)) {
+			FogLog.debug("MobileController.java", "Submitted application "
+				+ application.getAppId());
+		}
+		FogUtils.getAppIdToGeoCoverageMap().put(application.getAppId(), application.getGeoCoverage());
 		getApplications().put(application.getAppId(), application);
 		List<FogDevice> tempAllDevices = new ArrayList<>();
 		for (FogDevice sc : getServerCloudlets()) {
@@ -238,7 +283,7 @@ public class MobileController extends SimEntity {
 			.getModuleInstanceCountMap();
 		for (Integer deviceId : deviceToModuleMap.keySet()) {
 			for (AppModule module : deviceToModuleMap.get(deviceId)) {
-				System.out.println("MobileController 240 ProcessAppSubmit");
+				FogLog.trace("MobileController.java", "processAppSubmit");
 				sendNow(deviceId, FogEvents.APP_SUBMIT, application);
 				sendNow(deviceId, FogEvents.LAUNCH_MODULE, module);
 				sendNow(deviceId, FogEvents.LAUNCH_MODULE_INSTANCE,
@@ -249,9 +294,11 @@ public class MobileController extends SimEntity {
 
 	private void processAppSubmitMigration(SimEvent ev) {
 		Application application = (Application) ev.getData();
-		System.out.println(CloudSim.clock() + " Submitted application after migration "
-			+ application.getAppId());
-		FogUtils.appIdToGeoCoverageMap.put(application.getAppId(), application.getGeoCoverage());
+		if (FogLog.isEnabled(FogLog.Level.DEBUG)) {
+			FogLog.debug("MobileController.java", "Submitted application after migration "
+				+ application.getAppId());
+		}
+		FogUtils.getAppIdToGeoCoverageMap().put(application.getAppId(), application.getGeoCoverage());
 		getApplications().put(application.getAppId(), application);
 		FogDevice sc = (FogDevice) CloudSim.getEntity(ev.getSource());
 		List<FogDevice> tempList = new ArrayList<>();
@@ -265,7 +312,7 @@ public class MobileController extends SimEntity {
 		Map<Integer, Map<String, Integer>> instanceCountMap = modulePlacement
 			.getModuleInstanceCountMap();
 		for (AppModule module : deviceToModuleMap.get(sc.getId())) {
-			System.out.println("MobileController 268 processAppSubmitMigration");
+			FogLog.trace("MobileController.java", "processAppSubmitMigration");
 			sendNow(sc.getId(), FogEvents.APP_SUBMIT, application);
 			sendNow(sc.getId(), FogEvents.LAUNCH_MODULE, module);
 			sendNow(
@@ -286,14 +333,14 @@ public class MobileController extends SimEntity {
 	public void processEvent(SimEvent ev) {
 		switch (ev.getTag()) {
 		case FogEvents.APP_SUBMIT:
-			System.out.println("APP_SUBMIT");
+			FogLog.debug("MobileController.java", "APP_SUBMIT");
 			processAppSubmit(ev);
 			break;
 		case MobileEvents.APP_SUBMIT_MIGRATE:
 			processAppSubmitMigration(ev);
 			break;
 		case FogEvents.TUPLE_FINISHED:
-			System.out.println("TUPLE_FINISHED");
+			FogLog.debug("MobileController.java", "TUPLE_FINISHED");
 			processTupleFinished(ev);
 			break;
 		case FogEvents.CONTROLLER_RESOURCE_MANAGE:
@@ -307,36 +354,66 @@ public class MobileController extends SimEntity {
 				, getStepPolicy()
 				, getSeed());
 			break;
+		case MobileEvents.MAKE_DECISION_MIGRATION:
+			MigrationDecisions.decide(getServerCloudlets());
+			break;
 		case MobileEvents.CREATE_NEW_SMARTTHING:
 			createNewSmartThing(ev);
 			break;
 		case MobileEvents.CHECK_NEW_STEP:
 			checkNewStep();
-			System.out.println("SmartThingListSize: " + getSmartThings().size());
+			if (FogLog.isEnabled(FogLog.Level.TRACE)) {
+				FogLog.trace("MobileController.java", "SmartThingListSize: "
+					+ getSmartThings().size());
+			}
 			if (getSmartThings().isEmpty())
 				sendNow(getId(), MobileEvents.STOP_SIMULATION);
 			break;
 		case MobileEvents.STOP_SIMULATION:
-			System.out
-				.println("*********************Stoping simulation********************");
-			System.out.println("CloudSim.clock(): " + CloudSim.clock());
-			System.out.println("Size SmartThings: " + getSmartThings().size());
+			FogLog.info("MobileController.java",
+				"*********************Stoping simulation********************");
+			FogLog.info("MobileController.java", "CloudSim.clock(): " + CloudSim.clock());
+			FogLog.info("MobileController.java", "Size SmartThings: " + getSmartThings().size());
+			cancelTimers();
 			CloudSim.stopSimulation();
 			printTimeDetails();
 			printPowerDetails();
 			printCostDetails();
 			printNetworkUsageDetails();
 			printMigrationsDetalis();
-			System.exit(0);
+			MyStatistics.getInstance().getRunResults().putAggregate("clock", CloudSim.clock());
+			MyStatistics.getInstance().exportResults();
+			if (getContext().getProfiler() != null) {
+				getContext().getProfiler().finish(getContext());
+			}
+			OutputSinks.closeAll();
+			if (isExitOnStop()) {
+				System.exit(0);
+			}
+			CloudSim.abruptallyTerminate();
 			break;
 
 		}
 	}
 
+	private void cancelTimers() {
+		if (getNextStepTimer() != null) {
+			getNextStepTimer().cancel();
+		}
+		if (getCheckNewStepTimer() != null) {
+			getCheckNewStepTimer().cancel();
+		}
+		if (getDecisionMigrationTimer() != null) {
+			getDecisionMigrationTimer().cancel();
+		}
+	}
+
 	private void createNewSmartThing(SimEvent ev) {
 		MobileDevice st = (MobileDevice) ev.getData();
 
-		System.out.println("criado...");
+		if (FogLog.isEnabled(FogLog.Level.DEBUG)) {
+			FogLog.debug("MobileController.java", st.getName() + " criado...");
+		}
 		st.setTravelTimeId(0);
 	}
 
@@ -352,9 +429,44 @@ public class MobileController extends SimEntity {
 
 	}
 
+	/**
+	 * Checks the connections of the smart things after their step, in two
+	 * phases: the distances to their source Aps and, for those about to leave
+	 * its coverage, their next Aps are first computed in parallel (see
+	 * {@link ParallelBatch}); the handoffs, disconnections and new connections
+	 * are then made in the order of the list, so the random numbers and the
+	 * events are drawn and sent in the same order whatever the number of
+	 * threads.
+	 */
 	private void checkNewStep() {
+		final List<ApDevice> apDevices = getApDevices();
+		final MobileDevice[] devices = getSmartThings().toArray(
+			new MobileDevice[getSmartThings().size()]);
+		final double[] distances = new double[devices.length];
+		final int[] nextAps = new int[devices.length];
+		// the index is read by all the threads
+		Distances.updateApIndex(apDevices);
+		ParallelBatch.forEach(devices.length, new ParallelBatch.Task() {
+
+			@Override
+			public void run(int i) {
+				MobileDevice st = devices[i];
+				nextAps[i] = -1;
+				if (st.getTravelTimeId() == -1 || st.getSourceAp() == null
+					|| st.isLockedToHandoff()) {
+					return;
+				}
+				distances[i] = Distances.checkDistance(st.getCoord(), st.getSourceAp().getCoord());
+				if (distances[i] >= MaxAndMin.AP_COVERAGE - MaxAndMin.MAX_DISTANCE_TO_HANDOFF
+					&& distances[i] < MaxAndMin.AP_COVERAGE) {
+					nextAps[i] = Migration.nextAp(apDevices, st);
+				}
+			}
+		});
+
 		int index = 0;
-		for (MobileDevice st : getSmartThings()) {
+		for (int i = 0; i < devices.length; i++) {
+			MobileDevice st = devices[i];
 			if (st.getTravelTimeId() == -1) {
 				continue;
 			}
@@ -363,23 +475,24 @@ public class MobileController extends SimEntity {
 			MyStatistics.getInstance().getPowerHistory().put(st.getMyId(), st.getHost().getPower());
 
 			if (st.getSourceAp() != null) {
-				System.out.println(st.getName() + "\t" + st.getCoord().getCoordX() + "\t"
-					+ st.getCoord().getCoordY());
-				System.out.println(st.getSourceAp().getName() + "\t"
-					+ st.getSourceAp().getCoord().getCoordX() + "\t"
-					+ st.getSourceAp().getCoord().getCoordY());
-				System.out.println(Distances.checkDistance(st.getCoord(), st.getSourceAp()
-					.getCoord()));
+				if (FogLog.isEnabled(FogLog.Level.TRACE)) {
+					FogLog.trace("MobileController.java", st.getName() + "\t"
+						+ st.getCoord().getCoordX() + "\t" + st.getCoord().getCoordY());
+					FogLog.trace("MobileController.java", st.getSourceAp().getName() + "\t"
+						+ st.getSourceAp().getCoord().getCoordX() + "\t"
+						+ st.getSourceAp().getCoord().getCoordY());
+				}
 				if (!st.isLockedToHandoff()) {
-					double distance = Distances.checkDistance(st.getCoord(), st.getSourceAp()
-						.getCoord());
+					double distance = distances[i];
 
-					System.out.println("Distance " + distance + "Diff "
-						+ (MaxAndMin.AP_COVERAGE - MaxAndMin.MAX_DISTANCE_TO_HANDOFF) + " max "
-						+ MaxAndMin.AP_COVERAGE);
+					if (FogLog.isEnabled(FogLog.Level.TRACE)) {
+						FogLog.trace("MobileController.java", "Distance " + distance + "Diff "
+							+ (MaxAndMin.AP_COVERAGE - MaxAndMin.MAX_DISTANCE_TO_HANDOFF)
+							+ " max " + MaxAndMin.AP_COVERAGE);
+					}
 					if (distance >= MaxAndMin.AP_COVERAGE - MaxAndMin.MAX_DISTANCE_TO_HANDOFF
 						&& distance < MaxAndMin.AP_COVERAGE) {
-						index = Migration.nextAp(getApDevices(), st);
+						index = nextAps[i];
 						if (index >= 0) {// index isn't negative
 							st.setDestinationAp(getApDevices().get(index));
 							st.setHandoffStatus(true);
@@ -395,9 +508,11 @@ public class MobileController extends SimEntity {
 								.equals(st.getSourceServerCloudlet())) {
 
 								if (isMigrationAble()) {
-									LogMobile.debug("MobileController.java", st.getName()
-										+ " will be desconnected from " +
-										st.getSourceServerCloudlet().getName() + " by handoff");
+									if (FogLog.isEnabled(FogLog.Level.DEBUG)) {
+										FogLog.debug("MobileController.java", st.getName()
+											+ " will be desconnected from " +
+											st.getSourceServerCloudlet().getName() + " by handoff");
+									}
 									sendNow(st.getSourceServerCloudlet().getId(),
 										MobileEvents.MAKE_DECISION_MIGRATION, st);
 									sendNow(st.getSourceServerCloudlet().getId(),
@@ -434,18 +549,22 @@ public class MobileController extends SimEntity {
 
 							saveHandOff(st);
 
-							LogMobile.debug("MobileController.java", st.getName()
-								+ " handoff was scheduled! " + "SourceAp: "
-								+ st.getSourceAp().getName() + " NextAp: "
-								+ st.getDestinationAp().getName() + "\n");
-							LogMobile.debug("MobileController.java", "Distance between "
-									+ st.getName() + " and " + st.getSourceAp().getName()
-									+ ": " + Distances.checkDistance(st.getCoord(),
-										st.getSourceAp().getCoord()));
+							if (FogLog.isEnabled(FogLog.Level.DEBUG)) {
+								FogLog.debug("MobileController.java", st.getName()
+									+ " handoff was scheduled! " + "SourceAp: "
+									+ st.getSourceAp().getName() + " NextAp: "
+									+ st.getDestinationAp().getName() + "\n");
+								FogLog.debug("MobileController.java", "Distance between "
+										+ st.getName() + " and " + st.getSourceAp().getName()
+										+ ": " + Distances.checkDistance(st.getCoord(),
+											st.getSourceAp().getCoord()));
+							}
 						}
 						else {
-							LogMobile.debug("MobileController.java", st.getName()
-								+ " can't make handoff because don't exist closest nextAp");
+							if (FogLog.isEnabled(FogLog.Level.DEBUG)) {
+								FogLog.debug("MobileController.java", st.getName()
+									+ " can't make handoff because don't exist closest nextAp");
+							}
 						}
 					}
 					else if (distance >= MaxAndMin.AP_COVERAGE) {
@@ -455,19 +574,23 @@ public class MobileController extends SimEntity {
 							sendNow(st.getVmLocalServerCloudlet().getId(),
 								MobileEvents.ABORT_MIGRATION, st);
 						}
-						LogMobile.debug("MobileController.java", st.getName()
-							+ " desconnected by AP_COVERAGE - Distance: " + distance);
-						LogMobile.debug("MobileController.java", st.getName() + " X: "
-							+ st.getCoord().getCoordX() + " Y: " + st.getCoord().getCoordY());
+						if (FogLog.isEnabled(FogLog.Level.DEBUG)) {
+							FogLog.debug("MobileController.java", st.getName()
+								+ " desconnected by AP_COVERAGE - Distance: " + distance);
+							FogLog.debug("MobileController.java", st.getName() + " X: "
+								+ st.getCoord().getCoordX() + " Y: " + st.getCoord().getCoordY());
+						}
 					}
 				}
 			}
 			else {
 				if (ApDevice.connectApSmartThing(getApDevices(), st, getRand().nextDouble())) {
 					st.getSourceAp().getServerCloudlet().connectServerCloudletSmartThing(st);
-					LogMobile.debug("MobileController.java", st.getName()
-						+ " has a new connection - SourceAp: " + st.getSourceAp().getName() +
-						" SourceServerCouldlet: " + st.getSourceServerCloudlet().getName());
+					if (FogLog.isEnabled(FogLog.Level.DEBUG)) {
+						FogLog.debug("MobileController.java", st.getName()
+							+ " has a new connection - SourceAp: " + st.getSourceAp().getName() +
+							" SourceServerCouldlet: " + st.getSourceServerCloudlet().getName());
+					}
 
 					CloudletScheduler cloudletScheduler = new CloudletSchedulerTimeShared();
 
@@ -510,22 +633,14 @@ public class MobileController extends SimEntity {
 	}
 
 	private static void saveHandOff(MobileDevice st) {
-		System.out.println("HANDOFF " + st.getMyId() + " Position: " + st.getCoord().getCoordX()
+		FogLog.info("MobileController.java", "HANDOFF " + st.getMyId() + " Position: " + st.getCoord().getCoordX()
 			+ ", " + st.getCoord().getCoordY() + " Direction: " + st.getDirection() + " Speed: "
 			+ st.getSpeed());
-		try (FileWriter fw = new FileWriter(st.getMyId() + "handoff.txt", true);
-			BufferedWriter bw = new BufferedWriter(fw);
-			PrintWriter out = new PrintWriter(bw))
-		{
+		OutputSink out = OutputSinks.get(st.getMyId() + "handoff.txt");
+		if (out != null) {
 			out.println(st.getMyId() + "\t" + CloudSim.clock() + "\t" + st.getCoord().getCoordX()
 				+ "\t" + st.getCoord().getCoordY() + "\t" + st.getDirection() + "\t"
 				+ st.getSpeed() + "\t" + st.getSourceAp() + "\t" + st.getDestinationAp());
-		} catch (UnsupportedEncodingException e) {
-			e.printStackTrace();
-		} catch (FileNotFoundException e) {
-			e.printStackTrace();
-		} catch (IOException e) {
-			e.printStackTrace();
 		}
 	}
 
@@ -544,7 +659,7 @@ public class MobileController extends SimEntity {
 	}
 
 	public void printResults(String a, String filename) {
-		try (FileWriter fw1 = new FileWriter(filename, true);
+		try (FileWriter fw1 = new FileWriter(RunDirectory.path(filename), true);
 			BufferedWriter bw1 = new BufferedWriter(fw1);
 			PrintWriter out1 = new PrintWriter(bw1))
 		{
@@ -577,6 +692,8 @@ public class MobileController extends SimEntity {
 		System.out.println("Total consumido Coudlets: " + energyConsumedMean + " Media: "
 			+ energyConsumedMean / j);
 		printResults(String.valueOf(energyConsumedMean / j), "averageEnergyHistoryDevice.txt");
+		MyStatistics.getInstance().getRunResults().putAggregate("cloudletsEnergyConsumed",
+			energyConsumedMean);
 		printResults(
 			String.valueOf(energyConsumedMean) + "\t" + String.valueOf(energyConsumedMean / j),
 			"results.txt");
@@ -639,28 +756,31 @@ public class MobileController extends SimEntity {
 		System.out.println("=========================================");
 		double mediaLatencia = 0.0;
 		double mediaLatenciaMax = 0.0;
-		for (Integer loopId : TimeKeeper.getInstance().getLoopIdToTupleIds().keySet()) {
-			System.out.println(getStringForLoopId(loopId) + " ---> "
-				+ TimeKeeper.getInstance().getLoopIdToCurrentAverage().get(loopId)
-				+ " MaxExecutionTime: "
-				+ TimeKeeper.getInstance().getMaxLoopExecutionTime().get(loopId));
-			printResults(
-				String.valueOf(TimeKeeper.getInstance().getLoopIdToCurrentAverage().get(loopId)),
-				"results.txt");
-			printResults(
-				String.valueOf(TimeKeeper.getInstance().getMaxLoopExecutionTime().get(loopId)),
-				"results.txt");
-			mediaLatencia += TimeKeeper.getInstance().getLoopIdToCurrentAverage().get(loopId);
-			mediaLatenciaMax += TimeKeeper.getInstance().getMaxLoopExecutionTime().get(loopId);
+		Map<Integer, LatencyStats> loopStats = TimeKeeper.getInstance().getLoopStats();
+		for (Map.Entry<Integer, LatencyStats> entry : loopStats.entrySet()) {
+			int loopId = entry.getKey();
+			LatencyStats stats = entry.getValue();
+			System.out.println(getStringForLoopId(loopId) + " ---> " + stats.getMean()
+				+ " MaxExecutionTime: " + stats.getMax() + " p50: " + stats.getPercentile(50)
+				+ " p95: " + stats.getPercentile(95) + " p99: " + stats.getPercentile(99));
+			printResults(String.valueOf(stats.getMean()), "results.txt");
+			printResults(String.valueOf(stats.getMax()), "results.txt");
+			mediaLatencia += stats.getMean();
+			mediaLatenciaMax += stats.getMax();
+			RunResults runResults = MyStatistics.getInstance().getRunResults();
+			runResults.putAggregate("loop" + loopId + "Count", stats.getCount());
+			runResults.putAggregate("loop" + loopId + "P50", stats.getPercentile(50));
+			runResults.putAggregate("loop" + loopId + "P95", stats.getPercentile(95));
+			runResults.putAggregate("loop" + loopId + "P99", stats.getPercentile(99));
 		}
-		printResults(
-			String.valueOf(mediaLatencia
-				/ TimeKeeper.getInstance().getLoopIdToCurrentAverage().keySet().size()),
+		printResults(String.valueOf(mediaLatencia / loopStats.size()),
 			"averageLoopIdToCurrentAverage.txt");
-		printResults(
-			String.valueOf(mediaLatenciaMax
-				/ TimeKeeper.getInstance().getMaxLoopExecutionTime().keySet().size()),
+		printResults(String.valueOf(mediaLatenciaMax / loopStats.size()),
 			"averageMaxLoopExecutionTime.txt");
+		MyStatistics.getInstance().getRunResults().putAggregate("averageLoopDelay",
+			mediaLatencia / loopStats.size());
+		MyStatistics.getInstance().getRunResults().putAggregate("averageMaxLoopDelay",
+			mediaLatenciaMax / loopStats.size());
 		System.out.println("=========================================");
 		System.out.println("TUPLE CPU EXECUTION DELAY");
 		System.out.println("=========================================");
@@ -711,6 +831,12 @@ public class MobileController extends SimEntity {
 				+ '\t' + String.valueOf(NetworkUsageMonitor.getNetWorkUsageInMigration()) + '\t'
 				+ CloudSim.clock(), "cloudletNetworkUsage.txt");
 		System.out.println("Total network usage = " + NetworkUsageMonitor.getNetworkUsage());
+		RunResults runResults = MyStatistics.getInstance().getRunResults();
+		runResults.putAggregate("vmTransferredData", NetworkUsageMonitor.getVMTransferredData());
+		runResults.putAggregate("deviceNetworkUsage", deviceNetworkUsage);
+		runResults.putAggregate("migrationNetworkUsage",
+			NetworkUsageMonitor.getNetWorkUsageInMigration());
+		runResults.putAggregate("totalNetworkUsage", NetworkUsageMonitor.getNetworkUsage());
 		printResults(
 			String.valueOf(NetworkUsageMonitor.getNetworkUsage() / CloudSim.clock()) + '\t'
 				+ String.valueOf(NetworkUsageMonitor.getNetworkUsage()) + '\t' + CloudSim.clock(),
@@ -833,7 +959,7 @@ public class MobileController extends SimEntity {
 	}
 
 	public void submitApplication(Application application, int delay) {
-		FogUtils.appIdToGeoCoverageMap.put(application.getAppId(), application.getGeoCoverage());
+		FogUtils.getAppIdToGeoCoverageMap().put(application.getAppId(), application.getGeoCoverage());
 		getApplications().put(application.getAppId(), application);
 		getAppLaunchDelays().put(application.getAppId(), delay);
 		for (MobileDevice st : getSmartThings()) {
@@ -863,7 +989,7 @@ public class MobileController extends SimEntity {
 
 	public void submitApplicationMigration(MobileDevice smartThing, Application application,
 		int delay) {
-		FogUtils.appIdToGeoCoverageMap.put(application.getAppId(), application.getGeoCoverage());
+		FogUtils.getAppIdToGeoCoverageMap().put(application.getAppId(), application.getGeoCoverage());
 		getApplications().put(application.getAppId(), application);
 		getAppLaunchDelays().put(application.getAppId(), delay);
 
@@ -919,92 +1045,134 @@ public class MobileController extends SimEntity {
 		}
 	}
 
+	public PeriodicTimer getNextStepTimer() {
+		return nextStepTimer;
+	}
+
+	public void setNextStepTimer(PeriodicTimer nextStepTimer) {
+		this.nextStepTimer = nextStepTimer;
+	}
+
+	public PeriodicTimer getCheckNewStepTimer() {
+		return checkNewStepTimer;
+	}
+
+	public void setCheckNewStepTimer(PeriodicTimer checkNewStepTimer) {
+		this.checkNewStepTimer = checkNewStepTimer;
+	}
+
+	public PeriodicTimer getDecisionMigrationTimer() {
+		return decisionMigrationTimer;
+	}
+
+	public void setDecisionMigrationTimer(PeriodicTimer decisionMigrationTimer) {
+		this.decisionMigrationTimer = decisionMigrationTimer;
+	}
+
 	public static int getMigPointPolicy() {
-		return migPointPolicy;
+		return state().migPointPolicy;
 	}
 
 	public static void setMigPointPolicy(int migPointPolicy) {
-		MobileController.migPointPolicy = migPointPolicy;
+		state().migPointPolicy = migPointPolicy;
 	}
 
 	public static int getMigStrategyPolicy() {
-		return migStrategyPolicy;
+		return state().migStrategyPolicy;
 	}
 
 	public static void setMigStrategyPolicy(int migStrategyPolicy) {
-		MobileController.migStrategyPolicy = migStrategyPolicy;
+		state().migStrategyPolicy = migStrategyPolicy;
 	}
 
 	public static int getStepPolicy() {
-		return stepPolicy;
+		return state().stepPolicy;
 	}
 
 	public static void setStepPolicy(int stepPolicy) {
-		MobileController.stepPolicy = stepPolicy;
+		state().stepPolicy = stepPolicy;
 	}
 
 	public static Coordinate getCoordDevices() {
-		return coordDevices;
+		return state().coordDevices;
 	}
 
 	public static void setCoordDevices(Coordinate coordDevices) {
-		MobileController.coordDevices = coordDevices;
+		state().coordDevices = coordDevices;
 	}
 
 	public List<FogBroker> getBrokerList() {
-		return brokerList;
+		return state().brokerList;
 	}
 
 	public void setBrokerList(List<FogBroker> brokerList) {
-		this.brokerList = brokerList;
+		state().brokerList = brokerList;
 	}
 
 	public static int getSeed() {
-		return seed;
+		return state().seed;
 	}
 
 	public static void setSeed(int seed) {
-		MobileController.seed = seed;
+		state().seed = seed;
 	}
 
 	public static List<FogDevice> getServerCloudlets() {
-		return serverCloudlets;
+		return state().serverCloudlets;
 	}
 
 	public static void setServerCloudlets(List<FogDevice> serverCloudlets) {
-		MobileController.serverCloudlets = serverCloudlets;
+		state().serverCloudlets = serverCloudlets;
 	}
 
 	public static List<MobileDevice> getSmartThings() {
-		return smartThings;
+		return state().smartThings;
 	}
 
 	public static void setSmartThings(List<MobileDevice> smartThings) {
-		MobileController.smartThings = smartThings;
+		state().smartThings = smartThings;
+		SmartThingRegistry.reset(smartThings);
 	}
 
 	public static List<ApDevice> getApDevices() {
-		return apDevices;
+		return state().apDevices;
 	}
 
 	public static void setApDevices(List<ApDevice> apDevices) {
-		MobileController.apDevices = apDevices;
+		state().apDevices = apDevices;
 	}
 
 	public static Random getRand() {
-		return rand;
+		return state().rand;
 	}
 
 	public static void setRand(Random rand) {
-		MobileController.rand = rand;
+		state().rand = rand;
+	}
+
+	private static State state() {
+		return SimulationContext.current().get(STATE);
+	}
+
+	public static boolean isExitOnStop() {
+		return state().exitOnStop;
+	}
+
+	/**
+	 * Sets whether the JVM exits once the results are written, at
+	 * STOP_SIMULATION (the default), or the simulation only ends, so that
+	 * {@link CloudSim#startSimulation()} returns.
+	 */
+	public static void setExitOnStop(boolean exitOnStop) {
+		state().exitOnStop = exitOnStop;
 	}
 
 	public static boolean isMigrationAble() {
-		return migrationAble;
+		return state().migrationAble;
 	}
 
 	public static void setMigrationAble(boolean migrationAble) {
-		MobileController.migrationAble = migrationAble;
+		state().migrationAble = migrationAble;
 	}
 
 }
@@ -15,6 +15,7 @@ import org.fog.application.AppModule;
 import org.fog.application.Application;
 import org.fog.entities.FogDevice;
 import org.fog.entities.MobileDevice;
+import org.fog.utils.FogLog;
 
 public abstract class ModulePlacement {
 
@@ -55,7 +56,10 @@ public abstract class ModulePlacement {
 		else
 			module = _module;
 		if (canBeCreated(device, module)) {
-			System.out.println("Creating " + module.getName() + " on device " + device.getName());
+			if (FogLog.isEnabled(FogLog.Level.DEBUG)) {
+				FogLog.debug("ModulePlacement.java", "Creating " + module.getName() + " on device "
+					+ device.getName());
+			}
 			if (!getDeviceToModuleMap().containsKey(device.getId()))
 				getDeviceToModuleMap().put(device.getId(), new ArrayList<AppModule>());
 			getDeviceToModuleMap().get(device.getId()).add(module);
@@ -65,8 +69,8 @@ public abstract class ModulePlacement {
 			getModuleToDeviceMap().get(module.getName()).add(device.getId());
 			return true;
 		} else {
-			System.out.println("Creating " + module.getName() + " on device " + device.getName()
-				+ " was not possible");
+			FogLog.error("ModulePlacement.java", "Creating " + module.getName() + " on device "
+				+ device.getName() + " was not possible");
 			System.err.println("Module " + module.getName() + " cannot be created on device "
 				+ device.getName());
 			System.err.println("Terminating");
@@ -7,6 +7,7 @@ import java.util.Map;
 import org.fog.application.AppModule;
 import org.fog.application.Application;
 import org.fog.entities.FogDevice;
+import org.fog.utils.FogLog;
 
 public class ModulePlacementMapping extends ModulePlacement {
 
@@ -37,8 +38,10 @@ public class ModulePlacementMapping extends ModulePlacement {
 	protected void mapModulesMigrate(FogDevice serverCloudlet) {
 		Map<String, Map<String, Integer>> mapping = moduleMapping.getModuleMapping();
 
-		System.out.println("ModulePlacementMapping.java: " + serverCloudlet.getName());
-		System.out.println("mapping: " + mapping);
+		if (FogLog.isEnabled(FogLog.Level.TRACE)) {
+			FogLog.trace("ModulePlacementMapping.java", serverCloudlet.getName());
+			FogLog.trace("ModulePlacementMapping.java", "mapping: " + mapping);
+		}
 		for (String moduleName : mapping.get(serverCloudlet.getName()).keySet()) {
 			AppModule module = getApplication().getModuleByName(moduleName);
 			if (module == null)
@@ -78,7 +81,10 @@ public class ModulePlacementMapping extends ModulePlacement {
 		this.setModuleInstanceCountMap(new HashMap<Integer, Map<String, Integer>>());
 		for (FogDevice device : getFogDevices()) {
 			if (getModuleInstanceCountMap().put(device.getId(), new HashMap<String, Integer>()) == null) {
-				System.out.println(getModuleInstanceCountMap() + " - " + device.getName());
+				if (FogLog.isEnabled(FogLog.Level.TRACE)) {
+					FogLog.trace("ModulePlacementMapping.java", getModuleInstanceCountMap() + " - "
+						+ device.getName());
+				}
 			}
 			mapModulesMigrate(device);
 		}
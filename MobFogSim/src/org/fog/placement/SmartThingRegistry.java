@@ -0,0 +1,137 @@
+package org.fog.placement;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.core.SimulationContext;
+import org.fog.entities.MobileDevice;
+import org.fog.entities.Sensor;
+
+/**
+ * An index of the smart things of {@link MobileController#getSmartThings()},
+ * by entity id and by the appId of their sensors, so that the devices can
+ * check whether a tuple still belongs to a simulated smart thing without
+ * scanning all of them and their sensors on every hop.
+ * <p>
+ * It is rebuilt when the controller's list is set and must be told about
+ * every smart thing removed from that list (see
+ * {@link org.fog.vmmigration.NextStep}) or whose sensors change.
+ */
+public class SmartThingRegistry implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The registry of each simulation. */
+	private static final SimulationContext.Key<SmartThingRegistry> REGISTRY =
+		new SimulationContext.Key<SmartThingRegistry>() {
+
+			@Override
+			protected SmartThingRegistry initialValue() {
+				return new SmartThingRegistry();
+			}
+		};
+
+	private final Map<Integer, MobileDevice> smartThings = new HashMap<>();
+
+	/** The appIds of the sensors of each smart thing, when it was registered. */
+	private final Map<Integer, List<String>> appIds = new HashMap<>();
+
+	/** The number of sensors of the registered smart things, by appId. */
+	private final Map<String, Integer> sensorCount = new HashMap<>();
+
+	private SmartThingRegistry() {
+	}
+
+	private static SmartThingRegistry current() {
+		return SimulationContext.current().get(REGISTRY);
+	}
+
+	/**
+	 * Replaces the registered smart things.
+	 *
+	 * @param list
+	 *        - the smart things of the simulation, or null
+	 */
+	public static void reset(List<MobileDevice> list) {
+		SmartThingRegistry registry = current();
+		registry.smartThings.clear();
+		registry.appIds.clear();
+		registry.sensorCount.clear();
+		if (list != null) {
+			for (MobileDevice st : list) {
+				registry.add(st);
+			}
+		}
+	}
+
+	public static void register(MobileDevice st) {
+		current().add(st);
+	}
+
+	private void add(MobileDevice st) {
+		if (smartThings.containsKey(st.getId())) {
+			remove(st);
+		}
+		List<String> ids = new ArrayList<>();
+		if (st.getSensors() != null) {
+			for (Sensor s : st.getSensors()) {
+				ids.add(s.getAppId());
+				Integer count = sensorCount.get(s.getAppId());
+				sensorCount.put(s.getAppId(), count == null ? 1 : count + 1);
+			}
+		}
+		smartThings.put(st.getId(), st);
+		appIds.put(st.getId(), ids);
+	}
+
+	public static void unregister(MobileDevice st) {
+		current().remove(st);
+	}
+
+	private void remove(MobileDevice st) {
+		if (smartThings.get(st.getId()) != st) {
+			return;
+		}
+		smartThings.remove(st.getId());
+		for (String appId : appIds.remove(st.getId())) {
+			int count = sensorCount.get(appId) - 1;
+			if (count == 0) {
+				sensorCount.remove(appId);
+			}
+			else {
+				sensorCount.put(appId, count);
+			}
+		}
+	}
+
+	public static boolean isRegistered(MobileDevice st) {
+		return st != null && current().smartThings.get(st.getId()) == st;
+	}
+
+	/**
+	 * Gets a registered smart thing.
+	 *
+	 * @param entityId
+	 *        - the CloudSim entity id of the smart thing
+	 * @return the smart thing, or null if there is no registered smart thing
+	 *         with this id
+	 */
+	public static MobileDevice get(int entityId) {
+		return current().smartThings.get(entityId);
+	}
+
+	/**
+	 * Checks whether a registered smart thing has a sensor of an application,
+	 * the condition for its tuples to be processed.
+	 *
+	 * @param appId
+	 *        - the application id
+	 * @return true, if there is such a sensor
+	 */
+	public static boolean hasSensorOf(String appId) {
+		return current().sensorCount.containsKey(appId);
+	}
+}
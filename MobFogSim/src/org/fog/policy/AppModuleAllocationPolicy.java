@@ -10,6 +10,8 @@ import org.cloudbus.cloudsim.VmAllocationPolicy;
 
 public class AppModuleAllocationPolicy extends VmAllocationPolicy {
 
+	private static final long serialVersionUID = 1L;
+
 	private Host fogHost;
 
 	private List<Integer> appModuleIds;
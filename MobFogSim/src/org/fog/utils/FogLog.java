@@ -0,0 +1,156 @@
+package org.fog.utils;
+
+import java.io.PrintStream;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+
+/**
+ * The leveled log of the fog and mobility entities.
+ * <p>
+ * The messages below the level of the log are dropped, so the per event and
+ * per step traces of the simulation cost nothing unless asked for. Messages
+ * that are costly to build are given as a {@link Message}, built only if the
+ * message is printed, or printed in a block guarded by
+ * {@link #isEnabled(Level)}:
+ *
+ * <pre>
+ * if (FogLog.isEnabled(FogLog.Level.TRACE)) {
+ * 	FogLog.trace(&quot;NextStep&quot;, st.getName() + &quot; at &quot; + st.getCoord());
+ * }
+ * </pre>
+ *
+ * The level is read from <tt>-Dmobfogsim.log.level</tt>, {@link Level#INFO} by
+ * default. The messages are printed to the standard output of the moment, the
+ * <tt>out.txt</tt> of a run: the {@link Level#INFO} messages as they are, the
+ * others after the clock and the source of the message.
+ */
+public class FogLog {
+
+	/** The levels of the messages, from the most detailed. */
+	public enum Level {
+		/** A message per event or per step of a device. */
+		TRACE,
+		/** A message per decision or state change. */
+		DEBUG,
+		/** The progress and results of the simulation. */
+		INFO,
+		/** Something unexpected that the simulation recovers from. */
+		WARN,
+		/** Something the simulation can not recover from. */
+		ERROR,
+		/** No message at all. */
+		OFF
+	}
+
+	/** A message built only if it is printed. */
+	public interface Message {
+
+		/** Builds the message. */
+		String get();
+	}
+
+	private static volatile Level level = Level.valueOf(System.getProperty(
+		"mobfogsim.log.level", Level.INFO.name()).toUpperCase());
+
+	private FogLog() {
+	}
+
+	public static Level getLevel() {
+		return level;
+	}
+
+	/**
+	 * Sets the level of the log, for all the simulations of the JVM.
+	 *
+	 * @param level
+	 *        - the least level printed
+	 */
+	public static void setLevel(Level level) {
+		FogLog.level = level;
+	}
+
+	/**
+	 * Tells whether the messages of a level are printed.
+	 *
+	 * @param messageLevel
+	 *        - the level of the messages
+	 * @return true if they are printed
+	 */
+	public static boolean isEnabled(Level messageLevel) {
+		return messageLevel.compareTo(level) >= 0 && messageLevel != Level.OFF;
+	}
+
+	/**
+	 * Prints a message if its level is enabled.
+	 *
+	 * @param messageLevel
+	 *        - the level of the message
+	 * @param source
+	 *        - the class or entity the message is about
+	 * @param message
+	 *        - the message
+	 */
+	public static void log(Level messageLevel, String source, String message) {
+		if (isEnabled(messageLevel)) {
+			print(messageLevel, source, message);
+		}
+	}
+
+	/**
+	 * Builds and prints a message if its level is enabled.
+	 *
+	 * @param messageLevel
+	 *        - the level of the message
+	 * @param source
+	 *        - the class or entity the message is about
+	 * @param message
+	 *        - the message, built only if printed
+	 */
+	public static void log(Level messageLevel, String source, Message message) {
+		if (isEnabled(messageLevel)) {
+			print(messageLevel, source, message.get());
+		}
+	}
+
+	public static void trace(String source, String message) {
+		log(Level.TRACE, source, message);
+	}
+
+	public static void trace(String source, Message message) {
+		log(Level.TRACE, source, message);
+	}
+
+	public static void debug(String source, String message) {
+		log(Level.DEBUG, source, message);
+	}
+
+	public static void debug(String source, Message message) {
+		log(Level.DEBUG, source, message);
+	}
+
+	public static void info(String source, String message) {
+		log(Level.INFO, source, message);
+	}
+
+	public static void info(String source, Message message) {
+		log(Level.INFO, source, message);
+	}
+
+	public static void warn(String source, String message) {
+		log(Level.WARN, source, message);
+	}
+
+	public static void error(String source, String message) {
+		log(Level.ERROR, source, message);
+	}
+
+	private static void print(Level messageLevel, String source, String message) {
+		PrintStream out = System.out;
+		if (messageLevel == Level.INFO) {
+			out.println(message);
+		} else {
+			out.println("Clock: " + CloudSim.clock() + " - " + messageLevel + " - " + source
+				+ ": " + message);
+		}
+	}
+}
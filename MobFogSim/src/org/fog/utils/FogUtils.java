@@ -1,15 +1,33 @@
 package org.fog.utils;
 
+import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.cloudbus.cloudsim.core.SimulationContext;
+
 public class FogUtils {
-	private static int TUPLE_ID = 1;
-	private static int ENTITY_ID = 1;
-	private static int ACTUAL_TUPLE_ID = 1;
+
+	/** The id generators of a simulation. */
+	private static class Ids implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		int tupleId = 1;
+		int entityId = 1;
+		int actualTupleId = 1;
+	}
+
+	private static final SimulationContext.Key<Ids> IDS = new SimulationContext.Key<Ids>() {
+
+		@Override
+		protected Ids initialValue() {
+			return new Ids();
+		}
+	};
 
 	public static int generateTupleId() {
-		return TUPLE_ID++;
+		return SimulationContext.current().get(IDS).tupleId++;
 	}
 
 	public static String getSensorTypeFromSensorName(String sensorName) {
@@ -17,16 +35,28 @@ public class FogUtils {
 	}
 
 	public static int generateEntityId() {
-		return ENTITY_ID++;
+		return SimulationContext.current().get(IDS).entityId++;
 	}
 
 	public static int generateActualTupleId() {
-		return ACTUAL_TUPLE_ID++;
+		return SimulationContext.current().get(IDS).actualTupleId++;
 	}
 
 	public static int USER_ID = 1;
 
 	public static int MAX = 10000000;
 
-	public static Map<String, GeoCoverage> appIdToGeoCoverageMap = new HashMap<String, GeoCoverage>();
+	/** The geographical coverage of each application of a simulation. */
+	private static final SimulationContext.Key<Map<String, GeoCoverage>> GEO_COVERAGE =
+		new SimulationContext.Key<Map<String, GeoCoverage>>() {
+
+		@Override
+		protected Map<String, GeoCoverage> initialValue() {
+			return new HashMap<String, GeoCoverage>();
+		}
+	};
+
+	public static Map<String, GeoCoverage> getAppIdToGeoCoverageMap() {
+		return SimulationContext.current().get(GEO_COVERAGE);
+	}
 }
@@ -0,0 +1,177 @@
+package org.fog.utils;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * A hash map from int keys to double values, without boxing. It uses open
+ * addressing with linear probing, so an entry costs 13 bytes in three arrays
+ * instead of a HashMap node, an Integer and a Double.
+ */
+public class IntDoubleMap implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final int MIN_CAPACITY = 16;
+
+	private int[] keys;
+	private double[] values;
+	private boolean[] used;
+	private int size;
+
+	public IntDoubleMap() {
+		this(MIN_CAPACITY);
+	}
+
+	public IntDoubleMap(int expectedSize) {
+		allocate(capacityFor(expectedSize));
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public boolean containsKey(int key) {
+		return used[slot(key)];
+	}
+
+	/**
+	 * Gets the value of a key.
+	 *
+	 * @param key
+	 *        - the key
+	 * @param defaultValue
+	 *        - the value returned if the key is not in the map
+	 * @return the value
+	 */
+	public double get(int key, double defaultValue) {
+		int slot = slot(key);
+		return used[slot] ? values[slot] : defaultValue;
+	}
+
+	public void put(int key, double value) {
+		int slot = slot(key);
+		if (!used[slot]) {
+			if ((size + 1) * 4 > keys.length * 3) {
+				rehash(keys.length * 2);
+				slot = slot(key);
+			}
+			used[slot] = true;
+			keys[slot] = key;
+			size++;
+		}
+		values[slot] = value;
+	}
+
+	/**
+	 * Removes a key.
+	 *
+	 * @param key
+	 *        - the key
+	 * @param defaultValue
+	 *        - the value returned if the key is not in the map
+	 * @return the value the key had
+	 */
+	public double remove(int key, double defaultValue) {
+		int slot = slot(key);
+		if (!used[slot]) {
+			return defaultValue;
+		}
+		double value = values[slot];
+		used[slot] = false;
+		size--;
+		// shifts back the following entries of the probe sequence
+		int mask = keys.length - 1;
+		int free = slot;
+		for (int next = (free + 1) & mask; used[next]; next = (next + 1) & mask) {
+			int home = hash(keys[next]) & mask;
+			// moves the entry unless its home slot is cyclically in (free, next]
+			if (((next - home) & mask) >= ((next - free) & mask)) {
+				keys[free] = keys[next];
+				values[free] = values[next];
+				used[free] = true;
+				used[next] = false;
+				free = next;
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * Removes the entries whose value is lower than a limit, for example the
+	 * timestamps older than a given time.
+	 *
+	 * @param limit
+	 *        - the lowest value kept
+	 * @return the number of removed entries
+	 */
+	public int removeValuesBelow(double limit) {
+		int[] oldKeys = keys;
+		double[] oldValues = values;
+		boolean[] oldUsed = used;
+		int oldSize = size;
+		int kept = 0;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldUsed[i] && oldValues[i] >= limit) {
+				kept++;
+			}
+		}
+		allocate(capacityFor(kept));
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldUsed[i] && oldValues[i] >= limit) {
+				put(oldKeys[i], oldValues[i]);
+			}
+		}
+		return oldSize - size;
+	}
+
+	public void clear() {
+		Arrays.fill(used, false);
+		size = 0;
+	}
+
+	private int slot(int key) {
+		int mask = keys.length - 1;
+		int slot = hash(key) & mask;
+		while (used[slot] && keys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private static int hash(int key) {
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	private void rehash(int capacity) {
+		int[] oldKeys = keys;
+		double[] oldValues = values;
+		boolean[] oldUsed = used;
+		allocate(capacity);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldUsed[i]) {
+				put(oldKeys[i], oldValues[i]);
+			}
+		}
+	}
+
+	private void allocate(int capacity) {
+		keys = new int[capacity];
+		values = new double[capacity];
+		used = new boolean[capacity];
+		size = 0;
+	}
+
+	private static int capacityFor(int expectedSize) {
+		int capacity = MIN_CAPACITY;
+		while (capacity * 3 < expectedSize * 4) {
+			capacity *= 2;
+		}
+		return capacity;
+	}
+}
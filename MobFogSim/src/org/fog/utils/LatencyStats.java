@@ -0,0 +1,115 @@
+package org.fog.utils;
+
+import java.io.Serializable;
+
+/**
+ * Streaming statistics of a series of latencies: count, mean, max and
+ * percentiles, in constant memory.
+ * <p>
+ * The percentiles come from a log-linear histogram, as in HdrHistogram: the
+ * values are grouped by power of two, and each power of two is split in
+ * {@link #SUB_BUCKETS} linear buckets, so a percentile is within 1% of the
+ * exact value. Values below {@link #LOWEST} are counted as {@link #LOWEST},
+ * and values above 2^41 in the last bucket.
+ */
+public class LatencyStats implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The lowest value told apart from zero. */
+	public static final double LOWEST = 1.0 / (1 << 10);
+
+	private static final int LOWEST_EXPONENT = -10;
+	private static final int HIGHEST_EXPONENT = 40;
+	private static final int SUB_BUCKET_BITS = 7;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	/** The histogram, allocated with the first value. */
+	private long[] counts;
+	private long count;
+	private double mean;
+	private double max;
+	private double min = Double.MAX_VALUE;
+
+	/**
+	 * Adds a value. The mean is updated as <tt>(mean * count + value) /
+	 * (count + 1)</tt>, like the running averages of the controller.
+	 *
+	 * @param value
+	 *        - the latency
+	 */
+	public void add(double value) {
+		mean = (mean * count + value) / (count + 1);
+		count++;
+		if (value > max) {
+			max = value;
+		}
+		if (value < min) {
+			min = value;
+		}
+		if (counts == null) {
+			counts = new long[(HIGHEST_EXPONENT - LOWEST_EXPONENT + 1) * SUB_BUCKETS];
+		}
+		counts[bucket(value)]++;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	/** Gets the mean, or 0 if there are no values. */
+	public double getMean() {
+		return mean;
+	}
+
+	/** Gets the maximum, or 0 if there are no values. */
+	public double getMax() {
+		return max;
+	}
+
+	/** Gets the minimum, or 0 if there are no values. */
+	public double getMin() {
+		return count == 0 ? 0 : min;
+	}
+
+	/**
+	 * Gets a percentile.
+	 *
+	 * @param percentile
+	 *        - the percentile, in [0, 100]
+	 * @return the value below which <tt>percentile</tt>% of the values are, or
+	 *         0 if there are no values
+	 */
+	public double getPercentile(double percentile) {
+		if (count == 0) {
+			return 0;
+		}
+		long rank = (long) Math.ceil(percentile / 100.0 * count);
+		rank = Math.max(1, Math.min(count, rank));
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return Math.max(getMin(), Math.min(max, value(i)));
+			}
+		}
+		return max;
+	}
+
+	private static int bucket(double value) {
+		if (!(value >= LOWEST)) {// also NaN
+			return 0;
+		}
+		int exponent = Math.min(Math.getExponent(value), HIGHEST_EXPONENT);
+		double scaled = Math.scalb(value, -exponent);// in [1, 2)
+		int sub = Math.min(SUB_BUCKETS - 1, (int) ((scaled - 1) * SUB_BUCKETS));
+		return (exponent - LOWEST_EXPONENT) * SUB_BUCKETS + sub;
+	}
+
+	/** Gets the middle of a bucket. */
+	private static double value(int bucket) {
+		int exponent = bucket / SUB_BUCKETS + LOWEST_EXPONENT;
+		int sub = bucket % SUB_BUCKETS;
+		return Math.scalb(1 + (sub + 0.5) / SUB_BUCKETS, exponent);
+	}
+}
@@ -1,16 +1,15 @@
 package org.fog.utils;
 
-import java.text.DecimalFormat;
-
-import org.cloudbus.cloudsim.core.CloudSim;
-
+/**
+ * @deprecated the messages of the entities go to {@link FogLog}.
+ */
+@Deprecated
 public class Logger {
 
 	public static final int ERROR = 1;
 	public static final int DEBUG = 0;
 
 	public static int LOG_LEVEL = Logger.DEBUG;
-	private static DecimalFormat df = new DecimalFormat("#.00");
 
 	public static boolean ENABLED = false;;
 
@@ -22,14 +21,14 @@ public class Logger {
 		if (!ENABLED)
 			return;
 		if (Logger.LOG_LEVEL <= Logger.DEBUG)
-			System.out.println(df.format(CloudSim.clock()) + " : " + name + " : " + message);
+			FogLog.debug(name, message);
 	}
 
 	public static void error(String name, String message) {
 		if (!ENABLED)
 			return;
 		if (Logger.LOG_LEVEL <= Logger.ERROR)
-			System.out.println(df.format(CloudSim.clock()) + " : " + name + " : " + message);
+			FogLog.error(name, message);
 	}
 
 }
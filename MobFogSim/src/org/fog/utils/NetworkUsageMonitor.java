@@ -1,32 +1,52 @@
 package org.fog.utils;
 
-public class NetworkUsageMonitor {
+import java.io.Serializable;
 
-	private static double networkUsageDevice = 0.0;
-	private static double networkUsageCoudlets = 0.0;
-	private static double networkUsageVMs = 0.0;
+import org.cloudbus.cloudsim.core.SimulationContext;
+
+public class NetworkUsageMonitor implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final SimulationContext.Key<NetworkUsageMonitor> MONITOR =
+		new SimulationContext.Key<NetworkUsageMonitor>() {
+
+			@Override
+			protected NetworkUsageMonitor initialValue() {
+				return new NetworkUsageMonitor();
+			}
+		};
+
+	private double networkUsageDevice = 0.0;
+	private double networkUsageCoudlets = 0.0;
+	private double networkUsageVMs = 0.0;
+
+	private static NetworkUsageMonitor current() {
+		return SimulationContext.current().get(MONITOR);
+	}
 
 	public static void sendingTuple(double latency, double tupleNwSize) {
-		networkUsageDevice += latency * tupleNwSize;
+		current().networkUsageDevice += latency * tupleNwSize;
 	}
 
 	public static double getNetworkUsage() {
-		return networkUsageDevice + networkUsageCoudlets;
+		NetworkUsageMonitor monitor = current();
+		return monitor.networkUsageDevice + monitor.networkUsageCoudlets;
 	}
 
 	public static void migrationTrafficUsage(double migrationDurationTime, double vmSize) {
-		networkUsageCoudlets += migrationDurationTime * vmSize;
+		current().networkUsageCoudlets += migrationDurationTime * vmSize;
 	}
 
 	public static double getNetWorkUsageInMigration() {
-		return networkUsageCoudlets;
+		return current().networkUsageCoudlets;
 	}
 
 	public static void migrationVMTransferredData(double vmSize) {
-		networkUsageVMs += vmSize;
+		current().networkUsageVMs += vmSize;
 	}
 
 	public static double getVMTransferredData() {
-		return networkUsageVMs;
+		return current().networkUsageVMs;
 	}
 }
@@ -0,0 +1,98 @@
+package org.fog.utils;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * A long-lived output stream to one file, opened in append mode. Lines are
+ * collected in memory and written when the buffer reaches
+ * {@link OutputSinks#getBufferSize()}, when {@link OutputSinks} flushes every
+ * sink of the simulation after {@link OutputSinks#getFlushInterval()}
+ * milliseconds, and when the sink is closed. Sinks are created by {@link OutputSinks#get(String)} and are
+ * meant to be used by the simulation thread only.
+ */
+public class OutputSink {
+
+	private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+	private final OutputSinks.Sinks sinks;
+	private final String fileName;
+	private final Writer writer;
+	private final StringBuilder buffer = new StringBuilder();
+	private boolean closed;
+
+	OutputSink(OutputSinks.Sinks sinks, String fileName) throws IOException {
+		this.sinks = sinks;
+		this.fileName = fileName;
+		this.writer = new FileWriter(fileName, true);
+	}
+
+	public String getFileName() {
+		return fileName;
+	}
+
+	/**
+	 * Appends a line, like {@link java.io.PrintWriter#println(String)}.
+	 *
+	 * @param line
+	 *        - the line, without the line separator
+	 */
+	public void println(String line) {
+		if (closed) {
+			throw new IllegalStateException("Output sink closed: " + fileName);
+		}
+		buffer.append(line).append(LINE_SEPARATOR);
+		if (buffer.length() >= OutputSinks.getBufferSize()) {
+			flush();
+		}
+		sinks.flushIfDue();
+	}
+
+	/**
+	 * Hands the buffered lines to the file, or to the async writer thread
+	 * when it is enabled.
+	 */
+	public void flush() {
+		if (buffer.length() == 0) {
+			return;
+		}
+		String text = buffer.toString();
+		buffer.setLength(0);
+		sinks.write(this, text);
+	}
+
+	void close() {
+		if (closed) {
+			return;
+		}
+		flush();
+		closed = true;
+		sinks.close(this);
+	}
+
+	boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * Writes text to the file. Called by the simulation thread, or by the
+	 * async writer thread only, when it is enabled.
+	 */
+	void writeNow(String text) {
+		try {
+			writer.write(text);
+			writer.flush();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	void closeNow() {
+		try {
+			writer.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+}
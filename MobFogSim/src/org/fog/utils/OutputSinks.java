@@ -0,0 +1,300 @@
+package org.fog.utils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.cloudbus.cloudsim.core.SimulationContext;
+
+/**
+ * The registry of the {@link OutputSink}s of the simulation: one buffered,
+ * long-lived stream per output file instead of opening and closing a
+ * FileWriter for every line. The sinks are closed by the controller at
+ * STOP_SIMULATION (and by a shutdown hook, if the JVM exits before that).
+ * <p>
+ * Each simulation context has sinks of its own, flushed and closed with it, so
+ * several simulations can run at once in the same JVM.
+ * <p>
+ * Writes can optionally be done by a background thread, so the simulation
+ * thread only copies the buffered lines into a queue and never blocks on the
+ * disk. The mode must be chosen before the first sink is opened.
+ */
+public class OutputSinks {
+
+	/** The default size, in chars, of the buffer of each sink. */
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+	/** The default maximum time, in milliseconds, a line stays in memory. */
+	public static final long DEFAULT_FLUSH_INTERVAL = 5000;
+
+	/** The sinks of each context; they are not saved in the checkpoints. */
+	private static final SimulationContext.Key<Sinks> SINKS = new SimulationContext.Key<Sinks>();
+
+	/** The sinks of all the contexts with open files, for the shutdown hook. */
+	private static final Set<Sinks> open = new LinkedHashSet<>();
+	private static int bufferSize = DEFAULT_BUFFER_SIZE;
+	private static long flushInterval = DEFAULT_FLUSH_INTERVAL;
+	private static boolean async = Boolean.getBoolean("mobfogsim.output.async");
+	private static boolean shutdownHook;
+
+	/**
+	 * Gets the sink of a file, opening it (in append mode) on the first call.
+	 * As with a FileWriter, the file is created even if nothing is written.
+	 * Relative names are resolved against the {@link RunDirectory}.
+	 *
+	 * @param fileName
+	 *        - the file name
+	 * @return the sink, or null if the file can not be opened
+	 */
+	public static OutputSink get(String fileName) {
+		fileName = RunDirectory.path(fileName);
+		Sinks sinks = sinks();
+		OutputSink sink = sinks.sinks.get(fileName);
+		if (sink != null) {
+			return sink;
+		}
+		try {
+			sink = new OutputSink(sinks, fileName);
+		} catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
+		if (sinks.sinks.isEmpty()) {
+			opened(sinks);
+		}
+		sinks.sinks.put(fileName, sink);
+		return sink;
+	}
+
+	/** Gets the sinks of the current context. */
+	private static Sinks sinks() {
+		SimulationContext context = SimulationContext.current();
+		Sinks sinks = context.get(SINKS);
+		if (sinks == null) {
+			sinks = new Sinks();
+			context.set(SINKS, sinks);
+		}
+		return sinks;
+	}
+
+	/** Registers the sinks of a context for the shutdown hook. */
+	private static synchronized void opened(Sinks sinks) {
+		if (!shutdownHook) {
+			Runtime.getRuntime().addShutdownHook(new Thread("OutputSinks shutdown") {
+
+				@Override
+				public void run() {
+					synchronized (OutputSinks.class) {
+						for (Sinks sinks : new ArrayList<>(open)) {
+							sinks.closeAll();
+						}
+						open.clear();
+					}
+				}
+			});
+			shutdownHook = true;
+		}
+		open.add(sinks);
+	}
+
+	/**
+	 * Appends a line to a file through its sink.
+	 *
+	 * @param fileName
+	 *        - the file name
+	 * @param line
+	 *        - the line, without the line separator
+	 */
+	public static void println(String fileName, String line) {
+		OutputSink sink = get(fileName);
+		if (sink != null) {
+			sink.println(line);
+		}
+	}
+
+	/**
+	 * Flushes all the sinks of the current context.
+	 */
+	public static void flushAll() {
+		sinks().flushAll();
+	}
+
+	/**
+	 * Flushes and closes all the sinks of the current context and waits for
+	 * its async writer thread, if any, to write everything. Sinks requested
+	 * afterwards are opened again.
+	 */
+	public static void closeAll() {
+		Sinks sinks = sinks();
+		synchronized (OutputSinks.class) {
+			sinks.closeAll();
+			open.remove(sinks);
+		}
+	}
+
+	public static int getBufferSize() {
+		return bufferSize;
+	}
+
+	public static void setBufferSize(int bufferSize) {
+		if (bufferSize <= 0) {
+			throw new IllegalArgumentException("Buffer size must be positive: " + bufferSize);
+		}
+		OutputSinks.bufferSize = bufferSize;
+	}
+
+	public static long getFlushInterval() {
+		return flushInterval;
+	}
+
+	public static void setFlushInterval(long flushInterval) {
+		OutputSinks.flushInterval = flushInterval;
+	}
+
+	public static boolean isAsync() {
+		return async;
+	}
+
+	/**
+	 * Enables or disables the async writer thread. It can also be enabled with
+	 * <tt>-Dmobfogsim.output.async=true</tt>.
+	 *
+	 * @param async
+	 *        - true to write from a background thread
+	 */
+	public static synchronized void setAsync(boolean async) {
+		if (!open.isEmpty() && async != OutputSinks.async) {
+			throw new IllegalStateException("Output sinks already open");
+		}
+		OutputSinks.async = async;
+	}
+
+	/**
+	 * The sinks of a simulation context, with the time they were last flushed
+	 * and their async writer thread, if any.
+	 */
+	static class Sinks {
+
+		private final Map<String, OutputSink> sinks = new LinkedHashMap<>();
+		private long lastFlush = System.currentTimeMillis();
+		private AsyncWriter asyncWriter;
+
+		void flushAll() {
+			for (OutputSink sink : sinks.values()) {
+				sink.flush();
+			}
+			lastFlush = System.currentTimeMillis();
+		}
+
+		void closeAll() {
+			for (OutputSink sink : new ArrayList<>(sinks.values())) {
+				sink.close();
+			}
+			sinks.clear();
+			if (asyncWriter != null) {
+				asyncWriter.finish();
+				asyncWriter = null;
+			}
+		}
+
+		void flushIfDue() {
+			if (System.currentTimeMillis() - lastFlush >= flushInterval) {
+				flushAll();
+			}
+		}
+
+		void write(OutputSink sink, String text) {
+			if (async) {
+				asyncWriter().submit(sink, text, false);
+			}
+			else {
+				sink.writeNow(text);
+			}
+		}
+
+		void close(OutputSink sink) {
+			if (async) {
+				asyncWriter().submit(sink, null, true);
+			}
+			else {
+				sink.closeNow();
+			}
+		}
+
+		private AsyncWriter asyncWriter() {
+			if (asyncWriter == null) {
+				asyncWriter = new AsyncWriter();
+				asyncWriter.start();
+			}
+			return asyncWriter;
+		}
+	}
+
+	/**
+	 * The background thread that writes the flushed text of the sinks, in the
+	 * order it was flushed.
+	 */
+	private static class AsyncWriter extends Thread {
+
+		private static final Chunk END = new Chunk(null, null, false);
+
+		private final BlockingQueue<Chunk> queue = new LinkedBlockingQueue<>();
+
+		AsyncWriter() {
+			super("OutputSinks writer");
+			setDaemon(true);
+		}
+
+		void submit(OutputSink sink, String text, boolean close) {
+			queue.add(new Chunk(sink, text, close));
+		}
+
+		void finish() {
+			queue.add(END);
+			try {
+				join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				Chunk chunk;
+				try {
+					chunk = queue.take();
+				} catch (InterruptedException e) {
+					continue;
+				}
+				if (chunk == END) {
+					return;
+				}
+				if (chunk.close) {
+					chunk.sink.closeNow();
+				}
+				else {
+					chunk.sink.writeNow(chunk.text);
+				}
+			}
+		}
+	}
+
+	private static class Chunk {
+
+		private final OutputSink sink;
+		private final String text;
+		private final boolean close;
+
+		Chunk(OutputSink sink, String text, boolean close) {
+			this.sink = sink;
+			this.text = text;
+			this.close = close;
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package org.fog.utils;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Collection;
+import java.util.Map;
+
+import org.apache.commons.math3.util.Pair;
+
+/**
+ * Writes and reads the commons-math {@link Pair}s of the simulation objects,
+ * which are not serializable, as their two elements, for the
+ * <tt>writeObject</tt> and <tt>readObject</tt> methods of the objects holding
+ * them in transient fields.
+ */
+public class Pairs {
+
+	private Pairs() {
+	}
+
+	/**
+	 * Writes a collection of pairs, in its iteration order.
+	 *
+	 * @param out
+	 *        - the stream
+	 * @param pairs
+	 *        - the pairs, or null
+	 */
+	public static <K, V> void write(ObjectOutputStream out, Collection<Pair<K, V>> pairs)
+		throws IOException {
+		out.writeInt(pairs == null ? -1 : pairs.size());
+		if (pairs != null) {
+			for (Pair<K, V> pair : pairs) {
+				out.writeObject(pair.getFirst());
+				out.writeObject(pair.getSecond());
+			}
+		}
+	}
+
+	/**
+	 * Reads a collection of pairs written by {@link #write(ObjectOutputStream, Collection)}.
+	 *
+	 * @param in
+	 *        - the stream
+	 * @param pairs
+	 *        - an empty collection, filled with the pairs
+	 * @return the collection, or null if a null collection was written
+	 */
+	@SuppressWarnings("unchecked")
+	public static <K, V, C extends Collection<Pair<K, V>>> C read(ObjectInputStream in, C pairs)
+		throws IOException, ClassNotFoundException {
+		int size = in.readInt();
+		if (size < 0) {
+			return null;
+		}
+		for (int i = 0; i < size; i++) {
+			pairs.add(new Pair<K, V>((K) in.readObject(), (V) in.readObject()));
+		}
+		return pairs;
+	}
+
+	/**
+	 * Writes a map with pair keys, in its iteration order.
+	 *
+	 * @param out
+	 *        - the stream
+	 * @param map
+	 *        - the map, or null
+	 */
+	public static <K, V, T> void writeMap(ObjectOutputStream out, Map<Pair<K, V>, T> map)
+		throws IOException {
+		out.writeInt(map == null ? -1 : map.size());
+		if (map != null) {
+			for (Map.Entry<Pair<K, V>, T> entry : map.entrySet()) {
+				out.writeObject(entry.getKey().getFirst());
+				out.writeObject(entry.getKey().getSecond());
+				out.writeObject(entry.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Reads a map written by {@link #writeMap(ObjectOutputStream, Map)}.
+	 * Filled in the same order, a map of the same class and capacity iterates
+	 * in the same order as the written one.
+	 *
+	 * @param in
+	 *        - the stream
+	 * @param map
+	 *        - an empty map, filled with the entries
+	 * @return the map, or null if a null map was written
+	 */
+	@SuppressWarnings("unchecked")
+	public static <K, V, T, M extends Map<Pair<K, V>, T>> M readMap(ObjectInputStream in, M map)
+		throws IOException, ClassNotFoundException {
+		int size = in.readInt();
+		if (size < 0) {
+			return null;
+		}
+		for (int i = 0; i < size; i++) {
+			map.put(new Pair<K, V>((K) in.readObject(), (V) in.readObject()), (T) in.readObject());
+		}
+		return map;
+	}
+}
@@ -0,0 +1,126 @@
+package org.fog.utils;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.cloudbus.cloudsim.core.SimulationContext;
+
+/**
+ * Runs the same task on every index of a batch, split among the threads of a
+ * shared fork-join pool. It is meant for the compute phase of a two-phase
+ * step: each task only reads the simulation and writes its own slot of an
+ * array, and the results are then applied by the simulation thread in index
+ * order, so a run gives the same results whatever the number of threads.
+ * <p>
+ * The threads of the pool are bound to the simulation context of the caller
+ * while they run its tasks, so the state kept in the context can be read.
+ * Anything a task reads lazily (an index, a context value) must have been
+ * created beforehand by the simulation thread.
+ * <p>
+ * The number of threads is set with <tt>-Dmobfogsim.parallelism</tt> and
+ * defaults to the number of processors; with 1, or with batches smaller than
+ * {@link #MIN_SIZE}, the tasks are run by the calling thread. Sweeps that run
+ * several simulations at once (see
+ * {@link org.fog.vmmobile.ExperimentRunner}) may want to lower it.
+ */
+public class ParallelBatch {
+
+	/** Batches smaller than this are run by the calling thread. */
+	public static final int MIN_SIZE = 64;
+
+	/** The number of indexes run by a thread without splitting further. */
+	private static final int CHUNK_SIZE = 32;
+
+	private static final int parallelism = Math.max(1, Integer.getInteger(
+		"mobfogsim.parallelism", Runtime.getRuntime().availableProcessors()));
+	private static ForkJoinPool pool;
+
+	/**
+	 * The task run on each index of a batch.
+	 */
+	public interface Task {
+
+		/**
+		 * Runs the task on an index. It may be called by any thread, at the
+		 * same time as for other indexes.
+		 *
+		 * @param index
+		 *        - the index, from 0 to the size of the batch
+		 */
+		void run(int index);
+	}
+
+	/**
+	 * Runs a task on the indexes from 0 to size - 1 and waits for all of them
+	 * to be done.
+	 *
+	 * @param size
+	 *        - the size of the batch
+	 * @param task
+	 *        - the task
+	 */
+	public static void forEach(int size, Task task) {
+		if (parallelism == 1 || size < MIN_SIZE) {
+			for (int i = 0; i < size; i++) {
+				task.run(i);
+			}
+			return;
+		}
+		pool().invoke(new Range(SimulationContext.current(), task, 0, size));
+	}
+
+	/**
+	 * Gets the number of threads the batches are split among.
+	 *
+	 * @return the parallelism
+	 */
+	public static int getParallelism() {
+		return parallelism;
+	}
+
+	private static synchronized ForkJoinPool pool() {
+		if (pool == null) {
+			pool = new ForkJoinPool(parallelism);
+		}
+		return pool;
+	}
+
+	private static class Range extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final transient SimulationContext context;
+		private final transient Task task;
+		private final int from;
+		private final int to;
+
+		Range(SimulationContext context, Task task, int from, int to) {
+			this.context = context;
+			this.task = task;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > CHUNK_SIZE) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new Range(context, task, from, middle),
+					new Range(context, task, middle, to));
+				return;
+			}
+			// threads that are not bound already see the default context
+			boolean bind = context != SimulationContext.getDefault();
+			SimulationContext previous = bind ? SimulationContext.setCurrent(context) : null;
+			try {
+				for (int i = from; i < to; i++) {
+					task.run(i);
+				}
+			} finally {
+				if (bind) {
+					SimulationContext.setCurrent(previous);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package org.fog.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+import org.cloudbus.cloudsim.core.SimulationContext;
+
+/**
+ * The standard output of the simulations running in the JVM.
+ * <p>
+ * The simulation prints its reports with <tt>System.out</tt>. Once
+ * {@link #install()} has been called, <tt>System.out</tt> writes to the stream
+ * set for the current simulation context with {@link #set(PrintStream)}, or to
+ * the console when none has been set, instead of each run replacing the
+ * standard output of the JVM. Several simulations running at once, one
+ * per thread (see {@link org.fog.vmmobile.ExperimentRunner}), thus each print
+ * to a file of their own.
+ */
+public class RunConsole {
+
+	private static final SimulationContext.Key<PrintStream> OUT = new SimulationContext.Key<PrintStream>();
+
+	/** The standard output of the JVM before the install. */
+	private static PrintStream console;
+
+	private RunConsole() {
+	}
+
+	/**
+	 * Makes <tt>System.out</tt> write to the stream of the current context.
+	 * Does nothing if already done.
+	 */
+	public static synchronized void install() {
+		if (console == null) {
+			console = System.out;
+			System.setOut(new PrintStream(new ContextOutput()));
+		}
+	}
+
+	/**
+	 * Gets the standard output of the JVM, out of any simulation.
+	 *
+	 * @return the console
+	 */
+	public static synchronized PrintStream getConsole() {
+		return console != null ? console : System.out;
+	}
+
+	/**
+	 * Sets the standard output of the current simulation context, installing
+	 * the routing of <tt>System.out</tt> if not done yet.
+	 *
+	 * @param out
+	 *        - the stream, or null for the console
+	 * @return the stream the context printed to before, or null for the
+	 *         console
+	 */
+	public static PrintStream set(PrintStream out) {
+		install();
+		SimulationContext context = SimulationContext.current();
+		PrintStream previous = context.get(OUT);
+		context.set(OUT, out);
+		return previous;
+	}
+
+	/** The bytes printed, sent to the stream of the current context. */
+	private static class ContextOutput extends OutputStream {
+
+		@Override
+		public void write(int b) throws IOException {
+			PrintStream out = SimulationContext.current().get(OUT);
+			if (out != null) {
+				out.write(b);
+			} else {
+				console.write(b);
+				console.flush();
+			}
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			PrintStream out = SimulationContext.current().get(OUT);
+			if (out != null) {
+				out.write(b, off, len);
+			} else {
+				console.write(b, off, len);
+				console.flush();
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			PrintStream out = SimulationContext.current().get(OUT);
+			(out != null ? out : console).flush();
+		}
+	}
+}
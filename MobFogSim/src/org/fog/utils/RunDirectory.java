@@ -0,0 +1,70 @@
+package org.fog.utils;
+
+import java.io.File;
+
+import org.cloudbus.cloudsim.core.SimulationContext;
+
+/**
+ * The directory the text logs and results of a simulation are written to.
+ * <p>
+ * The output files of the simulation are named relative to this directory,
+ * which is the working directory unless another one has been set for the
+ * current simulation context. It lets several runs in the same JVM (see
+ * {@link org.fog.vmmobile.SimulationServer}) each write to a directory of its
+ * own.
+ */
+public class RunDirectory {
+
+	private static final SimulationContext.Key<File> DIRECTORY = new SimulationContext.Key<File>();
+
+	private RunDirectory() {
+	}
+
+	/**
+	 * Gets the directory of the current simulation.
+	 *
+	 * @return the directory, or null for the working directory
+	 */
+	public static File get() {
+		return SimulationContext.current().get(DIRECTORY);
+	}
+
+	/**
+	 * Sets the directory of the current simulation.
+	 *
+	 * @param directory
+	 *        - the directory, or null for the working directory
+	 */
+	public static void set(File directory) {
+		SimulationContext.current().set(DIRECTORY, directory);
+	}
+
+	/**
+	 * Resolves the name of an output file against the directory of the current
+	 * simulation.
+	 *
+	 * @param name
+	 *        - the file name, relative or absolute
+	 * @return the file
+	 */
+	public static File resolve(String name) {
+		File file = new File(name);
+		File directory = get();
+		if (directory == null || file.isAbsolute()) {
+			return file;
+		}
+		return new File(directory, name);
+	}
+
+	/**
+	 * Resolves the name of an output file like {@link #resolve(String)}, as a
+	 * path.
+	 *
+	 * @param name
+	 *        - the file name, relative or absolute
+	 * @return the path, the name itself in the working directory
+	 */
+	public static String path(String name) {
+		return get() == null ? name : resolve(name).getPath();
+	}
+}
@@ -1,47 +1,160 @@
 package org.fog.utils;
 
+import java.io.Serializable;
 import java.util.HashMap;
-import java.util.List;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimulationContext;
 import org.fog.entities.Tuple;
 
-public class TimeKeeper {
+public class TimeKeeper implements Serializable {
 
-	private static TimeKeeper instance;
+	private static final long serialVersionUID = 1L;
+
+	/** The instance of each simulation. */
+	private static final SimulationContext.Key<TimeKeeper> INSTANCE =
+		new SimulationContext.Key<TimeKeeper>() {
+
+			@Override
+			protected TimeKeeper initialValue() {
+				return new TimeKeeper();
+			}
+		};
+
+	/**
+	 * The default time, in simulated ms, after which a tuple that has not
+	 * completed its loop is considered lost.
+	 */
+	public static final double DEFAULT_MAX_TUPLE_AGE = 3600 * 1000;
 
 	private long simulationStartTime;
 	private int count;
-	private Map<Integer, Double> emitTimes;
-	private Map<Integer, Double> endTimes;
-	private Map<Integer, List<Integer>> loopIdToTupleIds;
-	private Map<Integer, Double> tupleIdToCpuStartTime;
+
+	/** The emission time of the tuples in a loop, by actual tuple id. */
+	private IntDoubleMap emitTimes;
+
+	/** The latency statistics of each loop that has emitted tuples. */
+	private Map<Integer, LatencyStats> loopStats;
+
+	/** The start time of the tuples being executed, by cloudlet id. */
+	private IntDoubleMap tupleIdToCpuStartTime;
 	private Map<String, Double> tupleTypeToAverageCpuTime;
 	private Map<String, Integer> tupleTypeToExecutedTupleCount;
-	private Map<Integer, Double> maxLoopExecutionTime;
 
-	private Map<Integer, Double> loopIdToCurrentAverage;
-	private Map<Integer, Integer> loopIdToCurrentNum;
+	private double maxTupleAge = DEFAULT_MAX_TUPLE_AGE;
+
+	/** The size of the maps after the last removal of the old entries. */
+	private int emitTimesSwept;
+	private int cpuStartTimesSwept;
 
 	public static TimeKeeper getInstance() {
-		if (instance == null)
-			instance = new TimeKeeper();
-		return instance;
+		return SimulationContext.current().get(INSTANCE);
 	}
 
 	public int getUniqueId() {
 		return count++;
 	}
 
+	/**
+	 * Records the emission of the first tuple of a loop.
+	 * <p>
+	 * The emission times of the tuples that never complete their loop, like
+	 * the ones discarded by a fractional selectivity, are forgotten once they
+	 * are older than {@link #getMaxTupleAge()}, so the map does not grow with
+	 * the length of the simulation.
+	 *
+	 * @param loopId
+	 *        - the loop
+	 * @param tupleId
+	 *        - the actual tuple id, from {@link #getUniqueId()}
+	 */
+	public void tupleEmitted(int loopId, int tupleId) {
+		emitTimes.put(tupleId, CloudSim.clock());
+		if (emitTimes.size() >= 2 * emitTimesSwept + 1024) {
+			emitTimes.removeValuesBelow(CloudSim.clock() - maxTupleAge);
+			emitTimesSwept = emitTimes.size();
+		}
+	}
+
+	/**
+	 * Gets the emission time of a tuple.
+	 *
+	 * @param tupleId
+	 *        - the actual tuple id
+	 * @return the time, or NaN if the tuple is unknown or its loop was
+	 *         already completed
+	 */
+	public double getEmitTime(int tupleId) {
+		return emitTimes.get(tupleId, Double.NaN);
+	}
+
+	/**
+	 * Records the completion of the loop of a tuple and forgets the tuple.
+	 *
+	 * @param loopId
+	 *        - the loop
+	 * @param tupleId
+	 *        - the actual tuple id
+	 * @param delay
+	 *        - the latency of the loop
+	 */
+	public void loopCompleted(int loopId, int tupleId, double delay) {
+		emitTimes.remove(tupleId, Double.NaN);
+		getLoopStats(loopId).add(delay);
+	}
+
+	/**
+	 * Forgets a tuple that will not complete its loop, for example a tuple lost
+	 * during a handoff or a migration.
+	 *
+	 * @param tuple
+	 *        - the tuple
+	 */
+	public void tupleDropped(Tuple tuple) {
+		emitTimes.remove(tuple.getActualTupleId(), Double.NaN);
+		tupleIdToCpuStartTime.remove(tuple.getCloudletId(), Double.NaN);
+	}
+
+	/**
+	 * Gets the latency statistics of a loop, creating them if needed.
+	 */
+	public LatencyStats getLoopStats(int loopId) {
+		LatencyStats stats = loopStats.get(loopId);
+		if (stats == null) {
+			stats = new LatencyStats();
+			loopStats.put(loopId, stats);
+		}
+		return stats;
+	}
+
+	/**
+	 * Gets the latency statistics of the loops whose end module has received
+	 * a tuple, by loop id, in the order of their first tuple.
+	 */
+	public Map<Integer, LatencyStats> getLoopStats() {
+		return loopStats;
+	}
+
+	/** Gets the number of tuples whose loop has not completed yet. */
+	public int getPendingTuples() {
+		return emitTimes.size();
+	}
+
 	public void tupleStartedExecution(Tuple tuple) {
 		tupleIdToCpuStartTime.put(tuple.getCloudletId(), CloudSim.clock());
+		if (tupleIdToCpuStartTime.size() >= 2 * cpuStartTimesSwept + 1024) {
+			tupleIdToCpuStartTime.removeValuesBelow(CloudSim.clock() - maxTupleAge);
+			cpuStartTimesSwept = tupleIdToCpuStartTime.size();
+		}
 	}
 
 	public void tupleEndedExecution(Tuple tuple) {
-		if (!tupleIdToCpuStartTime.containsKey(tuple.getCloudletId()))
+		double startTime = tupleIdToCpuStartTime.remove(tuple.getCloudletId(), Double.NaN);
+		if (Double.isNaN(startTime))
 			return;
-		double executionTime = CloudSim.clock() - tupleIdToCpuStartTime.get(tuple.getCloudletId());
+		double executionTime = CloudSim.clock() - startTime;
 
 		if (!tupleTypeToAverageCpuTime.containsKey(tuple.getTupleType())) {
 			tupleTypeToAverageCpuTime.put(tuple.getTupleType(), executionTime);
@@ -54,21 +167,13 @@ public class TimeKeeper {
 		}
 	}
 
-	public Map<Integer, List<Integer>> loopIdToTupleIds() {
-		return getInstance().getLoopIdToTupleIds();
-	}
-
 	private TimeKeeper() {
 		count = 1;
-		setEmitTimes(new HashMap<Integer, Double>());
-		setEndTimes(new HashMap<Integer, Double>());
-		setLoopIdToTupleIds(new HashMap<Integer, List<Integer>>());
+		emitTimes = new IntDoubleMap();
+		loopStats = new LinkedHashMap<>();
+		tupleIdToCpuStartTime = new IntDoubleMap();
 		setTupleTypeToAverageCpuTime(new HashMap<String, Double>());
 		setTupleTypeToExecutedTupleCount(new HashMap<String, Integer>());
-		setTupleIdToCpuStartTime(new HashMap<Integer, Double>());
-		setLoopIdToCurrentAverage(new HashMap<Integer, Double>());
-		setLoopIdToCurrentNum(new HashMap<Integer, Integer>());
-		setMaxLoopExecutionTime(new HashMap<Integer, Double>());
 	}
 
 	public int getCount() {
@@ -79,30 +184,6 @@ public class TimeKeeper {
 		this.count = count;
 	}
 
-	public Map<Integer, Double> getEmitTimes() {
-		return emitTimes;
-	}
-
-	public void setEmitTimes(Map<Integer, Double> emitTimes) {
-		this.emitTimes = emitTimes;
-	}
-
-	public Map<Integer, Double> getEndTimes() {
-		return endTimes;
-	}
-
-	public void setEndTimes(Map<Integer, Double> endTimes) {
-		this.endTimes = endTimes;
-	}
-
-	public Map<Integer, List<Integer>> getLoopIdToTupleIds() {
-		return loopIdToTupleIds;
-	}
-
-	public void setLoopIdToTupleIds(Map<Integer, List<Integer>> loopIdToTupleIds) {
-		this.loopIdToTupleIds = loopIdToTupleIds;
-	}
-
 	public Map<String, Double> getTupleTypeToAverageCpuTime() {
 		return tupleTypeToAverageCpuTime;
 	}
@@ -121,12 +202,16 @@ public class TimeKeeper {
 		this.tupleTypeToExecutedTupleCount = tupleTypeToExecutedTupleCount;
 	}
 
-	public Map<Integer, Double> getTupleIdToCpuStartTime() {
-		return tupleIdToCpuStartTime;
+	public double getMaxTupleAge() {
+		return maxTupleAge;
 	}
 
-	public void setTupleIdToCpuStartTime(Map<Integer, Double> tupleIdToCpuStartTime) {
-		this.tupleIdToCpuStartTime = tupleIdToCpuStartTime;
+	/**
+	 * Sets the time, in simulated ms, after which a tuple that has not
+	 * completed its loop is considered lost and forgotten.
+	 */
+	public void setMaxTupleAge(double maxTupleAge) {
+		this.maxTupleAge = maxTupleAge;
 	}
 
 	public long getSimulationStartTime() {
@@ -137,28 +222,4 @@ public class TimeKeeper {
 		this.simulationStartTime = simulationStartTime;
 	}
 
-	public Map<Integer, Double> getLoopIdToCurrentAverage() {
-		return loopIdToCurrentAverage;
-	}
-
-	public void setLoopIdToCurrentAverage(Map<Integer, Double> loopIdToCurrentAverage) {
-		this.loopIdToCurrentAverage = loopIdToCurrentAverage;
-	}
-
-	public Map<Integer, Integer> getLoopIdToCurrentNum() {
-		return loopIdToCurrentNum;
-	}
-
-	public void setLoopIdToCurrentNum(Map<Integer, Integer> loopIdToCurrentNum) {
-		this.loopIdToCurrentNum = loopIdToCurrentNum;
-	}
-
-	public Map<Integer, Double> getMaxLoopExecutionTime() {
-		return maxLoopExecutionTime;
-	}
-
-	public void setMaxLoopExecutionTime(Map<Integer, Double> maxLoopExecutionTime) {
-		this.maxLoopExecutionTime = maxLoopExecutionTime;
-	}
-
 }
@@ -4,6 +4,8 @@ import java.util.Random;
 
 public class NormalDistribution extends Distribution {
 
+	private static final long serialVersionUID = 1L;
+
 	private double mean;
 	private double stdDev;
 
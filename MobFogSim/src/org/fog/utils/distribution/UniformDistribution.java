@@ -2,6 +2,8 @@ package org.fog.utils.distribution;
 
 public class UniformDistribution extends Distribution {
 
+	private static final long serialVersionUID = 1L;
+
 	private double min;
 	private double max;
 
@@ -0,0 +1,23 @@
+package org.fog.vmmigration;
+
+import java.util.List;
+
+import org.fog.entities.MobileDevice;
+
+/**
+ * A migration strategy that can decide for several smart things at once, for
+ * example with a single request to an external service. Before asking each
+ * smart thing in turn, the server cloudlet gives the strategy all the ones it
+ * is about to evaluate.
+ */
+public interface BatchDecisionMigration extends DecisionMigration {
+
+	/**
+	 * Makes the decisions of the next {@link #shouldMigrate(MobileDevice)}
+	 * calls for these smart things.
+	 *
+	 * @param smartThings
+	 *        - the smart things about to be evaluated
+	 */
+	public void prepareDecisions(List<MobileDevice> smartThings);
+}
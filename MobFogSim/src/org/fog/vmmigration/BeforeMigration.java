@@ -1,9 +1,11 @@
 package org.fog.vmmigration;
 
+import java.io.Serializable;
+
 import org.fog.entities.FogDevice;
 import org.fog.entities.MobileDevice;
 
-public interface BeforeMigration {
+public interface BeforeMigration extends Serializable {
 	public double dataprepare(MobileDevice smartThing);
 
 	public boolean openConnection(FogDevice sourceServerCloudlet,
@@ -2,13 +2,16 @@ package org.fog.vmmigration;
 
 import org.cloudbus.cloudsim.NetworkTopology;
 import org.fog.entities.MobileDevice;
-import org.fog.localization.Distances;
+import org.fog.localization.Geometry;
+import org.fog.utils.FogLog;
 import org.fog.vmmobile.constants.Directions;
 import org.fog.vmmobile.constants.MaxAndMin;
 import org.fog.vmmobile.constants.Policies;
 
 public class CompleteVM implements VmMigrationTechnique {
 
+	private static final long serialVersionUID = 1L;
+
 	private int migPointPolicy;
 
 	public CompleteVM(int migPointPolicy) {
@@ -32,29 +35,31 @@ public class CompleteVM implements VmMigrationTechnique {
 	}
 
 	@Override
-	public boolean migPointPolicyFunction(int policy, MobileDevice smartThing) {
+	public boolean migPointPolicyFunction(int policy, final MobileDevice smartThing) {
 
-		double distance = Distances.checkDistance(smartThing.getSourceAp().getCoord(),
+		double distance = Geometry.distance(smartThing.getSourceAp().getCoord(),
 			smartThing.getCoord());
-		double bandwidth = smartThing.getVmLocalServerCloudlet().getUplinkBandwidth();
-
-		smartThing
-			.setMigTime(migrationTimeFunction(smartThing.getVmMobileDevice().getSize()// vmSize
-				, bandwidth)
-				+ smartThing.getVmLocalServerCloudlet().getUplinkLatency() // Link Latency
-				+ NetworkTopology.getDelay(smartThing.getId(), smartThing
-					.getVmLocalServerCloudlet().getId())
-				+ LatencyByDistance.latencyConnection(smartThing.getVmLocalServerCloudlet(),
-					smartThing));
-		System.out.println("Container VM " + smartThing.getMigTime() + " size: "
-				+ smartThing.getVmMobileDevice().getSize() + " bandwidth: " + bandwidth
-				+ " tempo " + migrationTimeFunction(smartThing.getVmMobileDevice().getSize(), bandwidth)
-				+ " cloudlet uplink latency " + smartThing.getVmLocalServerCloudlet().getUplinkLatency()
-				+ " delay st cloudlet " + NetworkTopology.getDelay(smartThing.getId(), smartThing
-					.getVmLocalServerCloudlet().getId())
-				+ " latency distance cloud st "
-				+ LatencyByDistance.latencyConnection(smartThing.getVmLocalServerCloudlet(),
-					smartThing));
+		final double bandwidth = smartThing.getVmLocalServerCloudlet().getUplinkBandwidth();
+		final double transferTime = migrationTimeFunction(smartThing.getVmMobileDevice()
+			.getSize(), bandwidth);
+		final double uplinkLatency = smartThing.getVmLocalServerCloudlet().getUplinkLatency();
+		final double delay = NetworkTopology.getDelay(smartThing.getId(), smartThing
+			.getVmLocalServerCloudlet().getId());
+		final double latencyDistance = LatencyByDistance.latencyConnection(
+			smartThing.getVmLocalServerCloudlet(), smartThing);
+
+		smartThing.setMigTime(transferTime + uplinkLatency + delay + latencyDistance);
+		FogLog.debug("CompleteVM.java", new FogLog.Message() {
+
+			@Override
+			public String get() {
+				return "Container VM " + smartThing.getMigTime() + " size: "
+					+ smartThing.getVmMobileDevice().getSize() + " bandwidth: " + bandwidth + " tempo "
+					+ transferTime + " cloudlet uplink latency " + uplinkLatency
+					+ " delay st cloudlet " + delay + " latency distance cloud st "
+					+ latencyDistance;
+			}
+		});
 		if (policy == Policies.FIXED_MIGRATION_POINT) {
 			return migrationPointFunction(distance);
 		}
@@ -1,8 +1,10 @@
 package org.fog.vmmigration;
 
+import java.io.Serializable;
+
 import org.fog.entities.MobileDevice;
 
-public interface DecisionMigration {
+public interface DecisionMigration extends Serializable {
 
 	public boolean shouldMigrate(MobileDevice smartThing);
 }
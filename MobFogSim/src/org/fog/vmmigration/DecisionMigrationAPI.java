@@ -1,21 +1,15 @@
 package org.fog.vmmigration;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.util.*;
 
-import org.cloudbus.cloudsim.core.CloudSim;
 import org.fog.entities.ApDevice;
 import org.fog.entities.FogDevice;
 import org.fog.entities.MobileDevice;
-import org.fog.localization.DiscoverLocalization;
-import org.fog.localization.Distances;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import org.fog.localization.Geometry;
 
-public class DecisionMigrationAPI implements DecisionMigration {
+public class DecisionMigrationAPI implements BatchDecisionMigration {
+
+	private static final long serialVersionUID = 1L;
 
     private List<FogDevice> serverCloudlets;
     private List<ApDevice> apDevices;
@@ -29,6 +23,12 @@ public class DecisionMigrationAPI implements DecisionMigration {
     private boolean migZone;
     private boolean migPoint;
 
+    /** The decisions made by {@link #prepareDecisions(List)} and not used yet. */
+    private final Map<MobileDevice, Boolean> pendingDecisions = new HashMap<>();
+
+    /** The contexts of the smart things evaluated and not decided yet. */
+    private final Map<MobileDevice, MigrationDecisionContext> contexts = new HashMap<>();
+
     public DecisionMigrationAPI(List<FogDevice> serverCloudlets, List<ApDevice> apDevices, int migPointPolicy, int policyReplicaVM) {
         setServerCloudlets(serverCloudlets);
         setApDevices(apDevices);
@@ -37,44 +37,48 @@ public class DecisionMigrationAPI implements DecisionMigration {
     }
 
     @Override
-    public boolean shouldMigrate(MobileDevice smartThing) {
-        setCurrentAP(smartThing.getSourceAp());
-        setSmartThingPosition(DiscoverLocalization.discoverLocal(currentAP.getCoord(), smartThing.getCoord()));
-        smartThing.getMigrationTechnique().verifyPoints(smartThing, getSmartThingPosition());
+    public void prepareDecisions(List<MobileDevice> smartThings) {
+        List<Map<String, Object>> payloads = new ArrayList<>(smartThings.size());
+        for (MobileDevice smartThing : smartThings) {
+            payloads.add(evaluate(smartThing));
+        }
+        boolean[] decisions = MigrationApiClient.getInstance().shouldMigrate(payloads);
+        for (int i = 0; i < decisions.length; i++) {
+            pendingDecisions.put(smartThings.get(i), decisions[i]);
+        }
+    }
 
+    @Override
+    public boolean shouldMigrate(MobileDevice smartThing) {
+        Boolean pending = pendingDecisions.remove(smartThing);
+        boolean decision;
+        if (pending != null) {
+            decision = pending;
+        } else {
+            decision = MigrationApiClient.getInstance()
+                .shouldMigrate(Collections.singletonList(evaluate(smartThing)))[0];
+        }
+        MigrationDecisionContext context = contexts.remove(smartThing);
+        // the ids of the previous smart thing must not be logged with this one
+        setNextServerCloudletId(-1);
+        setNextApId(-1);
         setMigPoint(smartThing.isMigPoint());
         setMigZone(smartThing.isMigZone());
 
-        double posX = smartThing.getCoord().getCoordX();
-        double posY = smartThing.getCoord().getCoordY();
-        double direction = smartThing.getDirection();
-
-        boolean decision = callMigrationAPI(
-            posX,
-            posY,
-            direction,
-            smartThing.getSpeed(),
-            Distances.checkDistance(smartThing.getSourceAp().getCoord(), smartThing.getCoord()),
-            calculateDistanceToLocalCloudlet(smartThing),
-            calculateDistanceToClosestCloudlet(smartThing),
-            isMigPoint(),
-            isMigZone()
-        );
-
         if (!decision) {
-            logMetrics(smartThing, false, "Migration rejected by API");
+            logMetrics(context, false, "Migration rejected by API");
             return false;
         }
 
-        setNextServerCloudletId(Migration.lowestLatencyCostServerCloudlet(serverCloudlets, apDevices, smartThing));
+        setNextServerCloudletId(context.getLowestLatencyServerCloudletId(Migration.LOWEST_LATENCY_CANDIDATES));
         if (getNextServerCloudletId() < 0) {
-            logMetrics(smartThing, false, "No suitable server cloudlet");
+            logMetrics(context, false, "No suitable server cloudlet");
             return false;
         }
 
-        setNextApId(Migration.nextAp(apDevices, smartThing));
+        setNextApId(context.getNextApId());
         if (getNextApId() >= 0 && !Migration.isEdgeAp(apDevices.get(getNextApId()), smartThing)) {
-            logMetrics(smartThing, false, "Next AP is not an edge AP");
+            logMetrics(context, false, "Next AP is not an edge AP");
             return false;
         }
 
@@ -83,41 +87,33 @@ public class DecisionMigrationAPI implements DecisionMigration {
             smartThing.setDestinationAp(apDevices.get(getNextApId()));
         }
 
-        logMetrics(smartThing, true, "Migration approved");
+        logMetrics(context, true, "Migration approved");
         return true;
     }
 
-    private boolean callMigrationAPI(
-        double posX,
-        double posY,
-        double direction,
-        double speed,
-        double distanceToSourceAp,
-        double distanceToLocalCloudlet,
-        double distanceToClosestCloudlet,
-        boolean isMigPoint,
-        boolean isMigZone
-    ) {
-        try {
-            Map<String, Object> payload = buildPayload(
-                posX, posY, direction, speed,
-                distanceToSourceAp, distanceToLocalCloudlet, distanceToClosestCloudlet,
-                isMigPoint, isMigZone
-            );
-
-            String jsonPayload = new ObjectMapper().writeValueAsString(payload);
-            String responseStr = sendHttpRequest("http://127.0.0.1:8000/should_migrate", jsonPayload);
-
-            if (responseStr == null) {
-                System.err.println("API returned no response");
-                return false;
-            }
-
-            return parseResponse(responseStr);
-        } catch (Exception e) {
-            e.printStackTrace();
-            return false;
-        }
+    /**
+     * Updates the migration point and zone of a smart thing and gets the
+     * features the service decides on.
+     */
+    private Map<String, Object> evaluate(MobileDevice smartThing) {
+        MigrationDecisionContext context = new MigrationDecisionContext(smartThing, serverCloudlets, apDevices);
+        contexts.put(smartThing, context);
+        setCurrentAP(smartThing.getSourceAp());
+        setSmartThingPosition(Geometry.relativePosition(currentAP.getCoord(), smartThing.getCoord()));
+        smartThing.getMigrationTechnique().verifyPoints(smartThing, getSmartThingPosition());
+
+        MigrationFeatures features = context.getFeatures();
+        return buildPayload(
+            features.getPosX(),
+            features.getPosY(),
+            features.getDirection(),
+            features.getSpeed(),
+            features.getDistanceToSourceAp(),
+            features.getDistanceToLocalCloudlet(),
+            features.getDistanceToClosestCloudlet(),
+            features.isMigPoint(),
+            features.isMigZone()
+        );
     }
 
     private Map<String, Object> buildPayload(
@@ -144,117 +140,12 @@ public class DecisionMigrationAPI implements DecisionMigration {
         return payload;
     }
 
-    private String sendHttpRequest(String urlString, String jsonPayload) {
-        try {
-            URL url = new URL(urlString);
-            HttpURLConnection con = (HttpURLConnection) url.openConnection();
-            con.setRequestMethod("POST");
-            con.setRequestProperty("Content-Type", "application/json");
-            con.setDoOutput(true);
-
-            try (OutputStream os = con.getOutputStream()) {
-                os.write(jsonPayload.getBytes("utf-8"));
-            }
-
-            int responseCode = con.getResponseCode();
-            if (responseCode == HttpURLConnection.HTTP_OK) {
-                StringBuilder responseStr = new StringBuilder();
-                try (BufferedReader br = new BufferedReader(new InputStreamReader(con.getInputStream(), "utf-8"))) {
-                    String line;
-                    while ((line = br.readLine()) != null) {
-                        responseStr.append(line.trim());
-                    }
-                }
-                return responseStr.toString();
-            } else {
-                System.err.println("Error calling API: HTTP " + responseCode);
-                return null;
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-            return null;
-        }
-    }
+    private void logMetrics(MigrationDecisionContext context, boolean shouldMigrate, String reason) {
+        String nextServerCloudletName = (getNextServerCloudletId() >= 0) ? serverCloudlets.get(getNextServerCloudletId()).getName() : "None";
+        String nextApName = (getNextApId() >= 0) ? apDevices.get(getNextApId()).getName() : "None";
 
-    private boolean parseResponse(String responseStr) throws Exception {
-        ObjectMapper objectMapper = new ObjectMapper();
-        Map<String, Object> responseMap = objectMapper.readValue(responseStr, Map.class);
-        return (boolean) responseMap.get("shouldMigrate");
-    }
-
-    private double calculateDistanceToLocalCloudlet(MobileDevice smartThing) {
-        FogDevice localCloudlet = smartThing.getVmLocalServerCloudlet();
-        if (localCloudlet != null) {
-            return Distances.checkDistance(localCloudlet.getCoord(), smartThing.getCoord());
-        }
-        return -1;
-    }
-
-    private double calculateDistanceToClosestCloudlet(MobileDevice smartThing) {
-        double minDistance = Double.MAX_VALUE;
-        FogDevice localCloudlet = smartThing.getVmLocalServerCloudlet();
-
-        for (FogDevice cloudlet : getServerCloudlets()) {
-            if (localCloudlet != null && cloudlet.getId() == localCloudlet.getId()) {
-                continue;
-            }
-            double distance = Distances.checkDistance(cloudlet.getCoord(), smartThing.getCoord());
-            if (distance < minDistance) {
-                minDistance = distance;
-            }
-        }
-        return minDistance == Double.MAX_VALUE ? -1 : minDistance;
-    }
-
-    private void logMetrics(MobileDevice smartThing, boolean shouldMigrate, String reason) {
-        double distanceToSourceAp = Distances.checkDistance(smartThing.getSourceAp().getCoord(), smartThing.getCoord());
-        double migrationTime = smartThing.getMigTime();
-
-        FogDevice localCloudlet = smartThing.getVmLocalServerCloudlet();
-        String localCloudletName = (localCloudlet != null) ? localCloudlet.getName() : "None";
-        double distanceToLocalCloudlet = (localCloudlet != null)
-            ? Distances.checkDistance(localCloudlet.getCoord(), smartThing.getCoord())
-            : -1;
-
-        double minDistance = Double.MAX_VALUE;
-        FogDevice closestCloudlet = null;
-        for (FogDevice cloudlet : serverCloudlets) {
-            if (localCloudlet == null || cloudlet.getId() != localCloudlet.getId()) {
-                double dist = Distances.checkDistance(cloudlet.getCoord(), smartThing.getCoord());
-                if (dist < minDistance) {
-                    minDistance = dist;
-                    closestCloudlet = cloudlet;
-                }
-            }
-        }
-
-        String closestCloudletName = (closestCloudlet != null) ? closestCloudlet.getName() : "None";
-        double distanceToClosestCloudlet = (closestCloudlet != null) ? minDistance : -1;
-
-        String nextServerCloudletName = (getNextServerCloudletId() > 0) ? serverCloudlets.get(getNextServerCloudletId()).getName() : "None";
-        String nextApName = (getNextApId() > 0) ? apDevices.get(getNextApId()).getName() : "None";
-
-        MyStatistics.getInstance().logMigrationMetrics(
-            CloudSim.clock(),
-            smartThing.getMyId(),
-            smartThing.getCoord().getCoordX(),
-            smartThing.getCoord().getCoordY(),
-            smartThing.getDirection(),
-            smartThing.getSpeed(),
-            smartThing.getSourceAp().getName(),
-            distanceToSourceAp,
-            migrationTime,
-            shouldMigrate,
-            nextServerCloudletName,
-            nextApName,
-            reason,
-            localCloudletName,
-            distanceToLocalCloudlet,
-            closestCloudletName,
-            distanceToClosestCloudlet,
-            isMigPoint(),
-            isMigZone()
-        );
+        MyStatistics.getInstance().logMigrationMetrics(context.getFeatures(), context.getSmartThing().getMigTime(),
+            shouldMigrate, nextServerCloudletName, nextApName, reason, isMigPoint(), isMigZone());
     }
 
     public ApDevice getCurrentAP() {
@@ -0,0 +1,127 @@
+package org.fog.vmmigration;
+
+import java.util.List;
+
+import org.fog.entities.ApDevice;
+import org.fog.entities.FogDevice;
+import org.fog.entities.MobileDevice;
+import org.fog.localization.Geometry;
+
+/**
+ * Decides as {@link DecisionMigrationAPI}, with the learned model run inside
+ * the simulator ({@link MigrationModel}) instead of the service: no request
+ * is sent, and the decisions of a tick can be made in parallel.
+ */
+public class DecisionMigrationModel implements ParallelDecisionMigration {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The evaluators of the shared model, one per thread. */
+	private static final ThreadLocal<MigrationModel.Evaluator> evaluators =
+		new ThreadLocal<MigrationModel.Evaluator>();
+
+	private List<FogDevice> serverCloudlets;
+	private List<ApDevice> apDevices;
+	private int migPointPolicy;
+	private int policyReplicaVM;
+
+	public DecisionMigrationModel(List<FogDevice> serverCloudlets, List<ApDevice> apDevices,
+		int migPointPolicy, int policyReplicaVM) {
+		setServerCloudlets(serverCloudlets);
+		setApDevices(apDevices);
+		setMigPointPolicy(migPointPolicy);
+		setPolicyReplicaVM(policyReplicaVM);
+		// read the model now rather than in the middle of the simulation
+		if (MigrationModel.getInstance().getInputSize() != 2) {
+			throw new IllegalStateException("The migration model must take IsMigPoint and IsMigZone");
+		}
+	}
+
+	@Override
+	public boolean shouldMigrate(MobileDevice smartThing) {
+		return MigrationDecisions.decide(this,
+			new MigrationDecisionContext(smartThing, serverCloudlets, apDevices)).apply();
+	}
+
+	@Override
+	public MigrationDecision check(MigrationDecisionContext context) {
+		MobileDevice smartThing = context.getSmartThing();
+		ApDevice currentAP = smartThing.getSourceAp();
+		int smartThingPosition = Geometry.relativePosition(currentAP.getCoord(), smartThing.getCoord());
+		smartThing.getMigrationTechnique().verifyPoints(smartThing, smartThingPosition);
+
+		MigrationFeatures features = context.getFeatures();
+		MigrationModel.Evaluator evaluator = evaluator();
+		float[] input = evaluator.getInput();
+		input[0] = features.isMigPoint() ? 1 : 0;
+		input[1] = features.isMigZone() ? 1 : 0;
+		if (!(evaluator.evaluate() > MigrationModel.THRESHOLD)) {
+			return MigrationDecision.reject(context, "Migration rejected by model", -1, -1);
+		}
+		return null;
+	}
+
+	@Override
+	public boolean isPredicting() {
+		return true;
+	}
+
+	@Override
+	public MigrationDecision decide(MigrationDecisionContext context) {
+		MobileDevice smartThing = context.getSmartThing();
+		int nextServerCloudletId = context.getLowestLatencyServerCloudletId(Migration.LOWEST_LATENCY_CANDIDATES);
+		if (nextServerCloudletId < 0) {
+			return MigrationDecision.reject(context, "No suitable server cloudlet", nextServerCloudletId, -1);
+		}
+		int nextApId = context.getNextApId();
+		if (nextApId >= 0 && !Migration.isEdgeAp(apDevices.get(nextApId), smartThing)) {
+			return MigrationDecision.reject(context, "Next AP is not an edge AP", nextServerCloudletId, nextApId);
+		}
+		return MigrationDecision.migrate(context, "Migration approved", nextServerCloudletId, nextApId);
+	}
+
+	/**
+	 * Gets the evaluator of the shared model for the current thread.
+	 */
+	private static MigrationModel.Evaluator evaluator() {
+		MigrationModel model = MigrationModel.getInstance();
+		MigrationModel.Evaluator evaluator = evaluators.get();
+		if (evaluator == null || evaluator.getModel() != model) {
+			evaluator = model.newEvaluator();
+			evaluators.set(evaluator);
+		}
+		return evaluator;
+	}
+
+	public List<FogDevice> getServerCloudlets() {
+		return serverCloudlets;
+	}
+
+	public void setServerCloudlets(List<FogDevice> serverCloudlets) {
+		this.serverCloudlets = serverCloudlets;
+	}
+
+	public List<ApDevice> getApDevices() {
+		return apDevices;
+	}
+
+	public void setApDevices(List<ApDevice> apDevices) {
+		this.apDevices = apDevices;
+	}
+
+	public int getMigPointPolicy() {
+		return migPointPolicy;
+	}
+
+	public void setMigPointPolicy(int migPointPolicy) {
+		this.migPointPolicy = migPointPolicy;
+	}
+
+	public int getPolicyReplicaVM() {
+		return policyReplicaVM;
+	}
+
+	public void setPolicyReplicaVM(int policyReplicaVM) {
+		this.policyReplicaVM = policyReplicaVM;
+	}
+}
@@ -31,7 +31,7 @@ public class DecisionMigration_OLD {
 		setCorrentAP(smartThing.getSourceAp());
 
 		// return the relative position between Access point and smart thing -> set this value
-		setSmartThingPosition(DiscoverLocalization.discoverLocal(getCorrentAP().getCoord()
+		setSmartThingPosition(Geometry.relativePosition(getCorrentAP().getCoord()
 			, smartThing.getCoord()));
 
 		setMigPoint(migPointPolicyFunction(migPointPolicy // either (0 or 1) ->policies
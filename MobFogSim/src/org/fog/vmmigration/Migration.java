@@ -1,27 +1,45 @@
 package org.fog.vmmigration;
 
-import java.io.BufferedWriter;
-import java.io.FileNotFoundException;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.io.PrintWriter;
-import java.io.UnsupportedEncodingException;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
 import org.cloudbus.cloudsim.NetworkTopology;
+import org.cloudbus.cloudsim.core.SimulationContext;
 import org.fog.entities.*;
 import org.fog.localization.Coordinate;
-import org.fog.localization.DiscoverLocalization;
 import org.fog.localization.Distances;
+import org.fog.localization.Geometry;
+import org.fog.localization.Trajectory;
+import org.fog.utils.OutputSink;
+import org.fog.utils.OutputSinks;
 import org.fog.vmmobile.AppExample;
 import org.fog.vmmobile.constants.*;
 
 public class Migration {
 
-	private static boolean migrationPoint;
-	private static boolean migrationZone;
+	/** The number of server cloudlets compared by the lowest latency policy. */
+	public static final int LOWEST_LATENCY_CANDIDATES = 9;
+
+	/** The migration state of a simulation, shared by its strategies. */
+	private static class State implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		boolean migrationPoint;
+		boolean migrationZone;
+		int policyReplicaVM;
+	}
+
+	private static final SimulationContext.Key<State> STATE = new SimulationContext.Key<State>() {
+
+		@Override
+		protected State initialValue() {
+			return new State();
+		}
+	};
+
 	private int location;
 	private ApDevice correntAP;
 	private FogDevice correntServerCloudlet;
@@ -29,9 +47,10 @@ public class Migration {
 	private ApDevice apAvailable;
 	private FogDevice serverCloudletAvailable;
 	private int flowDirection;
-	private static List<ApDevice> apsAvailable;
-	private static List<FogDevice> serverCloudletsAvailable;
-	private static int policyReplicaVM;
+
+	private static State state() {
+		return SimulationContext.current().get(STATE);
+	}
 
 	/**
 	 * @param args
@@ -51,13 +70,9 @@ public class Migration {
 
 	// Policy: the closest Ap
 	public static int nextAp(List<ApDevice> apDevices, MobileDevice smartThing) {
-		// It return apDevice list without the smartThing's sourceAp
-		setApsAvailable(apAvailableList(apDevices, smartThing));
-		if (getApsAvailable().size() == 0) {
-			return -1;
-		}
-		// return the closest ap's id or -1 if it doesn't exist
-		return Distances.theClosestAp(getApsAvailable(), smartThing);
+		// return the closest ap's id, other than the smartThing's sourceAp, or -1 if it
+		// doesn't exist
+		return Distances.theClosestAp(apDevices, smartThing, smartThing.getSourceAp());
 	}
 
 	public int nextApFromCloudlet(Set<ApDevice> apDevices, MobileDevice smartThing) {
@@ -97,58 +112,117 @@ public class Migration {
 		Coordinate coord_prev, Coordinate coord_erro, Double dist_atual_prev,
 		Double dist_atual_erro, Double dist_prev_erro, int velocidade, String filename) {
 
-		try (FileWriter fw1 = new FileWriter(filename, true);
-			BufferedWriter bw1 = new BufferedWriter(fw1);
-			PrintWriter out1 = new PrintWriter(bw1))
-		{
+		OutputSink out1 = OutputSinks.get(filename);
+		if (out1 != null) {
 			out1.println(travelTimeId + "\t" + coord_atual.getCoordX() + "\t"
 				+ coord_atual.getCoordY() + "\t" + coord_prev.getCoordX() + "\t"
 				+ coord_prev.getCoordY() + "\t" + coord_erro.getCoordX() + "\t"
 				+ coord_erro.getCoordY() + "\t" + dist_atual_prev + "\t" + dist_atual_erro + "\t"
 				+ dist_prev_erro + "\t" + velocidade);
-		} catch (UnsupportedEncodingException e) {
-			e.printStackTrace();
-		} catch (FileNotFoundException e) {
-			e.printStackTrace();
-		} catch (IOException e) {
-			e.printStackTrace();
 		}
 	}
 
-	public static List<FogDevice> serverClouletsAvailableList(List<FogDevice> oldServerCloudlets,
-		MobileDevice smartThing) {
+	/**
+	 * Predicts the position of a smart thing after its mobility prediction time
+	 * (the eighth parameter), with an inaccuracy (the ninth parameter) in a
+	 * random direction, and sets it as its future coordinate.
+	 *
+	 * @param smartThing
+	 *        - the smart thing
+	 * @return the direction of the inaccuracy
+	 */
+	static int predictFutureCoord(MobileDevice smartThing) {
+		int directionMPError = drawPredictionDirection();
+		predictFutureCoord(smartThing, directionMPError).save();
+		return directionMPError;
+	}
+
+	/**
+	 * Draws the random direction of the inaccuracy of a prediction. The draws
+	 * are the only part of the predictions that must be made in order.
+	 *
+	 * @return the direction
+	 */
+	static int drawPredictionDirection() {
+		return AppExample.getRand().nextInt(8) + 1;
+	}
 
+	/**
+	 * Predicts the position of a smart thing, like
+	 * {@link #predictFutureCoord(MobileDevice)}, with an inaccuracy in a given
+	 * direction. Only the smart thing is changed: the distances are written
+	 * when the prediction is saved.
+	 *
+	 * @param smartThing
+	 *        - the smart thing
+	 * @param directionMPError
+	 *        - the direction of the inaccuracy
+	 * @return the prediction, to save
+	 */
+	static Prediction predictFutureCoord(MobileDevice smartThing, int directionMPError) {
 		Coordinate coord_real = smartThing.getCoord();
 
-		ArrayList<String[]> path = smartThing.getPath();
+		Trajectory trajectory = smartThing.getTrajectory();
 		// related to the eighth parameter - User Mobility prediction, in seconds
 		int travelTimeId = smartThing.getTravelTimeId() + smartThing.getTravelPredicTime();
-		if (travelTimeId >= path.size()) {
-			travelTimeId = path.size() - 1;
+		if (travelTimeId >= trajectory.size()) {
+			travelTimeId = trajectory.size() - 1;
 		}
 
-		String[] coodinates = path.get(travelTimeId);
-
-		int x = (int) Double.parseDouble(coodinates[2]);
-		int y = (int) Double.parseDouble(coodinates[3]);
+		int x = (int) trajectory.getX(travelTimeId);
+		int y = (int) trajectory.getY(travelTimeId);
 		Coordinate coord_prev = new Coordinate();
 		coord_prev.setCoordX(x);
 		coord_prev.setCoordY(y);
 
-		int directionMPError = AppExample.getRand().nextInt(8) + 1;
-
 		// related to the ninth parameter: User Mobility prediction inaccuracy, in meters
 		Coordinate coord_inaccurated = Coordinate.newCoordinateWithError(coord_prev,
 			smartThing.getMobilityPrecitionError(), directionMPError);
 
-		saveDistance(smartThing.getTravelTimeId(), coord_real, coord_prev, coord_inaccurated,
-			Distances.checkDistance(coord_real, coord_prev),
-			Distances.checkDistance(coord_real, coord_inaccurated),
-			Distances.checkDistance(coord_prev, coord_inaccurated), smartThing.getSpeed(),
-			"distance_between_user_cloudlet.txt");
+		Prediction prediction = new Prediction(smartThing.getTravelTimeId(), coord_real,
+			coord_prev, coord_inaccurated, smartThing.getSpeed());
 
 		smartThing.setFutureCoord(coord_inaccurated.getCoordX(), coord_inaccurated.getCoordY());
+		return prediction;
+	}
 
+	/**
+	 * The positions of a prediction, written to
+	 * <tt>distance_between_user_cloudlet.txt</tt> when saved.
+	 */
+	static class Prediction {
+
+		private final int travelTimeId;
+		private final Coordinate coord_atual;
+		private final Coordinate coord_prev;
+		private final Coordinate coord_erro;
+		private final int velocidade;
+
+		Prediction(int travelTimeId, Coordinate coord_atual, Coordinate coord_prev,
+			Coordinate coord_erro, int velocidade) {
+			this.travelTimeId = travelTimeId;
+			this.coord_atual = coord_atual;
+			this.coord_prev = coord_prev;
+			this.coord_erro = coord_erro;
+			this.velocidade = velocidade;
+		}
+
+		void save() {
+			saveDistance(travelTimeId, coord_atual, coord_prev, coord_erro,
+				Geometry.distance(coord_atual, coord_prev),
+				Geometry.distance(coord_atual, coord_erro),
+				Geometry.distance(coord_prev, coord_erro), velocidade,
+				"distance_between_user_cloudlet.txt");
+		}
+	}
+
+	/**
+	 * Gets the server cloudlets, other than the source one of the smart thing,
+	 * whose position relative to its future coordinate is inside the cone of a
+	 * direction.
+	 */
+	static List<FogDevice> serverCloudletsInCone(List<FogDevice> oldServerCloudlets,
+		MobileDevice smartThing, int directionMPError) {
 		List<FogDevice> newServerCloudlets = new ArrayList<>();
 
 		int localServerCloudlet;
@@ -156,7 +230,7 @@ public class Migration {
 		for (FogDevice sc : oldServerCloudlets) {
 			// return the relative position between Server Cloudlet and smart
 			// thing -> set this value
-			localServerCloudlet = DiscoverLocalization.discoverLocal(
+			localServerCloudlet = Geometry.relativePosition(
 				smartThing.getFutureCoord(), sc.getCoord());
 			cone = insideCone(localServerCloudlet, directionMPError);
 			if (cone && (sc.getMyId() != smartThing.getSourceServerCloudlet().getMyId())) {
@@ -166,15 +240,16 @@ public class Migration {
 		return newServerCloudlets;
 	}
 
+	public static List<FogDevice> serverClouletsAvailableList(List<FogDevice> oldServerCloudlets,
+		MobileDevice smartThing) {
+		return serverCloudletsInCone(oldServerCloudlets, smartThing,
+			predictFutureCoord(smartThing));
+	}
+
 	public static int nextServerCloudlet(List<FogDevice> serverCloudlets, MobileDevice smartThing) {
 		// Policy: the closest serverCloudlet
-		setServerCloudletsAvailable(serverClouletsAvailableList(serverCloudlets, smartThing));
-		if (getServerCloudletsAvailable().size() == 0) {
-			return -1;
-		}
-		else {
-			return Distances.theClosestServerCloudlet(getServerCloudletsAvailable(), smartThing);
-		}
+		return new MigrationDecisionContext(smartThing, serverCloudlets, null)
+			.getClosestServerCloudletId();
 	}
 
 	public static boolean isEdgeAp(ApDevice apDevice, MobileDevice smartThing) {
@@ -185,83 +260,18 @@ public class Migration {
 			return true;
 	}
 
+	/**
+	 * Chooses the server cloudlet with the lowest latency cost among the
+	 * {@link #LOWEST_LATENCY_CANDIDATES} closest ones to the predicted position
+	 * of the smart thing.
+	 *
+	 * @return the id of the server cloudlet, or -1 if there is none
+	 * @see MigrationDecisionContext#getLowestLatencyServerCloudletId(int)
+	 */
 	public static int lowestLatencyCostServerCloudlet(List<FogDevice> oldServerCloudlets,
 		List<ApDevice> oldApDevices, MobileDevice smartThing) {
-		List<FogDevice> newServerCloudlets = new ArrayList<>();
-		List<FogDevice> numServerCloudlets = new ArrayList<>();
-		List<Double> costList = new ArrayList<>();
-
-		for (FogDevice sc : oldServerCloudlets) {
-			newServerCloudlets.add(sc);
-		}
-
-		for (int i = 0; i < 9; i++) {
-			int destinationServerCloudlet = nextServerCloudlet(newServerCloudlets, smartThing);
-			if (destinationServerCloudlet >= 0) {
-				for (FogDevice sc1 : newServerCloudlets) {
-					if (sc1.getMyId() == destinationServerCloudlet) {
-						numServerCloudlets.add(sc1);
-						break;
-					}
-				}
-
-				FogDevice sc = null;
-				for (int j = 0; j < newServerCloudlets.size(); j++) {
-
-					sc = newServerCloudlets.get(j);
-					if (sc.getMyId() == destinationServerCloudlet) {
-						newServerCloudlets.remove(sc);
-						break;
-					}
-				}
-			}
-			else {
-				break;
-			}
-		}
-
-		if (numServerCloudlets.size() == 0) {
-			return -1;
-		}
-		// this point numServerCloudlets has + than 0 and - than 10 sc
-		double sumCost;
-		int choose = -1;
-		double minCost = -1;
-		int idNextAp = nextAp(oldApDevices, smartThing);
-
-		if (idNextAp < 0) {
-			return -1;
-		}
-
-		for (FogDevice sc : oldServerCloudlets) {
-			System.out.println(sumCostFunction(sc, oldApDevices.get(idNextAp), smartThing));
-		}
-		for (int i = 0; i < numServerCloudlets.size(); i++) {
-			minCost = sumCostFunction(numServerCloudlets.get(i), oldApDevices.get(idNextAp),
-				smartThing);
-			System.out.println(minCost);
-			if (minCost >= 0) {
-				choose = numServerCloudlets.get(i).getMyId();
-				break;
-			}
-		}
-		if (minCost < 0) {
-			return -1;
-		}
-
-		for (FogDevice sc : numServerCloudlets) {
-			sumCost = sumCostFunction(sc, oldApDevices.get(idNextAp), smartThing);
-			costList.add(sumCost);
-			System.out.println(sumCost);
-			if (sumCost < 0) {
-				continue;
-			}
-			if (sumCost < minCost) {
-				minCost = sumCost;
-				choose = sc.getMyId();
-			}
-		}
-		return choose;
+		return new MigrationDecisionContext(smartThing, oldServerCloudlets, oldApDevices)
+			.getLowestLatencyServerCloudletId(LOWEST_LATENCY_CANDIDATES);
 	}
 
 	public static void lowestLatencyCostServerCloudletILP(List<FogDevice> oldServerCloudlets,
@@ -321,19 +331,19 @@ public class Migration {
 	}
 
 	public static boolean isMigrationPoint() {
-		return migrationPoint;
+		return state().migrationPoint;
 	}
 
 	public static void setMigrationPoint(boolean migrationPoint) {
-		Migration.migrationPoint = migrationPoint;
+		state().migrationPoint = migrationPoint;
 	}
 
 	public static boolean isMigrationZone() {
-		return migrationZone;
+		return state().migrationZone;
 	}
 
 	public static void setMigrationZone(boolean migrationZone) {
-		Migration.migrationZone = migrationZone;
+		state().migrationZone = migrationZone;
 	}
 
 	public int getLocation() {
@@ -392,27 +402,11 @@ public class Migration {
 		this.flowDirection = flowDirection;
 	}
 
-	public static List<ApDevice> getApsAvailable() {
-		return apsAvailable;
-	}
-
-	public static void setApsAvailable(List<ApDevice> apsAvailable) {
-		Migration.apsAvailable = apsAvailable;
-	}
-
-	public static List<FogDevice> getServerCloudletsAvailable() {
-		return serverCloudletsAvailable;
-	}
-
-	public static void setServerCloudletsAvailable(List<FogDevice> serverCloudletsAvailable) {
-		Migration.serverCloudletsAvailable = serverCloudletsAvailable;
-	}
-
 	public static int getPolicyReplicaVM() {
-		return policyReplicaVM;
+		return state().policyReplicaVM;
 	}
 
 	public static void setPolicyReplicaVM(int policyReplicaVM) {
-		Migration.policyReplicaVM = policyReplicaVM;
+		state().policyReplicaVM = policyReplicaVM;
 	}
 }
@@ -0,0 +1,204 @@
+package org.fog.vmmigration;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.cloudbus.cloudsim.core.SimulationContext;
+import org.fog.utils.FogLog;
+
+/**
+ * The client of the migration decision service (mobfogsim_migration_api).
+ * <p>
+ * The decisions of all the smart things evaluated in the same tick are sent
+ * in a single request to <tt>/should_migrate_batch</tt>. The JSON mapper is
+ * shared, and the response body is always read to the end, so the JDK keeps
+ * the HTTP connection alive and reuses it for the next request instead of
+ * opening a new one.
+ * <p>
+ * When the service can not be reached, times out or answers with an error, the
+ * decisions are made by {@link #fallbackDecision(Map)}, and the service is not
+ * called again for {@link #getRetryInterval()} milliseconds, so a missing
+ * service does not stall every tick of the simulation.
+ * <p>
+ * Each simulation context has a client of its own, so simulations running at
+ * the same time keep their own availability of the service and counters.
+ * <p>
+ * The service URL and timeout can be set with <tt>-Dmobfogsim.api.url</tt> and
+ * <tt>-Dmobfogsim.api.timeout</tt> (milliseconds).
+ */
+public class MigrationApiClient {
+
+	public static final String DEFAULT_URL = "http://127.0.0.1:8000";
+	public static final int DEFAULT_TIMEOUT = 2000;
+	public static final long DEFAULT_RETRY_INTERVAL = 30000;
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	/** The client of each context; it is not saved in the checkpoints. */
+	private static final SimulationContext.Key<MigrationApiClient> INSTANCE =
+		new SimulationContext.Key<MigrationApiClient>();
+
+	private final URL batchUrl;
+	private int timeout;
+	private long retryInterval = DEFAULT_RETRY_INTERVAL;
+	private long unavailableUntil;
+
+	private long requests;
+	private long fallbacks;
+
+	public MigrationApiClient(String baseUrl, int timeout) {
+		try {
+			this.batchUrl = new URL(baseUrl + "/should_migrate_batch");
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Invalid migration API URL: " + baseUrl, e);
+		}
+		setTimeout(timeout);
+	}
+
+	/**
+	 * Gets the client shared by all the {@link DecisionMigrationAPI} strategies
+	 * of the current simulation context.
+	 */
+	public static MigrationApiClient getInstance() {
+		SimulationContext context = SimulationContext.current();
+		MigrationApiClient instance = context.get(INSTANCE);
+		if (instance == null) {
+			instance = new MigrationApiClient(System.getProperty("mobfogsim.api.url", DEFAULT_URL),
+				Integer.getInteger("mobfogsim.api.timeout", DEFAULT_TIMEOUT));
+			context.set(INSTANCE, instance);
+		}
+		return instance;
+	}
+
+	public static void setInstance(MigrationApiClient instance) {
+		SimulationContext.current().set(INSTANCE, instance);
+	}
+
+	/**
+	 * Decides whether each smart thing should migrate.
+	 *
+	 * @param payloads
+	 *        - the features of each smart thing, with the fields of the
+	 *        <tt>RequestData</tt> of the service
+	 * @return the decision of each smart thing, in the same order
+	 */
+	public boolean[] shouldMigrate(List<Map<String, Object>> payloads) {
+		boolean[] decisions = new boolean[payloads.size()];
+		if (payloads.isEmpty()) {
+			return decisions;
+		}
+		if (System.currentTimeMillis() >= unavailableUntil) {
+			requests++;
+			try {
+				JsonNode results = post(payloads).get("decisions");
+				if (results == null || !results.isArray() || results.size() != decisions.length) {
+					throw new IOException("Unexpected response from " + batchUrl);
+				}
+				for (int i = 0; i < decisions.length; i++) {
+					decisions[i] = results.get(i).asBoolean();
+				}
+				return decisions;
+			} catch (IOException e) {
+				FogLog.warn("MigrationApiClient.java", "Migration API unavailable (" + e.getMessage()
+					+ "), using the local rule for " + retryInterval + " ms");
+				unavailableUntil = System.currentTimeMillis() + retryInterval;
+			}
+		}
+		fallbacks++;
+		for (int i = 0; i < decisions.length; i++) {
+			decisions[i] = fallbackDecision(payloads.get(i));
+		}
+		return decisions;
+	}
+
+	/**
+	 * The local rule used when the service is unavailable: the same rule the
+	 * other migration strategies use, to migrate only at the migration point
+	 * and inside the migration zone.
+	 *
+	 * @param payload
+	 *        - the features of the smart thing
+	 * @return true, if it should migrate
+	 */
+	public static boolean fallbackDecision(Map<String, Object> payload) {
+		return Boolean.TRUE.equals(payload.get("IsMigPoint"))
+			&& Boolean.TRUE.equals(payload.get("IsMigZone"));
+	}
+
+	private JsonNode post(List<Map<String, Object>> payloads) throws IOException {
+		byte[] body = MAPPER.writeValueAsBytes(Collections.singletonMap("requests", payloads));
+		HttpURLConnection con = (HttpURLConnection) batchUrl.openConnection();
+		con.setRequestMethod("POST");
+		con.setRequestProperty("Content-Type", "application/json");
+		con.setRequestProperty("Connection", "keep-alive");
+		con.setConnectTimeout(timeout);
+		con.setReadTimeout(timeout);
+		con.setDoOutput(true);
+		con.setFixedLengthStreamingMode(body.length);
+		try (OutputStream os = con.getOutputStream()) {
+			os.write(body);
+		}
+
+		int responseCode = con.getResponseCode();
+		if (responseCode != HttpURLConnection.HTTP_OK) {
+			// the error body must be read too for the connection to be reused
+			readFully(con.getErrorStream());
+			throw new IOException("HTTP " + responseCode);
+		}
+		return MAPPER.readTree(readFully(con.getInputStream()));
+	}
+
+	private static byte[] readFully(InputStream in) throws IOException {
+		if (in == null) {
+			return new byte[0];
+		}
+		try (InputStream input = in) {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			byte[] buffer = new byte[4096];
+			int read;
+			while ((read = input.read(buffer)) != -1) {
+				bytes.write(buffer, 0, read);
+			}
+			return bytes.toByteArray();
+		}
+	}
+
+	public int getTimeout() {
+		return timeout;
+	}
+
+	public void setTimeout(int timeout) {
+		if (timeout <= 0) {
+			throw new IllegalArgumentException("Timeout must be positive: " + timeout);
+		}
+		this.timeout = timeout;
+	}
+
+	public long getRetryInterval() {
+		return retryInterval;
+	}
+
+	public void setRetryInterval(long retryInterval) {
+		this.retryInterval = retryInterval;
+	}
+
+	/** Gets the number of requests sent to the service. */
+	public long getRequests() {
+		return requests;
+	}
+
+	/** Gets the number of batches decided by the local rule. */
+	public long getFallbacks() {
+		return fallbacks;
+	}
+}
@@ -0,0 +1,147 @@
+package org.fog.vmmigration;
+
+import java.util.List;
+
+import org.fog.entities.ApDevice;
+import org.fog.entities.FogDevice;
+import org.fog.entities.MobileDevice;
+
+/**
+ * The decision of a {@link ParallelDecisionMigration} for a smart thing,
+ * with what it changes outside the smart thing: its destination server
+ * cloudlet and Ap, and the line of the migration decision log.
+ */
+public class MigrationDecision {
+
+	private final MigrationDecisionContext context;
+	private final boolean approved;
+	private final String reason;
+	private final FogDevice destinationServerCloudlet;
+	private final ApDevice destinationAp;
+	private final String nextServerCloudletName;
+	private final String nextApName;
+	private final boolean migPoint;
+	private final boolean migZone;
+	private final double migTime;
+	private final MigrationFeatures features;
+
+	private MigrationDecision(MigrationDecisionContext context, boolean approved, String reason,
+		FogDevice destinationServerCloudlet, ApDevice destinationAp, int nextServerCloudletId,
+		int nextApId) {
+		this.context = context;
+		this.approved = approved;
+		this.reason = reason;
+		this.destinationServerCloudlet = destinationServerCloudlet;
+		this.destinationAp = destinationAp;
+		List<FogDevice> serverCloudlets = context.getServerCloudlets();
+		List<ApDevice> apDevices = context.getApDevices();
+		nextServerCloudletName = nextServerCloudletId >= 0
+			? serverCloudlets.get(nextServerCloudletId).getName() : "None";
+		nextApName = nextApId >= 0 ? apDevices.get(nextApId).getName() : "None";
+		MobileDevice smartThing = context.getSmartThing();
+		migPoint = smartThing.isMigPoint();
+		migZone = smartThing.isMigZone();
+		migTime = smartThing.getMigTime();
+		features = context.getFeatures();
+	}
+
+	/**
+	 * Makes a decision not to migrate.
+	 *
+	 * @param context
+	 *        - the context of the smart thing
+	 * @param reason
+	 *        - the reason logged
+	 * @param nextServerCloudletId
+	 *        - the id of the server cloudlet considered, or -1
+	 * @param nextApId
+	 *        - the id of the Ap considered, or -1
+	 * @return the decision
+	 */
+	public static MigrationDecision reject(MigrationDecisionContext context, String reason,
+		int nextServerCloudletId, int nextApId) {
+		return new MigrationDecision(context, false, reason, null, null, nextServerCloudletId,
+			nextApId);
+	}
+
+	/**
+	 * Makes a decision approved by the strategy, that migrates if the smart
+	 * thing agrees to the service of the server cloudlet (see
+	 * {@link ServiceAgreement#agrees(FogDevice, MobileDevice)}).
+	 *
+	 * @param context
+	 *        - the context of the smart thing
+	 * @param reason
+	 *        - the reason logged
+	 * @param logAgreement
+	 *        - true to log the service agreement as the decision, false to log
+	 *        the approval
+	 * @param nextServerCloudletId
+	 *        - the id of the destination server cloudlet
+	 * @param nextApId
+	 *        - the id of the Ap considered, or -1
+	 * @return the decision
+	 */
+	public static MigrationDecision approve(MigrationDecisionContext context, String reason,
+		boolean logAgreement, int nextServerCloudletId, int nextApId) {
+		FogDevice serverCloudlet = context.getServerCloudlets().get(nextServerCloudletId);
+		boolean agreed = ServiceAgreement.agrees(serverCloudlet, context.getSmartThing());
+		return new MigrationDecision(context, logAgreement ? agreed : true, reason,
+			agreed ? serverCloudlet : null, null, nextServerCloudletId, nextApId);
+	}
+
+	/**
+	 * Makes a decision to migrate to a server cloudlet through an Ap, without
+	 * the service agreement, as the decisions of a learned model.
+	 *
+	 * @param context
+	 *        - the context of the smart thing
+	 * @param reason
+	 *        - the reason logged
+	 * @param nextServerCloudletId
+	 *        - the id of the destination server cloudlet
+	 * @param nextApId
+	 *        - the id of the destination Ap, or -1 to keep the current one
+	 * @return the decision
+	 */
+	public static MigrationDecision migrate(MigrationDecisionContext context, String reason,
+		int nextServerCloudletId, int nextApId) {
+		return new MigrationDecision(context, true, reason,
+			context.getServerCloudlets().get(nextServerCloudletId),
+			nextApId >= 0 ? context.getApDevices().get(nextApId) : null, nextServerCloudletId,
+			nextApId);
+	}
+
+	/**
+	 * Applies the decision: saves the prediction it made, sets the destination
+	 * of the smart thing and logs the decision.
+	 *
+	 * @return true if the smart thing should migrate
+	 */
+	public boolean apply() {
+		MobileDevice smartThing = context.getSmartThing();
+		context.savePrediction();
+		if (destinationServerCloudlet != null) {
+			smartThing.setDestinationServerCloudlet(destinationServerCloudlet);
+		}
+		if (destinationAp != null) {
+			smartThing.setDestinationAp(destinationAp);
+		}
+		MyStatistics.getInstance().logMigrationMetrics(features, migTime,
+			approved, nextServerCloudletName, nextApName, reason, migPoint, migZone);
+		return approved && destinationServerCloudlet != null;
+	}
+
+	public boolean isApproved() {
+		return approved;
+	}
+
+	public String getReason() {
+		return reason;
+	}
+
+	/** Gets the server cloudlet the smart thing would migrate to, or null. */
+	public FogDevice getDestinationServerCloudlet() {
+		return destinationServerCloudlet;
+	}
+}
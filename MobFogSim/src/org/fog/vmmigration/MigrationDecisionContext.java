@@ -0,0 +1,231 @@
+package org.fog.vmmigration;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.fog.entities.ApDevice;
+import org.fog.entities.FogDevice;
+import org.fog.entities.MobileDevice;
+import org.fog.localization.Coordinate;
+import org.fog.localization.Geometry;
+
+/**
+ * What the migration strategies know about a smart thing during one decision.
+ * <p>
+ * Each value is computed the first time it is asked for and then reused, so
+ * the future position of the smart thing is predicted at most once per
+ * decision (one random inaccuracy, one line in
+ * <tt>distance_between_user_cloudlet.txt</tt>), the candidate server cloudlets
+ * are ranked in a single pass and the cost of each candidate is computed once.
+ * The features of the current position come from {@link MigrationFeatures}.
+ * A context must not be kept across ticks, since the smart thing moves.
+ * <p>
+ * When the decisions of a tick are made in parallel (see
+ * {@link MigrationDecisions}), the context is batched: the random direction
+ * of the prediction is drawn beforehand by the simulation thread, in the
+ * order of the smart things, and its distances are written when the decision
+ * is applied.
+ */
+public class MigrationDecisionContext {
+
+	private final MobileDevice smartThing;
+	private final List<FogDevice> serverCloudlets;
+	private final List<ApDevice> apDevices;
+
+	/** The server cloudlets in the cone of the predicted position, by distance. */
+	private List<FogDevice> candidates;
+	private double[] costs;
+	private Integer nextApId;
+
+	private boolean batched;
+	/** The direction of the inaccuracy of the prediction, or 0 if not drawn yet. */
+	private int predictionDirection;
+	/** The prediction made and not saved yet. */
+	private Migration.Prediction prediction;
+
+
+	public MigrationDecisionContext(MobileDevice smartThing, List<FogDevice> serverCloudlets,
+		List<ApDevice> apDevices) {
+		this.smartThing = smartThing;
+		this.serverCloudlets = serverCloudlets;
+		this.apDevices = apDevices;
+	}
+
+	public MobileDevice getSmartThing() {
+		return smartThing;
+	}
+
+	public List<FogDevice> getServerCloudlets() {
+		return serverCloudlets;
+	}
+
+	public List<ApDevice> getApDevices() {
+		return apDevices;
+	}
+
+	/**
+	 * Gets the {@link Migration#LOWEST_LATENCY_CANDIDATES} server cloudlets,
+	 * other than the source one, in the direction of the predicted position of
+	 * the smart thing that are the closest to that position, from the closest
+	 * to the farthest. The position is predicted on the first call.
+	 */
+	public List<FogDevice> getCandidates() {
+		if (candidates == null) {
+			if (predictionDirection == 0) {
+				if (batched) {
+					throw new IllegalStateException("The prediction direction of "
+						+ smartThing.getName() + " was not drawn before its batched decision");
+				}
+				predictionDirection = Migration.drawPredictionDirection();
+			}
+			int directionMPError = predictionDirection;
+			prediction = Migration.predictFutureCoord(smartThing, directionMPError);
+			if (!batched) {
+				savePrediction();
+			}
+			candidates = closestInCone(directionMPError);
+		}
+		return candidates;
+	}
+
+	/**
+	 * Ranks, in one pass, the {@link Migration#LOWEST_LATENCY_CANDIDATES}
+	 * server cloudlets in the cone of a direction that are the closest to the
+	 * future coordinate of the smart thing, ties in the order of the list.
+	 */
+	private List<FogDevice> closestInCone(int directionMPError) {
+		int k = Migration.LOWEST_LATENCY_CANDIDATES;
+		FogDevice[] closest = new FogDevice[k];
+		long[] distances = new long[k];
+		int size = 0;
+		Coordinate futureCoord = smartThing.getFutureCoord();
+		int sourceId = smartThing.getSourceServerCloudlet().getMyId();
+		for (FogDevice sc : serverCloudlets) {
+			if (sc.getMyId() == sourceId || !Migration.insideCone(
+				Geometry.relativePosition(futureCoord, sc.getCoord()), directionMPError)) {
+				continue;
+			}
+			long distance = Geometry.squaredDistance(sc.getCoord(), futureCoord);
+			if (size == k && distances[k - 1] <= distance) {
+				continue;
+			}
+			int i = size < k ? size++ : k - 1;
+			while (i > 0 && distances[i - 1] > distance) {// stable for ties
+				distances[i] = distances[i - 1];
+				closest[i] = closest[i - 1];
+				i--;
+			}
+			distances[i] = distance;
+			closest[i] = sc;
+		}
+		return Arrays.asList(closest).subList(0, size);
+	}
+
+	/**
+	 * Gets the id of the closest candidate server cloudlet to the predicted
+	 * position.
+	 *
+	 * @return the id, or -1 if there is no candidate
+	 */
+	public int getClosestServerCloudletId() {
+		return getCandidates().isEmpty() ? -1 : getCandidates().get(0).getMyId();
+	}
+
+	/**
+	 * Gets the id of the closest AP to the smart thing, other than its source
+	 * AP, as {@link Migration#nextAp(List, MobileDevice)}.
+	 *
+	 * @return the id, or -1 if there is no AP in range
+	 */
+	public int getNextApId() {
+		if (nextApId == null) {
+			nextApId = Migration.nextAp(apDevices, smartThing);
+		}
+		return nextApId;
+	}
+
+	/**
+	 * Gets the cost of migrating to a candidate through the next AP, as
+	 * {@link Migration#sumCostFunction(FogDevice, ApDevice, MobileDevice)}.
+	 *
+	 * @param index
+	 *        - the index of the candidate in {@link #getCandidates()}
+	 * @return the cost
+	 */
+	public double getCost(int index) {
+		if (costs == null) {
+			costs = new double[getCandidates().size()];
+			for (int i = 0; i < costs.length; i++) {
+				costs[i] = Double.NaN;
+			}
+		}
+		if (Double.isNaN(costs[index])) {
+			costs[index] = Migration.sumCostFunction(getCandidates().get(index),
+				apDevices.get(getNextApId()), smartThing);
+		}
+		return costs[index];
+	}
+
+	/**
+	 * Gets the id of the cheapest of the <tt>k</tt> closest candidates, ties
+	 * going to the closest one.
+	 *
+	 * @param k
+	 *        - the number of candidates compared, at most
+	 *        {@link Migration#LOWEST_LATENCY_CANDIDATES}
+	 * @return the id, or -1 if there is no candidate or no next AP
+	 */
+	public int getLowestLatencyServerCloudletId(int k) {
+		if (k > Migration.LOWEST_LATENCY_CANDIDATES) {
+			throw new IllegalArgumentException("Only the " + Migration.LOWEST_LATENCY_CANDIDATES
+				+ " closest candidates are ranked");
+		}
+		int size = Math.min(k, getCandidates().size());
+		if (size == 0 || getNextApId() < 0) {
+			return -1;
+		}
+		int choose = -1;
+		double minCost = -1;
+		for (int i = 0; i < size; i++) {
+			double cost = getCost(i);
+			if (cost >= 0 && (choose < 0 || cost < minCost)) {
+				minCost = cost;
+				choose = getCandidates().get(i).getMyId();
+			}
+		}
+		return choose;
+	}
+
+	/**
+	 * Batches the decision: the random direction of the prediction is not
+	 * drawn by {@link #getCandidates()} but set beforehand with
+	 * {@link #setPredictionDirection(int)}, and the prediction is only saved by
+	 * {@link #savePrediction()}, when the decision is applied.
+	 */
+	void batch() {
+		batched = true;
+	}
+
+	void setPredictionDirection(int predictionDirection) {
+		this.predictionDirection = predictionDirection;
+	}
+
+	/**
+	 * Writes the distances of the prediction, if one was made and not saved
+	 * yet.
+	 */
+	void savePrediction() {
+		if (prediction != null) {
+			prediction.save();
+			prediction = null;
+		}
+	}
+
+	/**
+	 * Gets the features of the smart thing, computed once per tick and shared
+	 * by the strategy and the metrics log.
+	 */
+	public MigrationFeatures getFeatures() {
+		return MigrationFeatures.of(smartThing, serverCloudlets);
+	}
+}
@@ -0,0 +1,192 @@
+package org.fog.vmmigration;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.fog.entities.ApDevice;
+import org.fog.entities.FogDevice;
+import org.fog.entities.MobileDevice;
+import org.fog.localization.Distances;
+import org.fog.utils.ParallelBatch;
+
+/**
+ * Makes the migration decisions of a tick for the smart things of server
+ * cloudlets, and has each server cloudlet act on them (see
+ * {@link FogDevice#applyDecisionMigration(MobileDevice, boolean)}).
+ * <p>
+ * When the strategies of all the connected smart things are
+ * {@link ParallelDecisionMigration}s, the decisions are made in parallel and
+ * then applied in the order of the server cloudlets and of their smart things,
+ * which is the order they used to be made in one after another. A first
+ * parallel pass checks the smart things (see
+ * {@link ParallelDecisionMigration#check(MigrationDecisionContext)}); the
+ * random directions of the predictions are then drawn in that order, for the
+ * smart things that passed and whose strategy predicts; a second parallel
+ * pass decides for them. A run thus gives the same results whatever the
+ * number of threads. Otherwise, the decisions are made one after another.
+ */
+public class MigrationDecisions {
+
+	private MigrationDecisions() {
+	}
+
+	/**
+	 * Makes and applies the migration decisions of all the smart things of
+	 * some server cloudlets.
+	 *
+	 * @param serverCloudlets
+	 *        - the server cloudlets, in the order their decisions are applied
+	 */
+	public static void decide(List<FogDevice> serverCloudlets) {
+		List<FogDevice> owners = new ArrayList<FogDevice>();
+		List<MobileDevice> smartThings = new ArrayList<MobileDevice>();
+		Map<MobileDevice, Boolean> seen = new IdentityHashMap<MobileDevice, Boolean>();
+		boolean parallel = true;
+		for (FogDevice sc : serverCloudlets) {
+			for (MobileDevice st : sc.getSmartThings()) {
+				owners.add(sc);
+				smartThings.add(st);
+				// a smart thing in two lists is decided twice, the second
+				// time knowing the first decision
+				if (seen.put(st, Boolean.TRUE) != null
+					|| isEvaluated(st) && !(strategyOf(st) instanceof ParallelDecisionMigration)) {
+					parallel = false;
+				}
+			}
+		}
+		if (parallel) {
+			decideInParallel(owners, smartThings);
+		}
+		else {
+			for (FogDevice sc : serverCloudlets) {
+				decideInOrder(sc);
+			}
+		}
+	}
+
+	/**
+	 * Tells whether the migration of a smart thing is evaluated: only the
+	 * connected smart things that are not migrating already are.
+	 */
+	private static boolean isEvaluated(MobileDevice st) {
+		return st.getSourceAp() != null && (!st.isLockedToMigration());
+	}
+
+	private static DecisionMigration strategyOf(MobileDevice st) {
+		return st.getVmLocalServerCloudlet().getMigrationStrategy();
+	}
+
+	private static void decideInParallel(List<FogDevice> owners, List<MobileDevice> smartThings) {
+		int size = smartThings.size();
+		final ParallelDecisionMigration[] strategies = new ParallelDecisionMigration[size];
+		final MigrationDecisionContext[] contexts = new MigrationDecisionContext[size];
+		final MigrationDecision[] decisions = new MigrationDecision[size];
+		Map<List<ApDevice>, Boolean> apLists = new IdentityHashMap<List<ApDevice>, Boolean>();
+		for (int i = 0; i < size; i++) {
+			MobileDevice st = smartThings.get(i);
+			if (isEvaluated(st)) {
+				strategies[i] = (ParallelDecisionMigration) strategyOf(st);
+				contexts[i] = new MigrationDecisionContext(st,
+					strategies[i].getServerCloudlets(), strategies[i].getApDevices());
+				contexts[i].batch();
+				if (apLists.put(strategies[i].getApDevices(), Boolean.TRUE) == null) {
+					Distances.updateApIndex(strategies[i].getApDevices());
+				}
+			}
+		}
+
+		ParallelBatch.forEach(size, new ParallelBatch.Task() {
+
+			@Override
+			public void run(int index) {
+				if (contexts[index] != null) {
+					decisions[index] = strategies[index].check(contexts[index]);
+				}
+			}
+		});
+		final boolean[] passed = new boolean[size];
+		boolean anyPassed = false;
+		for (int i = 0; i < size; i++) {
+			if (contexts[i] != null && decisions[i] == null) {
+				passed[i] = true;
+				anyPassed = true;
+				if (strategies[i].isPredicting()) {
+					contexts[i].setPredictionDirection(Migration.drawPredictionDirection());
+				}
+			}
+		}
+		if (anyPassed) {
+			ParallelBatch.forEach(size, new ParallelBatch.Task() {
+
+				@Override
+				public void run(int index) {
+					if (passed[index]) {
+						decisions[index] = strategies[index].decide(contexts[index]);
+					}
+				}
+			});
+		}
+
+		for (int i = 0; i < size; i++) {
+			boolean migrate = decisions[i] != null && decisions[i].apply();
+			owners.get(i).applyDecisionMigration(smartThings.get(i), migrate);
+		}
+	}
+
+	/**
+	 * Makes the decision of a strategy for a smart thing, one part after the
+	 * other, as one smart thing at a time.
+	 *
+	 * @param strategy
+	 *        - the strategy of the smart thing
+	 * @param context
+	 *        - the context of the smart thing
+	 * @return the decision, to apply
+	 */
+	static MigrationDecision decide(ParallelDecisionMigration strategy,
+		MigrationDecisionContext context) {
+		MigrationDecision decision = strategy.check(context);
+		return decision != null ? decision : strategy.decide(context);
+	}
+
+	private static void decideInOrder(FogDevice sc) {
+		prepareBatches(sc);
+		for (MobileDevice st : sc.getSmartThings()) {
+			//Only the connected smartThings
+			boolean migrate = isEvaluated(st) && strategyOf(st).shouldMigrate(st);
+			sc.applyDecisionMigration(st, migrate);
+		}
+	}
+
+	/**
+	 * Gives the strategies that decide in batches all the smart things of a
+	 * server cloudlet they are about to evaluate.
+	 */
+	private static void prepareBatches(FogDevice sc) {
+		Map<BatchDecisionMigration, List<MobileDevice>> batches = null;
+		for (MobileDevice st : sc.getSmartThings()) {
+			if (isEvaluated(st)) {
+				DecisionMigration strategy = strategyOf(st);
+				if (strategy instanceof BatchDecisionMigration) {
+					if (batches == null) {
+						batches = new LinkedHashMap<BatchDecisionMigration, List<MobileDevice>>();
+					}
+					List<MobileDevice> batch = batches.get(strategy);
+					if (batch == null) {
+						batch = new ArrayList<MobileDevice>();
+						batches.put((BatchDecisionMigration) strategy, batch);
+					}
+					batch.add(st);
+				}
+			}
+		}
+		if (batches != null) {
+			for (Map.Entry<BatchDecisionMigration, List<MobileDevice>> batch : batches.entrySet()) {
+				batch.getKey().prepareDecisions(batch.getValue());
+			}
+		}
+	}
+}
@@ -0,0 +1,169 @@
+package org.fog.vmmigration;
+
+import java.util.List;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.fog.entities.ApDevice;
+import org.fog.entities.FogDevice;
+import org.fog.entities.MobileDevice;
+import org.fog.localization.Geometry;
+
+/**
+ * A snapshot of the features of a smart thing that the migration strategies
+ * decide on and that {@link MyStatistics#logMigrationMetrics} logs: position,
+ * speed, direction, migration point and zone, and the distances to the source
+ * AP, to the server cloudlet of the VM and to the closest other server
+ * cloudlet.
+ * <p>
+ * The snapshot is cached in the smart thing by {@link #of(MobileDevice, List)}
+ * and reused for the rest of the tick, until the smart thing moves (see
+ * {@link org.fog.localization.Coordinate#newCoordinate(MobileDevice)}), changes
+ * its source AP or its VM, or its migration point or zone are verified again
+ * with another result.
+ */
+public class MigrationFeatures {
+
+	private final double time;
+	private final int smartThingMyId;
+	private final int posX;
+	private final int posY;
+	private final int direction;
+	private final int speed;
+	private final ApDevice sourceAp;
+	private final double distanceToSourceAp;
+	private final FogDevice localCloudlet;
+	private final double distanceToLocalCloudlet;
+	private final FogDevice closestCloudlet;
+	private final double distanceToClosestCloudlet;
+	private final boolean migPoint;
+	private final boolean migZone;
+
+	private MigrationFeatures(MobileDevice smartThing, List<FogDevice> serverCloudlets) {
+		time = CloudSim.clock();
+		smartThingMyId = smartThing.getMyId();
+		posX = smartThing.getCoord().getCoordX();
+		posY = smartThing.getCoord().getCoordY();
+		direction = smartThing.getDirection();
+		speed = smartThing.getSpeed();
+		sourceAp = smartThing.getSourceAp();
+		distanceToSourceAp = Geometry.distance(sourceAp.getCoord(), smartThing.getCoord());
+		localCloudlet = smartThing.getVmLocalServerCloudlet();
+		distanceToLocalCloudlet = localCloudlet != null
+			? Geometry.distance(localCloudlet.getCoord(), smartThing.getCoord())
+			: -1;
+
+		FogDevice closest = null;
+		double minDistance = Double.MAX_VALUE;
+		for (FogDevice cloudlet : serverCloudlets) {
+			if (localCloudlet == null || cloudlet.getId() != localCloudlet.getId()) {
+				double distance = Geometry.distance(cloudlet.getCoord(), smartThing.getCoord());
+				if (distance < minDistance) {
+					minDistance = distance;
+					closest = cloudlet;
+				}
+			}
+		}
+		closestCloudlet = closest;
+		distanceToClosestCloudlet = closest != null ? minDistance : -1;
+		migPoint = smartThing.isMigPoint();
+		migZone = smartThing.isMigZone();
+	}
+
+	/**
+	 * Gets the features of a smart thing, from its cached snapshot if it is
+	 * still valid.
+	 *
+	 * @param smartThing
+	 *        - the smart thing
+	 * @param serverCloudlets
+	 *        - the server cloudlets searched for the closest one
+	 * @return the features
+	 */
+	public static MigrationFeatures of(MobileDevice smartThing, List<FogDevice> serverCloudlets) {
+		MigrationFeatures features = smartThing.getMigrationFeatures();
+		if (features == null || !features.isValidFor(smartThing)) {
+			features = new MigrationFeatures(smartThing, serverCloudlets);
+			smartThing.setMigrationFeatures(features);
+		}
+		return features;
+	}
+
+	private boolean isValidFor(MobileDevice smartThing) {
+		return time == CloudSim.clock()
+			&& sourceAp == smartThing.getSourceAp()
+			&& localCloudlet == smartThing.getVmLocalServerCloudlet()
+			&& migPoint == smartThing.isMigPoint()
+			&& migZone == smartThing.isMigZone();
+	}
+
+	public double getTime() {
+		return time;
+	}
+
+	public int getSmartThingMyId() {
+		return smartThingMyId;
+	}
+
+	public int getPosX() {
+		return posX;
+	}
+
+	public int getPosY() {
+		return posY;
+	}
+
+	public int getDirection() {
+		return direction;
+	}
+
+	public int getSpeed() {
+		return speed;
+	}
+
+	public ApDevice getSourceAp() {
+		return sourceAp;
+	}
+
+	public double getDistanceToSourceAp() {
+		return distanceToSourceAp;
+	}
+
+	/** Gets the server cloudlet of the VM, or null. */
+	public FogDevice getLocalCloudlet() {
+		return localCloudlet;
+	}
+
+	public String getLocalCloudletName() {
+		return localCloudlet != null ? localCloudlet.getName() : "None";
+	}
+
+	/** Gets the distance to the server cloudlet of the VM, or -1 without one. */
+	public double getDistanceToLocalCloudlet() {
+		return distanceToLocalCloudlet;
+	}
+
+	/**
+	 * Gets the closest server cloudlet, other than the one of the VM, or null
+	 * if there is none.
+	 */
+	public FogDevice getClosestCloudlet() {
+		return closestCloudlet;
+	}
+
+	public String getClosestCloudletName() {
+		return closestCloudlet != null ? closestCloudlet.getName() : "None";
+	}
+
+	/** Gets the distance to {@link #getClosestCloudlet()}, or -1 without one. */
+	public double getDistanceToClosestCloudlet() {
+		return distanceToClosestCloudlet;
+	}
+
+	public boolean isMigPoint() {
+		return migPoint;
+	}
+
+	public boolean isMigZone() {
+		return migZone;
+	}
+}
@@ -0,0 +1,346 @@
+package org.fog.vmmigration;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The migration decision model of the service in
+ * <tt>mobfogsim_migration_api</tt> (its <tt>MigrationModel</tt>), run inside
+ * the simulator: a stack of dense layers, each followed by a ReLU, a sigmoid
+ * or no activation.
+ * <p>
+ * The weights are read from the text file written by
+ * <tt>export_weights.py</tt> from the PyTorch checkpoint:
+ *
+ * <pre>
+ * # comment
+ * mlp &lt;inputs&gt;
+ * dense &lt;outputs&gt; &lt;linear|relu|sigmoid&gt;
+ * &lt;one line of inputs weights per output&gt;
+ * &lt;one line of outputs biases&gt;
+ * dense ...
+ * </pre>
+ *
+ * A model can not be changed once read, so it can be shared by all the
+ * strategies and threads. It is evaluated by {@link Evaluator}s, which hold
+ * the buffers of the layers and do not allocate anything.
+ * <p>
+ * The file of the shared model can be set with <tt>-Dmobfogsim.model</tt>. By
+ * default, it is {@link #DEFAULT_PATH} from the directory of the input
+ * directory (<tt>-Dmobfogsim.input.dir</tt>, links resolved), so that it is
+ * found whatever the working directory of the run.
+ */
+public class MigrationModel {
+
+	/** The model file, relative to the directory of the input directory. */
+	public static final String DEFAULT_PATH = "../mobfogsim_migration_api/decision_model.weights";
+
+	/** The probability above which the service decides to migrate. */
+	public static final float THRESHOLD = 0.5f;
+
+	public static final int LINEAR = 0;
+	public static final int RELU = 1;
+	public static final int SIGMOID = 2;
+
+	private static final String[] ACTIVATIONS = { "linear", "relu", "sigmoid" };
+
+	private static MigrationModel instance;
+
+	private final int inputSize;
+	/** The number of outputs of each layer. */
+	private final int[] sizes;
+	/** The weights of each layer, one row of inputs per output. */
+	private final float[][] weights;
+	private final float[][] biases;
+	private final int[] activations;
+	private final int maxSize;
+
+	private MigrationModel(int inputSize, int[] sizes, float[][] weights, float[][] biases,
+		int[] activations) {
+		this.inputSize = inputSize;
+		this.sizes = sizes;
+		this.weights = weights;
+		this.biases = biases;
+		this.activations = activations;
+		int max = inputSize;
+		for (int size : sizes) {
+			max = Math.max(max, size);
+		}
+		maxSize = max;
+	}
+
+	/**
+	 * Gets the model shared by all the {@link DecisionMigrationModel}
+	 * strategies, reading it on the first call.
+	 *
+	 * @throws IllegalStateException
+	 *         if the model file can not be read
+	 */
+	public static synchronized MigrationModel getInstance() {
+		if (instance == null) {
+			String path = System.getProperty("mobfogsim.model");
+			try {
+				if (path == null) {
+					path = defaultPath();
+				}
+				instance = read(path);
+			} catch (IOException e) {
+				throw new IllegalStateException("Can not read the migration model " + path
+					+ " (see mobfogsim_migration_api/export_weights.py)", e);
+			}
+		}
+		return instance;
+	}
+
+	/**
+	 * Gets the path of the model file when not set: {@link #DEFAULT_PATH},
+	 * resolved against the directory of the input directory.
+	 */
+	private static String defaultPath() throws IOException {
+		File input = new File(System.getProperty("mobfogsim.input.dir", "input")).getCanonicalFile();
+		return new File(input.getParentFile(), DEFAULT_PATH).getCanonicalPath();
+	}
+
+	public static synchronized void setInstance(MigrationModel instance) {
+		MigrationModel.instance = instance;
+	}
+
+	/**
+	 * Reads a model file.
+	 *
+	 * @param path
+	 *        - the path of the file
+	 * @return the model
+	 * @throws IOException
+	 *         if the file can not be read or is not a model file
+	 */
+	public static MigrationModel read(String path) throws IOException {
+		try (Reader reader = new InputStreamReader(new FileInputStream(path),
+			StandardCharsets.UTF_8)) {
+			return read(reader);
+		}
+	}
+
+	/**
+	 * Reads a model.
+	 *
+	 * @param reader
+	 *        - the text of the model file, not closed
+	 * @return the model
+	 * @throws IOException
+	 *         if the text can not be read or is not a model
+	 */
+	public static MigrationModel read(Reader reader) throws IOException {
+		BufferedReader in = new BufferedReader(reader);
+		String[] header = nextLine(in);
+		if (header == null || header.length != 2 || !header[0].equals("mlp")) {
+			throw new IOException("Not a migration model");
+		}
+		int inputSize = parseSize(header[1]);
+		List<float[]> weights = new ArrayList<float[]>();
+		List<float[]> biases = new ArrayList<float[]>();
+		List<Integer> sizes = new ArrayList<Integer>();
+		List<Integer> activations = new ArrayList<Integer>();
+		int inputs = inputSize;
+		String[] layer;
+		while ((layer = nextLine(in)) != null) {
+			if (layer.length != 3 || !layer[0].equals("dense")) {
+				throw new IOException("Expected a dense layer: " + join(layer));
+			}
+			int outputs = parseSize(layer[1]);
+			int activation = parseActivation(layer[2]);
+			float[] w = new float[outputs * inputs];
+			for (int o = 0; o < outputs; o++) {
+				parseRow(nextLine(in), w, o * inputs, inputs);
+			}
+			float[] b = new float[outputs];
+			parseRow(nextLine(in), b, 0, outputs);
+			weights.add(w);
+			biases.add(b);
+			sizes.add(outputs);
+			activations.add(activation);
+			inputs = outputs;
+		}
+		if (sizes.isEmpty()) {
+			throw new IOException("The migration model has no layer");
+		}
+		int[] s = new int[sizes.size()];
+		int[] a = new int[sizes.size()];
+		for (int i = 0; i < s.length; i++) {
+			s[i] = sizes.get(i);
+			a[i] = activations.get(i);
+		}
+		return new MigrationModel(inputSize, s, weights.toArray(new float[0][]),
+			biases.toArray(new float[0][]), a);
+	}
+
+	/** Reads the next line that is neither empty nor a comment, split in words. */
+	private static String[] nextLine(BufferedReader in) throws IOException {
+		String line;
+		while ((line = in.readLine()) != null) {
+			line = line.trim();
+			if (!line.isEmpty() && !line.startsWith("#")) {
+				return line.split("\\s+");
+			}
+		}
+		return null;
+	}
+
+	private static int parseSize(String word) throws IOException {
+		try {
+			int size = Integer.parseInt(word);
+			if (size > 0) {
+				return size;
+			}
+		} catch (NumberFormatException e) {
+			// reported below
+		}
+		throw new IOException("Invalid layer size: " + word);
+	}
+
+	private static int parseActivation(String word) throws IOException {
+		for (int i = 0; i < ACTIVATIONS.length; i++) {
+			if (ACTIVATIONS[i].equals(word)) {
+				return i;
+			}
+		}
+		throw new IOException("Unknown activation: " + word);
+	}
+
+	private static void parseRow(String[] words, float[] row, int offset, int length)
+		throws IOException {
+		if (words == null || words.length != length) {
+			throw new IOException("Expected " + length + " values: "
+				+ (words == null ? "end of file" : join(words)));
+		}
+		try {
+			for (int i = 0; i < length; i++) {
+				row[offset + i] = Float.parseFloat(words[i]);
+			}
+		} catch (NumberFormatException e) {
+			throw new IOException("Invalid value: " + join(words), e);
+		}
+	}
+
+	private static String join(String[] words) {
+		StringBuilder line = new StringBuilder();
+		for (String word : words) {
+			if (line.length() > 0) {
+				line.append(' ');
+			}
+			line.append(word);
+		}
+		return line.toString();
+	}
+
+	public int getInputSize() {
+		return inputSize;
+	}
+
+	public int getOutputSize() {
+		return sizes[sizes.length - 1];
+	}
+
+	/**
+	 * Creates an evaluator of the model, to be used by a single thread.
+	 */
+	public Evaluator newEvaluator() {
+		return new Evaluator();
+	}
+
+	/**
+	 * Evaluates the model, one sample at a time, with its own buffers. It is
+	 * not thread-safe: each thread needs its own.
+	 */
+	public class Evaluator {
+
+		private final float[] input = new float[inputSize];
+		private float[] current = new float[maxSize];
+		private float[] next = new float[maxSize];
+
+		private Evaluator() {
+		}
+
+		/** Gets the model evaluated. */
+		public MigrationModel getModel() {
+			return MigrationModel.this;
+		}
+
+		/**
+		 * Gets the buffer the features of a sample are put in before
+		 * {@link #evaluate()}.
+		 */
+		public float[] getInput() {
+			return input;
+		}
+
+		/**
+		 * Evaluates the model on the sample of {@link #getInput()}.
+		 *
+		 * @return the first output, the probability of migrating for the
+		 *         migration model
+		 */
+		public float evaluate() {
+			forward(input, 0);
+			return current[0];
+		}
+
+		/**
+		 * Evaluates the model on several samples.
+		 *
+		 * @param inputs
+		 *        - the features of the samples, one after the other
+		 * @param count
+		 *        - the number of samples
+		 * @param outputs
+		 *        - where the outputs of the samples are put, one after the
+		 *        other
+		 */
+		public void evaluate(float[] inputs, int count, float[] outputs) {
+			int outputSize = getOutputSize();
+			for (int i = 0; i < count; i++) {
+				forward(inputs, i * inputSize);
+				System.arraycopy(current, 0, outputs, i * outputSize, outputSize);
+			}
+		}
+
+		/** Puts the outputs of the sample at an offset of the inputs in current. */
+		private void forward(float[] inputs, int offset) {
+			float[] in = inputs;
+			int inOffset = offset;
+			int inSize = inputSize;
+			for (int l = 0; l < sizes.length; l++) {
+				float[] w = weights[l];
+				float[] b = biases[l];
+				int activation = activations[l];
+				for (int o = 0; o < sizes[l]; o++) {
+					float sum = b[o];
+					int row = o * inSize;
+					for (int i = 0; i < inSize; i++) {
+						sum += w[row + i] * in[inOffset + i];
+					}
+					if (activation == RELU) {
+						sum = sum > 0 ? sum : 0;
+					}
+					else if (activation == SIGMOID) {
+						sum = (float) (1.0 / (1.0 + Math.exp(-sum)));
+					}
+					next[o] = sum;
+				}
+				float[] swap = current;
+				current = next;
+				next = swap;
+				in = current;
+				inOffset = 0;
+				inSize = sizes[l];
+			}
+		}
+	}
+}
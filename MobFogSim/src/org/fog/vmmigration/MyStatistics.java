@@ -4,13 +4,38 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Map;
 
-import org.fog.vmmobile.LogMobile;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimulationContext;
+import org.fog.utils.FogLog;
+import org.fog.utils.OutputSink;
+import org.fog.utils.OutputSinks;
+import org.fog.utils.RunDirectory;
 
-public class MyStatistics {
-	private static MyStatistics instance;
+public class MyStatistics implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The series of the {@link RunResults} of the run, one table per smart thing. */
+	public static final String LATENCY = "latency";
+	public static final String WITHOUT_CONNECTION = "withoutConnection";
+	public static final String WITHOUT_VM = "withoutVm";
+	public static final String DELAY_AFTER_NEW_CONNECTION = "delayAfterNewConnection";
+	public static final String MIGRATION_TIME = "migrationTime";
+	public static final String DOWNTIME = "downtime";
+
+	/** The instance of each simulation. */
+	private static final SimulationContext.Key<MyStatistics> INSTANCE =
+		new SimulationContext.Key<MyStatistics>() {
+
+			@Override
+			protected MyStatistics initialValue() {
+				return new MyStatistics();
+			}
+		};
 
 	private double totalMigTimes;
 	private double timeOutApplication;
@@ -22,8 +47,6 @@ public class MyStatistics {
 	private String toPrint;
 	private Map<Integer, Integer> myCount;
 
-	private FileWriter fileLatency;
-	private BufferedWriter printFile;
 	private Map<Integer, File> fileMap;
 	private Map<Integer, File> migrationFileMap; // Map exclusivo para logs de migração
 	private int seed;
@@ -63,6 +86,8 @@ public class MyStatistics {
 	private Map<Integer, Double> powerHistory;
 	private Map<Integer, Double> energyHistory;
 
+	private RunResults runResults;
+
 	public MyStatistics() {
 		setTotalMigTimes(0);
 		setTimeOutApplication(0);
@@ -110,9 +135,7 @@ public class MyStatistics {
 	}
 
 	public static MyStatistics getInstance() {
-		if (instance == null)
-			instance = new MyStatistics();
-		return instance;
+		return SimulationContext.current().get(INSTANCE);
 	}
 
 	public void countMigration() {
@@ -121,57 +144,44 @@ public class MyStatistics {
 
 	public void putLatencyFileValue(double latency, double time, String appId, int smartThingMyId,
 		String serverCloudletName, String tupleType) {
-		try {
-			setFileLatency(new FileWriter(getFileMap().get(smartThingMyId), true));
-			setPrintFile(new BufferedWriter(getFileLatency()));
-			int i = getMyCount().get(smartThingMyId);
-			i++;
-			getMyCount().put(smartThingMyId, i);
-			getPrintFile().write(Integer.toString(i) + " - " + Double.toString(time) + " - "
-				+ Double.toString(latency) + " - " + appId + " - smartThingMyId: "
-				+ smartThingMyId + " - " + serverCloudletName + " - TupleType: - " + tupleType);
-			getPrintFile().newLine();
-			getPrintFile().close();
-			getFileLatency().close();
-
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+		int i = getMyCount().get(smartThingMyId);
+		i++;
+		getMyCount().put(smartThingMyId, i);
+		println(getFileMap().get(smartThingMyId), Integer.toString(i) + " - " + Double.toString(time) + " - "
+			+ Double.toString(latency) + " - " + appId + " - smartThingMyId: "
+			+ smartThingMyId + " - " + serverCloudletName + " - TupleType: - " + tupleType);
 	}
 
 	public void putLatencyFileValueCSV(double latency, double time, String appId, int smartThingMyId,
         String serverCloudletName, int posX, int posY, int direction, int speed, String sourceAp) {
-		try {
-			setFileLatency(new FileWriter(getFileMap().get(smartThingMyId), true));
-			setPrintFile(new BufferedWriter(getFileLatency()));
-			int i = getMyCount().get(smartThingMyId);
-			i++;
-			getMyCount().put(smartThingMyId, i);
-			getPrintFile().write(i + ";" + time + ";" + latency + ";" + appId + ";" + smartThingMyId + ";" 
-				+ serverCloudletName + ";" + posX + ";" + posY + ";" + direction + ";" 
-				+ speed + ";" + sourceAp);
-			getPrintFile().newLine();
-			getPrintFile().close();
-			getFileLatency().close();
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+		int i = getMyCount().get(smartThingMyId);
+		i++;
+		getMyCount().put(smartThingMyId, i);
+		println(getFileMap().get(smartThingMyId), i + ";" + time + ";" + latency + ";" + appId + ";" + smartThingMyId + ";" 
+			+ serverCloudletName + ";" + posX + ";" + posY + ";" + direction + ";" 
+			+ speed + ";" + sourceAp);
+		getRunResults().addRow(LATENCY, smartThingMyId, time, latency, posX, posY, direction,
+			speed);
 	}
 
 	public void putMigrationFileHeaders(String[] headers, int smartThingMyId) {
-		try {
-			// Abre o arquivo associado ao device ID para migrações
-			FileWriter fileWriter = new FileWriter(getMigrationFileMap().get(smartThingMyId), true);
-			setPrintFile(new BufferedWriter(fileWriter));
-	
-			// Escreve os cabeçalhos no arquivo
-			getPrintFile().write(String.join(";", headers));
-			getPrintFile().newLine();
-			getPrintFile().close();
-			fileWriter.close();
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+		// Escreve os cabeçalhos no arquivo associado ao device ID para migrações
+		println(getMigrationFileMap().get(smartThingMyId), String.join(";", headers));
+	}
+
+	/**
+	 * Logs a migration decision of a smart thing, with the features it was
+	 * made on.
+	 */
+	public void logMigrationMetrics(MigrationFeatures features, double migrationTime,
+		boolean shouldMigrate, String nextServerCloudlet, String nextAp, String reason,
+		boolean isMigPoint, boolean isMigZone) {
+		logMigrationMetrics(CloudSim.clock(), features.getSmartThingMyId(), features.getPosX(),
+			features.getPosY(), features.getDirection(), features.getSpeed(),
+			features.getSourceAp().getName(), features.getDistanceToSourceAp(), migrationTime,
+			shouldMigrate, nextServerCloudlet, nextAp, reason, features.getLocalCloudletName(),
+			features.getDistanceToLocalCloudlet(), features.getClosestCloudletName(),
+			features.getDistanceToClosestCloudlet(), isMigPoint, isMigZone);
 	}
 
 	public void logMigrationMetrics(double time, int smartThingMyId, int posX, int posY, int direction,
@@ -181,68 +191,38 @@ public class MyStatistics {
                                 String localCloudletName, double distanceToLocalCloudlet,
                                 String closestCloudletName, double distanceToClosestCloudlet,
                                 boolean isMigPoint, boolean isMigZone) {
-		try {
-			// Verifica se o arquivo de logs já foi criado para o dispositivo
-			if (!getMigrationFileMap().containsKey(smartThingMyId)) {
-				// Define o caminho do arquivo e os cabeçalhos
-				setMigrationFileMap("./logs_migration_decision/device_" + smartThingMyId + "_seed_" + getSeed() + ".csv", smartThingMyId);
-				String[] headers = {
-					"Time", "DeviceId", "PosX", "PosY", "Direction", "Speed",
-					"SourceAp", "DistanceToSourceAp", "MigrationTime", "ShouldMigrate",
-					"NextServerCloudlet", "NextAp", "Reason", "LocalCloudlet",
-					"DistanceToLocalCloudlet", "ClosestCloudlet", "DistanceToClosestCloudlet",
-					"IsMigPoint", "IsMigZone"  // Adiciona os novos campos
-				};
-				putMigrationFileHeaders(headers, smartThingMyId); // Adiciona os cabeçalhos ao arquivo de log
-			}
-
-			// Grava as métricas no arquivo
-			setFileLatency(new FileWriter(getMigrationFileMap().get(smartThingMyId), true));
-			setPrintFile(new BufferedWriter(getFileLatency()));
-
-			// Escreve as métricas no arquivo CSV, incluindo isMigPoint e isMigZone
-			getPrintFile().write(time + ";" + smartThingMyId + ";" + posX + ";" + posY + ";" +
-								direction + ";" + speed + ";" + sourceAp + ";" +
-								distanceToSourceAp + ";" + migrationTime + ";" +
-								shouldMigrate + ";" + nextServerCloudlet + ";" + nextAp + ";" +
-								reason + ";" + localCloudletName + ";" + distanceToLocalCloudlet + ";" +
-								closestCloudletName + ";" + distanceToClosestCloudlet + ";" +
-								isMigPoint + ";" + isMigZone);  // Adiciona as novas variáveis
-			getPrintFile().newLine();
-			getPrintFile().close();
-			getFileLatency().close();
-		} catch (IOException e) {
-			e.printStackTrace();
+		// Verifica se o arquivo de logs já foi criado para o dispositivo
+		if (!getMigrationFileMap().containsKey(smartThingMyId)) {
+			// Define o caminho do arquivo e os cabeçalhos
+			setMigrationFileMap("./logs_migration_decision/device_" + smartThingMyId + "_seed_" + getSeed() + ".csv", smartThingMyId);
+			String[] headers = {
+				"Time", "DeviceId", "PosX", "PosY", "Direction", "Speed",
+				"SourceAp", "DistanceToSourceAp", "MigrationTime", "ShouldMigrate",
+				"NextServerCloudlet", "NextAp", "Reason", "LocalCloudlet",
+				"DistanceToLocalCloudlet", "ClosestCloudlet", "DistanceToClosestCloudlet",
+				"IsMigPoint", "IsMigZone"  // Adiciona os novos campos
+			};
+			putMigrationFileHeaders(headers, smartThingMyId); // Adiciona os cabeçalhos ao arquivo de log
 		}
+
+		// Escreve as métricas no arquivo CSV, incluindo isMigPoint e isMigZone
+		println(getMigrationFileMap().get(smartThingMyId), time + ";" + smartThingMyId + ";" + posX + ";" + posY + ";" +
+							direction + ";" + speed + ";" + sourceAp + ";" +
+							distanceToSourceAp + ";" + migrationTime + ";" +
+							shouldMigrate + ";" + nextServerCloudlet + ";" + nextAp + ";" +
+							reason + ";" + localCloudletName + ";" + distanceToLocalCloudlet + ";" +
+							closestCloudletName + ";" + distanceToClosestCloudlet + ";" +
+							isMigPoint + ";" + isMigZone);  // Adiciona as novas variáveis
 	}
 
 
 
 	public void putLantencyFileName(String name, int smartThingMyId) {
-		try {
-			setFileLatency(new FileWriter(getFileMap().get(smartThingMyId), true));
-			setPrintFile(new BufferedWriter(getFileLatency()));
-			getPrintFile().write(name);
-			getPrintFile().newLine();
-			getPrintFile().close();
-			getFileLatency().close();
-
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+		println(getFileMap().get(smartThingMyId), name);
 	}
 
 	public void putLatencyFileHeaders(String[] headers, int smartThingMyId) {
-		try {
-			setFileLatency(new FileWriter(getFileMap().get(smartThingMyId), true));
-			setPrintFile(new BufferedWriter(getFileLatency()));
-			getPrintFile().write(String.join(";", headers));
-			getPrintFile().newLine();
-			getPrintFile().close();
-			getFileLatency().close();
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+		println(getFileMap().get(smartThingMyId), String.join(";", headers));
 	}
 
 	public void startWithoutConnetion(int id, double clock) {
@@ -255,6 +235,7 @@ public class MyStatistics {
 			double correntAverage = getAverageWithoutConnection();
 			double correntCount = getMyCountWithoutConnection();
 			getWithoutConnectionTime().put(id, delay);
+			getRunResults().addRow(WITHOUT_CONNECTION, id, clock, delay);
 			setAverageWithoutConnection((correntAverage * correntCount + delay)
 				/ (correntCount + 1));
 			if (!getMaxWithoutConnectionTime().containsKey(id)) {
@@ -276,8 +257,11 @@ public class MyStatistics {
 			double delay = clock - getInitialWithoutVmTime().get(id);
 			double correntAverage = getAverageWithoutVmTime();
 			double correntCount = getMyCountWithoutVmTime();
-			LogMobile.debug("MyStatistics.java", "SmartThing" + id + " - Downtime: " + delay);
+			if (FogLog.isEnabled(FogLog.Level.DEBUG)) {
+				FogLog.debug("MyStatistics.java", "SmartThing" + id + " - Downtime: " + delay);
+			}
 			getWithoutVmTime().put(id, delay);
+			getRunResults().addRow(WITHOUT_VM, id, clock, delay);
 			setAverageWithoutVmTime((correntAverage * correntCount + delay) / (correntCount + 1));
 			if (!getMaxWithoutVmTime().containsKey(id)) {
 				getMaxWithoutVmTime().put(id, 0.0);
@@ -296,11 +280,14 @@ public class MyStatistics {
 	public void finalDelayAfterNewConnection(int id, double clock) {// T8
 		if (getInitialTimeDelayAfterNewConnection().get(id) != null) {
 			double delay = clock - getInitialTimeDelayAfterNewConnection().get(id);
-			LogMobile.debug("MyStatistics.java", "SmartThing" + id
-				+ " - DelayAfterNewConnection: " + delay);
+			if (FogLog.isEnabled(FogLog.Level.DEBUG)) {
+				FogLog.debug("MyStatistics.java", "SmartThing" + id
+					+ " - DelayAfterNewConnection: " + delay);
+			}
 			double correntAverage = getAverageDelayAfterNewConnection();
 			double correntCount = getMyCountDelayAfterNewConnection();
 			getDelayAfterNewConnection().put(id, delay);
+			getRunResults().addRow(DELAY_AFTER_NEW_CONNECTION, id, clock, delay);
 			setAverageDelayAfterNewConnection((correntAverage * correntCount + delay)
 				/ (correntCount + 1));
 			if (!getMaxDelayAfterNewConnection().containsKey(id)) {
@@ -317,6 +304,7 @@ public class MyStatistics {
 		double correntAverage = getAverageMigrationTime();
 		double correntCount = getMyCountMigrationTime();
 		getMigrationTime().put(id, time);
+		getRunResults().addRow(MIGRATION_TIME, id, CloudSim.clock(), time);
 		setAverageMigrationTime((correntAverage * correntCount + time) / (correntCount + 1));
 		if (!getMaxMigrationTime().containsKey(id)) {
 			getMaxMigrationTime().put(id, 0.0);
@@ -330,6 +318,7 @@ public class MyStatistics {
 		double correntAverage = getAverageDowntime();
 		double correntCount = getMyCountDowntime();
 		getDowntime().put(id, time);
+		getRunResults().addRow(DOWNTIME, id, CloudSim.clock(), time);
 		setAverageDowntime((correntAverage * correntCount + time) / (correntCount + 1));
 		if (!getMaxDowntime().containsKey(id)) {
 			getMaxDowntime().put(id, 0.0);
@@ -356,12 +345,12 @@ public class MyStatistics {
 			String name5 = "./averages/downtime_" + getToPrint();
 			String name6 = "./averages/all_" + getToPrint();
 
-			file1 = new File(name1);
-			file2 = new File(name2);
-			file3 = new File(name3);
-			file4 = new File(name4);
-			file5 = new File(name5);
-			file6 = new File(name6);
+			file1 = RunDirectory.resolve(name1);
+			file2 = RunDirectory.resolve(name2);
+			file3 = RunDirectory.resolve(name3);
+			file4 = RunDirectory.resolve(name4);
+			file5 = RunDirectory.resolve(name5);
+			file6 = RunDirectory.resolve(name6);
 			if (!file1.exists()) {
 				file1.createNewFile();
 			}
@@ -381,12 +370,12 @@ public class MyStatistics {
 				file6.createNewFile();
 			}
 
-			FileWriter fileWriter1 = new FileWriter(name1, true);
-			FileWriter fileWriter2 = new FileWriter(name2, true);
-			FileWriter fileWriter3 = new FileWriter(name3, true);
-			FileWriter fileWriter4 = new FileWriter(name4, true);
-			FileWriter fileWriter5 = new FileWriter(name5, true);
-			FileWriter fileWriter6 = new FileWriter(name6, true);
+			FileWriter fileWriter1 = new FileWriter(file1, true);
+			FileWriter fileWriter2 = new FileWriter(file2, true);
+			FileWriter fileWriter3 = new FileWriter(file3, true);
+			FileWriter fileWriter4 = new FileWriter(file4, true);
+			FileWriter fileWriter5 = new FileWriter(file5, true);
+			FileWriter fileWriter6 = new FileWriter(file6, true);
 			BufferedWriter buffer1 = new BufferedWriter(fileWriter1);
 			BufferedWriter buffer2 = new BufferedWriter(fileWriter2);
 			BufferedWriter buffer3 = new BufferedWriter(fileWriter3);
@@ -439,6 +428,55 @@ public class MyStatistics {
 
 	}
 
+	/**
+	 * Gets the results of the run. The series are defined on the first call,
+	 * which should come after {@link #setSeed(int)}.
+	 *
+	 * @return the results of the run
+	 */
+	public RunResults getRunResults() {
+		if (runResults == null) {
+			runResults = new RunResults(getSeed());
+			runResults.defineSeries(LATENCY, "time", "latency", "posX", "posY", "direction",
+				"speed");
+			runResults.defineSeries(WITHOUT_CONNECTION, "time", "duration");
+			runResults.defineSeries(WITHOUT_VM, "time", "duration");
+			runResults.defineSeries(DELAY_AFTER_NEW_CONNECTION, "time", "delay");
+			runResults.defineSeries(MIGRATION_TIME, "time", "migrationTime");
+			runResults.defineSeries(DOWNTIME, "time", "downtime");
+		}
+		return runResults;
+	}
+
+	/**
+	 * Writes the results of the run, with the aggregates of these statistics,
+	 * to <tt>&lt;dir&gt;/&lt;toPrint&gt;_seed_&lt;seed&gt;.mfsr</tt>, where the
+	 * directory is given by <tt>-Dmobfogsim.results.dir</tt> ("results" by
+	 * default, in the {@link RunDirectory}).
+	 */
+	public void exportResults() {
+		RunResults results = getRunResults();
+		results.putAggregate("totalMigrations", getTotalMigrations());
+		results.putAggregate("totalHandoff", getTotalHandoff());
+		results.putAggregate("countLowestLatency", getMyCountLowestLatency());
+		results.putAggregate("averageWithoutConnection", getAverageWithoutConnection());
+		results.putAggregate("averageWithoutVmTime", getAverageWithoutVmTime());
+		results.putAggregate("averageDelayAfterNewConnection",
+			getAverageDelayAfterNewConnection());
+		results.putAggregate("averageMigrationTime", getAverageMigrationTime());
+		results.putAggregate("averageDowntime", getAverageDowntime());
+		results.putAggregate("lostTuples", getMyCountLostTuple());
+		results.putAggregate("totalTuples", getMyCountTotalTuple());
+
+		File file = new File(RunDirectory.resolve(System.getProperty("mobfogsim.results.dir",
+			"results")), getToPrint() + "_seed_" + getSeed() + RunResults.EXTENSION);
+		try {
+			results.write(file);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
 	public double getTotalMigTimes() {
 		return totalMigTimes;
 	}
@@ -464,23 +502,24 @@ public class MyStatistics {
 	}
 
 	public static void setInstance(MyStatistics instance) {
-		MyStatistics.instance = instance;
-	}
-
-	public FileWriter getFileLatency() {
-		return fileLatency;
-	}
-
-	public void setFileLatency(FileWriter fileLatency) {
-		this.fileLatency = fileLatency;
+		SimulationContext.current().set(INSTANCE, instance);
 	}
 
-	public void setPrintFile(BufferedWriter printFile) {
-		this.printFile = printFile;
+	/**
+	 * Resolves a file of the log maps against the {@link RunDirectory} of the
+	 * current simulation. The maps keep the names as given, so a simulation
+	 * restored from a checkpoint writes in its own directory.
+	 */
+	private static File resolve(File file) {
+		return RunDirectory.resolve(file.getPath());
 	}
 
-	public BufferedWriter getPrintFile() {
-		return printFile;
+	/**
+	 * Appends a line to a file of the log maps through its {@link OutputSink},
+	 * which also resolves it against the {@link RunDirectory}.
+	 */
+	private static void println(File file, String line) {
+		OutputSinks.println(file.getPath(), line);
 	}
 
 	public Map<Integer, File> getFileMap() {
@@ -488,11 +527,11 @@ public class MyStatistics {
 	}
 
 	public void setFileMap(String name, int id) {
-		File file = new File(name);
-		this.fileMap.put(id, file);
-		getFileMap().get(id).delete();
+		this.fileMap.put(id, new File(name));
+		File file = resolve(getFileMap().get(id));
+		file.delete();
 		try {
-			getFileMap().get(id).createNewFile();
+			file.createNewFile();
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
@@ -505,11 +544,11 @@ public class MyStatistics {
 	}
 
 	public void setMigrationFileMap(String name, int id) {
-		File file = new File(name);
-		this.migrationFileMap.put(id, file);
-		getMigrationFileMap().get(id).delete();
+		this.migrationFileMap.put(id, new File(name));
+		File file = resolve(getMigrationFileMap().get(id));
+		file.delete();
 		try {
-			getMigrationFileMap().get(id).createNewFile();
+			file.createNewFile();
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
@@ -1,12 +1,5 @@
 package org.fog.vmmigration;
 
-import java.io.BufferedWriter;
-import java.io.FileNotFoundException;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.io.PrintWriter;
-import java.io.UnsupportedEncodingException;
-import java.util.Calendar;
 import java.util.List;
 
 import org.cloudbus.cloudsim.core.CloudSim;
@@ -14,7 +7,12 @@ import org.fog.entities.ApDevice;
 import org.fog.entities.FogDevice;
 import org.fog.entities.MobileDevice;
 import org.fog.localization.Coordinate;
-import org.fog.vmmobile.LogMobile;
+import org.fog.localization.MobilityStep;
+import org.fog.placement.SmartThingRegistry;
+import org.fog.utils.FogLog;
+import org.fog.utils.ParallelBatch;
+import org.fog.utils.OutputSink;
+import org.fog.utils.OutputSinks;
 import org.fog.vmmobile.constants.Directions;
 import org.fog.vmmobile.constants.Policies;
 
@@ -22,10 +20,8 @@ public class NextStep {
 
 	private static void saveMobility(MobileDevice st) {
 
-		try (FileWriter fw1 = new FileWriter(st.getMyId() + "out.txt", true);
-			BufferedWriter bw1 = new BufferedWriter(fw1);
-			PrintWriter out1 = new PrintWriter(bw1))
-		{
+		OutputSink out1 = OutputSinks.get(st.getMyId() + "out.txt");
+		if (out1 != null) {
 			out1.println(CloudSim.clock() + " " + st.getMyId() + " Position: "
 				+ st.getCoord().getCoordX() + ", " + st.getCoord().getCoordY() + " Direction: "
 				+ st.getDirection() + " Speed: " + st.getSpeed());
@@ -50,91 +46,70 @@ public class NextStep {
 					+ " Latency: " + st.getDestinationServerCloudlet().getUplinkLatency()
 					+ " Map " + st.getDestinationServerCloudlet().getApplicationMap());
 			}
-		} catch (UnsupportedEncodingException e) {
-			e.printStackTrace();
-		} catch (FileNotFoundException e) {
-			e.printStackTrace();
-		} catch (IOException e) {
-			e.printStackTrace();
 		}
 
-		try (FileWriter fw = new FileWriter(st.getMyId() + "route.txt", true);
-			BufferedWriter bw = new BufferedWriter(fw);
-			PrintWriter out = new PrintWriter(bw))
-		{
-			out.println(st.getMyId() + "\t" + st.getCoord().getCoordX() + "\t"
-				+ st.getCoord().getCoordY() + "\t" + st.getDirection() + "\t" + st.getSpeed()
-				+ "\t" + CloudSim.clock());
-		} catch (UnsupportedEncodingException e) {
-			e.printStackTrace();
-		} catch (FileNotFoundException e) {
-			e.printStackTrace();
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+		OutputSinks.println(st.getMyId() + "route.txt", st.getMyId() + "\t"
+			+ st.getCoord().getCoordX() + "\t" + st.getCoord().getCoordY() + "\t"
+			+ st.getDirection() + "\t" + st.getSpeed() + "\t" + CloudSim.clock());
 
-		try (FileWriter fw = new FileWriter(st.getMyId() + "migrationPos.txt", true);
-			BufferedWriter bw = new BufferedWriter(fw);
-			PrintWriter out = new PrintWriter(bw))
-		{
-			if (st.getSourceServerCloudlet() == null)
-				out.println(st.getCoord().getCoordX() + "\t" + st.getCoord().getCoordY() +
-					"\t" + CloudSim.clock() + "\t" + st.getMigTime() + "\t"
-					+ (CloudSim.clock() + st.getMigTime()));
-		} catch (UnsupportedEncodingException e) {
-			e.printStackTrace();
-		} catch (FileNotFoundException e) {
-			e.printStackTrace();
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+		// the files are created even when there is nothing to write
+		OutputSink migrationPos = OutputSinks.get(st.getMyId() + "migrationPos.txt");
+		if (migrationPos != null && st.getSourceServerCloudlet() == null)
+			migrationPos.println(st.getCoord().getCoordX() + "\t" + st.getCoord().getCoordY() +
+				"\t" + CloudSim.clock() + "\t" + st.getMigTime() + "\t"
+				+ (CloudSim.clock() + st.getMigTime()));
 
-		try (FileWriter fw = new FileWriter(st.getMyId() + "handoffPos.txt", true);
-			BufferedWriter bw = new BufferedWriter(fw);
-			PrintWriter out = new PrintWriter(bw))
-		{
-			if (st.isLockedToHandoff())
-				out.println(st.getCoord().getCoordX() + "\t" + st.getCoord().getCoordY() +
-					"\t" + CloudSim.clock());
-		} catch (UnsupportedEncodingException e) {
-			e.printStackTrace();
-		} catch (FileNotFoundException e) {
-			e.printStackTrace();
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+		OutputSink handoffPos = OutputSinks.get(st.getMyId() + "handoffPos.txt");
+		if (handoffPos != null && st.isLockedToHandoff())
+			handoffPos.println(st.getCoord().getCoordX() + "\t" + st.getCoord().getCoordY() +
+				"\t" + CloudSim.clock());
 
 		if (MyStatistics.getInstance().getInitialWithoutVmTime().get(st.getMyId()) != null) {
-			try (FileWriter fw = new FileWriter(st.getMyId() + "withoutVmTime.txt", true);
-				BufferedWriter bw = new BufferedWriter(fw);
-				PrintWriter out = new PrintWriter(bw))
-			{
-				if (st.getSourceServerCloudlet() == null)
-					out.println(st.getCoord().getCoordX() + "\t" + st.getCoord().getCoordY() +
-						"\t" + CloudSim.clock());
-			} catch (UnsupportedEncodingException e) {
-				e.printStackTrace();
-			} catch (FileNotFoundException e) {
-				e.printStackTrace();
-			} catch (IOException e) {
-				e.printStackTrace();
-			}
+			OutputSink withoutVmTime = OutputSinks.get(st.getMyId() + "withoutVmTime.txt");
+			if (withoutVmTime != null && st.getSourceServerCloudlet() == null)
+				withoutVmTime.println(st.getCoord().getCoordX() + "\t" + st.getCoord().getCoordY() +
+					"\t" + CloudSim.clock());
 		}
 	}
 
+	/**
+	 * Moves the smart things one step along their trajectories, in two phases:
+	 * the steps of all the smart things are first computed in parallel (see
+	 * {@link ParallelBatch}), then applied in the order of the list, with the
+	 * removal of the smart things that left the map and the mobility logs.
+	 * <p>
+	 * As in the sequential loop this replaces, the smart thing that follows a
+	 * removed one in the list does not move in this step, so the runs of a
+	 * seed give the same results as before.
+	 */
 	public static void nextStep(List<FogDevice> serverCloudlets, List<ApDevice> apDevices,
 		List<MobileDevice> smartThings,
 		Coordinate coordDevices, int stepPolicy, int seed) {
-		MobileDevice st = null;
-		Coordinate coordinate = new Coordinate();
+		final MobileDevice[] devices = smartThings.toArray(new MobileDevice[smartThings.size()]);
+		final MobilityStep[] steps = new MobilityStep[devices.length];
 		// It makes the new position according direction and speed
+		ParallelBatch.forEach(devices.length, new ParallelBatch.Task() {
+
+			@Override
+			public void run(int index) {
+				MobileDevice st = devices[index];
+				if (st.getTravelTimeId() != -1 && st.getDirection() != Directions.NONE) {
+					steps[index] = MobilityStep.next(st);
+				}
+			}
+		});
+
+		MobileDevice st = null;
+		int removed = 0;
 		for (int i = 0; i < smartThings.size(); i++) {
 			st = smartThings.get(i);
 			if (st.getTravelTimeId() == -1) {
 				continue;
 			}
-			if ((st.getDirection() != Directions.NONE)) {
-				coordinate.newCoordinate(st);
+			// the devices before i + removed in the array were removed from the list
+			MobilityStep step = steps[i + removed];
+			if (step != null) {
+				step.apply(st);
 			}
 			if (st.getCoord().getCoordX() == -1) {
 
@@ -169,7 +144,11 @@ public class NextStep {
 				}
 				if (st.getSourceAp() == null) {
 					smartThings.remove(st);
-					LogMobile.debug("NextStep.java", st.getName() + " was removed!");
+					removed++;
+					SmartThingRegistry.unregister(st);
+					if (FogLog.isEnabled(FogLog.Level.DEBUG)) {
+						FogLog.debug("NextStep.java", st.getName() + " was removed!");
+					}
 				}
 				else {
 					if (st.getSourceServerCloudlet() != null) {
@@ -178,14 +157,19 @@ public class NextStep {
 					}
 					// it'll remove the smartThing from ap-smartThing's set
 					st.getSourceAp().setSmartThings(st, Policies.REMOVE);
-					LogMobile.debug("NextStep.java", st.getName() + " was removed!");
+					if (FogLog.isEnabled(FogLog.Level.DEBUG)) {
+						FogLog.debug("NextStep.java", st.getName() + " was removed!");
+					}
 					smartThings.remove(st);
+					removed++;
+					SmartThingRegistry.unregister(st);
 				}
 			}
 			else {
-				System.out.println(st.getMyId() + "\t" + st.getCoord().getCoordX() + "\t"
-					+ st.getCoord().getCoordY() + "\t" + CloudSim.clock() + "\t"
-					+ Calendar.getInstance().getTime());
+				if (FogLog.isEnabled(FogLog.Level.TRACE)) {
+					FogLog.trace("NextStep.java", st.getMyId() + "\t" + st.getCoord().getCoordX()
+						+ "\t" + st.getCoord().getCoordY());
+				}
 				saveMobility(st);
 			}
 		}
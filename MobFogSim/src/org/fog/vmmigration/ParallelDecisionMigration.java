@@ -0,0 +1,60 @@
+package org.fog.vmmigration;
+
+import java.util.List;
+
+import org.fog.entities.ApDevice;
+import org.fog.entities.FogDevice;
+
+/**
+ * A migration strategy whose decisions have no side effects: a decision only
+ * reads the topology and the positions, and only changes the smart thing it is
+ * made for (its migration point, zone and time). Everything else it would
+ * change, the destination of the smart thing and the statistics, is kept in
+ * the {@link MigrationDecision} and done when the decision is applied.
+ * <p>
+ * A decision is made in two parts: {@link #check(MigrationDecisionContext)}
+ * rejects the smart things that can not migrate from where they are, and
+ * {@link #decide(MigrationDecisionContext)} chooses the destination of the
+ * others, predicting their position if {@link #isPredicting()}. When all the
+ * smart things evaluated in a tick have such strategies, each part of their
+ * decisions is made at the same time, by several threads, and the decisions
+ * are then applied in a fixed order (see {@link MigrationDecisions}).
+ */
+public interface ParallelDecisionMigration extends DecisionMigration {
+
+	/**
+	 * Makes the part of the decision that needs no prediction of the position
+	 * of the smart thing: updates its migration point and zone and rejects the
+	 * migration if they do not allow it. It may be called by any thread, at
+	 * the same time as for other smart things, and is called once per context.
+	 *
+	 * @param context
+	 *        - the context of the smart thing, made with the server cloudlets
+	 *        and Aps of this strategy
+	 * @return the decision if already made, or null if
+	 *         {@link #decide(MigrationDecisionContext)} must make it
+	 */
+	public MigrationDecision check(MigrationDecisionContext context);
+
+	/**
+	 * Tells whether {@link #decide(MigrationDecisionContext)} predicts the
+	 * position of the smart thing, i.e. asks the context for its candidates.
+	 */
+	public boolean isPredicting();
+
+	/**
+	 * Decides whether the smart thing of a context should migrate, once
+	 * {@link #check(MigrationDecisionContext)} has let it. It may be called by
+	 * any thread, at the same time as for other smart things, and is called
+	 * once per context.
+	 *
+	 * @param context
+	 *        - the context given to {@link #check(MigrationDecisionContext)}
+	 * @return the decision, to apply
+	 */
+	public MigrationDecision decide(MigrationDecisionContext context);
+
+	public List<FogDevice> getServerCloudlets();
+
+	public List<ApDevice> getApDevices();
+}
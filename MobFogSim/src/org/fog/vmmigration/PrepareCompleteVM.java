@@ -5,6 +5,9 @@ import org.fog.entities.FogDevice;
 import org.fog.entities.MobileDevice;
 
 public class PrepareCompleteVM implements BeforeMigration {
+
+	private static final long serialVersionUID = 1L;
+
 	private double timeToOpenConnection = 0.0;
 
 	@Override
@@ -6,6 +6,8 @@ import org.fog.vmmobile.constants.MaxAndMin;
 
 public class PrepareContainerVM implements BeforeMigration {
 
+	private static final long serialVersionUID = 1L;
+
 	private double timeToOpenConnection = 0.0;
 
 	@Override
@@ -4,6 +4,9 @@ import org.fog.entities.FogDevice;
 import org.fog.entities.MobileDevice;
 
 public class PrepareLiveMigration implements BeforeMigration {
+
+	private static final long serialVersionUID = 1L;
+
 	private double timeToOpenConnection = 0.0;
 
 	@Override
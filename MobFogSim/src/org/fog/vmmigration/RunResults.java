@@ -0,0 +1,291 @@
+package org.fog.vmmigration;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The results of one simulation run, kept in memory and written as a single
+ * compact file at the end of the run, instead of the loose text files written
+ * by {@link MyStatistics} and the controller.
+ * <p>
+ * A run has parameters (the command line of the run), aggregates (one value
+ * per run, like the average downtime) and series (a table per smart thing,
+ * like the latency of each tuple). The series are stored by column, so a
+ * column is one contiguous array of doubles, which compresses well and can be
+ * read without parsing text.
+ * <p>
+ * The file is a gzip stream of big-endian values (as written by
+ * {@link DataOutputStream}; strings use its modified UTF-8):
+ *
+ * <pre>
+ * int    MAGIC ("MFSR"), int VERSION, int seed
+ * int    parameter count, then (utf name, utf value) each
+ * int    aggregate count, then (utf name, double value) each
+ * int    series count, then for each series:
+ *        utf name, int column count, utf column name each,
+ *        int device count, then for each device:
+ *        int device (myId), int rows, then each column: rows doubles
+ * </pre>
+ *
+ * {@link RunResultsReader} reads it back.
+ */
+public class RunResults implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	public static final int MAGIC = 0x4D465352; // "MFSR"
+	public static final int VERSION = 1;
+
+	/** The extension of the result files. */
+	public static final String EXTENSION = ".mfsr";
+
+	private final int seed;
+	private final Map<String, String> parameters = new LinkedHashMap<>();
+	private final Map<String, Double> aggregates = new LinkedHashMap<>();
+	private final Map<String, Series> series = new LinkedHashMap<>();
+
+	public RunResults(int seed) {
+		this.seed = seed;
+	}
+
+	public int getSeed() {
+		return seed;
+	}
+
+	public void putParameter(String name, Object value) {
+		parameters.put(name, String.valueOf(value));
+	}
+
+	public Map<String, String> getParameters() {
+		return parameters;
+	}
+
+	public void putAggregate(String name, double value) {
+		aggregates.put(name, value);
+	}
+
+	public Map<String, Double> getAggregates() {
+		return aggregates;
+	}
+
+	/**
+	 * Defines a series. It must be defined before rows are added to it.
+	 *
+	 * @param name
+	 *        - the name of the series
+	 * @param columns
+	 *        - the names of its columns
+	 */
+	public void defineSeries(String name, String... columns) {
+		if (columns.length == 0) {
+			throw new IllegalArgumentException("Series " + name + " has no columns");
+		}
+		Series existing = series.get(name);
+		if (existing != null) {
+			if (!Arrays.equals(existing.columns, columns)) {
+				throw new IllegalArgumentException("Series " + name
+					+ " already defined with columns " + Arrays.toString(existing.columns));
+			}
+			return;
+		}
+		series.put(name, new Series(columns));
+	}
+
+	/**
+	 * Adds a row to the series of a device.
+	 *
+	 * @param name
+	 *        - the name of the series
+	 * @param device
+	 *        - the myId of the smart thing
+	 * @param values
+	 *        - a value for each column of the series
+	 */
+	public void addRow(String name, int device, double... values) {
+		Series s = series.get(name);
+		if (s == null) {
+			throw new IllegalArgumentException("Undefined series: " + name);
+		}
+		if (values.length != s.columns.length) {
+			throw new IllegalArgumentException("Series " + name + " has " + s.columns.length
+				+ " columns, got " + values.length + " values");
+		}
+		Columns table = s.devices.get(device);
+		if (table == null) {
+			table = new Columns(values.length);
+			s.devices.put(device, table);
+		}
+		table.add(values);
+	}
+
+	public Set<String> getSeriesNames() {
+		return series.keySet();
+	}
+
+	public String[] getColumnNames(String name) {
+		Series s = series.get(name);
+		return s == null ? new String[0] : s.columns.clone();
+	}
+
+	/**
+	 * Gets the devices that have rows in a series.
+	 *
+	 * @param name
+	 *        - the name of the series
+	 * @return the myIds of the devices, ascending
+	 */
+	public Set<Integer> getDevices(String name) {
+		Series s = series.get(name);
+		return s == null ? Collections.<Integer> emptySet() : s.devices.keySet();
+	}
+
+	/**
+	 * Gets the number of rows of the series of a device.
+	 */
+	public int getRows(String name, int device) {
+		Columns table = table(name, device);
+		return table == null ? 0 : table.rows;
+	}
+
+	/**
+	 * Gets a column of the series of a device.
+	 *
+	 * @param name
+	 *        - the name of the series
+	 * @param device
+	 *        - the myId of the smart thing
+	 * @param column
+	 *        - the name of the column
+	 * @return a copy of the values, one per row
+	 */
+	public double[] getColumn(String name, int device, String column) {
+		int c = Arrays.asList(getColumnNames(name)).indexOf(column);
+		if (c < 0) {
+			throw new IllegalArgumentException("Series " + name + " has no column " + column);
+		}
+		Columns table = table(name, device);
+		return table == null ? new double[0] : Arrays.copyOf(table.values[c], table.rows);
+	}
+
+	private Columns table(String name, int device) {
+		Series s = series.get(name);
+		return s == null ? null : s.devices.get(device);
+	}
+
+	/**
+	 * Encodes and compresses the results.
+	 *
+	 * @return the content of the result file
+	 */
+	public byte[] toByteArray() {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(bytes, 64 * 1024))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(seed);
+			out.writeInt(parameters.size());
+			for (Map.Entry<String, String> parameter : parameters.entrySet()) {
+				out.writeUTF(parameter.getKey());
+				out.writeUTF(parameter.getValue());
+			}
+			out.writeInt(aggregates.size());
+			for (Map.Entry<String, Double> aggregate : aggregates.entrySet()) {
+				out.writeUTF(aggregate.getKey());
+				out.writeDouble(aggregate.getValue());
+			}
+			out.writeInt(series.size());
+			for (Map.Entry<String, Series> entry : series.entrySet()) {
+				Series s = entry.getValue();
+				out.writeUTF(entry.getKey());
+				out.writeInt(s.columns.length);
+				for (String column : s.columns) {
+					out.writeUTF(column);
+				}
+				out.writeInt(s.devices.size());
+				for (Map.Entry<Integer, Columns> device : s.devices.entrySet()) {
+					Columns table = device.getValue();
+					out.writeInt(device.getKey());
+					out.writeInt(table.rows);
+					for (double[] column : table.values) {
+						for (int row = 0; row < table.rows; row++) {
+							out.writeDouble(column[row]);
+						}
+					}
+				}
+			}
+		} catch (IOException e) {
+			// a ByteArrayOutputStream does not throw
+			throw new IllegalStateException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Writes the results to a file with a single write. The parent directory
+	 * is created if needed and an existing file is replaced.
+	 *
+	 * @param file
+	 *        - the result file
+	 * @throws IOException
+	 *         if the file can not be written
+	 */
+	public void write(File file) throws IOException {
+		byte[] content = toByteArray();
+		File parent = file.getAbsoluteFile().getParentFile();
+		if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+			throw new IOException("Can not create directory " + parent);
+		}
+		try (OutputStream out = new FileOutputStream(file)) {
+			out.write(content);
+		}
+	}
+
+	private static class Series implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final String[] columns;
+		private final Map<Integer, Columns> devices = new TreeMap<>();
+
+		Series(String[] columns) {
+			this.columns = columns.clone();
+		}
+	}
+
+	/** The growable columns of the table of one device. */
+	private static class Columns implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private double[][] values;
+		private int rows;
+
+		Columns(int columns) {
+			values = new double[columns][16];
+		}
+
+		void add(double[] row) {
+			if (rows == values[0].length) {
+				for (int c = 0; c < values.length; c++) {
+					values[c] = Arrays.copyOf(values[c], rows * 2);
+				}
+			}
+			for (int c = 0; c < values.length; c++) {
+				values[c][rows] = row[c];
+			}
+			rows++;
+		}
+	}
+}
@@ -0,0 +1,177 @@
+package org.fog.vmmigration;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads the result files written by {@link RunResults}.
+ * <p>
+ * Its main method turns the aggregates of many runs into a single CSV table,
+ * one line per run, for the sweep post-processing:
+ *
+ * <pre>
+ * java org.fog.vmmigration.RunResultsReader results/*.mfsr &gt; runs.csv
+ * </pre>
+ */
+public class RunResultsReader {
+
+	private RunResultsReader() {
+	}
+
+	/**
+	 * Reads a result file.
+	 *
+	 * @param file
+	 *        - the result file
+	 * @return the results
+	 * @throws IOException
+	 *         if the file can not be read or is not a result file
+	 */
+	public static RunResults read(File file) throws IOException {
+		return read(file, true);
+	}
+
+	/**
+	 * Reads the seed, parameters and aggregates of a result file, without its
+	 * series. Only the beginning of the file is decompressed.
+	 *
+	 * @param file
+	 *        - the result file
+	 * @return the results, without series
+	 * @throws IOException
+	 *         if the file can not be read or is not a result file
+	 */
+	public static RunResults readSummary(File file) throws IOException {
+		return read(file, false);
+	}
+
+	private static RunResults read(File file, boolean withSeries) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+			new GZIPInputStream(new FileInputStream(file), 64 * 1024)))) {
+			if (in.readInt() != RunResults.MAGIC) {
+				throw new IOException("Not a result file: " + file);
+			}
+			int version = in.readInt();
+			if (version != RunResults.VERSION) {
+				throw new IOException("Unsupported result file version " + version + ": " + file);
+			}
+			RunResults results = new RunResults(in.readInt());
+			int parameters = in.readInt();
+			for (int i = 0; i < parameters; i++) {
+				results.putParameter(in.readUTF(), in.readUTF());
+			}
+			int aggregates = in.readInt();
+			for (int i = 0; i < aggregates; i++) {
+				results.putAggregate(in.readUTF(), in.readDouble());
+			}
+			if (!withSeries) {
+				return results;
+			}
+			int series = in.readInt();
+			for (int i = 0; i < series; i++) {
+				String name = in.readUTF();
+				String[] columns = new String[in.readInt()];
+				for (int c = 0; c < columns.length; c++) {
+					columns[c] = in.readUTF();
+				}
+				results.defineSeries(name, columns);
+				int devices = in.readInt();
+				for (int d = 0; d < devices; d++) {
+					int device = in.readInt();
+					int rows = in.readInt();
+					double[][] values = new double[columns.length][rows];
+					for (int c = 0; c < columns.length; c++) {
+						for (int row = 0; row < rows; row++) {
+							values[c][row] = in.readDouble();
+						}
+					}
+					double[] row = new double[columns.length];
+					for (int r = 0; r < rows; r++) {
+						for (int c = 0; c < columns.length; c++) {
+							row[c] = values[c][r];
+						}
+						results.addRow(name, device, row);
+					}
+				}
+			}
+			return results;
+		}
+	}
+
+	/**
+	 * Prints the seed, parameters and aggregates of result files as CSV. The
+	 * columns are the union of those of all the files; missing values are
+	 * left empty.
+	 *
+	 * @param args
+	 *        - the result files
+	 */
+	public static void main(String[] args) throws IOException {
+		List<File> files = new ArrayList<>();
+		for (String arg : args) {
+			files.add(new File(arg));
+		}
+		printSummary(files, System.out);
+	}
+
+	/**
+	 * Prints the seed, parameters and aggregates of result files as CSV, one
+	 * line per file. The columns are the union of those of all the files;
+	 * missing values are left empty.
+	 *
+	 * @param files
+	 *        - the result files
+	 * @param out
+	 *        - where the table is printed
+	 * @throws IOException
+	 *         if a file can not be read or is not a result file
+	 */
+	public static void printSummary(List<File> files, PrintStream out) throws IOException {
+		List<RunResults> runs = new ArrayList<>();
+		Set<String> parameters = new LinkedHashSet<>();
+		Set<String> aggregates = new LinkedHashSet<>();
+		for (File file : files) {
+			RunResults results = readSummary(file);
+			runs.add(results);
+			parameters.addAll(results.getParameters().keySet());
+			aggregates.addAll(results.getAggregates().keySet());
+		}
+
+		StringBuilder line = new StringBuilder("file;seed");
+		for (String name : parameters) {
+			line.append(';').append(name);
+		}
+		for (String name : aggregates) {
+			line.append(';').append(name);
+		}
+		out.println(line);
+		for (int i = 0; i < runs.size(); i++) {
+			RunResults results = runs.get(i);
+			line.setLength(0);
+			line.append(files.get(i).getPath()).append(';').append(results.getSeed());
+			appendValues(line, parameters, results.getParameters());
+			appendValues(line, aggregates, results.getAggregates());
+			out.println(line);
+		}
+	}
+
+	private static void appendValues(StringBuilder line, Set<String> names, Map<String, ?> values) {
+		for (String name : names) {
+			line.append(';');
+			Object value = values.get(name);
+			if (value != null) {
+				line.append(value);
+			}
+		}
+	}
+}
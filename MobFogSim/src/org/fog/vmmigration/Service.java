@@ -1,6 +1,11 @@
 package org.fog.vmmigration;
 
-public class Service {
+import java.io.Serializable;
+
+public class Service implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
 	private int type;
 	private float value;
 
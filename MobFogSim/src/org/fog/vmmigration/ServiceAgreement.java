@@ -2,14 +2,32 @@ package org.fog.vmmigration;
 
 import org.fog.entities.FogDevice;
 import org.fog.entities.MobileDevice;
+import org.fog.utils.FogLog;
 import org.fog.vmmobile.constants.Services;
 
 public class ServiceAgreement {
-	private static int serviceType;
-	private static float serviceValue;
 
 	public static boolean serviceAgreement(FogDevice serverCloudlet, MobileDevice smartThing) {
-		setServiceType(serverCloudlet.getService().getType());
+		if (agrees(serverCloudlet, smartThing)) {
+			smartThing.setDestinationServerCloudlet(serverCloudlet);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Tells whether a smart thing agrees to migrate to a server cloudlet, as
+	 * {@link #serviceAgreement(FogDevice, MobileDevice)}, without setting it as
+	 * its destination.
+	 *
+	 * @param serverCloudlet
+	 *        - the destination server cloudlet
+	 * @param smartThing
+	 *        - the smart thing
+	 * @return true if the smart thing can migrate to the server cloudlet
+	 */
+	public static boolean agrees(FogDevice serverCloudlet, MobileDevice smartThing) {
+		int serviceType = serverCloudlet.getService().getType();
 
 		if (!checkLinkStatus(smartThing.getVmLocalServerCloudlet(), serverCloudlet)) {
 			return false;
@@ -17,32 +35,31 @@ public class ServiceAgreement {
 		else if (!serverCloudlet.isAvailable()) {
 			return false;// no migration
 		}
-		else if (getServiceType() == Services.PRIVATE) {
-			smartThing.setDestinationServerCloudlet(serverCloudlet);
+		else if (serviceType == Services.PRIVATE) {
 			return true;
 		}
-		else if (getServiceType() == Services.HIBRID) {
-			smartThing.setDestinationServerCloudlet(serverCloudlet);
+		else if (serviceType == Services.HIBRID) {
 			return true;
 		}
-		else if (getServiceType() == Services.PUBLIC) {
-			setServiceValue(serverCloudlet.getService().getValue());
-			if (getServiceValue() <= smartThing.getMaxServiceValue()) {
-				smartThing.setDestinationServerCloudlet(serverCloudlet);
+		else if (serviceType == Services.PUBLIC) {
+			float serviceValue = serverCloudlet.getService().getValue();
+			if (serviceValue <= smartThing.getMaxServiceValue()) {
 				return true; // the smartThing agrees
 			}
 			else {
-				System.out.println("The value is expensive for the " + serverCloudlet.getName());
-				System.out.println(smartThing.getName() + ": Source "
-					+ smartThing.getSourceServerCloudlet().getName() +
-					" - LocalVm " + smartThing.getVmLocalServerCloudlet().getName());
+				if (FogLog.isEnabled(FogLog.Level.DEBUG)) {
+					FogLog.debug("ServiceAgreement.java", "The value is expensive for the "
+						+ serverCloudlet.getName());
+					FogLog.debug("ServiceAgreement.java", smartThing.getName() + ": Source "
+						+ smartThing.getSourceServerCloudlet().getName() +
+						" - LocalVm " + smartThing.getVmLocalServerCloudlet().getName());
+				}
 				return false;
 			}
 		}
 		else {
-			System.out.println("ServiceAgreement.java - Nao pode passar aqui!");
-			System.exit(0);
-			return false;
+			FogLog.error("ServiceAgreement.java", "Nao pode passar aqui!");
+			throw new IllegalStateException("Nao pode passar aqui!");
 		}
 	}
 
@@ -57,20 +74,4 @@ public class ServiceAgreement {
 		}
 	}
 
-	public static int getServiceType() {
-		return serviceType;
-	}
-
-	public static void setServiceType(int serviceType) {
-		ServiceAgreement.serviceType = serviceType;
-	}
-
-	public static float getServiceValue() {
-		return serviceValue;
-	}
-
-	public static void setServiceValue(float serviceValue) {
-		ServiceAgreement.serviceValue = serviceValue;
-	}
-
-}
\ No newline at end of file
+}
@@ -1,8 +1,10 @@
 package org.fog.vmmigration;
 
+import java.io.Serializable;
+
 import org.fog.entities.MobileDevice;
 
-public interface VmMigrationTechnique {
+public interface VmMigrationTechnique extends Serializable {
 
 	public void verifyPoints(MobileDevice smartThing, int relativePosition);
 
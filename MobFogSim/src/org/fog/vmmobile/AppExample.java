@@ -1,15 +1,12 @@
 package org.fog.vmmobile;
 
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintStream;
-import java.io.PrintWriter;
-import java.io.UnsupportedEncodingException;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
@@ -17,6 +14,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 
@@ -28,7 +26,11 @@ import org.cloudbus.cloudsim.NetworkTopology;
 import org.cloudbus.cloudsim.Pe;
 import org.cloudbus.cloudsim.Storage;
 import org.cloudbus.cloudsim.Vm;
+import org.cloudbus.cloudsim.core.Checkpoint;
+import org.cloudbus.cloudsim.core.CheckpointHandler;
 import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.EventProfiler;
+import org.cloudbus.cloudsim.core.SimulationContext;
 import org.cloudbus.cloudsim.power.PowerHost;
 import org.cloudbus.cloudsim.provisioners.RamProvisionerSimple;
 import org.cloudbus.cloudsim.sdn.overbooking.BwProvisionerOverbooking;
@@ -49,13 +51,21 @@ import org.fog.entities.MobileSensor;
 import org.fog.entities.Tuple;
 import org.fog.localization.Coordinate;
 import org.fog.localization.Distances;
+import org.fog.localization.MappedTraceFile;
+import org.fog.localization.Trajectory;
 import org.fog.placement.MobileController;
 import org.fog.placement.ModuleMapping;
 import org.fog.policy.AppModuleAllocationPolicy;
 import org.fog.scheduler.StreamOperatorScheduler;
 import org.fog.scheduler.TupleScheduler;
+import org.fog.utils.FogEvents;
 import org.fog.utils.FogLinearPowerModel;
+import org.fog.utils.FogLog;
 import org.fog.utils.FogUtils;
+import org.fog.utils.OutputSink;
+import org.fog.utils.OutputSinks;
+import org.fog.utils.RunConsole;
+import org.fog.utils.RunDirectory;
 import org.fog.utils.TimeKeeper;
 import org.fog.utils.distribution.DeterministicDistribution;
 import org.fog.vmmigration.BeforeMigration;
@@ -66,41 +76,71 @@ import org.fog.vmmigration.LiveMigration;
 import org.fog.vmmigration.LowestDistBwSmartThingAP;
 import org.fog.vmmigration.LowestDistBwSmartThingServerCloudlet;
 import org.fog.vmmigration.DecisionMigrationAPI;
+import org.fog.vmmigration.DecisionMigrationModel;
 import org.fog.vmmigration.LowestLatency;
 import org.fog.vmmigration.MyStatistics;
+import org.fog.vmmigration.RunResults;
 import org.fog.vmmigration.PrepareCompleteVM;
 import org.fog.vmmigration.PrepareContainerVM;
 import org.fog.vmmigration.PrepareLiveMigration;
 import org.fog.vmmigration.Service;
 import org.fog.vmmigration.VmMigrationTechnique;
 import org.fog.vmmobile.constants.MaxAndMin;
+import org.fog.vmmobile.constants.MobileEvents;
 import org.fog.vmmobile.constants.Policies;
 import org.fog.vmmobile.constants.Services;
 
 public class AppExample {
-	private static int stepPolicy; // Quantity of steps in the nextStep Function
-	private static List<MobileDevice> smartThings = new ArrayList<MobileDevice>();
-	private static List<FogDevice> serverCloudlets = new ArrayList<>();
-	private static List<ApDevice> apDevices = new ArrayList<>();
-	private static List<FogBroker> brokerList = new ArrayList<>();
-	private static List<String> appIdList = new ArrayList<>();
-	private static List<Application> applicationList = new ArrayList<>();
-
-	private static boolean migrationAble;
-
-	private static int migPointPolicy;
-	private static int migStrategyPolicy;
-	private static int positionApPolicy;
-	private static int positionScPolicy;
-	private static int policyReplicaVM;
-	private static int travelPredicTimeForST; // in seconds
-	private static int mobilityPrecitionError;// in meters
-	private static double latencyBetweenCloudlets;
-	private static int maxBandwidth;
-	private static int maxSmartThings;
-	private static Coordinate coordDevices;
-	private static int seed;
-	private static Random rand;
+	/**
+	 * The parameters, devices and random generator of a simulation, read by
+	 * the static getters from the current simulation context, so that several
+	 * simulations can run in the same JVM and a checkpoint of the context holds
+	 * them too.
+	 */
+	private static class State implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		int stepPolicy; // Quantity of steps in the nextStep Function
+		List<MobileDevice> smartThings = new ArrayList<MobileDevice>();
+		List<FogDevice> serverCloudlets = new ArrayList<>();
+		List<ApDevice> apDevices = new ArrayList<>();
+		List<FogBroker> brokerList = new ArrayList<>();
+		List<String> appIdList = new ArrayList<>();
+		List<Application> applicationList = new ArrayList<>();
+
+		boolean migrationAble;
+
+		int migPointPolicy;
+		int migStrategyPolicy;
+		int positionApPolicy;
+		int positionScPolicy;
+		int policyReplicaVM;
+		int travelPredicTimeForST; // in seconds
+		int mobilityPrecitionError;// in meters
+		double latencyBetweenCloudlets;
+		int maxBandwidth;
+		int maxSmartThings;
+		Coordinate coordDevices;
+		int seed;
+		Random rand;
+	}
+
+	private static final SimulationContext.Key<State> STATE = new SimulationContext.Key<State>() {
+
+		@Override
+		protected State initialValue() {
+			return new State();
+		}
+	};
+
+	/**
+	 * The mobility traces read so far, by file, kept for the next runs of the
+	 * JVM and shared by the runs going on at once: the simulation only reads
+	 * the trajectories.
+	 */
+	private static final Map<String, Trajectory> trajectories = new HashMap<>();
+	private static final Map<String, MappedTraceFile> traceFiles = new HashMap<>();
 	static final boolean CLOUD = true;
 
 	static final int numOfDepts = 1;
@@ -146,7 +186,39 @@ public class AppExample {
 		 *  Tenth parameter: Positive negative Integer -> Base Network Latency between cloudlets
 		 */
 
+		String checkpoint = System.getProperty("mobfogsim.restore");
+		if (checkpoint != null) {
+			resume(new File(checkpoint));
+			return;
+		}
+		if (Integer.parseInt(args[1]) < 1) {
+			System.out.println("Seed cannot be less than 1");
+			System.exit(0);
+		}
+		run(args);
+	}
+
+	/**
+	 * Builds and runs a simulation in the current simulation context, with the
+	 * arguments of {@link #main(String[])}. The JVM exits at the end of the
+	 * simulation, unless {@link MobileController#setExitOnStop(boolean)} has
+	 * been turned off in this context, in which case the method returns and
+	 * can be called again, in another context, for the next run. Several runs
+	 * can go on at once, each in a thread bound to a context of its own. The
+	 * mobility traces read by a run are kept for the next ones.
+	 * <p>
+	 * Checkpoints of the simulation are written at the simulated times listed,
+	 * separated by commas, in <tt>-Dmobfogsim.checkpoint.at</tt>, see
+	 * {@link #resume(File)}.
+	 *
+	 * @param args
+	 *        - the ten arguments of {@link #main(String[])}
+	 * @throws Exception
+	 *         if the run fails
+	 */
+	public static void run(String[] args) throws Exception {
 		Log.disable();
+		reset();
 
 		int numUser = 1; // number of cloud users
 		Calendar calendar = Calendar.getInstance();
@@ -164,8 +236,7 @@ public class AppExample {
 			setMigrationAble(true);
 		}
 		if (getSeed() < 1) {
-			System.out.println("Seed cannot be less than 1");
-			System.exit(0);
+			throw new IllegalArgumentException("Seed cannot be less than 1");
 		}
 		setRand(new Random(getSeed() * Integer.MAX_VALUE));
 		// FIXED_MIGRATION_POINT = 0;
@@ -174,6 +245,8 @@ public class AppExample {
 		// LOWEST_LATENCY = 0;
 		// LOWEST_DIST_BW_SMARTTING_SERVERCLOUDLET = 1;
 		// LOWEST_DIST_BW_SMARTTING_AP = 2;
+		// DECISION_MIGRATION_API = 3;
+		// DECISION_MIGRATION_MODEL = 4;
 		setMigStrategyPolicy(Integer.parseInt(args[3]));
 		setMaxSmartThings(Integer.parseInt(args[4]));
 		setMaxBandwidth(Integer.parseInt(args[5]));
@@ -190,42 +263,50 @@ public class AppExample {
 		 **/
 
 		/* It is creating Access Points. It makes according positionApPolicy */
-		if (positionApPolicy == Policies.FIXED_AP_LOCATION) {
+		if (getPositionApPolicy() == Policies.FIXED_AP_LOCATION) {
 			// it creates the Access Point according coordDevices' size
-			addApDevicesFixed(apDevices, coordDevices);
+			addApDevicesFixed(getApDevices(), getCoordDevices());
 		} else {
 			// it creates the Access Points
 			for (int i = 0; i < MaxAndMin.MAX_AP_DEVICE; i++) {
-				addApDevicesRandon(apDevices, coordDevices, i);
+				addApDevicesRandon(getApDevices(), getCoordDevices(), i);
 			}
 		}
 
 		/* It is creating Server Cloudlets. */
 		if (getPositionScPolicy() == Policies.FIXED_SC_LOCATION) {
-			addServerCloudlet(serverCloudlets, coordDevices);
+			addServerCloudlet(getServerCloudlets(), getCoordDevices());
 		} else {
 			// it creates the ServerCloudlets
 			for (int i = 0; i < MaxAndMin.MAX_SERVER_CLOUDLET; i++) {
-				addServerCloudlet(serverCloudlets, coordDevices, i);
+				addServerCloudlet(getServerCloudlets(), getCoordDevices(), i);
 			}
 		}
+		// the fixed devices are indexed to find the closest ones
+		Distances.indexApDevices(getApDevices());
+		Distances.indexServerCloudlets(getServerCloudlets());
+
+		NetworkTopology.beginBatch();
 		createServerCloudletsNetwork(getServerCloudlets());
-		for (FogDevice sc : getServerCloudlets()) {
-			for (FogDevice sc1 : getServerCloudlets()) {
-				if (sc.equals(sc1)) {
-					break;
+		NetworkTopology.endBatch();
+		if (FogLog.isEnabled(FogLog.Level.DEBUG)) {
+			for (FogDevice sc : getServerCloudlets()) {
+				for (FogDevice sc1 : getServerCloudlets()) {
+					if (sc.equals(sc1)) {
+						break;
+					}
+					FogLog.debug("AppExample.java", "Delay between " + sc.getName() + " and "
+						+ sc1.getName() + ": "
+						+ NetworkTopology.getDelay(sc.getId(), sc1.getId()));
+					FogLog.debug("AppExample.java",
+						sc.getName() + ": " + sc.getDownlinkBandwidth());
 				}
-				System.out.println("Delay between " + sc.getName() + " and "
-					+ sc1.getName() + ": "
-					+ NetworkTopology.getDelay(sc.getId(), sc1.getId()));
-				System.out.println(
-					sc.getName() + ": " + sc.getDownlinkBandwidth());
 			}
 		}
 
 		/* It is creating Smart Things. */
 		for (int i = 0; i < getMaxSmartThings(); i++) {// it creates the SmartThings
-			addSmartThing(smartThings, coordDevices, i);
+			addSmartThing(getSmartThings(), getCoordDevices(), i);
 		}
 
 		readMoblityData();
@@ -233,16 +314,22 @@ public class AppExample {
 		int index;// Auxiliary
 		int myCount = 0;
 
+		// the links of the access points are added in a single batch
+		NetworkTopology.beginBatch();
 		// it makes the connection between SmartThing and the closest AccessPoint
 		for (MobileDevice st : getSmartThings()) {
 			if (!ApDevice.connectApSmartThing(getApDevices(), st,
 				getRand().nextDouble())) {
 				myCount++;
-				LogMobile.debug("AppExample.java",
-					st.getName() + " isn't connected");
+				if (FogLog.isEnabled(FogLog.Level.DEBUG)) {
+					FogLog.debug("AppExample.java",
+						st.getName() + " isn't connected");
+				}
 			}
 		}
-		LogMobile.debug("AppExample.java", "total no connection: " + myCount);
+		if (FogLog.isEnabled(FogLog.Level.DEBUG)) {
+			FogLog.debug("AppExample.java", "total no connection: " + myCount);
+		}
 
 		// it makes the connection between AccessPoint and the closest ServerCloudlet
 		for (ApDevice ap : getApDevices()) {
@@ -250,7 +337,7 @@ public class AppExample {
 			ap.setServerCloudlet(getServerCloudlets().get(index));
 			ap.setParentId(getServerCloudlets().get(index).getId());
 			getServerCloudlets().get(index).setApDevices(ap, Policies.ADD);
-			NetworkTopology.addLink(serverCloudlets.get(index).getId(),
+			NetworkTopology.addLink(getServerCloudlets().get(index).getId(),
 				ap.getId(), ap.getDownlinkBandwidth(),
 				getRand().nextDouble());
 
@@ -261,6 +348,7 @@ public class AppExample {
 
 			}
 		}
+		NetworkTopology.endBatch();
 		/** STEP 3: CREATE BROKER**/
 
 		for (MobileDevice st : getSmartThings()) {
@@ -292,26 +380,28 @@ public class AppExample {
 				st.getSourceServerCloudlet().getHost().vmCreate(vmSmartThingTest);
 				st.setVmLocalServerCloudlet(st.getSourceServerCloudlet());
 
-				System.out.println(st.getMyId() + " Position: "
-					+ st.getCoord().getCoordX() + ", "
-					+ st.getCoord().getCoordY() + " Direction: "
-					+ st.getDirection() + " Speed: " + st.getSpeed());
-				System.out.println("Source AP: " + st.getSourceAp()
-					+ " Dest AP: " + st.getDestinationAp() + " Host: "
-					+ st.getHost().getId());
-				System.out.println("Local server: "
-					+ st.getVmLocalServerCloudlet().getName() + " Apps "
-					+ st.getVmLocalServerCloudlet().getActiveApplications() + " Map "
-					+ st.getVmLocalServerCloudlet().getApplicationMap()
-					+ " Latency " + st.getVmLocalServerCloudlet().getUplinkLatency());
-				if (st.getDestinationServerCloudlet() == null) {
-					System.out.println("Dest server: null Apps: null Map: null");
-				} else {
-					System.out.println("Dest server: "
-						+ st.getDestinationServerCloudlet().getName() + " Apps: " 
-						+ st.getDestinationServerCloudlet().getActiveApplications()
-						+ " Map " + st.getDestinationServerCloudlet().getApplicationMap()
-						+ " Latency " + st.getDestinationServerCloudlet().getUplinkLatency());
+				if (FogLog.isEnabled(FogLog.Level.DEBUG)) {
+					FogLog.debug("AppExample.java", st.getMyId() + " Position: "
+						+ st.getCoord().getCoordX() + ", "
+						+ st.getCoord().getCoordY() + " Direction: "
+						+ st.getDirection() + " Speed: " + st.getSpeed());
+					FogLog.debug("AppExample.java", "Source AP: " + st.getSourceAp()
+						+ " Dest AP: " + st.getDestinationAp() + " Host: "
+						+ st.getHost().getId());
+					FogLog.debug("AppExample.java", "Local server: "
+						+ st.getVmLocalServerCloudlet().getName() + " Apps "
+						+ st.getVmLocalServerCloudlet().getActiveApplications() + " Map "
+						+ st.getVmLocalServerCloudlet().getApplicationMap()
+						+ " Latency " + st.getVmLocalServerCloudlet().getUplinkLatency());
+					if (st.getDestinationServerCloudlet() == null) {
+						FogLog.debug("AppExample.java", "Dest server: null Apps: null Map: null");
+					} else {
+						FogLog.debug("AppExample.java", "Dest server: "
+							+ st.getDestinationServerCloudlet().getName() + " Apps: "
+							+ st.getDestinationServerCloudlet().getActiveApplications()
+							+ " Map " + st.getDestinationServerCloudlet().getApplicationMap()
+							+ " Latency " + st.getDestinationServerCloudlet().getUplinkLatency());
+					}
 				}
 			}
 		}
@@ -394,12 +484,22 @@ public class AppExample {
 			getMigStrategyPolicy(), getStepPolicy(), getCoordDevices(),
 			getSeed(), isMigrationAble());
 		i = 0;
-		for (Application app : applicationList) {
+		for (Application app : getApplicationList()) {
 			mobileController.submitApplication(app, 1);
 		}
 		TimeKeeper.getInstance().setSimulationStartTime(
 			Calendar.getInstance().getTimeInMillis());
 		MyStatistics.getInstance().setSeed(getSeed());
+		RunResults runResults = MyStatistics.getInstance().getRunResults();
+		runResults.putParameter("migrationAble", isMigrationAble());
+		runResults.putParameter("migPointPolicy", getMigPointPolicy());
+		runResults.putParameter("migStrategyPolicy", getMigStrategyPolicy());
+		runResults.putParameter("maxSmartThings", getMaxSmartThings());
+		runResults.putParameter("maxBandwidth", getMaxBandwidth());
+		runResults.putParameter("policyReplicaVM", getPolicyReplicaVM());
+		runResults.putParameter("travelPredicTimeForST", getTravelPredicTimeForST());
+		runResults.putParameter("mobilityPredictionError", getMobilityPrecitionError());
+		runResults.putParameter("latencyBetweenCloudlets", getLatencyBetweenCloudlets());
 		String[] headers = {"Index", "Time", "Latency", "AppId", "SmartThingMyId", "ServerCloudletName", "PosX", "PosY", "Direction", "Speed", "SourceAp"};
 		for (MobileDevice st : getSmartThings()) {
 			if (getMigPointPolicy() == Policies.FIXED_MIGRATION_POINT) {
@@ -415,6 +515,12 @@ public class AppExample {
 						+ getSeed() + "_st_" + st.getMyId() + ".txt", st.getMyId());
 					MyStatistics.getInstance().putLatencyFileHeaders(headers, st.getMyId());
 					MyStatistics.getInstance().setToPrint("FIXED_MIGRATION_POINT_with_DECISION_MIGRATION_API");
+				} else if (getMigStrategyPolicy() == Policies.DECISION_MIGRATION_MODEL) {
+					MyStatistics.getInstance().setFileMap("./logs_device_latency/" + st.getMyId()
+						+ "_latencies_FIXED_MIGRATION_POINT_with_DECISION_MIGRATION_MODEL_seed_"
+						+ getSeed() + "_st_" + st.getMyId() + ".txt", st.getMyId());
+					MyStatistics.getInstance().putLatencyFileHeaders(headers, st.getMyId());
+					MyStatistics.getInstance().setToPrint("FIXED_MIGRATION_POINT_with_DECISION_MIGRATION_MODEL");
 				} else if (getMigStrategyPolicy() == Policies.LOWEST_DIST_BW_SMARTTING_AP) {
 					MyStatistics.getInstance().setFileMap("./logs_device_latency/" + st.getMyId()
 						+ "_latencies_FIXED_MIGRATION_POINT_with_LOWEST_DIST_BW_SMARTTING_AP_seed_"
@@ -441,6 +547,12 @@ public class AppExample {
 						+ getSeed() + "_st_" + st.getMyId() + ".txt", st.getMyId());
 					MyStatistics.getInstance().putLatencyFileHeaders(headers, st.getMyId());
 					MyStatistics.getInstance().setToPrint("SPEED_MIGRATION_POINT_with_DECISION_MIGRATION_API");
+				} else if (getMigStrategyPolicy() == Policies.DECISION_MIGRATION_MODEL) {
+					MyStatistics.getInstance().setFileMap("./logs_device_latency/" + st.getMyId()
+						+ "_latencies_SPEED_MIGRATION_POINT_with_DECISION_MIGRATION_MODEL_seed_"
+						+ getSeed() + "_st_" + st.getMyId() + ".txt", st.getMyId());
+					MyStatistics.getInstance().putLatencyFileHeaders(headers, st.getMyId());
+					MyStatistics.getInstance().setToPrint("SPEED_MIGRATION_POINT_with_DECISION_MIGRATION_MODEL");
 				} else if (getMigStrategyPolicy() == Policies.LOWEST_DIST_BW_SMARTTING_AP) {
 					MyStatistics.getInstance().setFileMap("./logs_device_latency/" + st.getMyId()
 						+ "_latencies_SPEED_MIGRATION_POINT_with_LOWEST_DIST_BW_SMARTTING_AP_seed_"
@@ -460,52 +572,233 @@ public class AppExample {
 
 		myCount = 0;
 
-		for (MobileDevice st : getSmartThings()) {
-			if (st.getSourceAp() != null) {
-				System.out.println("Distance between " + st.getName() + " and "
-					+ st.getSourceAp().getName() + ": "
-					+ Distances.checkDistance(st.getCoord(),
-						st.getSourceAp().getCoord()));
+		if (FogLog.isEnabled(FogLog.Level.DEBUG)) {
+			for (MobileDevice st : getSmartThings()) {
+				if (st.getSourceAp() != null) {
+					FogLog.debug("AppExample.java", "Distance between " + st.getName() + " and "
+						+ st.getSourceAp().getName() + ": "
+						+ Distances.checkDistance(st.getCoord(),
+							st.getSourceAp().getCoord()));
+				}
+			}
+			for (MobileDevice st : getSmartThings()) {
+				FogLog.debug("AppExample.java",
+					st.getName() + "- X: " + st.getCoord().getCoordX() + " Y: "
+						+ st.getCoord().getCoordY() + " Direction: "
+						+ st.getDirection() + " Speed: " + st.getSpeed()
+						+ " VmSize: " + st.getVmMobileDevice().getSize());
+			}
+			for (FogDevice sc : getServerCloudlets()) {
+				FogLog.debug("AppExample.java", sc.getName() + "- X: " + sc.getCoord().getCoordX()
+					+ " Y: " + sc.getCoord().getCoordY()
+					+ " UpLinkLatency: " + sc.getUplinkLatency());
+			}
+			for (ApDevice ap : getApDevices()) {
+				FogLog.debug("AppExample.java", ap.getName() + "- X: " + ap.getCoord().getCoordX()
+					+ " Y: " + ap.getCoord().getCoordY() + " connected to "
+					+ ap.getServerCloudlet().getName());
 			}
 		}
-		for (MobileDevice st : getSmartThings()) {
-			System.out.println(
-				st.getName() + "- X: " + st.getCoord().getCoordX() + " Y: "
-					+ st.getCoord().getCoordY() + " Direction: "
-					+ st.getDirection() + " Speed: " + st.getSpeed()
-					+ " VmSize: " + st.getVmMobileDevice().getSize());
+		setCheckpoints(SimulationContext.current());
+		PrintStream report = setProfiler(SimulationContext.current());
+		PrintStream out = new PrintStream(RunDirectory.resolve("out.txt"));
+		PrintStream stdout = RunConsole.set(out);
+		try {
+			System.out.println("Inicio: " + Calendar.getInstance().getTime());
+			CloudSim.startSimulation();
+			System.out.println("Simulation over");
+			CloudSim.stopSimulation();
+		} finally {
+			RunConsole.set(stdout);
+			out.close();
+			if (report != null) {
+				report.close();
+			}
 		}
-		System.out
-			.println("_+_+_+_+_+_+_+_+_+_+_+_+_+_+_+_+_+_+_+_+_+_+_+_+_+_");
-		for (FogDevice sc : getServerCloudlets()) {
-			System.out.println(sc.getName() + "- X: " + sc.getCoord().getCoordX()
-				+ " Y: " + sc.getCoord().getCoordY()
-				+ " UpLinkLatency: " + sc.getUplinkLatency());
+	}
+
+	/**
+	 * Resumes a simulation from a checkpoint written by {@link #run(String[])},
+	 * in the run directory of the current context. From the command line, the
+	 * checkpoint is given with <tt>-Dmobfogsim.restore=&lt;file&gt;</tt>, and
+	 * the arguments of {@link #main(String[])} are ignored.
+	 * <p>
+	 * The simulation goes on exactly as it did after the checkpoint and ends
+	 * with the same results. The text logs written before the checkpoint are
+	 * not in the checkpoint: restored in a new directory, for instance to fork
+	 * several runs from the same state, the logs start at the checkpoint time.
+	 * Further checkpoints can be taken as in {@link #run(String[])}.
+	 *
+	 * @param file
+	 *        - the checkpoint
+	 * @throws Exception
+	 *         if the checkpoint can not be read or the run fails
+	 */
+	public static void resume(File file) throws Exception {
+		Log.disable();
+		Checkpoint checkpoint = Checkpoint.read(file);
+		File runDirectory = RunDirectory.get();
+		boolean exitOnStop = MobileController.isExitOnStop();
+		SimulationContext previous = SimulationContext.setCurrent(checkpoint.getContext());
+		try {
+			RunDirectory.set(runDirectory);
+			MobileController.setExitOnStop(exitOnStop);
+			setCheckpoints(checkpoint.getContext());
+			PrintStream report = setProfiler(checkpoint.getContext());
+
+			PrintStream out = new PrintStream(RunDirectory.resolve("out.txt"));
+			PrintStream stdout = RunConsole.set(out);
+			try {
+				System.out.println("Inicio: " + Calendar.getInstance().getTime() + " (from "
+					+ file + ", at " + checkpoint.getTime() + ")");
+				CloudSim.startSimulation();
+				System.out.println("Simulation over");
+				CloudSim.stopSimulation();
+			} finally {
+				RunConsole.set(stdout);
+				out.close();
+				if (report != null) {
+					report.close();
+				}
+			}
+		} finally {
+			SimulationContext.setCurrent(previous);
 		}
-		System.out
-			.println("_+_+_+_+_+_+_+_+_+_+_+_+_+_+_+_+_+_+_+_+_+_+_+_+_+_");
-		for (ApDevice ap : getApDevices()) {
-			System.out.println(ap.getName() + "- X: " + ap.getCoord().getCoordX() + " Y: "
-				+ ap.getCoord().getCoordY() + " connected to "
-				+ ap.getServerCloudlet().getName());
+	}
 
+	/**
+	 * Sets the checkpoint times of <tt>-Dmobfogsim.checkpoint.at</tt>, if any.
+	 */
+	private static void setCheckpoints(SimulationContext context) {
+		String times = System.getProperty("mobfogsim.checkpoint.at");
+		if (times == null || times.trim().isEmpty()) {
+			return;
+		}
+		String[] fields = times.split(",");
+		double[] checkpointTimes = new double[fields.length];
+		for (int i = 0; i < fields.length; i++) {
+			checkpointTimes[i] = Double.parseDouble(fields[i].trim());
+		}
+		context.setCheckpoints(new CheckpointWriter(), checkpointTimes);
+	}
+
+	/**
+	 * Profiles the events of the simulation with <tt>-Dmobfogsim.profile=true</tt>.
+	 * The reports go to <tt>profile_report.txt</tt> and the CSV files to the run
+	 * directory. <tt>-Dmobfogsim.profile.sample</tt> sets how often the
+	 * handlers are timed (see {@link EventProfiler#setSampling(int)}) and
+	 * <tt>-Dmobfogsim.profile.report</tt> the simulated time between two
+	 * reports.
+	 *
+	 * @return the stream of the reports, to close when the run is over, or
+	 *         <tt>null</tt> if the events are not profiled
+	 */
+	private static PrintStream setProfiler(SimulationContext context)
+		throws FileNotFoundException {
+		if (!Boolean.getBoolean("mobfogsim.profile")) {
+			return null;
 		}
-		System.setOut(new PrintStream("out.txt"));
-		System.out.println("Inicio: " + Calendar.getInstance().getTime());
-		CloudSim.startSimulation();
-		System.out.println("Simulation over");
-		CloudSim.stopSimulation();
+		EventProfiler profiler = new EventProfiler();
+		profiler.addTagNames(MobileEvents.class, FogEvents.class);
+		profiler.setSampling(Integer.getInteger("mobfogsim.profile.sample", 16));
+		PrintStream report = new PrintStream(RunDirectory.resolve("profile_report.txt"));
+		profiler.setReport(report, Double.parseDouble(System.getProperty(
+			"mobfogsim.profile.report", "100000")));
+		File directory = RunDirectory.get();
+		profiler.setDumpDirectory(directory != null ? directory : new File("."));
+		context.setProfiler(profiler);
+		return report;
+	}
+
+	/**
+	 * Writes the checkpoints of the simulation in the <tt>checkpoints</tt>
+	 * directory of the run, or in <tt>-Dmobfogsim.checkpoint.dir</tt>, as
+	 * <tt>checkpoint_&lt;time&gt;.bin</tt>. A checkpoint that can not be
+	 * written is reported and the simulation goes on.
+	 */
+	private static class CheckpointWriter implements CheckpointHandler {
+
+		@Override
+		public void checkpoint(SimulationContext context, double time) {
+			File dir = RunDirectory.resolve(System.getProperty("mobfogsim.checkpoint.dir",
+				"checkpoints"));
+			File file = new File(dir, "checkpoint_" + (long) time + ".bin");
+			try {
+				if (!dir.isDirectory() && !dir.mkdirs()) {
+					throw new IOException("Could not create " + dir);
+				}
+				new Checkpoint(time, context, null).write(file);
+				FogLog.info("AppExample.java", "Checkpoint at " + time + " (clock "
+					+ context.clock() + "): " + file);
+			} catch (IOException e) {
+				FogLog.warn("AppExample.java", "Checkpoint at " + time + " failed: " + e);
+			}
+		}
+	}
+
+	/**
+	 * Clears the parameters, devices and applications of a previous run in the
+	 * current context.
+	 */
+	private static void reset() {
+		SimulationContext.current().set(STATE, new State());
+	}
+
+	private static State state() {
+		return SimulationContext.current().get(STATE);
 	}
 
 	private static void readMoblityData() {
 
-		File folder = new File("input");
+		// traces compiled by TraceCompiler are mapped instead of parsed
+		File compiled = new File(System.getProperty("mobfogsim.trace",
+			MappedTraceFile.DEFAULT_FILE));
+		if (compiled.isFile()) {
+			readCompiledMobilityData(compiled);
+			return;
+		}
+
+		File folder = new File(System.getProperty("mobfogsim.input.dir", "input"));
 		File[] listOfFiles = folder.listFiles();
 
 		Arrays.sort(listOfFiles);
 		int[] ordem = readDevicePathOrder(listOfFiles[listOfFiles.length - 1]);
 		for (int i = 0; i < getSmartThings().size(); i++) {
-			readDevicePath(getSmartThings().get(i), "input/" + listOfFiles[ordem[i]].getName());
+			readDevicePath(getSmartThings().get(i), listOfFiles[ordem[i]].getPath());
+		}
+	}
+
+	private static void readCompiledMobilityData(File compiled) {
+
+		try {
+			MappedTraceFile traces;
+			synchronized (traceFiles) {
+				traces = traceFiles.get(compiled.getPath());
+				if (traces == null) {
+					traces = MappedTraceFile.open(compiled);
+					traceFiles.put(compiled.getPath(), traces);
+				}
+			}
+			int[] ordem = traces.getOrder(getSmartThings().size());
+			for (int i = 0; i < getSmartThings().size(); i++) {
+				MobileDevice st = getSmartThings().get(i);
+				String key = compiled.getPath() + "#" + ordem[i];
+				Trajectory trajectory;
+				synchronized (trajectories) {
+					trajectory = trajectories.get(key);
+					if (trajectory == null) {
+						trajectory = traces.getTrajectory(ordem[i]);
+						trajectories.put(key, trajectory);
+					}
+				}
+				st.setTrajectory(trajectory);
+
+				Coordinate coordinate = new Coordinate();
+				coordinate.setInitialCoordinate(st);
+				saveMobility(st);
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
 		}
 	}
 
@@ -540,34 +833,37 @@ public class AppExample {
 
 	private static void readDevicePath(MobileDevice st, String filename) {
 
-		String line = "";
-		String cvsSplitBy = "\t";
+		Trajectory trajectory;
+		synchronized (trajectories) {
+			trajectory = trajectories.get(filename);
+			if (trajectory == null) {
+				String line = "";
+				trajectory = new Trajectory();
 
-		try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
+				try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
 
-			while ((line = br.readLine()) != null) {
-
-				// use comma as separator
-				String[] position = line.split(cvsSplitBy);
-
-				st.getPath().add(position);
+					while ((line = br.readLine()) != null) {
+						trajectory.add(line);
+					}
+				} catch (IOException e) {
+					e.printStackTrace();
+					return;
+				}
+				trajectory.trimToSize();
+				trajectories.put(filename, trajectory);
 			}
-
-			Coordinate coordinate = new Coordinate();
-			coordinate.setInitialCoordinate(st);
-			saveMobility(st);
-		} catch (IOException e) {
-			e.printStackTrace();
 		}
+		st.setTrajectory(trajectory);
 
+		Coordinate coordinate = new Coordinate();
+		coordinate.setInitialCoordinate(st);
+		saveMobility(st);
 	}
 
 	private static void saveMobility(MobileDevice st) {
 
-		try (FileWriter fw1 = new FileWriter(st.getMyId() + "out.txt", true);
-			BufferedWriter bw1 = new BufferedWriter(fw1);
-			PrintWriter out1 = new PrintWriter(bw1))
-		{
+		OutputSink out1 = OutputSinks.get(st.getMyId() + "out.txt");
+		if (out1 != null) {
 			out1.println(st.getMyId() + " Position: " + st.getCoord().getCoordX() + ", "
 				+ st.getCoord().getCoordY() + " Direction: " + st.getDirection() + " Speed: "
 				+ st.getSpeed());
@@ -582,27 +878,13 @@ public class AppExample {
 					+ " Latency: " + st.getDestinationServerCloudlet().getUplinkLatency()
 					+ " Map " + st.getDestinationServerCloudlet().getApplicationMap());
 			}
-		} catch (UnsupportedEncodingException e) {
-			e.printStackTrace();
-		} catch (FileNotFoundException e) {
-			e.printStackTrace();
-		} catch (IOException e) {
-			e.printStackTrace();
 		}
 
-		try (FileWriter fw = new FileWriter(st.getMyId() + "route.txt", true);
-			BufferedWriter bw = new BufferedWriter(fw);
-			PrintWriter out = new PrintWriter(bw))
-		{
+		OutputSink out = OutputSinks.get(st.getMyId() + "route.txt");
+		if (out != null) {
 			out.println(st.getMyId() + "\t" + st.getCoord().getCoordX() + "\t"
 				+ st.getCoord().getCoordY() + "\t" + st.getDirection() + "\t" + st.getSpeed()
 				+ "\t" + CloudSim.clock());
-		} catch (UnsupportedEncodingException e) {
-			e.printStackTrace();
-		} catch (FileNotFoundException e) {
-			e.printStackTrace();
-		} catch (IOException e) {
-			e.printStackTrace();
 		}
 	}
 
@@ -614,7 +896,7 @@ public class AppExample {
 		for (int coordX = 0; coordX < MaxAndMin.MAX_X; coordX += (2
 			* MaxAndMin.AP_COVERAGE
 			- (2 * MaxAndMin.AP_COVERAGE / 3))) { /* evenly distributed */
-			System.out.println("Creating Ap devices");
+			FogLog.debug("AppExample.java", "Creating Ap devices");
 			for (coordY = 0; coordY < MaxAndMin.MAX_Y; coordY += (2
 				* MaxAndMin.AP_COVERAGE
 				- (2 * MaxAndMin.AP_COVERAGE / 3)), i++) {
@@ -630,7 +912,9 @@ public class AppExample {
 				apDevices.add(i, ap);
 			}
 		}
-		LogMobile.debug("AppExample.java", "Total of accessPoints: " + i);
+		if (FogLog.isEnabled(FogLog.Level.DEBUG)) {
+			FogLog.debug("AppExample.java", "Total of accessPoints: " + i);
+		}
 
 	}
 
@@ -779,6 +1063,10 @@ public class AppExample {
 			migrationStrategy = new DecisionMigrationAPI(
 				getServerCloudlets(), getApDevices(), getMigPointPolicy(),
 				getPolicyReplicaVM());
+		} else if (getMigStrategyPolicy() == Policies.DECISION_MIGRATION_MODEL) {
+			migrationStrategy = new DecisionMigrationModel(
+				getServerCloudlets(), getApDevices(), getMigPointPolicy(),
+				getPolicyReplicaVM());
 		} else { // Policies.LOWEST_DIST_BW_SMARTTING_AP
 			migrationStrategy = new LowestDistBwSmartThingAP(
 				getServerCloudlets(), getApDevices(), getMigPointPolicy(),
@@ -871,7 +1159,7 @@ public class AppExample {
 		for (coordX = 0; coordX < MaxAndMin.MAX_X; coordX += (2
 			* MaxAndMin.CLOUDLET_COVERAGE
 			- (2 * MaxAndMin.CLOUDLET_COVERAGE / 3))) { /* evenly distributed */
-			System.out.println("Creating Server cloudlets");
+			FogLog.debug("AppExample.java", "Creating Server cloudlets");
 			for (coordY = 0; coordY < MaxAndMin.MAX_X; coordY += (2
 				* MaxAndMin.CLOUDLET_COVERAGE
 				- (2 * MaxAndMin.CLOUDLET_COVERAGE
@@ -888,6 +1176,10 @@ public class AppExample {
 					migrationStrategy = new DecisionMigrationAPI(
 						getServerCloudlets(), getApDevices(),
 						getMigPointPolicy(), getPolicyReplicaVM());
+				} else if (getMigStrategyPolicy() == Policies.DECISION_MIGRATION_MODEL) {
+					migrationStrategy = new DecisionMigrationModel(
+						getServerCloudlets(), getApDevices(),
+						getMigPointPolicy(), getPolicyReplicaVM());
 				} else { // LOWEST_DIST_BW_SMARTTING_AP
 					migrationStrategy = new LowestDistBwSmartThingAP(
 						getServerCloudlets(), getApDevices(),
@@ -972,7 +1264,9 @@ public class AppExample {
 				}
 			}
 		}
-		LogMobile.debug("AppExample.java", "Total of serverCloudlets: " + i);
+		if (FogLog.isEnabled(FogLog.Level.DEBUG)) {
+			FogLog.debug("AppExample.java", "Total of serverCloudlets: " + i);
+		}
 	}
 
 	private static void createServerCloudletsNetwork(List<FogDevice> serverCloudlets) {
@@ -1207,171 +1501,171 @@ public class AppExample {
 	}
 
 	public static int getPolicyReplicaVM() {
-		return policyReplicaVM;
+		return state().policyReplicaVM;
 	}
 
 	public static void setPolicyReplicaVM(int policyReplicaVM) {
-		AppExample.policyReplicaVM = policyReplicaVM;
+		state().policyReplicaVM = policyReplicaVM;
 	}
 
 	public static int getTravelPredicTimeForST() {
-		return travelPredicTimeForST;
+		return state().travelPredicTimeForST;
 	}
 
 	public static void setTravelPredicTimeForST(int travelPredicTimeForST) {
-		AppExample.travelPredicTimeForST = travelPredicTimeForST;
+		state().travelPredicTimeForST = travelPredicTimeForST;
 	}
 
 	public static int getMobilityPrecitionError() {
-		return mobilityPrecitionError;
+		return state().mobilityPrecitionError;
 	}
 
 	public static void setMobilityPredictionError(int mobilityPrecitionError) {
-		AppExample.mobilityPrecitionError = mobilityPrecitionError;
+		state().mobilityPrecitionError = mobilityPrecitionError;
 	}
 
 	public static double getLatencyBetweenCloudlets() {
-		return latencyBetweenCloudlets;
+		return state().latencyBetweenCloudlets;
 	}
 
 	public static void setLatencyBetweenCloudlets(double latencyBetweenCloudlets) {
-		AppExample.latencyBetweenCloudlets = latencyBetweenCloudlets;
+		state().latencyBetweenCloudlets = latencyBetweenCloudlets;
 	}
 
 	public static int getStepPolicy() {
-		return stepPolicy;
+		return state().stepPolicy;
 	}
 
 	public static void setStepPolicy(int stepPolicy) {
-		AppExample.stepPolicy = stepPolicy;
+		state().stepPolicy = stepPolicy;
 	}
 
 	public static List<MobileDevice> getSmartThings() {
-		return smartThings;
+		return state().smartThings;
 	}
 
 	public static void setSmartThings(List<MobileDevice> smartThings) {
-		AppExample.smartThings = smartThings;
+		state().smartThings = smartThings;
 	}
 
 	public static List<FogDevice> getServerCloudlets() {
-		return serverCloudlets;
+		return state().serverCloudlets;
 	}
 
 	public static void setServerCloudlets(List<FogDevice> serverCloudlets) {
-		AppExample.serverCloudlets = serverCloudlets;
+		state().serverCloudlets = serverCloudlets;
 	}
 
 	public static List<ApDevice> getApDevices() {
-		return apDevices;
+		return state().apDevices;
 	}
 
 	public static void setApDevices(List<ApDevice> apDevices) {
-		AppExample.apDevices = apDevices;
+		state().apDevices = apDevices;
 	}
 
 	public static int getMigPointPolicy() {
-		return migPointPolicy;
+		return state().migPointPolicy;
 	}
 
 	public static void setMigPointPolicy(int migPointPolicy) {
-		AppExample.migPointPolicy = migPointPolicy;
+		state().migPointPolicy = migPointPolicy;
 	}
 
 	public static int getMigStrategyPolicy() {
-		return migStrategyPolicy;
+		return state().migStrategyPolicy;
 	}
 
 	public static void setMigStrategyPolicy(int migStrategyPolicy) {
-		AppExample.migStrategyPolicy = migStrategyPolicy;
+		state().migStrategyPolicy = migStrategyPolicy;
 	}
 
 	public static int getPositionApPolicy() {
-		return positionApPolicy;
+		return state().positionApPolicy;
 	}
 
 	public static void setPositionApPolicy(int positionApPolicy) {
-		AppExample.positionApPolicy = positionApPolicy;
+		state().positionApPolicy = positionApPolicy;
 	}
 
 	public static Coordinate getCoordDevices() {
-		return coordDevices;
+		return state().coordDevices;
 	}
 
 	public static void setCoordDevices(Coordinate coordDevices) {
-		AppExample.coordDevices = coordDevices;
+		state().coordDevices = coordDevices;
 	}
 
 	public static List<FogBroker> getBrokerList() {
-		return brokerList;
+		return state().brokerList;
 	}
 
 	public static void setBrokerList(List<FogBroker> brokerList) {
-		AppExample.brokerList = brokerList;
+		state().brokerList = brokerList;
 	}
 
 	public static List<String> getAppIdList() {
-		return appIdList;
+		return state().appIdList;
 	}
 
 	public static void setAppIdList(List<String> appIdList) {
-		AppExample.appIdList = appIdList;
+		state().appIdList = appIdList;
 	}
 
 	public static List<Application> getApplicationList() {
-		return applicationList;
+		return state().applicationList;
 	}
 
 	public static void setApplicationList(List<Application> applicationList) {
-		AppExample.applicationList = applicationList;
+		state().applicationList = applicationList;
 	}
 
 	public static int getSeed() {
-		return seed;
+		return state().seed;
 	}
 
 	public static void setSeed(int seed) {
-		AppExample.seed = seed;
+		state().seed = seed;
 	}
 
 	public static int getPositionScPolicy() {
-		return positionScPolicy;
+		return state().positionScPolicy;
 	}
 
 	public static void setPositionScPolicy(int positionScPolicy) {
-		AppExample.positionScPolicy = positionScPolicy;
+		state().positionScPolicy = positionScPolicy;
 	}
 
 	public static int getMaxSmartThings() {
-		return maxSmartThings;
+		return state().maxSmartThings;
 	}
 
 	public static void setMaxSmartThings(int maxSmartThings) {
-		AppExample.maxSmartThings = maxSmartThings;
+		state().maxSmartThings = maxSmartThings;
 	}
 
 	public static Random getRand() {
-		return rand;
+		return state().rand;
 	}
 
 	public static void setRand(Random rand) {
-		AppExample.rand = rand;
+		state().rand = rand;
 	}
 
 	public static int getMaxBandwidth() {
-		return maxBandwidth;
+		return state().maxBandwidth;
 	}
 
 	public static void setMaxBandwidth(int maxBandwidth) {
-		AppExample.maxBandwidth = maxBandwidth;
+		state().maxBandwidth = maxBandwidth;
 	}
 
 	public static boolean isMigrationAble() {
-		return migrationAble;
+		return state().migrationAble;
 	}
 
 	public static void setMigrationAble(boolean migrationAble) {
-		AppExample.migrationAble = migrationAble;
+		state().migrationAble = migrationAble;
 	}
 
 }
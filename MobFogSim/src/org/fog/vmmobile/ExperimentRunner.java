@@ -0,0 +1,298 @@
+package org.fog.vmmobile;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.cloudbus.cloudsim.core.SimulationContext;
+import org.fog.placement.MobileController;
+import org.fog.utils.OutputSinks;
+import org.fog.utils.RunConsole;
+import org.fog.utils.RunDirectory;
+import org.fog.vmmigration.RunResults;
+import org.fog.vmmigration.RunResultsReader;
+
+/**
+ * Runs a sweep of {@link AppExample} simulations concurrently and merges their
+ * results.
+ * <p>
+ * A sweep is a grid of parameter sets, each made of the ten arguments of
+ * {@link AppExample#main(String[])}, run with several seeds. Each run has its
+ * own directory, <tt>&lt;outputDir&gt;/&lt;parameters&gt;/seed_&lt;seed&gt;</tt>,
+ * where it writes its text logs, its <tt>stdout.txt</tt> and its result file
+ * (see {@link RunResults}). When all the runs are over, the aggregates of the
+ * result files are merged in <tt>&lt;outputDir&gt;/summary.csv</tt>.
+ * <p>
+ * The runs are threads of this JVM, up to {@link #getParallelism()} at the
+ * same time. Each one is bound to a {@link SimulationContext} of its own,
+ * which holds the parameters, the devices and the random generator of the
+ * run, and prints to its own files (see {@link RunDirectory} and
+ * {@link RunConsole}), so the runs do not see each other. They share the loaded classes, the compiled code and the
+ * mobility traces, read once: the <tt>input</tt> directory, or
+ * <tt>input.trace</tt> when it has been compiled, of the current directory.
+ * The runs share the heap too, so the default parallelism is bounded by the
+ * maximum heap size as well as by the number of processors (see
+ * {@link #getDefaultParallelism()}).
+ * <p>
+ * From the command line:
+ *
+ * <pre>
+ * java -Xmx&lt;heap&gt; org.fog.vmmobile.ExperimentRunner &lt;outputDir&gt; &lt;gridFile&gt; &lt;seeds&gt; [parallelism]
+ * </pre>
+ *
+ * Each non-empty line of the grid file not starting with <tt>#</tt> holds the
+ * ten arguments of a parameter set, separated by blanks. Its second argument
+ * is the first seed; the set is run with that seed and the <tt>seeds - 1</tt>
+ * following ones.
+ */
+public class ExperimentRunner {
+
+	/** The index of the seed among the arguments of {@link AppExample}. */
+	public static final int SEED_ARGUMENT = 1;
+	public static final int ARGUMENTS = 10;
+
+	/**
+	 * The heap left to each run, in bytes, when sizing the default
+	 * parallelism: the heap of a run grows with the simulated time.
+	 */
+	public static final long RUN_MEMORY = 4L << 30;
+
+	private final File outputDir;
+	private final List<String[]> runs = new ArrayList<>();
+	private int parallelism = getDefaultParallelism();
+
+	public ExperimentRunner(File outputDir) {
+		this.outputDir = outputDir;
+	}
+
+	/**
+	 * Adds the runs of a parameter set.
+	 *
+	 * @param arguments
+	 *        - the ten arguments of {@link AppExample}; the seed argument is
+	 *        replaced
+	 * @param seeds
+	 *        - the seeds to run the set with
+	 */
+	public void addParameterSet(String[] arguments, int... seeds) {
+		if (arguments.length != ARGUMENTS) {
+			throw new IllegalArgumentException("Expected " + ARGUMENTS + " arguments, got "
+				+ arguments.length + ": " + Arrays.toString(arguments));
+		}
+		for (int seed : seeds) {
+			String[] run = arguments.clone();
+			run[SEED_ARGUMENT] = String.valueOf(seed);
+			runs.add(run);
+		}
+	}
+
+	/**
+	 * Runs all the added runs and merges their results.
+	 *
+	 * @return the number of runs that failed
+	 * @throws IOException
+	 *         if a run directory or the summary can not be written
+	 * @throws InterruptedException
+	 *         if interrupted while waiting for the runs
+	 */
+	public int run() throws IOException, InterruptedException {
+		if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+			throw new IOException("Could not create " + outputDir);
+		}
+		RunConsole.install();
+		ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+		List<Future<Void>> done = new ArrayList<>();
+		List<File> runDirs = new ArrayList<>();
+		try {
+			for (final String[] arguments : runs) {
+				final File runDir = new File(new File(outputDir, getParameterSetName(arguments)),
+					"seed_" + arguments[SEED_ARGUMENT]);
+				runDirs.add(runDir);
+				done.add(executor.submit(new Callable<Void>() {
+
+					@Override
+					public Void call() throws Exception {
+						runOne(runDir, arguments, null);
+						return null;
+					}
+				}));
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		int failures = 0;
+		List<File> resultFiles = new ArrayList<>();
+		for (int i = 0; i < done.size(); i++) {
+			try {
+				done.get(i).get();
+			} catch (ExecutionException e) {
+				System.err.println(runDirs.get(i) + ": failed: " + e.getCause());
+				e.getCause().printStackTrace();
+				failures++;
+				continue;
+			}
+			File[] files = new File(runDirs.get(i), "results").listFiles();
+			if (files == null || files.length == 0) {
+				System.err.println(runDirs.get(i) + ": no results");
+				failures++;
+				continue;
+			}
+			Arrays.sort(files);
+			for (File file : files) {
+				if (file.getName().endsWith(RunResults.EXTENSION)) {
+					resultFiles.add(file);
+				}
+			}
+		}
+
+		try (PrintStream summary = new PrintStream(new File(outputDir, "summary.csv"), "UTF-8")) {
+			RunResultsReader.printSummary(resultFiles, summary);
+		}
+		return failures;
+	}
+
+	/**
+	 * Runs a simulation in the current thread, bound to a new simulation
+	 * context for the time of the run. The run writes its text logs, its
+	 * <tt>stdout.txt</tt> and its result file in its directory.
+	 *
+	 * @param runDir
+	 *        - the directory of the run
+	 * @param arguments
+	 *        - the ten arguments of {@link AppExample}, or null to resume from
+	 *        a checkpoint
+	 * @param checkpoint
+	 *        - the checkpoint to resume from (see
+	 *        {@link AppExample#resume(File)}), or null
+	 * @throws Exception
+	 *         if the run fails
+	 */
+	static void runOne(File runDir, String[] arguments, File checkpoint) throws Exception {
+		for (String dir : new String[] { "logs_device_latency", "logs_migration_decision",
+			"results", "averages" }) {
+			File subDir = new File(runDir, dir);
+			if (!subDir.isDirectory() && !subDir.mkdirs()) {
+				throw new IOException("Could not create " + subDir);
+			}
+		}
+
+		SimulationContext previous = SimulationContext.setCurrent(new SimulationContext());
+		PrintStream stdout = new PrintStream(new File(runDir, "stdout.txt"));
+		RunConsole.set(stdout);
+		try {
+			RunDirectory.set(runDir);
+			MobileController.setExitOnStop(false);
+			if (checkpoint != null) {
+				AppExample.resume(checkpoint);
+			} else {
+				AppExample.run(arguments);
+			}
+		} finally {
+			OutputSinks.closeAll();
+			RunConsole.set(null);
+			stdout.close();
+			SimulationContext.setCurrent(previous);
+		}
+	}
+
+	/**
+	 * Gets the directory name of a parameter set: its arguments but the seed,
+	 * separated by underscores.
+	 */
+	static String getParameterSetName(String[] arguments) {
+		StringBuilder name = new StringBuilder();
+		for (int i = 0; i < arguments.length; i++) {
+			if (i == SEED_ARGUMENT) {
+				continue;
+			}
+			if (name.length() > 0) {
+				name.append('_');
+			}
+			name.append(arguments[i]);
+		}
+		return name.toString();
+	}
+
+	public File getOutputDir() {
+		return outputDir;
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Gets the number of runs at once by default: one per processor, as long
+	 * as each run gets {@link #RUN_MEMORY} of the maximum heap size, and at
+	 * least one.
+	 */
+	public static int getDefaultParallelism() {
+		long byMemory = Runtime.getRuntime().maxMemory() / RUN_MEMORY;
+		return (int) Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), byMemory));
+	}
+
+	public void setParallelism(int parallelism) {
+		if (parallelism <= 0) {
+			throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+		}
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Reads the parameter sets of a grid file.
+	 *
+	 * @param gridFile
+	 *        - the grid file, one parameter set per line
+	 * @return the parameter sets
+	 * @throws IOException
+	 *         if the file can not be read
+	 */
+	public static List<String[]> readGrid(File gridFile) throws IOException {
+		List<String[]> grid = new ArrayList<>();
+		try (BufferedReader br = new BufferedReader(new FileReader(gridFile))) {
+			String line;
+			while ((line = br.readLine()) != null) {
+				line = line.trim();
+				if (!line.isEmpty() && !line.startsWith("#")) {
+					grid.add(line.split("\\s+"));
+				}
+			}
+		}
+		return grid;
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length < 3) {
+			System.err.println("Usage: ExperimentRunner <outputDir> <gridFile> <seeds> [parallelism]");
+			System.exit(2);
+		}
+		ExperimentRunner runner = new ExperimentRunner(new File(args[0]));
+		int seeds = Integer.parseInt(args[2]);
+		if (args.length > 3) {
+			runner.setParallelism(Integer.parseInt(args[3]));
+		}
+		for (String[] arguments : readGrid(new File(args[1]))) {
+			int firstSeed = Integer.parseInt(arguments[SEED_ARGUMENT]);
+			int[] runSeeds = new int[seeds];
+			for (int i = 0; i < seeds; i++) {
+				runSeeds[i] = firstSeed + i;
+			}
+			runner.addParameterSet(arguments, runSeeds);
+		}
+		int failures = runner.run();
+		System.out.println(runner.runs.size() - failures + " runs succeeded, " + failures
+			+ " failed; summary in " + new File(runner.getOutputDir(), "summary.csv"));
+		System.exit(failures == 0 ? 0 : 1);
+	}
+}
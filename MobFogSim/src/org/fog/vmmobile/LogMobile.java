@@ -1,15 +1,17 @@
 package org.fog.vmmobile;
 
-import java.text.DecimalFormat;
-
-import org.cloudbus.cloudsim.core.CloudSim;
+import org.fog.utils.FogLog;
 
+/**
+ * @deprecated the mobility messages go to {@link FogLog}, which prints them at
+ *             the {@link FogLog.Level#DEBUG} level.
+ */
+@Deprecated
 public class LogMobile {
 	public static final int ERROR = 1;
 	public static final int DEBUG = 0;
 	
 	public static int LOG_LEVEL = LogMobile.DEBUG;
-	private static DecimalFormat df = new DecimalFormat("#.00"); 
 
 	public static boolean ENABLED = false;;
 	
@@ -21,13 +23,7 @@ public class LogMobile {
 		if(!ENABLED)
 			return;
 		if(LogMobile.LOG_LEVEL <= LogMobile.DEBUG)
-			System.out.println("Clock: "+CloudSim.clock()+" - "+classJava+": "+message);
+			FogLog.debug(classJava, message);
 	}
-//	public static void error(String name, String message){
-//		if(!ENABLED)
-//			return;
-//		if(LogMobile.LOG_LEVEL <= LogMobile.ERROR)
-//			System.out.println(df.format(CloudSim.clock())+" : "+name+" : "+message);
-//	}
 	
 }
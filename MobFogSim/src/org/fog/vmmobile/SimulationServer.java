@@ -0,0 +1,134 @@
+package org.fog.vmmobile;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+
+import org.cloudbus.cloudsim.core.SimulationContext;
+import org.fog.utils.RunConsole;
+
+/**
+ * Runs {@link AppExample} simulations one after the other in the same JVM.
+ * <p>
+ * Short runs started as JVMs of their own spend much of their time loading
+ * classes, reading the mobility traces and warming up the JIT. The server does
+ * that once, for runs requested by another program: each
+ * run gets a new {@link SimulationContext}, so the simulation state of the
+ * previous run is dropped, while the loaded classes, the compiled code and the
+ * mobility traces read by {@link AppExample} are kept. The server topology, the
+ * APs and the smart things are built again by each run, since they are drawn
+ * from the random generator of its seed.
+ * <p>
+ * Each request is a line holding the directory of the run followed by the ten
+ * arguments of {@link AppExample#main(String[])}, separated by blanks. The run
+ * writes its text logs, its <tt>stdout.txt</tt> and its result file in that
+ * directory, like a run of {@link ExperimentRunner}. The answer is a line
+ * <tt>OK &lt;directory&gt; &lt;seconds&gt;</tt> or
+ * <tt>ERROR &lt;directory&gt; &lt;message&gt;</tt>. The line <tt>quit</tt>
+ * stops the server. A request holding the directory followed by
+ * <tt>restore &lt;checkpoint&gt;</tt> resumes a simulation from a checkpoint
+ * instead (see {@link AppExample#resume(File)}), so several runs can be forked
+ * from the same state.
+ * <p>
+ * From the command line:
+ *
+ * <pre>
+ * java org.fog.vmmobile.SimulationServer [port]
+ * </pre>
+ *
+ * Without a port, the requests are read from the standard input and the
+ * answers written to the standard output. With a port, the server listens on
+ * the loopback address and serves one connection at a time, each one with any
+ * number of requests. The runs are sequential either way; see
+ * {@link ExperimentRunner} for runs at once.
+ */
+public class SimulationServer {
+
+	private final PrintStream console;
+	private boolean stopped;
+
+	public SimulationServer() {
+		RunConsole.install();
+		console = RunConsole.getConsole();
+	}
+
+	/**
+	 * Serves the requests of a stream until its end or a <tt>quit</tt> line.
+	 *
+	 * @param in
+	 *        - the requests
+	 * @param out
+	 *        - the answers
+	 * @throws IOException
+	 *         if the requests can not be read
+	 */
+	public void serve(BufferedReader in, PrintWriter out) throws IOException {
+		String line;
+		while (!stopped && (line = in.readLine()) != null) {
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+			if (line.equals("quit")) {
+				stopped = true;
+				break;
+			}
+			out.println(handle(line));
+			out.flush();
+		}
+	}
+
+	/**
+	 * Runs the simulation of a request.
+	 *
+	 * @param request
+	 *        - the run directory and the arguments of {@link AppExample}
+	 * @return the answer
+	 */
+	public String handle(String request) {
+		String[] fields = request.split("\\s+");
+		File runDir = new File(fields[0]);
+		String[] arguments = Arrays.copyOfRange(fields, 1, fields.length);
+		boolean restore = arguments.length == 2 && arguments[0].equals("restore");
+		if (!restore && arguments.length != ExperimentRunner.ARGUMENTS) {
+			return "ERROR " + runDir + " expected " + ExperimentRunner.ARGUMENTS
+				+ " arguments, got " + arguments.length;
+		}
+		try {
+			long start = System.nanoTime();
+			ExperimentRunner.runOne(runDir, restore ? null : arguments,
+				restore ? new File(arguments[1]) : null);
+			return String.format("OK %s %.3f", runDir, (System.nanoTime() - start) / 1e9);
+		} catch (Exception e) {
+			e.printStackTrace();
+			return "ERROR " + runDir + " " + e;
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		SimulationServer server = new SimulationServer();
+		if (args.length == 0) {
+			server.serve(new BufferedReader(new InputStreamReader(System.in)), new PrintWriter(
+				new OutputStreamWriter(server.console)));
+			return;
+		}
+		try (ServerSocket socket = new ServerSocket(Integer.parseInt(args[0]), 1,
+			InetAddress.getLoopbackAddress())) {
+			System.err.println("Listening on " + socket.getLocalSocketAddress());
+			while (!server.stopped) {
+				try (Socket client = socket.accept()) {
+					server.serve(new BufferedReader(new InputStreamReader(client.getInputStream())),
+						new PrintWriter(new OutputStreamWriter(client.getOutputStream())));
+				}
+			}
+		}
+	}
+}
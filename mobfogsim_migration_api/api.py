@@ -1,4 +1,5 @@
 import logging
+from typing import List
 from fastapi import FastAPI
 from pydantic import BaseModel
 import torch
@@ -66,6 +67,18 @@ class ResponseData(BaseModel):
     """
     shouldMigrate: bool
 
+class BatchRequestData(BaseModel):
+    """
+    Batch request body structure: the devices evaluated in one simulation tick.
+    """
+    requests: List[RequestData]
+
+class BatchResponseData(BaseModel):
+    """
+    Batch response body structure: one decision per request, in order.
+    """
+    decisions: List[bool]
+
 def run_inference(is_mig_point: bool, is_mig_zone: bool) -> bool:
     """
     Runs inference on the model given the migration point and zone status.
@@ -80,6 +93,19 @@ def run_inference(is_mig_point: bool, is_mig_zone: bool) -> bool:
         prob = torch.sigmoid(logits).item()
     return prob > 0.5
 
+def run_batch_inference(requests: List[RequestData]) -> List[bool]:
+    """
+    Runs inference on the model for several devices in a single forward pass.
+    """
+    if not requests:
+        return []
+    input_features = np.array([[1 if r.IsMigPoint else 0, 1 if r.IsMigZone else 0] for r in requests],
+                              dtype=np.float32)
+    input_tensor = torch.tensor(input_features).to(DEVICE)
+    with torch.no_grad():
+        probs = torch.sigmoid(model(input_tensor).squeeze(1))
+    return [bool(p > 0.5) for p in probs.tolist()]
+
 @app.post("/should_migrate", response_model=ResponseData)
 async def should_migrate(data: RequestData):
     """
@@ -89,3 +115,12 @@ async def should_migrate(data: RequestData):
     decision = run_inference(data.IsMigPoint, data.IsMigZone)
     logging.info(f"Decision: {decision} for request: PosX={data.PosX}, PosY={data.PosY}, Direction={data.Direction}, Speed={data.Speed}")
     return ResponseData(shouldMigrate=decision)
+
+@app.post("/should_migrate_batch", response_model=BatchResponseData)
+async def should_migrate_batch(data: BatchRequestData):
+    """
+    Endpoint for determining if each device of a batch should migrate.
+    """
+    decisions = run_batch_inference(data.requests)
+    logging.info(f"Batch of {len(data.requests)} requests: {sum(decisions)} migrations")
+    return BatchResponseData(decisions=decisions)
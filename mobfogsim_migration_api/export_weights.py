@@ -0,0 +1,54 @@
+"""
+Exports the weights of the migration decision model to the text file read by
+the simulator (org.fog.vmmigration.MigrationModel), so that MobFogSim can run
+the model itself, without this API (migration strategy 4).
+
+Usage: python export_weights.py [checkpoint] [output]
+
+The checkpoint defaults to decision_model.pth and the output to
+decision_model.weights, next to the checkpoint.
+"""
+import os
+import sys
+import torch
+
+DEFAULT_CHECKPOINT = "decision_model.pth"
+
+
+def dense_layers(state_dict):
+    """
+    Returns the (weight, bias) pairs of the linear layers, in order.
+    """
+    layers = []
+    for key, weight in state_dict.items():
+        if key.endswith(".weight"):
+            bias = state_dict[key[:-len(".weight")] + ".bias"]
+            layers.append((weight, bias))
+    return layers
+
+
+def export(checkpoint_path, output_path):
+    """
+    Writes the layers of a MigrationModel checkpoint. The hidden layers are
+    followed by a ReLU and the last one by the sigmoid the API applies to the
+    logit, so the simulator gets the probability of migrating.
+    """
+    checkpoint = torch.load(checkpoint_path, map_location="cpu")
+    layers = dense_layers(checkpoint["model_state_dict"])
+    with open(output_path, "w") as out:
+        out.write(f"# MigrationModel exported from {os.path.basename(checkpoint_path)}\n")
+        out.write(f"mlp {checkpoint['input_dim']}\n")
+        for i, (weight, bias) in enumerate(layers):
+            activation = "sigmoid" if i == len(layers) - 1 else "relu"
+            out.write(f"dense {weight.shape[0]} {activation}\n")
+            for row in weight.tolist():
+                out.write(" ".join(f"{w:.9g}" for w in row) + "\n")
+            out.write(" ".join(f"{b:.9g}" for b in bias.tolist()) + "\n")
+
+
+if __name__ == "__main__":
+    checkpoint_path = sys.argv[1] if len(sys.argv) > 1 else DEFAULT_CHECKPOINT
+    output_path = sys.argv[2] if len(sys.argv) > 2 else os.path.join(
+        os.path.dirname(checkpoint_path), "decision_model.weights")
+    export(checkpoint_path, output_path)
+    print(f"Exported {checkpoint_path} to {output_path}")